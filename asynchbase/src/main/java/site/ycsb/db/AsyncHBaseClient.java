@@ -25,6 +25,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.hbase.async.Bytes;
 import org.hbase.async.Config;
@@ -35,6 +37,8 @@ import org.hbase.async.KeyValue;
 import org.hbase.async.PutRequest;
 import org.hbase.async.Scanner;
 
+import com.stumbleupon.async.Callback;
+
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DBException;
@@ -244,6 +248,105 @@ public class AsyncHBaseClient extends site.ycsb.DB {
     return Status.ERROR;
   }
 
+  /**
+   * Issues the get without joining on the returned deferred, completing the
+   * stage from the AsyncHBase callback instead.
+   */
+  @Override
+  public CompletionStage<Status> readAsync(String table, String key,
+      Set<String> fields, final Map<String, ByteIterator> result) {
+    setTable(table);
+
+    final GetRequest get = new GetRequest(
+        lastTableBytes, key.getBytes(), columnFamilyBytes);
+    if (fields != null) {
+      get.qualifiers(getQualifierList(fields));
+    }
+
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    client.get(get).addCallbacks(
+        new Callback<Object, ArrayList<KeyValue>>() {
+          @Override
+          public Object call(final ArrayList<KeyValue> row) {
+            if (row == null || row.isEmpty()) {
+              future.complete(Status.NOT_FOUND);
+              return null;
+            }
+            for (final KeyValue column : row) {
+              result.put(new String(column.qualifier()),
+                  new ByteArrayByteIterator(column.value()));
+            }
+            future.complete(Status.OK);
+            return null;
+          }
+        },
+        new Callback<Object, Exception>() {
+          @Override
+          public Object call(final Exception e) {
+            System.err.println("Failure reading from row with key " + key +
+                ": " + e.getMessage());
+            future.complete(Status.ERROR);
+            return null;
+          }
+        });
+    return future;
+  }
+
+  /**
+   * The workloads read with attributes, which HBase does not store, so this is
+   * the get of {@link #readAsync(String, String, Set, Map)}.
+   */
+  @Override
+  public CompletionStage<Status> readWithAttributesAsync(String table,
+      String key, Set<String> fields, Map<String, ByteIterator> result,
+      Map<String, String> attributes) {
+    return readAsync(table, key, fields, result);
+  }
+
+  /**
+   * Issues the put without joining on the returned deferred, completing the
+   * stage from the AsyncHBase callback instead. With client side buffering the
+   * put is only flushed later, so the stage completes at once, as the blocking
+   * update returns at once.
+   */
+  @Override
+  public CompletionStage<Status> updateWithAttributesAsync(String table,
+      final String key, Map<String, ByteIterator> values,
+      Map<String, String> attributes) {
+    final PutRequest put = newPut(table, key, values);
+    if (clientSideBuffering) {
+      client.put(put);
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+    put.setBufferable(false);
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    client.put(put).addCallbacks(
+        new Callback<Object, Object>() {
+          @Override
+          public Object call(final Object ignored) {
+            future.complete(Status.OK);
+            return null;
+          }
+        },
+        new Callback<Object, Exception>() {
+          @Override
+          public Object call(final Exception e) {
+            System.err.println("Failure writing to row with key " + key +
+                ": " + e.getMessage());
+            future.complete(Status.ERROR);
+            return null;
+          }
+        });
+    return future;
+  }
+
+  @Override
+  public CompletionStage<Status> insertWithAttributesAsync(String table,
+      String key, Map<String, ByteIterator> values,
+      Map<String, String> attributes) {
+    return updateWithAttributesAsync(table, key, values, attributes);
+  }
+
   @Override
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
@@ -301,6 +404,34 @@ public class AsyncHBaseClient extends site.ycsb.DB {
   @Override
   public Status update(String table, String key,
                        Map<String, ByteIterator> values) {
+    final PutRequest put = newPut(table, key, values);
+    if (!clientSideBuffering) {
+      put.setBufferable(false);
+      try {
+        client.put(put).join(joinTimeout);
+      } catch (InterruptedException e) {
+        System.err.println("Thread interrupted");
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        System.err.println("Failure reading from row with key " + key + 
+            ": " + e.getMessage());
+        return Status.ERROR;
+      }
+    } else {
+      // hooray! Asynchronous write. But without a callback and an async
+      // YCSB call we don't know whether it succeeded or not
+      client.put(put);
+    }
+    
+    return Status.OK;
+  }
+
+  /**
+   * Builds the put of the values of a record, shared by the blocking and the
+   * asynchronous writes.
+   */
+  private PutRequest newPut(String table, String key,
+                            Map<String, ByteIterator> values) {
     setTable(table);
     
     if (debug) {
@@ -325,25 +456,7 @@ public class AsyncHBaseClient extends site.ycsb.DB {
     if (!durability) {
       put.setDurable(false);
     }
-    if (!clientSideBuffering) {
-      put.setBufferable(false);
-      try {
-        client.put(put).join(joinTimeout);
-      } catch (InterruptedException e) {
-        System.err.println("Thread interrupted");
-        Thread.currentThread().interrupt();
-      } catch (Exception e) {
-        System.err.println("Failure reading from row with key " + key + 
-            ": " + e.getMessage());
-        return Status.ERROR;
-      }
-    } else {
-      // hooray! Asynchronous write. But without a callback and an async
-      // YCSB call we don't know whether it succeeded or not
-      client.put(put);
-    }
-    
-    return Status.OK;
+    return put;
   }
 
   @Override
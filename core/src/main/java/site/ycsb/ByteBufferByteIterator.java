@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A ByteIterator over the bytes between a ByteBuffer's position and limit. Bytes are read with absolute gets, so the
+ * buffer itself is never modified and may be shared between threads.
+ */
+public class ByteBufferByteIterator extends ByteIterator {
+  private final ByteBuffer buf;
+  private final int originalOffset;
+  private final int len;
+  private int off;
+
+  public ByteBufferByteIterator(ByteBuffer b) {
+    this(b, b.position(), b.remaining());
+  }
+
+  public ByteBufferByteIterator(ByteBuffer b, int off, int len) {
+    this.buf = b;
+    this.off = off;
+    this.len = off + len;
+    originalOffset = off;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  @Override
+  public byte nextByte() {
+    byte ret = buf.get(off);
+    off++;
+    return ret;
+  }
+
+  @Override
+  public int nextBuf(byte[] buffer, int bufOff) {
+    int n = Math.min(buffer.length - bufOff, len - off);
+    if (n <= 0) {
+      return bufOff;
+    }
+    view(n).get(buffer, bufOff, n);
+    off += n;
+    return bufOff + n;
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+
+  @Override
+  public void reset() {
+    off = originalOffset;
+  }
+
+  @Override
+  public byte[] toArray() {
+    byte[] bytes = new byte[len - off];
+    view(bytes.length).get(bytes);
+    off = len;
+    return bytes;
+  }
+
+  /** Consumes remaining contents of this object, and returns them as a read-only view of the underlying buffer. */
+  @Override
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer ret = view(len - off).slice().asReadOnlyBuffer();
+    off = len;
+    return ret;
+  }
+
+  /** A duplicate of the underlying buffer covering the next n bytes. */
+  private ByteBuffer view(int n) {
+    ByteBuffer dup = buf.duplicate();
+    // Cast so that the class links against the Java 8 Buffer methods.
+    ((Buffer) dup).limit(off + n);
+    ((Buffer) dup).position(off);
+    return dup;
+  }
+
+}
@@ -102,4 +102,12 @@ public abstract class ByteIterator implements Iterator<Byte> {
     return ret;
   }
 
+  /**
+   * Consumes remaining contents of this object, and returns them as a read-only
+   * ByteBuffer. Implementations backed by a buffer return a view without copying.
+   */
+  public ByteBuffer toByteBuffer() {
+    return ByteBuffer.wrap(toArray()).asReadOnlyBuffer();
+  }
+
 }
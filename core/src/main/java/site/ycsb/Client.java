@@ -17,6 +17,10 @@
 
 package site.ycsb;
 
+import site.ycsb.arrival.ArrivalProcess;
+import site.ycsb.arrival.ConstantArrivalProcess;
+import site.ycsb.coordinator.CoordinatorClient;
+import site.ycsb.coordinator.CoordinatorServer;
 import site.ycsb.measurements.Measurements;
 import site.ycsb.measurements.exporter.MeasurementsExporter;
 import site.ycsb.measurements.exporter.TextMeasurementsExporter;
@@ -28,9 +32,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 // import java.io.BufferedReader;
 // import java.io.InputStreamReader;
@@ -137,6 +147,24 @@ public final class Client {
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
   public static final String WARMPUP_TIME = "warmuptime";
+
+  /**
+   * The kind of thread the client threads run on: "platform" (default) or "virtual". Virtual threads need a
+   * Java 21+ runtime; on older runtimes the client falls back to platform threads.
+   */
+  public static final String CLIENT_THREADS_TYPE_PROPERTY = "clientthreads.type";
+
+  public static final String CLIENT_THREADS_TYPE_PROPERTY_DEFAULT = "platform";
+
+  /**
+   * The role of this process in a multi-node run: "none" (default), "master", which only coordinates the
+   * clients and reports their merged measurements, or "client", which starts when the master releases it and
+   * streams its measurements to the master.
+   */
+  public static final String COORDINATOR_PROPERTY = "coordinator";
+
+  public static final String COORDINATOR_PROPERTY_DEFAULT = "none";
+
   /**
    * Whether or not this is the transaction phase (run) or not (load).
    */
@@ -164,6 +192,16 @@ public final class Client {
    */
   private static StatusThread statusthread = null;
 
+  /**
+   * Ends the warmup once the run is steady, if warmup.mode is auto.
+   */
+  private static SteadyStateDetector steadyStateDetector = null;
+
+  /**
+   * Searches for the highest throughput meeting a latency SLO, if slo.latency is set.
+   */
+  private static SloSearchThread sloSearchThread = null;
+
   // HTrace integration related constants.
 
   /**
@@ -176,7 +214,7 @@ public final class Client {
   private static final String CLIENT_CLEANUP_SPAN = "Client#cleanup";
   private static final String CLIENT_EXPORT_MEASUREMENTS_SPAN = "Client#export_measurements";
 
-  private static long startTs;
+  private static volatile long startTs;
 
   public static void usageMessage() {
     System.out.println("Usage: java site.ycsb.Client [options]");
@@ -208,7 +246,9 @@ public final class Client {
   }
 
   public static boolean checkRequiredProperties(Properties props) {
-    if (props.getProperty(WORKLOAD_PROPERTY) == null) {
+    // the master of a multi-node run does not run a workload
+    if (props.getProperty(WORKLOAD_PROPERTY) == null
+        && !props.getProperty(COORDINATOR_PROPERTY, COORDINATOR_PROPERTY_DEFAULT).equals("master")) {
       System.out.println("Missing property: " + WORKLOAD_PROPERTY);
       return false;
     }
@@ -230,30 +270,17 @@ public final class Client {
       throws IOException {
     MeasurementsExporter exporter = null;
     try {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null) {
-        out = System.out;
-      } else {
-        out = new FileOutputStream(exportFile);
-      }
-
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY,
-          "site.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
-            .newInstance(out);
-      } catch (Exception e) {
-        System.err.println("Could not find exporter " + exporterStr
-            + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
-      }
+      exporter = createExporter(props);
 
       exporter.write("OVERALL", "RunTime(ms)", runtime);
       exporter.write("OVERALL", "RunTime/Warmup (ms)", runTimeMWarmup);
+      if (steadyStateDetector != null) {
+        exporter.write("OVERALL", "Warmup(ms)", steadyStateDetector.getWarmupMs());
+        exporter.write("OVERALL", "WarmupSteady", steadyStateDetector.isSteady() ? 1 : 0);
+      } else if (Integer.parseInt(props.getProperty(WARMPUP_TIME, "0")) > 0) {
+        exporter.write("OVERALL", "Warmup(ms)", TimeUnit.SECONDS.toMillis(
+            Integer.parseInt(props.getProperty(WARMPUP_TIME, "0"))));
+      }
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
@@ -282,6 +309,10 @@ public final class Client {
       }
 
       Measurements.getMeasurements().exportMeasurements(exporter, runTimeMWarmup);
+      FreshnessTracker.getTracker().exportMeasurements(exporter);
+      if (sloSearchThread != null) {
+        sloSearchThread.exportMeasurements(exporter);
+      }
     } finally {
       if (exporter != null) {
         exporter.close();
@@ -289,6 +320,53 @@ public final class Client {
     }
   }
 
+  /**
+   * Creates the exporter configured by the exporter and exportfile properties.
+   */
+  private static MeasurementsExporter createExporter(Properties props) throws IOException {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null) {
+      out = System.out;
+    } else {
+      out = new FileOutputStream(exportFile);
+    }
+
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY,
+        "site.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try {
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
+          .newInstance(out);
+    } catch (Exception e) {
+      System.err.println("Could not find exporter " + exporterStr
+          + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
+  /**
+   * Runs the master of a multi-node run, instead of a workload.
+   */
+  private static void runCoordinator(Properties props) {
+    try (CoordinatorServer coordinator = new CoordinatorServer(props)) {
+      System.err.println("Coordinating on port " + coordinator.getPort() + ".");
+      coordinator.run();
+      MeasurementsExporter exporter = createExporter(props);
+      try {
+        coordinator.exportMeasurements(exporter);
+      } finally {
+        exporter.close();
+      }
+    } catch (IOException | InterruptedException e) {
+      System.err.println("Coordinating the clients failed: " + e);
+      e.printStackTrace();
+      System.exit(-1);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public static void main(String[] args) {
     Properties props = parseArguments(args);
@@ -324,6 +402,30 @@ public final class Client {
     warningthread.start();
 
     Measurements.setProperties(props);
+    FreshnessTracker.setProperties(props);
+
+    String coordinatorRole = props.getProperty(COORDINATOR_PROPERTY, COORDINATOR_PROPERTY_DEFAULT);
+    if (coordinatorRole.equals("master")) {
+      runCoordinator(props);
+      System.exit(0);
+    } else if (!coordinatorRole.equals("client") && !coordinatorRole.equals("none")) {
+      System.err.println("Unknown " + COORDINATOR_PROPERTY + " \"" + coordinatorRole + "\"");
+      System.exit(0);
+    }
+
+    MetricsServer metricsServer = null;
+    if (MetricsServer.isEnabled(props)) {
+      try {
+        metricsServer = new MetricsServer(props, Measurements.getMeasurements());
+        System.err.println("Serving metrics on port " + metricsServer.getPort() + ".");
+      } catch (IOException e) {
+        System.err.println("Could not start the metrics endpoint: " + e);
+        e.printStackTrace();
+        System.exit(-1);
+      }
+      // the endpoint is fed by the intervals the status thread takes
+      status = true;
+    }
 
     Workload workload = getWorkload(props);
 
@@ -348,7 +450,52 @@ public final class Client {
     final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
         workload, tracer, completeLatch);
 
-    clients.get(0).preload();
+    // an SLO search drives the rate of an arrival process, constant unless another one is set
+    boolean sloSearch = SloSearchThread.isEnabled(props);
+    ArrivalProcess arrivals = getArrivalProcess(props,
+        sloSearch ? (int) Math.ceil(SloSearchThread.getInitialRate(props)) : target);
+    if (arrivals == null && sloSearch) {
+      arrivals = new ConstantArrivalProcess(SloSearchThread.getInitialRate(props));
+    }
+    if (sloSearch) {
+      // the search is fed by the intervals the status thread takes
+      status = true;
+    }
+    if (arrivals != null) {
+      for (ClientThread client : clients) {
+        client.setArrivalProcess(arrivals);
+      }
+    }
+
+    final List<DB> preloadDBs = preload(dbname, props, tracer, workload, threadcount);
+
+    CoordinatorClient coordinator = null;
+    if (coordinatorRole.equals("client")) {
+      try {
+        coordinator = new CoordinatorClient(props);
+        System.err.println("Waiting for the coordinator to start the clients.");
+        coordinator.awaitStart();
+        coordinator.start();
+      } catch (IOException e) {
+        System.err.println("Could not join the coordinator: " + e);
+        e.printStackTrace();
+        System.exit(-1);
+      }
+      // the master is fed by the intervals the status thread takes
+      status = true;
+    }
+
+    if (SteadyStateDetector.isEnabled(props)) {
+      steadyStateDetector = new SteadyStateDetector(props, () -> {
+          for (ClientThread client : clients) {
+            client.endWarmup();
+          }
+          startTimer();
+        });
+      Measurements.getMeasurements().addIntervalListener(steadyStateDetector);
+      // the detector is fed by the intervals the status thread takes
+      status = true;
+    }
 
     if (status) {
       boolean standardstatus = false;
@@ -370,29 +517,42 @@ public final class Client {
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
+      final ThreadFactory threadFactory = clientThreadFactory(props);
       final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
       for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+        threads.put(threadFactory.newThread(tracer.wrap(client, "ClientThread")), client);
       }
 
       st = System.currentTimeMillis();
+      startTimer();
 
       for (Thread t : threads.keySet()) {
         t.start();
       }
 
-      FreshnessMeasurementThread freshnessThread = new FreshnessMeasurementThread(clients.get(0).getDB(), props);
+      FreshnessMeasurementThread freshnessThread = new FreshnessMeasurementThread(dbname, props, tracer, workload);
       if (Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)))
           && Boolean.valueOf(props.getProperty("measure.freshness", String.valueOf(false)))) {
         freshnessThread.start();
       }
 
+      if (sloSearch) {
+        try {
+          sloSearchThread = new SloSearchThread(props, arrivals, Measurements.getMeasurements(), workload,
+              freshnessThread);
+        } catch (IllegalArgumentException e) {
+          System.err.println("Could not set up the SLO search: " + e.getMessage());
+          System.exit(0);
+        }
+        sloSearchThread.start();
+      }
+
       if (maxExecutionTime > 0) {
         terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload, freshnessThread);
         terminator.start();
       }
 
-      if (warmupTime > 0) {
+      if (warmupTime > 0 && steadyStateDetector == null) {
         Thread warmupThread = new WarmupPeriodThread(warmupTime, clients);
         warmupThread.start();
       }
@@ -428,6 +588,15 @@ public final class Client {
           }
         }
 
+        // only now the status thread took the final interval the master has to receive
+        if (coordinator != null) {
+          try {
+            coordinator.close();
+          } catch (IOException e) {
+            System.err.println("Could not report to the coordinator: " + e);
+          }
+        }
+
         workload.cleanup();
       }
     } catch (WorkloadException e) {
@@ -444,11 +613,15 @@ public final class Client {
         e.printStackTrace(System.out);
       }
     }
+    cleanupPreloadDBs(preloadDBs);
 
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
         exportMeasurements(props, opsDone, en - st, en - startTs);
       }
+      if (metricsServer != null) {
+        metricsServer.close();
+      }
     } catch (IOException e) {
       System.err.println("Could not export measurements, error: " + e.getMessage());
       e.printStackTrace();
@@ -457,6 +630,124 @@ public final class Client {
     System.exit(0);
   }
 
+  /**
+   * Creates the client threads: virtual ones if they were requested and the runtime supports them, platform
+   * ones otherwise.
+   */
+  static ThreadFactory clientThreadFactory(Properties props) {
+    return clientThreadFactory(props, Thread.class);
+  }
+
+  /**
+   * As {@link #clientThreadFactory(Properties)}, taking virtual threads from the ofVirtual() builder of the given
+   * class. Done reflectively so the client still builds for, and runs on, runtimes without virtual threads.
+   */
+  static ThreadFactory clientThreadFactory(Properties props, Class<?> threads) {
+    String type = props.getProperty(CLIENT_THREADS_TYPE_PROPERTY, CLIENT_THREADS_TYPE_PROPERTY_DEFAULT);
+    if (type.equals("platform")) {
+      return Thread::new;
+    }
+    if (!type.equals("virtual")) {
+      System.err.println("Unknown " + CLIENT_THREADS_TYPE_PROPERTY + " \"" + type + "\"");
+      System.exit(0);
+    }
+    final Method ofVirtual;
+    final Method unstarted;
+    try {
+      ofVirtual = threads.getMethod("ofVirtual");
+      unstarted = ofVirtual.getReturnType().getMethod("unstarted", Runnable.class);
+    } catch (NoSuchMethodException e) {
+      System.err.println("Virtual threads are not supported by this Java runtime (" +
+          System.getProperty("java.version") + "), running the clients on platform threads.");
+      return Thread::new;
+    }
+    return runnable -> {
+      try {
+        return (Thread) unstarted.invoke(ofVirtual.invoke(null), runnable);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Could not create a virtual thread", e);
+      }
+    };
+  }
+
+  private static ArrivalProcess getArrivalProcess(Properties props, int target) {
+    try {
+      return ArrivalProcess.create(props, target);
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("Could not set up the arrival process: " + e.getMessage());
+      System.exit(0);
+      return null;
+    }
+  }
+
+  /**
+   * Preloads the workload in as many disjoint parts as it asks for, run at once on a pool of that many threads,
+   * virtual ones if the client threads are. Every part gets a DB of its own, so the client threads' DBs are only
+   * ever initialized on the client threads. The DBs of the parts are left open until the run ends, as bindings
+   * sharing state among their instances, such as S3Client's, tear it down once their last instance is cleaned up.
+   *
+   * @return the DBs of the parts, to be cleaned up with {@link #cleanupPreloadDBs(List)}
+   */
+  static List<DB> preload(String dbname, Properties props, Tracer tracer, Workload workload, int threadcount) {
+    final int parts = workload.preloadParts(props, threadcount);
+    if (parts <= 0) {
+      return Collections.emptyList();
+    }
+    final DB[] dbs = new DB[parts];
+    ExecutorService preloaders = Executors.newFixedThreadPool(parts, clientThreadFactory(props));
+    List<Future<?>> done = new ArrayList<>(parts);
+    for (int i = 0; i < parts; i++) {
+      final int part = i;
+      done.add(preloaders.submit(() -> {
+          DB db;
+          try {
+            db = DBFactory.newDB(dbname, props, tracer);
+            db.init();
+          } catch (UnknownDBException | DBException e) {
+            e.printStackTrace();
+            e.printStackTrace(System.out);
+            return;
+          }
+          dbs[part] = db;
+          workload.preload(props, db, part, parts);
+        }));
+    }
+    try {
+      for (Future<?> part : done) {
+        part.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      System.err.println("Could not preload the workload: " + e.getCause());
+      e.getCause().printStackTrace();
+      System.exit(-1);
+    } finally {
+      preloaders.shutdownNow();
+    }
+    List<DB> opened = new ArrayList<>(parts);
+    for (DB db : dbs) {
+      if (db != null) {
+        opened.add(db);
+      }
+    }
+    return opened;
+  }
+
+  /**
+   * Cleans up the DBs the preload left open, after those of the client threads.
+   */
+  static void cleanupPreloadDBs(List<DB> dbs) {
+    for (DB db : dbs) {
+      try {
+        db.cleanup();
+      } catch (DBException e) {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+      }
+    }
+  }
+
   private static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
                                            double targetperthreadperms, Workload workload, Tracer tracer,
                                            CountDownLatch completeLatch) {
@@ -17,16 +17,32 @@
 
 package site.ycsb;
 
+import site.ycsb.arrival.ArrivalProcess;
 import site.ycsb.measurements.Measurements;
 import java.util.Properties;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
 
 /**
  * A thread for executing transactions or data inserts to the database.
  */
 public class ClientThread implements Runnable {
+  /**
+   * The number of operations each client thread keeps in flight. With a value greater than 1 the thread
+   * issues operations through the asynchronous workload and DB API and only waits when its window is full,
+   * so the offered load is no longer bounded by threadcount / latency.
+   */
+  public static final String IN_FLIGHT_PROPERTY = "inflight";
+
+  /**
+   * The default number of operations in flight per client thread.
+   */
+  public static final String IN_FLIGHT_PROPERTY_DEFAULT = "1";
+
   // Counts down each of the clients completing.
   private final CountDownLatch completeLatch;
 
@@ -44,6 +60,12 @@ public class ClientThread implements Runnable {
   private Properties props;
   private long targetOpsTickNs;
   private final Measurements measurements;
+  private ArrivalProcess arrivals;
+
+  private final int inflight;
+  // Asynchronous operations that completed with false; they are not counted as done.
+  private final AtomicInteger rejectedAsyncOps = new AtomicInteger();
+  private volatile boolean asyncWorkDone;
 
   /**
    * Constructor.
@@ -69,7 +91,11 @@ public class ClientThread implements Runnable {
     }
     this.props = props;
     measurements = Measurements.getMeasurements();
-    spinSleep = Boolean.valueOf(this.props.getProperty("spin.sleep", "false"));
+    // Spinning would pin the carrier threads that virtual client threads are scheduled on.
+    spinSleep = Boolean.valueOf(this.props.getProperty("spin.sleep", "false")) &&
+        !this.props.getProperty(Client.CLIENT_THREADS_TYPE_PROPERTY,
+            Client.CLIENT_THREADS_TYPE_PROPERTY_DEFAULT).equals("virtual");
+    inflight = Integer.parseInt(this.props.getProperty(IN_FLIGHT_PROPERTY, IN_FLIGHT_PROPERTY_DEFAULT));
     this.completeLatch = completeLatch;
   }
 
@@ -81,18 +107,17 @@ public class ClientThread implements Runnable {
     threadcount = threadCount;
   }
 
-  public int getOpsDone() {
-    return opsdone;
+  /**
+   * Schedules the operations of this thread by an arrival process shared with the other client threads,
+   * instead of by the per-thread target ticks.
+   */
+  public void setArrivalProcess(final ArrivalProcess arrivalProcess) {
+    arrivals = arrivalProcess;
+    targetOpsPerMs = 0;
   }
 
-  public void preload() {
-    try {
-      db.init();
-    } catch (DBException e) {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-    }
-    workload.preload(props, db);
+  public int getOpsDone() {
+    return opsdone - rejectedAsyncOps.get();
   }
 
   public DB getDB() {
@@ -106,6 +131,8 @@ public class ClientThread implements Runnable {
     } catch (DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
+      // Still count down so the status thread and Client.main are not left waiting on this client.
+      completeLatch.countDown();
       return;
     }
 
@@ -114,6 +141,7 @@ public class ClientThread implements Runnable {
     } catch (WorkloadException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
+      completeLatch.countDown();
       return;
     }
 
@@ -128,10 +156,13 @@ public class ClientThread implements Runnable {
       sleepUntil(System.nanoTime() + randomMinorDelay);
     }
     try {
-      if (dotransactions) {
+      if (inflight > 1) {
+        runAsync();
+      } else if (dotransactions) {
         long startTimeNanos = System.nanoTime();
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
+          awaitArrival();
 
           if (!workload.doTransaction(db, workloadstate)) {
             break;
@@ -145,6 +176,7 @@ public class ClientThread implements Runnable {
         long startTimeNanos = System.nanoTime();
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
+          awaitArrival();
 
           if (!workload.doInsert(db, workloadstate)) {
             break;
@@ -172,6 +204,43 @@ public class ClientThread implements Runnable {
     // }
   }
 
+  /**
+   * Issues operations through the asynchronous workload API, keeping at most {@link #inflight} of them
+   * outstanding. Throttling and intended start times work as in the blocking loop since both are driven
+   * from this thread at issue time.
+   */
+  private void runAsync() throws InterruptedException {
+    final Semaphore window = new Semaphore(inflight);
+    long startTimeNanos = System.nanoTime();
+
+    while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested() && !asyncWorkDone) {
+      // an arrival that has to wait for a free slot is charged that wait, as in an open system
+      awaitArrival();
+      window.acquire();
+
+      CompletionStage<Boolean> stage = dotransactions ?
+          workload.doTransactionAsync(db, workloadstate) :
+          workload.doInsertAsync(db, workloadstate);
+      stage.whenComplete((more, error) -> {
+          if (error != null) {
+            error.printStackTrace();
+          }
+          if (error != null || !more) {
+            rejectedAsyncOps.incrementAndGet();
+            asyncWorkDone = true;
+          }
+          window.release();
+        });
+
+      opsdone++;
+
+      throttleNanos(startTimeNanos);
+    }
+
+    // wait for the operations still in flight
+    window.acquire(inflight);
+  }
+
   private static void sleepUntil(long deadline) {
     while (System.nanoTime() < deadline) {
       if (!spinSleep) {
@@ -180,6 +249,18 @@ public class ClientThread implements Runnable {
     }
   }
 
+  /**
+   * With an arrival process, waits for the next arrival and makes it the intended start time of the operation.
+   * Arrivals already past (all threads were busy) are served right away.
+   */
+  private void awaitArrival() {
+    if (arrivals != null) {
+      long arrival = arrivals.nextArrivalNs();
+      sleepUntil(arrival);
+      measurements.setIntendedStartTimeNs(arrival);
+    }
+  }
+
   private void throttleNanos(long startTimeNanos) {
     //throttle the operations
     if (targetOpsPerMs > 0) {
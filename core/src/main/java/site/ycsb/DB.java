@@ -17,11 +17,14 @@
 
 package site.ycsb;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
 
 /**
@@ -42,6 +45,11 @@ import java.util.concurrent.CountDownLatch;
  * to match the database's default semantics, or the semantics of your 
  * target application.  For the sake of comparison between experiments we also 
  * recommend you explain the semantics you chose when presenting performance results.
+ *
+ * The *Async methods are the non-blocking variant of this contract, used when the client keeps more than one
+ * operation in flight per thread (see the "inflight" property). Their default implementations simply run the
+ * blocking method on the calling thread and return an already completed stage; bindings whose client library is
+ * asynchronous should override them so that the calling thread is free to issue the next operation.
  */
 public abstract class DB {
   /**
@@ -144,11 +152,145 @@ public abstract class DB {
    */
   public abstract Status delete(String table, String key);
 
+  /**
+   * Read a record by a key given as the bytes of its UTF-8 encoding. Bindings that address records by bytes
+   * should override the byte keyed methods to skip decoding the key; by default they decode it and call the
+   * String keyed method. The key array is reused by the caller, so it must not be kept after the call returns.
+   *
+   * @see #read(String, String, Set, Map)
+   */
+  public Status read(String table, byte[] key, Set<String> fields, Map<String, ByteIterator> result) {
+    return read(table, new String(key, StandardCharsets.UTF_8), fields, result);
+  }
+
+  /**
+   * Update a record by a key given as bytes, see {@link #read(String, byte[], Set, Map)}.
+   *
+   * @see #update(String, String, Map)
+   */
+  public Status update(String table, byte[] key, Map<String, ByteIterator> values) {
+    return update(table, new String(key, StandardCharsets.UTF_8), values);
+  }
+
+  /**
+   * Insert a record by a key given as bytes, see {@link #read(String, byte[], Set, Map)}.
+   *
+   * @see #insert(String, String, Map)
+   */
+  public Status insert(String table, byte[] key, Map<String, ByteIterator> values) {
+    return insert(table, new String(key, StandardCharsets.UTF_8), values);
+  }
+
+  /**
+   * Delete a record by a key given as bytes, see {@link #read(String, byte[], Set, Map)}.
+   *
+   * @see #delete(String, String)
+   */
+  public Status delete(String table, byte[] key) {
+    return delete(table, new String(key, StandardCharsets.UTF_8));
+  }
+
   public abstract Status query(String []attributeName, String []attributeType,  java.lang.Object []lbound,
                               java.lang.Object []ubound, long []en);
 
   public abstract Status subscribeQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
                               java.lang.Object []ubound, CountDownLatch finishLatch);
 
+  /**
+   * Subscribe to a query, passing every record delivered to a listener. Bindings that cannot pass records on
+   * subscribe without the listener.
+   *
+   * @param finishLatch Ends the subscription when counted down.
+   * @param listener Receives the records delivered.
+   * @return The result of setting up the subscription.
+   */
+  public Status subscribeQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
+                               java.lang.Object []ubound, CountDownLatch finishLatch, SubscriptionListener listener) {
+    return subscribeQuery(attributeName, attributeType, lbound, ubound, finishLatch);
+  }
+
   public abstract void endWarmup();
+
+  /**
+   * Asynchronous variant of {@link #read(String, String, Set, Map)}.
+   *
+   * @return A stage completed with the result of the operation once the record has been read.
+   */
+  public CompletionStage<Status> readAsync(String table, String key, Set<String> fields,
+                                           Map<String, ByteIterator> result) {
+    try {
+      return CompletableFuture.completedFuture(read(table, key, fields, result));
+    } catch (RuntimeException e) {
+      return failedStage(e);
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #readWithAttributes(String, String, Set, Map, Map)}.
+   *
+   * @return A stage completed with the result of the operation once the record has been read.
+   */
+  public CompletionStage<Status> readWithAttributesAsync(String table, String key, Set<String> fields,
+                                                         Map<String, ByteIterator> result,
+                                                         Map<String, String> attributes) {
+    try {
+      return CompletableFuture.completedFuture(readWithAttributes(table, key, fields, result, attributes));
+    } catch (RuntimeException e) {
+      return failedStage(e);
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #updateWithAttributes(String, String, Map, Map)}.
+   *
+   * @return A stage completed with the result of the operation once the record has been written.
+   */
+  public CompletionStage<Status> updateWithAttributesAsync(String table, String key,
+                                                           Map<String, ByteIterator> values,
+                                                           Map<String, String> attributes) {
+    try {
+      return CompletableFuture.completedFuture(updateWithAttributes(table, key, values, attributes));
+    } catch (RuntimeException e) {
+      return failedStage(e);
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #insertWithAttributes(String, String, Map, Map, long[])}.
+   *
+   * @return A stage completed with the result of the operation once the record has been written.
+   */
+  public CompletionStage<Status> insertWithAttributesAsync(String table, String key,
+                                                           Map<String, ByteIterator> values,
+                                                           Map<String, String> attributes) {
+    try {
+      return CompletableFuture.completedFuture(insertWithAttributes(table, key, values, attributes, null));
+    } catch (RuntimeException e) {
+      return failedStage(e);
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #query(String[], String[], Object[], Object[], long[])}. The stage is
+   * completed once the last result of the query has been received.
+   *
+   * @return A stage completed with the result of the operation.
+   */
+  public CompletionStage<Status> queryAsync(String []attributeName, String []attributeType,
+                                            java.lang.Object []lbound, java.lang.Object []ubound) {
+    try {
+      return CompletableFuture.completedFuture(query(attributeName, attributeType, lbound, ubound, new long[2]));
+    } catch (RuntimeException e) {
+      return failedStage(e);
+    }
+  }
+
+  /**
+   * Returns a stage that has already completed with the given exception.
+   */
+  protected static <T> CompletionStage<T> failedStage(Throwable t) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(t);
+    return future;
+  }
 }
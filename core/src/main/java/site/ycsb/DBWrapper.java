@@ -18,12 +18,15 @@
 package site.ycsb;
 
 import java.util.Map;
+import site.ycsb.measurements.MeasurementHandle;
 import site.ycsb.measurements.Measurements;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
 
 import java.util.*;
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 
 /**
@@ -57,11 +60,29 @@ public class DBWrapper extends DB {
   private final String scopeStringUpdateWithAttributes;
   private final String scopeStringQuery;
 
-  private boolean warmup = false;
+  private final OperationMeasurement cleanupMeasurement;
+  private final OperationMeasurement deleteMeasurement;
+  private final OperationMeasurement insertMeasurement;
+  private final OperationMeasurement readMeasurement;
+  private final OperationMeasurement scanMeasurement;
+  private final OperationMeasurement updateMeasurement;
+  private final OperationMeasurement readWithAttributesMeasurement;
+  private final OperationMeasurement insertWithAttributesMeasurement;
+  private final OperationMeasurement updateWithAttributesMeasurement;
+  private final OperationMeasurement queryMeasurement;
+
+  // Read from the completion callbacks of asynchronous operations.
+  private volatile boolean warmup = false;
+  // Where the operations are measured while warming up, if the warmup ends on a steady state.
+  private MeasurementHandle warmupMeasurement;
 
   public DBWrapper(final DB db, final Tracer tracer) {
+    this(db, tracer, Measurements.getMeasurements());
+  }
+
+  DBWrapper(final DB db, final Tracer tracer, final Measurements measurements) {
     this.db = db;
-    measurements = Measurements.getMeasurements();
+    this.measurements = measurements;
     this.tracer = tracer;
     final String simple = db.getClass().getSimpleName();
     scopeStringCleanup = simple + "#cleanup";
@@ -75,6 +96,16 @@ public class DBWrapper extends DB {
     scopeStringReadWithAttributes = simple + "#readWithAttributes";
     scopeStringUpdateWithAttributes = simple + "#updateWithAttributes";
     scopeStringQuery = simple + "#query";
+    cleanupMeasurement = new OperationMeasurement("CLEANUP");
+    deleteMeasurement = new OperationMeasurement("DELETE");
+    insertMeasurement = new OperationMeasurement("INSERT");
+    readMeasurement = new OperationMeasurement("READ");
+    scanMeasurement = new OperationMeasurement("SCAN");
+    updateMeasurement = new OperationMeasurement("UPDATE");
+    readWithAttributesMeasurement = new OperationMeasurement("READ_WITH_ATTRIBUTES");
+    insertWithAttributesMeasurement = new OperationMeasurement("INSERT_WITH_ATTRIBUTES");
+    updateWithAttributesMeasurement = new OperationMeasurement("UPDATE_WITH_ATTRIBUTES");
+    queryMeasurement = new OperationMeasurement("QUERY");
   }
 
   /**
@@ -118,6 +149,10 @@ public class DBWrapper extends DB {
       if (warmupTime > 0) {
         warmup = true;
       }
+      if (SteadyStateDetector.isEnabled(getProperties())) {
+        warmup = true;
+        warmupMeasurement = measurements.getHandle(SteadyStateDetector.WARMUP_METRIC);
+      }
 
       System.err.println("DBWrapper: report latency for each error is " +
           this.reportLatencyForEachError + " and specific error codes to track" +
@@ -135,7 +170,7 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       db.cleanup();
       long en = System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      cleanupMeasurement.measure(Status.OK, ist, st, en);
     }
   }
 
@@ -156,10 +191,31 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.read(table, key, fields, result);
       long en = System.nanoTime();
-      if (!warmup) {
-        measure("READ", res, ist, st, en);
-        measurements.reportStatus("READ", res);
-      }
+      readMeasurement.measure(res, ist, st, en);
+      readMeasurement.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Read a record from the database by a key given as the bytes of its UTF-8 encoding. Each field/value pair
+   * from the result will be stored in a HashMap.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to read, only valid during the call.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A HashMap of field/value pairs for the result
+   * @return The result of the operation.
+   */
+  public Status read(String table, byte[] key, Set<String> fields,
+                     Map<String, ByteIterator> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.read(table, key, fields, result);
+      long en = System.nanoTime();
+      readMeasurement.measure(res, ist, st, en);
+      readMeasurement.reportStatus(res);
       return res;
     }
   }
@@ -172,10 +228,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.readWithAttributes(table, key, fields, result, attributes);
       long en = System.nanoTime();
-      if (!warmup) {
-        measure("READ_WITH_ATTRIBUTES", res, ist, st, en);
-        measurements.reportStatus("READ_WITH_ATTRIBUTES", res);
-      }
+      readWithAttributesMeasurement.measure(res, ist, st, en);
+      readWithAttributesMeasurement.reportStatus(res);
       return res;
     }
   }
@@ -198,29 +252,58 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.scan(table, startkey, recordcount, fields, result);
       long en = System.nanoTime();
-      if (!warmup) {
-        measure("SCAN", res, ist, st, en);
-        measurements.reportStatus("SCAN", res);
-      }
+      scanMeasurement.measure(res, ist, st, en);
+      scanMeasurement.reportStatus(res);
       return res;
     }
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
-                       long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
-    if (result == null || !result.isOk()) {
-      if (this.reportLatencyForEachError ||
-          this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
+  /**
+   * The measurement handles of an operation, resolved once: for its successes, its failures, and the
+   * return codes measured separately.
+   */
+  private final class OperationMeasurement {
+    private final String op;
+    private final MeasurementHandle succeeded;
+    private final MeasurementHandle failed;
+    private final ConcurrentHashMap<String, MeasurementHandle> errors = new ConcurrentHashMap<>();
+
+    private OperationMeasurement(String op) {
+      this.op = op;
+      succeeded = measurements.getHandle(op);
+      failed = measurements.getHandle(op + "-FAILED");
+    }
+
+    private void measure(Status result, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+      if (warmup) {
+        if (warmupMeasurement != null) {
+          warmupMeasurement.measure((int) ((endTimeNanos - startTimeNanos) / 1000));
+        }
+        return;
+      }
+      MeasurementHandle handle = succeeded;
+      if (result == null || !result.isOk()) {
+        handle = failed;
+        if (result != null && (reportLatencyForEachError || latencyTrackedErrors.contains(result.getName()))) {
+          handle = errors.get(result.getName());
+          if (handle == null) {
+            handle = measurements.getHandle(op + "-" + result.getName());
+            MeasurementHandle other = errors.putIfAbsent(result.getName(), handle);
+            if (other != null) {
+              handle = other;
+            }
+          }
+        }
+      }
+      handle.measure((int) ((endTimeNanos - startTimeNanos) / 1000), result);
+      handle.measureIntended((int) ((endTimeNanos - intendedStartTimeNanos) / 1000), result);
+    }
+
+    private void reportStatus(Status result) {
+      if (!warmup) {
+        succeeded.reportStatus(result);
       }
     }
-    measurements.measure(measurementName,
-        (int) ((endTimeNanos - startTimeNanos) / 1000));
-    measurements.measureIntended(measurementName,
-        (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
   }
 
   /**
@@ -239,10 +322,31 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.update(table, key, values);
       long en = System.nanoTime();
-      if (!warmup) {
-        measure("UPDATE", res, ist, st, en);
-        measurements.reportStatus("UPDATE", res);
-      }
+      updateMeasurement.measure(res, ist, st, en);
+      updateMeasurement.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Update a record in the database by a key given as the bytes of its UTF-8 encoding. Any field/value pairs in
+   * the specified values HashMap will be written into the record with the specified record key, overwriting any
+   * existing values with the same field name.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to write, only valid during the call.
+   * @param values A HashMap of field/value pairs to update in the record
+   * @return The result of the operation.
+   */
+  public Status update(String table, byte[] key,
+                       Map<String, ByteIterator> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.update(table, key, values);
+      long en = System.nanoTime();
+      updateMeasurement.measure(res, ist, st, en);
+      updateMeasurement.reportStatus(res);
       return res;
     }
   }
@@ -255,10 +359,8 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.updateWithAttributes(table, key, values, attributes);
       long en = System.nanoTime();
-      if (!warmup) {
-        measure("UPDATE_WITH_ATTRIBUTES", res, ist, st, en);
-        measurements.reportStatus("UPDATE_WITH_ATTRIBUTES", res);
-      }
+      updateWithAttributesMeasurement.measure(res, ist, st, en);
+      updateWithAttributesMeasurement.reportStatus(res);
       return res;
     }
   }
@@ -280,10 +382,30 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.insert(table, key, values);
       long en = System.nanoTime();
-      if (!warmup) {
-        measure("INSERT", res, ist, st, en);
-        measurements.reportStatus("INSERT", res);
-      }
+      insertMeasurement.measure(res, ist, st, en);
+      insertMeasurement.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Insert a record in the database by a key given as the bytes of its UTF-8 encoding. Any field/value pairs in
+   * the specified values HashMap will be written into the record with the specified record key.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to insert, only valid during the call.
+   * @param values A HashMap of field/value pairs to insert in the record
+   * @return The result of the operation.
+   */
+  public Status insert(String table, byte[] key,
+                       Map<String, ByteIterator> values) {
+    try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.insert(table, key, values);
+      long en = System.nanoTime();
+      insertMeasurement.measure(res, ist, st, en);
+      insertMeasurement.reportStatus(res);
       return res;
     }
   }
@@ -300,10 +422,8 @@ public class DBWrapper extends DB {
       if (stTs != null) {
         stTs[0] = en;
       }
-      if (!warmup) {
-        measure("INSERT_WITH_ATTRIBUTES", res, ist, st, en);
-        measurements.reportStatus("INSERT_WITH_ATTRIBUTES", res);
-      }
+      insertWithAttributesMeasurement.measure(res, ist, st, en);
+      insertWithAttributesMeasurement.reportStatus(res);
       return res;
     }
   }
@@ -321,10 +441,27 @@ public class DBWrapper extends DB {
       long st = System.nanoTime();
       Status res = db.delete(table, key);
       long en = System.nanoTime();
-      if (!warmup) {
-        measure("DELETE", res, ist, st, en);
-        measurements.reportStatus("DELETE", res);
-      }
+      deleteMeasurement.measure(res, ist, st, en);
+      deleteMeasurement.reportStatus(res);
+      return res;
+    }
+  }
+
+  /**
+   * Delete a record from the database by a key given as the bytes of its UTF-8 encoding.
+   *
+   * @param table The name of the table
+   * @param key The record key of the record to delete, only valid during the call.
+   * @return The result of the operation.
+   */
+  public Status delete(String table, byte[] key) {
+    try (final TraceScope span = tracer.newScope(scopeStringDelete)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.delete(table, key);
+      long en = System.nanoTime();
+      deleteMeasurement.measure(res, ist, st, en);
+      deleteMeasurement.reportStatus(res);
       return res;
     }
   }
@@ -335,19 +472,88 @@ public class DBWrapper extends DB {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       Status res = db.query(attributeName, attributeType, lbound, ubound, en);
-      if (!warmup) {
-        if (res == Status.OK) {
-          measure("QUERY", res, ist, st, en[0]);
-        }
-        measurements.reportStatus("QUERY", res);
+      if (res == Status.OK) {
+        queryMeasurement.measure(res, ist, st, en[0]);
       }
+      queryMeasurement.reportStatus(res);
       return res;
     }
   }
 
+  /**
+   * Asynchronous operations are measured from their (intended) start on the issuing thread until the stage
+   * returned by the binding completes, on whatever thread completes it.
+   */
+  private CompletionStage<Status> measureAsync(final OperationMeasurement op, CompletionStage<Status> stage,
+                                               final long intendedStartTimeNanos, final long startTimeNanos) {
+    return stage.whenComplete((res, error) -> {
+        long en = System.nanoTime();
+        Status status = error == null ? res : Status.ERROR;
+        op.measure(status, intendedStartTimeNanos, startTimeNanos, en);
+        op.reportStatus(status);
+      });
+  }
+
+  public CompletionStage<Status> readAsync(String table, String key, Set<String> fields,
+                                           Map<String, ByteIterator> result) {
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measureAsync(readMeasurement, db.readAsync(table, key, fields, result), ist, st);
+    }
+  }
+
+  public CompletionStage<Status> readWithAttributesAsync(String table, String key, Set<String> fields,
+                                                         Map<String, ByteIterator> result,
+                                                         Map<String, String> attributes) {
+    try (final TraceScope span = tracer.newScope(scopeStringReadWithAttributes)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measureAsync(readWithAttributesMeasurement,
+          db.readWithAttributesAsync(table, key, fields, result, attributes), ist, st);
+    }
+  }
+
+  public CompletionStage<Status> updateWithAttributesAsync(String table, String key,
+                                                           Map<String, ByteIterator> values,
+                                                           Map<String, String> attributes) {
+    try (final TraceScope span = tracer.newScope(scopeStringUpdateWithAttributes)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measureAsync(updateWithAttributesMeasurement,
+          db.updateWithAttributesAsync(table, key, values, attributes), ist, st);
+    }
+  }
+
+  public CompletionStage<Status> insertWithAttributesAsync(String table, String key,
+                                                           Map<String, ByteIterator> values,
+                                                           Map<String, String> attributes) {
+    try (final TraceScope span = tracer.newScope(scopeStringInsertWithAttributes)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measureAsync(insertWithAttributesMeasurement,
+          db.insertWithAttributesAsync(table, key, values, attributes), ist, st);
+    }
+  }
+
+  public CompletionStage<Status> queryAsync(String []attributeName, String []attributeType,
+                                            java.lang.Object []lbound, java.lang.Object []ubound) {
+    try (final TraceScope span = tracer.newScope(scopeStringQuery)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      return measureAsync(queryMeasurement, db.queryAsync(attributeName, attributeType, lbound, ubound), ist, st);
+    }
+  }
+
   public Status subscribeQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
                               java.lang.Object []ubound, CountDownLatch finishLatch) {
     Status res = db.subscribeQuery(attributeName, attributeType, lbound, ubound, finishLatch);
     return res;
   }
+
+  @Override
+  public Status subscribeQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
+                               java.lang.Object []ubound, CountDownLatch finishLatch, SubscriptionListener listener) {
+    return db.subscribeQuery(attributeName, attributeType, lbound, ubound, finishLatch, listener);
+  }
 }
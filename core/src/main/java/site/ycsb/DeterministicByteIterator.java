@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+/**
+ * A ByteIterator over a pseudo-random sequence of printable bytes determined by a key and a field name, so a value
+ * read back can be checked against the one written without either being kept. The generator works in counter mode:
+ * word i of a value is a 64 bit mix of the seed plus i, giving 8 bytes, so any position can be computed on its own,
+ * values of any length cost linear time, and nothing but the bytes asked for is ever allocated.
+ */
+public class DeterministicByteIterator extends ByteIterator {
+  private static final long GAMMA = 0x9e3779b97f4a7c15L;
+  private static final int VERIFY_CHUNK = 8192;
+  private static final ThreadLocal<byte[][]> VERIFY_BUFFERS =
+      ThreadLocal.withInitial(() -> new byte[][] {new byte[VERIFY_CHUNK], new byte[VERIFY_CHUNK]});
+
+  private final long seed;
+  private final long len;
+  private long off;
+
+  public DeterministicByteIterator(String key, String field, long len) {
+    this(seed(key, field), len);
+  }
+
+  public DeterministicByteIterator(long seed, long len) {
+    this.seed = seed;
+    this.len = len;
+  }
+
+  /**
+   * @return the seed of the value of a field of a record
+   */
+  public static long seed(String key, String field) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    // a separator, so that ("ab", "c") and ("a", "bc") differ
+    h = (h ^ 0xffff) * 0x100000001b3L;
+    for (int i = 0; i < field.length(); i++) {
+      h = (h ^ field.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(h);
+  }
+
+  /**
+   * Checks that a value holds exactly the bytes of a deterministic value, streaming through it in chunks.
+   *
+   * @param key    the record key the value was generated for
+   * @param field  the field the value was generated for
+   * @param len    the length of the value generated
+   * @param actual the value read back, consumed by the check
+   * @return true if the value matches
+   */
+  public static boolean verify(String key, String field, long len, ByteIterator actual) {
+    long seed = seed(key, field);
+    byte[][] buffers = VERIFY_BUFFERS.get();
+    byte[] got = buffers[0];
+    byte[] expected = buffers[1];
+    long position = 0;
+    while (actual.hasNext()) {
+      int n = actual.nextBuf(got, 0);
+      if (n == 0) {
+        break;
+      }
+      if (position + n > len) {
+        return false;
+      }
+      fill(seed, position, expected, 0, n);
+      for (int i = 0; i < n; i++) {
+        if (got[i] != expected[i]) {
+          return false;
+        }
+      }
+      position += n;
+    }
+    return position == len;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  @Override
+  public byte nextByte() {
+    long word = mix(seed + (off >>> 3) * GAMMA);
+    byte ret = printable(word >>> ((off & 7) << 3));
+    off++;
+    return ret;
+  }
+
+  @Override
+  public int nextBuf(byte[] buffer, int bufOff) {
+    int n = (int) Math.min(buffer.length - bufOff, len - off);
+    fill(seed, off, buffer, bufOff, n);
+    off += n;
+    return bufOff + n;
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+
+  @Override
+  public void reset() {
+    off = 0;
+  }
+
+  @Override
+  public byte[] toArray() {
+    long left = bytesLeft();
+    if (left != (int) left) {
+      throw new ArrayIndexOutOfBoundsException("Too much data to fit in one array!");
+    }
+    byte[] ret = new byte[(int) left];
+    nextBuf(ret, 0);
+    return ret;
+  }
+
+  /**
+   * Writes n bytes of the value with the given seed, starting at a position of the value.
+   */
+  private static void fill(long seed, long position, byte[] buffer, int bufOff, int n) {
+    int i = 0;
+    while (i < n) {
+      long p = position + i;
+      long word = mix(seed + (p >>> 3) * GAMMA);
+      int end = Math.min(n, i + 8 - (int) (p & 7));
+      word >>>= (p & 7) << 3;
+      for (; i < end; i++) {
+        buffer[bufOff + i] = printable(word);
+        word >>>= 8;
+      }
+    }
+  }
+
+  /**
+   * Maps the low byte of bits onto the 95 printable ASCII characters, so values survive being stored as strings.
+   */
+  private static byte printable(long bits) {
+    return (byte) (' ' + (((int) bits & 0xff) * 95 >>> 8));
+  }
+
+  /**
+   * The SplitMix64 finalizer.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
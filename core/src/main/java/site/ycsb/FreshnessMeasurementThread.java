@@ -16,45 +16,110 @@
  */
 package site.ycsb;
 
+import org.apache.htrace.core.Tracer;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.Properties;
 
 /**
  *
- * A thread for measuring the freshness of results provided by the query processing system.
+ * A thread for measuring the freshness of results provided by the query processing system. It opens
+ * freshness.subscriptions subscriptions, with predicates from the workload's query generator when it has one,
+ * each on a thread of its own with a DB of its own, and measures them through the {@link FreshnessTracker}.
  *
  */
 public class FreshnessMeasurementThread extends Thread {
-  private DB db;
+  /**
+   * The number of subscriptions to open.
+   */
+  public static final String SUBSCRIPTIONS_PROPERTY = "freshness.subscriptions";
+  public static final String SUBSCRIPTIONS_PROPERTY_DEFAULT = "1";
+
+  private final String dbname;
+  private final Properties props;
+  private final Tracer tracer;
+  private Workload workload;
+  private int subscriptionCount;
   private CountDownLatch finishLatch;
 
-  public FreshnessMeasurementThread(DB db, Properties props) {
-    this.db = db;
+  public FreshnessMeasurementThread(String dbname, Properties props, Tracer tracer, Workload workload) {
+    this.dbname = dbname;
+    this.props = props;
+    this.tracer = tracer;
+    this.workload = workload;
+    this.subscriptionCount = Integer.parseInt(props.getProperty(SUBSCRIPTIONS_PROPERTY,
+        SUBSCRIPTIONS_PROPERTY_DEFAULT));
+    this.finishLatch = new CountDownLatch(1);
+  }
+
+  public void run() {
+    FreshnessTracker tracker = FreshnessTracker.getTracker();
+    List<Thread> subscribers = new ArrayList<>(subscriptionCount);
+    for (int i = 0; i < subscriptionCount; i++) {
+      final FreshnessTracker.Subscription subscription = subscribe(tracker);
+      System.err.println("Measuring freshness of " + subscription);
+      Thread subscriber = new Thread(() -> subscribe(subscription), "FreshnessSubscription-" + i);
+      subscriber.start();
+      subscribers.add(subscriber);
+    }
+    for (Thread subscriber : subscribers) {
+      try {
+        subscriber.join();
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Holds the subscription open until the measurement stops, on a DB of its own that is initialized and
+   * cleaned up on the subscription's thread, as the DBs of the client threads are.
+   */
+  private void subscribe(FreshnessTracker.Subscription subscription) {
+    DB db;
     try {
+      db = DBFactory.newDB(dbname, props, tracer);
       db.init();
-    } catch (DBException e) {
+    } catch (UnknownDBException | DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
       return;
     }
-    this.finishLatch = new CountDownLatch(1);
+    try {
+      Status status = db.subscribeQuery(subscription.getAttributeName(), subscription.getAttributeType(),
+          subscription.getLbound(), subscription.getUbound(), finishLatch, subscription);
+      if (!status.isOk()) {
+        System.err.println("Could not open " + subscription + ": " + status);
+      }
+    } finally {
+      try {
+        db.cleanup();
+      } catch (DBException e) {
+        e.printStackTrace();
+      }
+    }
   }
 
-  public void run() {
-    String[] attributeName = new String[1];
-    String[] attributeType = new String[1];
-    attributeName[0] = "trip_distance";
-    attributeType[0] = "S3TAGFLT";
-    java.lang.Object[] lbound = new java.lang.Object[1];
-    java.lang.Object[] ubound = new java.lang.Object[1];
-    double lb = 0.0;
-    double ub = 1000.0;
-    lbound[0] = String.valueOf(lb);
-    ubound[0] = String.valueOf(ub);
-    db.subscribeQuery(attributeName, attributeType, lbound, ubound, finishLatch);
+  /**
+   * Opens a subscription on a query of the workload, or, if it has none, on all trips.
+   */
+  private FreshnessTracker.Subscription subscribe(FreshnessTracker tracker) {
+    FreshnessTracker.Subscription subscription = null;
+    try {
+      subscription = workload.nextSubscription(tracker);
+    } catch (RuntimeException e) {
+      System.err.println("Could not generate a query to subscribe to: " + e.getMessage());
+    }
+    if (subscription == null) {
+      subscription = tracker.subscribe(new String[]{"trip_distance"}, new String[]{"S3TAGFLT"},
+          new Object[]{String.valueOf(0.0)}, new Object[]{String.valueOf(1000.0)});
+    }
+    return subscription;
   }
 
   public void requestStop() {
     finishLatch.countDown();
   }
-}
\ No newline at end of file
+}
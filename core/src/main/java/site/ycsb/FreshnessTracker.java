@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import site.ycsb.measurements.MeasurementHandle;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how fresh query subscriptions are. Every update is tagged with a sequence number and the time it
+ * was issued; the tracker notes which of the open subscriptions the updated record should then be delivered
+ * to, and when a subscription delivers a tagged record, records the time since the update in the
+ * FRESHNESS_LATENCY measurement and in one per subscription, FRESHNESS_LATENCY-&lt;n&gt;. Updates a
+ * subscription should have delivered but did not, within freshness.grace.ms of the end, are reported as
+ * undelivered, as are those still not delivered freshness.timeout.ms after they were issued, which the
+ * tracker then stops waiting for; a later delivery of one counts as unexpected.
+ * <p>
+ * The tag is an attribute "freshnessTimestamp_&lt;client&gt;" with the value "&lt;sequence&gt;:&lt;nanoTime&gt;",
+ * so subscriptions only measure the updates of their own client, whose clock they share.
+ */
+public final class FreshnessTracker {
+  /**
+   * The time after the end of the run that an update is still allowed to be in flight, not undelivered.
+   */
+  public static final String GRACE_PROPERTY = "freshness.grace.ms";
+  public static final String GRACE_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The time after an update that a subscription is given to deliver it, bounding the updates tracked.
+   */
+  public static final String TIMEOUT_PROPERTY = "freshness.timeout.ms";
+  public static final String TIMEOUT_PROPERTY_DEFAULT = "60000";
+
+  public static final String TAG_PREFIX = "freshnessTimestamp_";
+
+  private static FreshnessTracker singleton = null;
+  private static Properties trackerProperties = new Properties();
+
+  private final String tagKey;
+  private final long graceNs;
+  private final long timeoutNs;
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicInteger subscriptionIds = new AtomicInteger();
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final Measurements measurements = Measurements.getMeasurements();
+  private final MeasurementHandle freshnessMeasurement = measurements.getHandle("FRESHNESS_LATENCY");
+
+  private FreshnessTracker(Properties props) {
+    tagKey = TAG_PREFIX + props.getProperty("client", "0");
+    graceNs = Long.parseLong(props.getProperty(GRACE_PROPERTY, GRACE_PROPERTY_DEFAULT)) * 1000000L;
+    timeoutNs = Long.parseLong(props.getProperty(TIMEOUT_PROPERTY, TIMEOUT_PROPERTY_DEFAULT)) * 1000000L;
+  }
+
+  public static void setProperties(Properties props) {
+    trackerProperties = props;
+  }
+
+  /**
+   * Return the singleton FreshnessTracker object.
+   */
+  public static synchronized FreshnessTracker getTracker() {
+    if (singleton == null) {
+      singleton = new FreshnessTracker(trackerProperties);
+    }
+    return singleton;
+  }
+
+  /**
+   * Tags the attributes of an update, noting the subscriptions the updated record should be delivered to.
+   *
+   * @param attributes the attributes written by the update, without the tag
+   */
+  public void tag(Map<String, String> attributes) {
+    long seq = sequence.incrementAndGet();
+    long ts = System.nanoTime();
+    for (Subscription subscription : subscriptions) {
+      if (subscription.matches(attributes)) {
+        subscription.expect(seq, ts);
+      }
+    }
+    attributes.put(tagKey, seq + ":" + ts);
+  }
+
+  /**
+   * Opens the measurement of a subscription to a query. The subscription itself is up to the caller, which
+   * passes the returned listener to the DB.
+   */
+  public Subscription subscribe(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                                java.lang.Object []ubound) {
+    Subscription subscription = new Subscription(subscriptionIds.getAndIncrement(), attributeName, attributeType,
+        lbound, ubound);
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  /**
+   * Writes the delivery counts of the subscriptions.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    long cutoff = System.nanoTime() - graceNs;
+    long expected = 0;
+    long undelivered = 0;
+    for (Subscription subscription : subscriptions) {
+      long inFlight = 0;
+      long missing = subscription.expired.sum();
+      for (Long ts : subscription.pending.values()) {
+        if (ts - cutoff > 0) {
+          inFlight++;
+        } else {
+          missing++;
+        }
+      }
+      long subscriptionExpected = subscription.expected.sum() - inFlight;
+      String metric = "FRESHNESS-" + subscription.id;
+      exporter.write(metric, "Expected", subscriptionExpected);
+      exporter.write(metric, "Delivered", subscription.delivered.sum());
+      exporter.write(metric, "Unexpected", subscription.unexpected.sum());
+      exporter.write(metric, "UndeliveredFraction", fraction(missing, subscriptionExpected));
+      expected += subscriptionExpected;
+      undelivered += missing;
+    }
+    exporter.write("FRESHNESS", "Subscriptions", subscriptions.size());
+    exporter.write("FRESHNESS", "Expected", expected);
+    exporter.write("FRESHNESS", "Undelivered", undelivered);
+    exporter.write("FRESHNESS", "UndeliveredFraction", fraction(undelivered, expected));
+  }
+
+  private static double fraction(long part, long whole) {
+    return whole == 0 ? 0.0 : part / (double) whole;
+  }
+
+  private static double parseBound(String value) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * The measurement of one subscription, receiving the records it delivers.
+   */
+  public final class Subscription implements SubscriptionListener {
+    private final int id;
+    private final String[] attributeName;
+    private final String[] attributeType;
+    private final java.lang.Object[] lbound;
+    private final java.lang.Object[] ubound;
+    // the bounds as matched against: the strings, and the numbers, NaN where a bound is not one
+    private final String[] lowerString;
+    private final String[] upperString;
+    private final double[] lower;
+    private final double[] upper;
+    private final MeasurementHandle measurement;
+    // issue time by sequence number of the updates expected and not delivered yet, oldest first
+    private final ConcurrentSkipListMap<Long, Long> pending = new ConcurrentSkipListMap<>();
+    private final LongAdder expected = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder unexpected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    private Subscription(int id, String []attributeName, String []attributeType, java.lang.Object []lbound,
+                         java.lang.Object []ubound) {
+      this.id = id;
+      this.attributeName = attributeName.clone();
+      this.attributeType = attributeType.clone();
+      this.lbound = lbound.clone();
+      this.ubound = ubound.clone();
+      lowerString = new String[lbound.length];
+      upperString = new String[ubound.length];
+      lower = new double[lbound.length];
+      upper = new double[ubound.length];
+      for (int i = 0; i < lbound.length; i++) {
+        lowerString[i] = lbound[i].toString();
+        upperString[i] = ubound[i].toString();
+        lower[i] = parseBound(lowerString[i]);
+        upper[i] = parseBound(upperString[i]);
+      }
+      this.measurement = measurements.getHandle("FRESHNESS_LATENCY-" + id);
+    }
+
+    public String[] getAttributeName() {
+      return attributeName.clone();
+    }
+
+    public String[] getAttributeType() {
+      return attributeType.clone();
+    }
+
+    public java.lang.Object[] getLbound() {
+      return lbound.clone();
+    }
+
+    public java.lang.Object[] getUbound() {
+      return ubound.clone();
+    }
+
+    @Override
+    public void onRecord(Map<String, String> attributes) {
+      long en = System.nanoTime();
+      String tag = null;
+      for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+        // stores may change the case of attribute names
+        if (attribute.getKey().equalsIgnoreCase(tagKey)) {
+          tag = attribute.getValue();
+          break;
+        }
+      }
+      if (tag == null) {
+        return;
+      }
+      int colon = tag.indexOf(':');
+      long ts = Long.parseLong(tag.substring(colon + 1));
+      int latency = (int) ((en - ts) / 1000);
+      freshnessMeasurement.measure(latency);
+      freshnessMeasurement.reportStatus(Status.OK);
+      measurement.measure(latency);
+      measurement.reportStatus(Status.OK);
+      if (colon > 0 && pending.remove(Long.parseLong(tag.substring(0, colon))) != null) {
+        delivered.increment();
+      } else {
+        unexpected.increment();
+      }
+    }
+
+    private void expect(long seq, long ts) {
+      expected.increment();
+      pending.put(seq, ts);
+      for (Map.Entry<Long, Long> oldest = pending.firstEntry(); oldest != null && ts - oldest.getValue() > timeoutNs;
+           oldest = pending.firstEntry()) {
+        if (pending.remove(oldest.getKey()) != null) {
+          expired.increment();
+        }
+      }
+    }
+
+    /**
+     * Whether a record with the attributes is in the result of the subscribed query.
+     */
+    private boolean matches(Map<String, String> attributes) {
+      for (int i = 0; i < attributeName.length; i++) {
+        String value = attributes.get(attributeName[i]);
+        if (value == null) {
+          value = attributes.get("f-" + attributeName[i]);
+        }
+        if (value == null) {
+          value = attributes.get("i-" + attributeName[i]);
+        }
+        if (value == null) {
+          return false;
+        }
+        if ("S3TAGSTR".equals(attributeType[i])) {
+          if (value.compareTo(lowerString[i]) < 0 || value.compareTo(upperString[i]) > 0) {
+            return false;
+          }
+        } else {
+          double v = parseBound(value);
+          if (!(v >= lower[i] && v <= upper[i])) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "subscription " + id + " " + Arrays.toString(attributeName) + " in " + Arrays.toString(lbound) +
+          " .. " + Arrays.toString(ubound);
+    }
+  }
+}
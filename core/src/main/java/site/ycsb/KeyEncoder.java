@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds record keys, a prefix followed by the optionally hashed key number zero-padded to a minimum width, without
+ * the temporary strings of building them by concatenation. Each thread encodes into its own reusable {@link Key},
+ * which hands the key out as bytes, for bindings that address records by bytes, or as a String made once per key.
+ */
+public final class KeyEncoder {
+  private final byte[] prefix;
+  private final int zeropadding;
+  private final boolean hashed;
+  private final ThreadLocal<Key> keys;
+
+  /**
+   * @param prefix      the prefix of every key, "user" for the core workload
+   * @param zeropadding the minimum number of characters of the key number, padded with leading zeros
+   * @param hashed      whether to hash the key number first, so keys are not inserted in order
+   */
+  public KeyEncoder(String prefix, int zeropadding, boolean hashed) {
+    this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+    this.zeropadding = zeropadding;
+    this.hashed = hashed;
+    // a long has at most 19 digits and a sign
+    int maxLength = this.prefix.length + Math.max(zeropadding, 20);
+    this.keys = ThreadLocal.withInitial(() -> new Key(maxLength));
+  }
+
+  /**
+   * Encodes a key into the calling thread's key, which is only valid until the thread's next call.
+   *
+   * @param keynum the key number
+   * @return the calling thread's key
+   */
+  public Key encode(long keynum) {
+    if (hashed) {
+      keynum = Utils.hash(keynum);
+    }
+    // work on the negative, which also has room for Long.MIN_VALUE
+    long q = keynum < 0 ? keynum : -keynum;
+    int digits = 1;
+    for (long t = q; t <= -10; t /= 10) {
+      digits++;
+    }
+    int valueLength = keynum < 0 ? digits + 1 : digits;
+    int fill = Math.max(0, zeropadding - valueLength);
+    Key key = keys.get();
+    byte[] b = key.reset(prefix.length + fill + valueLength);
+    System.arraycopy(prefix, 0, b, 0, prefix.length);
+    int pos = prefix.length;
+    for (int i = 0; i < fill; i++) {
+      b[pos++] = '0';
+    }
+    if (keynum < 0) {
+      b[pos] = '-';
+    }
+    for (int i = b.length - 1; i >= b.length - digits; i--) {
+      b[i] = (byte) ('0' - q % 10);
+      q /= 10;
+    }
+    return key;
+  }
+
+  /**
+   * @return the key of a key number as a String
+   */
+  public String buildKeyName(long keynum) {
+    return encode(keynum).toString();
+  }
+
+  /**
+   * A thread's last encoded key. The bytes are an array of exactly the key's length, reused for every later key of
+   * that length, so a binding must not keep them past the operation they are passed to.
+   */
+  public static final class Key {
+    private final byte[][] byLength;
+    private byte[] bytes;
+    private String string;
+
+    private Key(int maxLength) {
+      byLength = new byte[maxLength + 1][];
+    }
+
+    private byte[] reset(int length) {
+      byte[] b = byLength[length];
+      if (b == null) {
+        b = new byte[length];
+        byLength[length] = b;
+      }
+      bytes = b;
+      string = null;
+      return b;
+    }
+
+    /**
+     * @return the key's bytes, valid until the thread encodes another key
+     */
+    public byte[] bytes() {
+      return bytes;
+    }
+
+    /**
+     * @return the key as a String, made on the first call for each key
+     */
+    @Override
+    public String toString() {
+      if (string == null) {
+        string = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return string;
+    }
+  }
+}
@@ -0,0 +1,537 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * An in-process store of records and their attributes, answering queries and query subscriptions without an S3 and
+ * Proteus deployment. It is a baseline for the query path: whatever it costs is client overhead.
+ * <p>
+ * Records live in one sorted concurrent map per table, shared by all client threads of the JVM. Every attribute is
+ * kept in a concurrent sorted index by its query type, following the naming of the dataset: an attribute
+ * "f-name" is queried as S3TAGFLT name, "i-name" as S3TAGINT name and any other as S3TAGSTR under its full name.
+ * A query walks the range of its first predicate's index and checks the other predicates against each record.
+ * Writes push the records they leave within a subscribed query to the subscriber, whose thread delivers them to
+ * its listener until the subscription ends.
+ * </p><p>
+ * The store lasts as long as the JVM, so a run phase starts empty. Updates of missing records insert them, as a PUT
+ * to S3 would, so the records and the query results grow as the run goes.
+ * </p>
+ */
+public class MemoryDB extends DB {
+  /**
+   * The most results a query returns; 0 for all of them.
+   */
+  public static final String QUERY_RESULT_COUNT_PROPERTY = "queryresultcount";
+  public static final String QUERY_RESULT_COUNT_PROPERTY_DEFAULT = "0";
+
+  public static final String FLOAT_TYPE = "S3TAGFLT";
+  public static final String INT_TYPE = "S3TAGINT";
+  public static final String STRING_TYPE = "S3TAGSTR";
+
+  /** Records are written under one of this many locks, chosen by key. */
+  private static final int LOCK_STRIPES = 256;
+
+  private static volatile Store sharedStore = new Store();
+
+  /** The store of this instance, or null for the one shared by the JVM. */
+  private final Store own;
+
+  private long queryResultCount;
+
+  public MemoryDB() {
+    this(true);
+  }
+
+  /**
+   * @param shared whether to use the store shared by the JVM, or one of this instance's own, for embedding the
+   *               store in another service
+   */
+  public MemoryDB(boolean shared) {
+    own = shared ? null : new Store();
+  }
+
+  @Override
+  public void init() throws DBException {
+    queryResultCount = Long.parseLong(
+        getProperties().getProperty(QUERY_RESULT_COUNT_PROPERTY, QUERY_RESULT_COUNT_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * Drops all records, indexes and subscriptions.
+   */
+  static void clear() {
+    sharedStore = new Store();
+  }
+
+  private Store store() {
+    return own != null ? own : sharedStore;
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    return readWithAttributes(table, key, fields, result, null);
+  }
+
+  @Override
+  public Status readWithAttributes(String table, String key, Set<String> fields, Map<String, ByteIterator> result,
+                                   Map<String, String> attributes) {
+    Record record = store().table(table).get(key);
+    if (record == null) {
+      return Status.NOT_FOUND;
+    }
+    record.copyTo(fields, result);
+    if (attributes != null) {
+      attributes.putAll(record.attributes);
+    }
+    return Status.OK;
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                     Vector<HashMap<String, ByteIterator>> result) {
+    for (Record record : store().table(table).tailMap(startkey).values()) {
+      if (result.size() >= recordcount) {
+        break;
+      }
+      HashMap<String, ByteIterator> values = new HashMap<>();
+      record.copyTo(fields, values);
+      result.add(values);
+    }
+    return Status.OK;
+  }
+
+  @Override
+  public Status update(String table, String key, Map<String, ByteIterator> values) {
+    return updateWithAttributes(table, key, values, Collections.<String, String>emptyMap());
+  }
+
+  @Override
+  public Status updateWithAttributes(String table, String key, Map<String, ByteIterator> values,
+                                     Map<String, String> attributes) {
+    store().write(table, key, values, attributes);
+    return Status.OK;
+  }
+
+  @Override
+  public Status insert(String table, String key, Map<String, ByteIterator> values) {
+    return insertWithAttributes(table, key, values, Collections.<String, String>emptyMap(), null);
+  }
+
+  @Override
+  public Status insertWithAttributes(String table, String key, Map<String, ByteIterator> values,
+                                     Map<String, String> attributes, long []stTs) {
+    store().write(table, key, values, attributes);
+    return Status.OK;
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    return store().delete(table, key) ? Status.OK : Status.NOT_FOUND;
+  }
+
+  @Override
+  public Status query(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                      java.lang.Object []ubound, long []en) {
+    if (query(attributeName, attributeType, lbound, ubound, attributes -> { }) < 0) {
+      return Status.BAD_REQUEST;
+    }
+    en[0] = System.nanoTime();
+    return Status.OK;
+  }
+
+  /**
+   * Streams the attributes of the records within a query to a consumer as the index is walked, up to
+   * queryresultcount of them.
+   *
+   * @return the number of records streamed, or -1 if the query is malformed
+   */
+  public long query(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                    java.lang.Object []ubound, Consumer<Map<String, String>> results) {
+    return query(attributeName, attributeType, lbound, ubound, queryResultCount, results);
+  }
+
+  /**
+   * Streams the attributes of the records within a query to a consumer as the index is walked.
+   *
+   * @param limit the most records to stream; 0 for all of them
+   * @return the number of records streamed, or -1 if the query is malformed
+   */
+  public long query(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                    java.lang.Object []ubound, long limit, Consumer<Map<String, String>> results) {
+    Predicate[] predicates = Predicate.parse(attributeName, attributeType, lbound, ubound);
+    if (predicates == null) {
+      return -1;
+    }
+    Store queried = store();
+    long count = 0;
+    for (IndexEntry entry : queried.range(predicates[0])) {
+      Record record = queried.table(entry.table).get(entry.key);
+      if (record != null && record.matches(predicates)) {
+        results.accept(record.attributes);
+        count++;
+        if (count == limit) {
+          break;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public Status subscribeQuery(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                               java.lang.Object []ubound, CountDownLatch finishLatch) {
+    return subscribeQuery(attributeName, attributeType, lbound, ubound, finishLatch,
+        FreshnessTracker.getTracker().subscribe(attributeName, attributeType, lbound, ubound));
+  }
+
+  /**
+   * Delivers the records written within the query to the listener on the calling thread until the latch is
+   * counted down.
+   */
+  @Override
+  public Status subscribeQuery(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                               java.lang.Object []ubound, CountDownLatch finishLatch,
+                               SubscriptionListener listener) {
+    Predicate[] predicates = Predicate.parse(attributeName, attributeType, lbound, ubound);
+    if (predicates == null) {
+      return Status.BAD_REQUEST;
+    }
+    Store subscribed = store();
+    Subscriber subscriber = new Subscriber(predicates);
+    subscribed.subscribers.add(subscriber);
+    try {
+      while (finishLatch.getCount() > 0) {
+        Map<String, String> attributes = subscriber.queue.poll(100, TimeUnit.MILLISECONDS);
+        if (attributes != null) {
+          listener.onRecord(attributes);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.ERROR;
+    } finally {
+      subscribed.subscribers.remove(subscriber);
+    }
+    return Status.OK;
+  }
+
+  @Override
+  public void endWarmup() {
+  }
+
+  /**
+   * The index an attribute stored under the given name is kept in.
+   */
+  static String indexOf(String attribute) {
+    if (attribute.startsWith("f-")) {
+      return FLOAT_TYPE + ":" + attribute.substring(2);
+    } else if (attribute.startsWith("i-")) {
+      return INT_TYPE + ":" + attribute.substring(2);
+    }
+    return STRING_TYPE + ":" + attribute;
+  }
+
+  /**
+   * Parses an attribute value or query bound of the index's type.
+   *
+   * @return the value, or null if it is not of the type
+   */
+  static Comparable<?> parse(String index, String value) {
+    try {
+      if (index.startsWith(FLOAT_TYPE)) {
+        return Double.parseDouble(value);
+      } else if (index.startsWith(INT_TYPE)) {
+        try {
+          return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+          return (long) Double.parseDouble(value);
+        }
+      }
+      return value;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compare(Comparable<?> a, Comparable<?> b) {
+    return ((Comparable<Object>) a).compareTo(b);
+  }
+
+  /**
+   * The records and indexes, replaced as a whole by {@link #clear()}.
+   */
+  private static final class Store {
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, Record>> tables = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentSkipListSet<IndexEntry>> indexes = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private Store() {
+      for (int i = 0; i < locks.length; i++) {
+        locks[i] = new Object();
+      }
+    }
+
+    private ConcurrentSkipListMap<String, Record> table(String table) {
+      return tables.computeIfAbsent(table, t -> new ConcurrentSkipListMap<>());
+    }
+
+    private ConcurrentSkipListSet<IndexEntry> index(String index) {
+      return indexes.computeIfAbsent(index, i -> new ConcurrentSkipListSet<>());
+    }
+
+    private Object lock(String table, String key) {
+      return locks[(table.hashCode() * 31 + key.hashCode()) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Writes a record, merging into the existing one if there is one, and notifies the subscribers.
+     */
+    private void write(String table, String key, Map<String, ByteIterator> values, Map<String, String> attributes) {
+      ConcurrentSkipListMap<String, Record> records = table(table);
+      Record record;
+      synchronized (lock(table, key)) {
+        Record old = records.get(key);
+        record = new Record(old, values, attributes);
+        records.put(key, record);
+        reindex(table, key, old, record);
+      }
+      for (Subscriber subscriber : subscribers) {
+        if (record.matches(subscriber.predicates)) {
+          subscriber.queue.offer(record.attributes);
+        }
+      }
+    }
+
+    private boolean delete(String table, String key) {
+      synchronized (lock(table, key)) {
+        Record old = table(table).remove(key);
+        if (old == null) {
+          return false;
+        }
+        reindex(table, key, old, null);
+        return true;
+      }
+    }
+
+    /**
+     * Moves the index entries of a record from its old to its new attribute values.
+     */
+    private void reindex(String table, String key, Record old, Record record) {
+      if (old != null) {
+        for (Map.Entry<String, Comparable<?>> e : old.indexed.entrySet()) {
+          Comparable<?> value = record == null ? null : record.indexed.get(e.getKey());
+          if (value == null || compare(value, e.getValue()) != 0) {
+            index(e.getKey()).remove(new IndexEntry(e.getValue(), 0, table, key));
+          }
+        }
+      }
+      if (record != null) {
+        for (Map.Entry<String, Comparable<?>> e : record.indexed.entrySet()) {
+          index(e.getKey()).add(new IndexEntry(e.getValue(), 0, table, key));
+        }
+      }
+    }
+
+    /**
+     * The index entries within the bounds of a predicate, in order of value.
+     */
+    private NavigableSet<IndexEntry> range(Predicate predicate) {
+      ConcurrentSkipListSet<IndexEntry> index = indexes.get(predicate.index);
+      if (index == null || compare(predicate.lbound, predicate.ubound) > 0) {
+        return Collections.emptyNavigableSet();
+      }
+      return index.subSet(new IndexEntry(predicate.lbound, -1, null, null), true,
+          new IndexEntry(predicate.ubound, 1, null, null), true);
+    }
+  }
+
+  /**
+   * A stored record. Records are replaced, never modified, so readers need no locks.
+   */
+  private static final class Record {
+    private final Map<String, byte[]> values;
+    private final Map<String, String> attributes;
+    private final Map<String, Comparable<?>> indexed;
+
+    private Record(Record old, Map<String, ByteIterator> newValues, Map<String, String> newAttributes) {
+      Map<String, byte[]> v = old == null ? new HashMap<>() : new HashMap<>(old.values);
+      for (Map.Entry<String, ByteIterator> e : newValues.entrySet()) {
+        v.put(e.getKey(), e.getValue().toArray());
+      }
+      Map<String, String> a = old == null ? new HashMap<>() : new HashMap<>(old.attributes);
+      a.putAll(newAttributes);
+      Map<String, Comparable<?>> i = new HashMap<>();
+      for (Map.Entry<String, String> e : a.entrySet()) {
+        if (e.getValue() == null || e.getKey().startsWith(FreshnessTracker.TAG_PREFIX)) {
+          continue;
+        }
+        String index = indexOf(e.getKey());
+        Comparable<?> value = parse(index, e.getValue());
+        if (value != null) {
+          i.put(index, value);
+        }
+      }
+      this.values = v;
+      this.attributes = Collections.unmodifiableMap(a);
+      this.indexed = i;
+    }
+
+    private void copyTo(Set<String> fields, Map<String, ByteIterator> result) {
+      if (fields == null) {
+        for (Map.Entry<String, byte[]> e : values.entrySet()) {
+          result.put(e.getKey(), new ByteArrayByteIterator(e.getValue()));
+        }
+      } else {
+        for (String field : fields) {
+          byte[] value = values.get(field);
+          if (value != null) {
+            result.put(field, new ByteArrayByteIterator(value));
+          }
+        }
+      }
+    }
+
+    private boolean matches(Predicate[] predicates) {
+      for (Predicate predicate : predicates) {
+        Comparable<?> value = indexed.get(predicate.index);
+        if (value == null || compare(value, predicate.lbound) < 0 || compare(value, predicate.ubound) > 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * One attribute range of a query.
+   */
+  private static final class Predicate {
+    private final String index;
+    private final Comparable<?> lbound;
+    private final Comparable<?> ubound;
+
+    private Predicate(String index, Comparable<?> lbound, Comparable<?> ubound) {
+      this.index = index;
+      this.lbound = lbound;
+      this.ubound = ubound;
+    }
+
+    /**
+     * @return the predicates of a query, or null if the query is malformed
+     */
+    private static Predicate[] parse(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                                     java.lang.Object []ubound) {
+      if (attributeName.length == 0 || attributeName.length != attributeType.length ||
+          attributeName.length != lbound.length || attributeName.length != ubound.length) {
+        System.err.println("Query parameters are not of equal length");
+        return null;
+      }
+      Predicate[] predicates = new Predicate[attributeName.length];
+      for (int i = 0; i < predicates.length; i++) {
+        if (!FLOAT_TYPE.equals(attributeType[i]) && !INT_TYPE.equals(attributeType[i]) &&
+            !STRING_TYPE.equals(attributeType[i])) {
+          System.err.println("Error in query parameters");
+          return null;
+        }
+        String index = attributeType[i] + ":" + attributeName[i];
+        Comparable<?> lb = MemoryDB.parse(index, lbound[i].toString());
+        Comparable<?> ub = MemoryDB.parse(index, ubound[i].toString());
+        if (lb == null || ub == null) {
+          System.err.println("Error in query parameters");
+          return null;
+        }
+        predicates[i] = new Predicate(index, lb, ub);
+      }
+      return predicates;
+    }
+  }
+
+  /**
+   * A position in an index: a record's value, or, with a bound of -1 or 1, just before or after all records with
+   * the value.
+   */
+  private static final class IndexEntry implements Comparable<IndexEntry> {
+    private final Comparable<?> value;
+    private final int bound;
+    private final String table;
+    private final String key;
+
+    private IndexEntry(Comparable<?> value, int bound, String table, String key) {
+      this.value = value;
+      this.bound = bound;
+      this.table = table;
+      this.key = key;
+    }
+
+    @Override
+    public int compareTo(IndexEntry o) {
+      int c = compare(value, o.value);
+      if (c != 0) {
+        return c;
+      }
+      c = Integer.compare(bound, o.bound);
+      if (c != 0 || bound != 0) {
+        return c;
+      }
+      c = table.compareTo(o.table);
+      return c != 0 ? c : key.compareTo(o.key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof IndexEntry && compareTo((IndexEntry) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return value.hashCode() * 31 + (key == null ? bound : key.hashCode());
+    }
+  }
+
+  /**
+   * An open query subscription, queueing the records for its thread to deliver.
+   */
+  private static final class Subscriber {
+    private final Predicate[] predicates;
+    private final BlockingQueue<Map<String, String>> queue = new LinkedBlockingQueue<>();
+
+    private Subscriber(Predicate[] predicates) {
+      this.predicates = predicates;
+    }
+  }
+}
@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import site.ycsb.measurements.IntervalListener;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.OneMeasurementHdrHistogram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An embedded HTTP endpoint for watching a run from a dashboard. It serves /metrics in the Prometheus text
+ * format and /metrics.json, with the count, throughput and latency percentiles of each measurement over the
+ * last interval and over the whole run, the status codes returned, and JVM stats.
+ * <p>
+ * It listens to the interval histograms the status thread harvests, so the client threads do no extra work
+ * and the figures are as fresh as status.interval; a scrape only reads what the last interval left.
+ */
+public final class MetricsServer implements IntervalListener, Closeable {
+  /**
+   * The port to serve the metrics on; unset disables the endpoint and 0 picks a free port.
+   */
+  public static final String PORT_PROPERTY = "metrics.port";
+
+  /**
+   * The address to listen on.
+   */
+  public static final String HOST_PROPERTY = "metrics.host";
+  public static final String HOST_PROPERTY_DEFAULT = "0.0.0.0";
+
+  private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+  private final HttpServer server;
+  private final Measurements measurements;
+  private final List<Double> percentiles;
+  private final Map<String, MetricState> metrics = new ConcurrentHashMap<>();
+
+  /**
+   * Starts serving and listening to the intervals of the given measurements.
+   */
+  public MetricsServer(Properties props, Measurements measurements) throws IOException {
+    this.measurements = measurements;
+    percentiles = parsePercentiles(props.getProperty(OneMeasurementHdrHistogram.PERCENTILES_PROPERTY,
+        OneMeasurementHdrHistogram.PERCENTILES_PROPERTY_DEFAULT));
+    int port = Integer.parseInt(props.getProperty(PORT_PROPERTY));
+    String host = props.getProperty(HOST_PROPERTY, HOST_PROPERTY_DEFAULT);
+    server = HttpServer.create(new InetSocketAddress(host, port), 0);
+    server.createContext("/metrics.json", exchange -> respond(exchange, JSON_CONTENT_TYPE, toJson()));
+    server.createContext("/metrics", exchange -> respond(exchange, PROMETHEUS_CONTENT_TYPE, toPrometheus()));
+    server.setExecutor(null);
+    server.start();
+    measurements.addIntervalListener(this);
+  }
+
+  /**
+   * Whether the properties enable the endpoint.
+   */
+  public static boolean isEnabled(Properties props) {
+    return props.getProperty(PORT_PROPERTY) != null;
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void onInterval(String metric, Histogram interval) {
+    MetricState state = metrics.computeIfAbsent(metric, k -> new MetricState());
+    synchronized (state) {
+      state.interval = interval.copy();
+      state.total.add(interval);
+    }
+  }
+
+  @Override
+  public void close() {
+    measurements.removeIntervalListener(this);
+    server.stop(0);
+  }
+
+  private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * A consistent copy of the state of each metric, sorted by name.
+   */
+  private Map<String, Snapshot> snapshot() {
+    Map<String, Snapshot> snapshots = new TreeMap<>();
+    for (Map.Entry<String, MetricState> entry : metrics.entrySet()) {
+      MetricState state = entry.getValue();
+      synchronized (state) {
+        snapshots.put(entry.getKey(), new Snapshot(state.interval, state.total.copy()));
+      }
+    }
+    return snapshots;
+  }
+
+  String toPrometheus() {
+    Map<String, Snapshot> snapshots = snapshot();
+    StringBuilder sb = new StringBuilder();
+
+    sb.append("# HELP ycsb_operations_total Operations measured since the start of the run.\n");
+    sb.append("# TYPE ycsb_operations_total counter\n");
+    for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+      sample(sb, "ycsb_operations_total", e.getKey(), null, e.getValue().total.getTotalCount());
+    }
+    sb.append("# HELP ycsb_interval_operations Operations measured in the last status interval.\n");
+    sb.append("# TYPE ycsb_interval_operations gauge\n");
+    for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+      sample(sb, "ycsb_interval_operations", e.getKey(), null, e.getValue().interval.getTotalCount());
+    }
+    sb.append("# HELP ycsb_interval_throughput_ops Operations per second in the last status interval.\n");
+    sb.append("# TYPE ycsb_interval_throughput_ops gauge\n");
+    for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+      sample(sb, "ycsb_interval_throughput_ops", e.getKey(), null, throughput(e.getValue().interval));
+    }
+    latencies(sb, "ycsb_interval_latency_us", "ycsb_interval_latency_max_us", "in the last status interval",
+        snapshots, false);
+    latencies(sb, "ycsb_latency_us", "ycsb_latency_max_us", "since the start of the run", snapshots, true);
+
+    sb.append("# HELP ycsb_status_total Operations completed with each status since the start of the run.\n");
+    sb.append("# TYPE ycsb_status_total counter\n");
+    for (Map.Entry<String, Map<String, Integer>> op : measurements.getStatusCounts().entrySet()) {
+      for (Map.Entry<String, Integer> status : op.getValue().entrySet()) {
+        sample(sb, "ycsb_status_total", op.getKey(), "status=\"" + escape(status.getKey()) + "\"",
+            status.getValue());
+      }
+    }
+
+    gauge(sb, "ycsb_jvm_threads", "Active threads.", Utils.getActiveThreadCount());
+    gauge(sb, "ycsb_jvm_used_memory_megabytes", "Used heap memory.", Utils.getUsedMemoryMegaBytes());
+    gauge(sb, "ycsb_system_load_average", "System load average, negative if unsupported.",
+        Utils.getSystemLoadAverage());
+    Map<String, Long[]> gcs = new TreeMap<>(Utils.getGCStatst());
+    sb.append("# HELP ycsb_jvm_gc_collections_total Garbage collections since the JVM started.\n");
+    sb.append("# TYPE ycsb_jvm_gc_collections_total counter\n");
+    for (Map.Entry<String, Long[]> gc : gcs.entrySet()) {
+      sb.append("ycsb_jvm_gc_collections_total{collector=\"").append(escape(gc.getKey())).append("\"} ")
+          .append(gc.getValue()[0]).append('\n');
+    }
+    sb.append("# HELP ycsb_jvm_gc_time_ms_total Milliseconds spent in garbage collection since the JVM started.\n");
+    sb.append("# TYPE ycsb_jvm_gc_time_ms_total counter\n");
+    for (Map.Entry<String, Long[]> gc : gcs.entrySet()) {
+      sb.append("ycsb_jvm_gc_time_ms_total{collector=\"").append(escape(gc.getKey())).append("\"} ")
+          .append(gc.getValue()[1]).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes the latencies as a summary family, whose sum is the count times the mean as the histogram keeps no
+   * exact sum, followed by a gauge family of the maximum latencies.
+   */
+  private void latencies(StringBuilder sb, String name, String maxName, String window,
+                         Map<String, Snapshot> snapshots, boolean total) {
+    sb.append("# HELP ").append(name).append(" Latency percentiles in microseconds ").append(window)
+        .append(".\n");
+    sb.append("# TYPE ").append(name).append(" summary\n");
+    for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+      Histogram h = total ? e.getValue().total : e.getValue().interval;
+      for (Double percentile : percentiles) {
+        sample(sb, name, e.getKey(), "quantile=\"" + (percentile / 100) + "\"",
+            h.getValueAtPercentile(percentile));
+      }
+      sample(sb, name + "_sum", e.getKey(), null, h.getTotalCount() == 0 ? 0.0 : h.getTotalCount() * h.getMean());
+      sample(sb, name + "_count", e.getKey(), null, h.getTotalCount());
+    }
+    sb.append("# HELP ").append(maxName).append(" Maximum latency in microseconds ").append(window).append(".\n");
+    sb.append("# TYPE ").append(maxName).append(" gauge\n");
+    for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+      sample(sb, maxName, e.getKey(), null, (total ? e.getValue().total : e.getValue().interval).getMaxValue());
+    }
+  }
+
+  private static void gauge(StringBuilder sb, String name, String help, Number value) {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(" gauge\n");
+    sb.append(name).append(' ').append(value).append('\n');
+  }
+
+  private static void sample(StringBuilder sb, String name, String operation, String labels, Number value) {
+    sb.append(name).append("{operation=\"").append(escape(operation)).append('"');
+    if (labels != null) {
+      sb.append(',').append(labels);
+    }
+    sb.append("} ").append(value).append('\n');
+  }
+
+  String toJson() {
+    Map<String, Snapshot> snapshots = snapshot();
+    Map<String, Map<String, Integer>> statusCounts = measurements.getStatusCounts();
+    StringBuilder sb = new StringBuilder("{\"operations\":{");
+    String separator = "";
+    for (Map.Entry<String, Snapshot> e : snapshots.entrySet()) {
+      Snapshot s = e.getValue();
+      sb.append(separator).append('"').append(jsonEscape(e.getKey())).append("\":{\"interval\":");
+      jsonHistogram(sb, s.interval);
+      sb.append(",\"intervalThroughput\":").append(throughput(s.interval));
+      sb.append(",\"total\":");
+      jsonHistogram(sb, s.total);
+      sb.append('}');
+      separator = ",";
+    }
+    sb.append("},\"statuses\":{");
+    separator = "";
+    for (Map.Entry<String, Map<String, Integer>> op : statusCounts.entrySet()) {
+      sb.append(separator).append('"').append(jsonEscape(op.getKey())).append("\":{");
+      String inner = "";
+      for (Map.Entry<String, Integer> status : op.getValue().entrySet()) {
+        sb.append(inner).append('"').append(jsonEscape(status.getKey())).append("\":").append(status.getValue());
+        inner = ",";
+      }
+      sb.append('}');
+      separator = ",";
+    }
+    sb.append("},\"jvm\":{\"threads\":").append(Utils.getActiveThreadCount())
+        .append(",\"usedMemoryMB\":").append(Utils.getUsedMemoryMegaBytes())
+        .append(",\"systemLoadAverage\":").append(Utils.getSystemLoadAverage())
+        .append(",\"gc\":{");
+    separator = "";
+    for (Map.Entry<String, Long[]> gc : new TreeMap<>(Utils.getGCStatst()).entrySet()) {
+      sb.append(separator).append('"').append(jsonEscape(gc.getKey())).append("\":{\"count\":")
+          .append(gc.getValue()[0]).append(",\"timeMs\":").append(gc.getValue()[1]).append('}');
+      separator = ",";
+    }
+    return sb.append("}}}").toString();
+  }
+
+  private void jsonHistogram(StringBuilder sb, Histogram h) {
+    sb.append("{\"count\":").append(h.getTotalCount())
+        .append(",\"min\":").append(h.getTotalCount() == 0 ? 0 : h.getMinValue())
+        .append(",\"max\":").append(h.getMaxValue())
+        .append(",\"mean\":").append(h.getTotalCount() == 0 ? 0 : h.getMean())
+        .append(",\"percentiles\":{");
+    String separator = "";
+    for (Double percentile : percentiles) {
+      sb.append(separator).append('"').append(percentile).append("\":").append(h.getValueAtPercentile(percentile));
+      separator = ",";
+    }
+    sb.append("}}");
+  }
+
+  /**
+   * The operations per second of an interval, from the timestamps the recorder stamps it with.
+   */
+  private static double throughput(Histogram interval) {
+    long ms = interval.getEndTimeStamp() - interval.getStartTimeStamp();
+    return ms <= 0 ? 0 : interval.getTotalCount() * 1000.0 / ms;
+  }
+
+  private static String escape(String label) {
+    return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String jsonEscape(String s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (char c : s.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static List<Double> parsePercentiles(String percentileString) {
+    List<Double> values = new ArrayList<>();
+    for (String s : percentileString.split(",")) {
+      try {
+        values.add(Double.parseDouble(s.trim()));
+      } catch (NumberFormatException e) {
+        System.err.println("[WARN] Ignoring percentile '" + s + "' for the metrics endpoint.");
+      }
+    }
+    return values;
+  }
+
+  /**
+   * The histograms of one metric, guarded by itself.
+   */
+  private static final class MetricState {
+    private Histogram interval = new Histogram(3);
+    private final Histogram total = new Histogram(3);
+  }
+
+  /**
+   * The histograms of one metric as of a scrape.
+   */
+  private static final class Snapshot {
+    private final Histogram interval;
+    private final Histogram total;
+
+    private Snapshot(Histogram interval, Histogram total) {
+      this.interval = interval;
+      this.total = total;
+    }
+  }
+}
@@ -0,0 +1,357 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.HdrHistogram.Histogram;
+import site.ycsb.arrival.ArrivalProcess;
+import site.ycsb.measurements.IntervalListener;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches, within one run, for the highest throughput whose latency meets an SLO. It drives the rate of the
+ * arrival process the client threads share: at each step it sets a target rate, lets the system settle for
+ * slo.settle seconds, then measures the intervals the status thread takes until they span slo.step seconds,
+ * so a step lasts at least one status.interval. A step meets the SLO if the
+ * slo.percentile latency stays under slo.latency microseconds and the throughput reaches the target, up to
+ * slo.tolerance. The search either steps up from slo.min by slo.stepsize until a step misses the SLO, or
+ * bisects between slo.min and slo.max down to slo.precision. Once done, it stops the workload; every step is
+ * exported as the throughput/latency curve.
+ */
+public class SloSearchThread extends Thread implements IntervalListener {
+  /**
+   * How to search: "binary" (default) or "step".
+   */
+  public static final String SEARCH_PROPERTY = "slo.search";
+  public static final String SEARCH_PROPERTY_DEFAULT = "binary";
+
+  /**
+   * The latency SLO, in microseconds. Setting it enables the search.
+   */
+  public static final String LATENCY_PROPERTY = "slo.latency";
+
+  /**
+   * The percentile the latency SLO applies to.
+   */
+  public static final String PERCENTILE_PROPERTY = "slo.percentile";
+  public static final String PERCENTILE_PROPERTY_DEFAULT = "99";
+
+  /**
+   * The lowest and highest rates to try, in operations per second.
+   */
+  public static final String MIN_RATE_PROPERTY = "slo.min";
+  public static final String MIN_RATE_PROPERTY_DEFAULT = "100";
+  public static final String MAX_RATE_PROPERTY = "slo.max";
+  public static final String MAX_RATE_PROPERTY_DEFAULT = "100000";
+
+  /**
+   * The increase of the rate between steps of the "step" search, in operations per second.
+   */
+  public static final String STEP_SIZE_PROPERTY = "slo.stepsize";
+  public static final String STEP_SIZE_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The "binary" search stops once the range left is within this fraction of its upper end.
+   */
+  public static final String PRECISION_PROPERTY = "slo.precision";
+  public static final String PRECISION_PROPERTY_DEFAULT = "0.02";
+
+  /**
+   * How far below the target rate the throughput of a step may fall, as a fraction of the target.
+   */
+  public static final String TOLERANCE_PROPERTY = "slo.tolerance";
+  public static final String TOLERANCE_PROPERTY_DEFAULT = "0.05";
+
+  /**
+   * How long each step is measured, and how long before that it runs unmeasured after a change of rate,
+   * in seconds.
+   */
+  public static final String STEP_TIME_PROPERTY = "slo.step";
+  public static final String STEP_TIME_PROPERTY_DEFAULT = "10";
+  public static final String SETTLE_TIME_PROPERTY = "slo.settle";
+  public static final String SETTLE_TIME_PROPERTY_DEFAULT = "2";
+
+  /**
+   * The measurements whose latencies the SLO applies to, comma separated. By default, those of every
+   * operation that succeeded, by their intended latency when measurement.interval is both.
+   */
+  public static final String METRICS_PROPERTY = "slo.metrics";
+
+  private final ArrivalProcess arrivals;
+  private final Measurements measurements;
+  private final Workload workload;
+  private final FreshnessMeasurementThread freshnessThread;
+  private final Search search;
+  private final double sloUs;
+  private final double percentile;
+  private final double tolerance;
+  private final long stepMs;
+  private final long settleMs;
+  private final Set<String> metrics;
+  private final boolean intended;
+  // the intervals of the current step, those starting from stepStartMs on, the time they span and the steps
+  // so far, guarded by this
+  private Histogram stepHistogram = new Histogram(3);
+  private long stepStartMs = Long.MAX_VALUE;
+  private long stepFirstMs;
+  private long stepLastMs;
+  private final List<Step> curve = new ArrayList<>();
+
+  public SloSearchThread(Properties props, ArrivalProcess arrivals, Measurements measurements, Workload workload,
+                         FreshnessMeasurementThread freshnessThread) {
+    super("SloSearchThread");
+    setDaemon(true);
+    this.arrivals = arrivals;
+    this.measurements = measurements;
+    this.workload = workload;
+    this.freshnessThread = freshnessThread;
+    search = new Search(props);
+    sloUs = Double.parseDouble(props.getProperty(LATENCY_PROPERTY));
+    percentile = Double.parseDouble(props.getProperty(PERCENTILE_PROPERTY, PERCENTILE_PROPERTY_DEFAULT));
+    tolerance = Double.parseDouble(props.getProperty(TOLERANCE_PROPERTY, TOLERANCE_PROPERTY_DEFAULT));
+    stepMs = TimeUnit.SECONDS.toMillis(Long.parseLong(props.getProperty(STEP_TIME_PROPERTY,
+        STEP_TIME_PROPERTY_DEFAULT)));
+    settleMs = TimeUnit.SECONDS.toMillis(Long.parseLong(props.getProperty(SETTLE_TIME_PROPERTY,
+        SETTLE_TIME_PROPERTY_DEFAULT)));
+    String metricList = props.getProperty(METRICS_PROPERTY);
+    metrics = metricList == null ? null : new HashSet<>(Arrays.asList(metricList.split(",")));
+    intended = props.getProperty(Measurements.MEASUREMENT_INTERVAL, "op").equals("both");
+  }
+
+  /**
+   * Whether the properties ask for a search.
+   */
+  public static boolean isEnabled(Properties props) {
+    return props.getProperty(LATENCY_PROPERTY) != null;
+  }
+
+  /**
+   * The rate to start the arrival process at.
+   */
+  public static double getInitialRate(Properties props) {
+    return Double.parseDouble(props.getProperty(MIN_RATE_PROPERTY, MIN_RATE_PROPERTY_DEFAULT));
+  }
+
+  @Override
+  public void onInterval(String metric, Histogram interval) {
+    if (!appliesTo(metric)) {
+      return;
+    }
+    synchronized (this) {
+      if (interval.getStartTimeStamp() < stepStartMs) {
+        return;
+      }
+      stepHistogram.add(interval);
+      stepFirstMs = Math.min(stepFirstMs, interval.getStartTimeStamp());
+      stepLastMs = Math.max(stepLastMs, interval.getEndTimeStamp());
+      notifyAll();
+    }
+  }
+
+  private boolean appliesTo(String metric) {
+    if (metrics != null) {
+      return metrics.contains(metric);
+    }
+    if (intended != metric.startsWith("Intended-")) {
+      return false;
+    }
+    String op = intended ? metric.substring("Intended-".length()) : metric;
+    // failures and errors are OP-STATUS, as are the freshness of each subscription
+    return op.indexOf('-') < 0 && !op.equals(SteadyStateDetector.WARMUP_METRIC) && !op.startsWith("FRESHNESS");
+  }
+
+  /**
+   * Starts a new step, of the intervals starting from now on.
+   */
+  private synchronized void startStep() {
+    stepHistogram = new Histogram(3);
+    stepStartMs = System.currentTimeMillis();
+    stepFirstMs = Long.MAX_VALUE;
+    stepLastMs = Long.MIN_VALUE;
+  }
+
+  /**
+   * Waits until the intervals of the step span slo.step, then ends the step.
+   *
+   * @return the time the intervals of the step span, in milliseconds, their latencies added to the histogram
+   */
+  private long awaitStep(Histogram step) throws InterruptedException {
+    synchronized (this) {
+      while (stepLastMs == Long.MIN_VALUE || stepLastMs - stepFirstMs < stepMs) {
+        wait();
+      }
+    }
+    // the status thread passes on the intervals of all measurements within the synchronized getSummary(), so
+    // holding the measurements ends the step between two of its rounds, not within one
+    synchronized (measurements) {
+      synchronized (this) {
+        step.add(stepHistogram);
+        stepStartMs = Long.MAX_VALUE;
+        return stepLastMs - stepFirstMs;
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    measurements.addIntervalListener(this);
+    DecimalFormat d = new DecimalFormat("#.##");
+    try {
+      double rate = search.first();
+      while (rate > 0) {
+        arrivals.setRate(rate);
+        arrivals.dropBacklog();
+        Thread.sleep(settleMs);
+        startStep();
+        Histogram step = new Histogram(3);
+        long spanMs = awaitStep(step);
+        double throughput = step.getTotalCount() * 1000.0 / spanMs;
+        long latency = step.getValueAtPercentile(percentile);
+        boolean met = step.getTotalCount() > 0 && latency <= sloUs && throughput >= rate * (1 - tolerance);
+        synchronized (this) {
+          curve.add(new Step(rate, throughput, latency, met));
+        }
+        System.err.println("[SLO] target=" + d.format(rate) + " ops/sec, throughput=" + d.format(throughput)
+            + " ops/sec, " + d.format(percentile) + "th=" + latency + " us: " + (met ? "met" : "missed"));
+        rate = search.next(rate, met);
+      }
+      System.err.println("[SLO] Highest throughput meeting the SLO: " + d.format(getMaxThroughput())
+          + " ops/sec. Requesting stop for the workload.");
+    } catch (InterruptedException e) {
+      System.err.println("SLO search interrupted.");
+    } finally {
+      measurements.removeIntervalListener(this);
+    }
+    freshnessThread.requestStop();
+    workload.requestStop();
+  }
+
+  /**
+   * The highest throughput of the steps that met the SLO, 0 if none did.
+   */
+  public synchronized double getMaxThroughput() {
+    double max = 0;
+    for (Step step : curve) {
+      if (step.met) {
+        max = Math.max(max, step.throughput);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Exports the throughput and latency of each step, by target rate, and the highest throughput meeting the
+   * SLO.
+   */
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    String latencyName = new DecimalFormat("#.##").format(percentile) + "thPercentileLatency(us)";
+    exporter.write("SLO_SEARCH", "LatencySLO(us)", sloUs);
+    exporter.write("SLO_SEARCH", "Steps", curve.size());
+    exporter.write("SLO_SEARCH", "MaxThroughput(ops/sec)", getMaxThroughput());
+    for (Step step : curve) {
+      long target = Math.round(step.rate);
+      exporter.write("SLO_SEARCH", target + " Throughput(ops/sec)", step.throughput);
+      exporter.write("SLO_SEARCH", target + " " + latencyName, step.latency);
+      exporter.write("SLO_SEARCH", target + " Met", step.met ? 1 : 0);
+    }
+  }
+
+  /**
+   * Picks the target rate of each step from the outcome of the previous one.
+   */
+  static final class Search {
+    private final boolean binary;
+    private final double min;
+    private final double max;
+    private final double stepSize;
+    private final double precision;
+    // the highest rate that met the SLO and the lowest that did not, -1 until known
+    private double lo = -1;
+    private double hi = -1;
+
+    Search(Properties props) {
+      String mode = props.getProperty(SEARCH_PROPERTY, SEARCH_PROPERTY_DEFAULT);
+      if (!mode.equals("binary") && !mode.equals("step")) {
+        throw new IllegalArgumentException("Unknown " + SEARCH_PROPERTY + " \"" + mode + "\"");
+      }
+      binary = mode.equals("binary");
+      min = Double.parseDouble(props.getProperty(MIN_RATE_PROPERTY, MIN_RATE_PROPERTY_DEFAULT));
+      max = Double.parseDouble(props.getProperty(MAX_RATE_PROPERTY, MAX_RATE_PROPERTY_DEFAULT));
+      stepSize = Double.parseDouble(props.getProperty(STEP_SIZE_PROPERTY, STEP_SIZE_PROPERTY_DEFAULT));
+      precision = Double.parseDouble(props.getProperty(PRECISION_PROPERTY, PRECISION_PROPERTY_DEFAULT));
+      if (!(min > 0) || max < min) {
+        throw new IllegalArgumentException("Need 0 < " + MIN_RATE_PROPERTY + " <= " + MAX_RATE_PROPERTY);
+      }
+    }
+
+    double first() {
+      return min;
+    }
+
+    /**
+     * @return the rate of the next step, or -1 when the search is done
+     */
+    double next(double rate, boolean met) {
+      if (met) {
+        lo = rate;
+      } else {
+        hi = rate;
+      }
+      if (!met && rate == min) {
+        return -1;
+      }
+      if (!binary) {
+        return met && rate + stepSize <= max ? rate + stepSize : -1;
+      }
+      if (hi < 0) {
+        return rate == max ? -1 : max;
+      }
+      if (hi - lo <= precision * hi) {
+        return -1;
+      }
+      return (lo + hi) / 2;
+    }
+  }
+
+  /**
+   * The outcome of one step.
+   */
+  private static final class Step {
+    private final double rate;
+    private final double throughput;
+    private final long latency;
+    private final boolean met;
+
+    private Step(double rate, double throughput, long latency, boolean met) {
+      this.rate = rate;
+      this.throughput = throughput;
+      this.latency = latency;
+      this.met = met;
+    }
+  }
+}
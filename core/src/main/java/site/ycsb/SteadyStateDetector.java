@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.HdrHistogram.Histogram;
+import site.ycsb.measurements.IntervalListener;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ends the warmup once the run reaches a steady state, instead of after a fixed warmuptime. While warming up,
+ * the operations are measured in the WARMUP measurement only; this listens to its intervals, as the status
+ * thread harvests them, and ends the warmup once the coefficient of variation of both the throughput and the
+ * 99th percentile latency stays under warmup.cv for warmup.windows consecutive intervals. If that does not
+ * happen within warmup.maxtime seconds, the warmup ends anyway.
+ */
+public final class SteadyStateDetector implements IntervalListener {
+  /**
+   * How the warmup ends: "fixed", after warmuptime seconds, or "auto", once the run is steady.
+   */
+  public static final String MODE_PROPERTY = "warmup.mode";
+  public static final String MODE_PROPERTY_DEFAULT = "fixed";
+
+  /**
+   * The largest coefficient of variation (standard deviation over mean) of a steady window.
+   */
+  public static final String CV_PROPERTY = "warmup.cv";
+  public static final String CV_PROPERTY_DEFAULT = "0.1";
+
+  /**
+   * The number of consecutive status intervals the throughput and latency must be steady over.
+   */
+  public static final String WINDOWS_PROPERTY = "warmup.windows";
+  public static final String WINDOWS_PROPERTY_DEFAULT = "5";
+
+  /**
+   * The longest the warmup may last, in seconds.
+   */
+  public static final String MAX_TIME_PROPERTY = "warmup.maxtime";
+  public static final String MAX_TIME_PROPERTY_DEFAULT = "600";
+
+  /**
+   * The measurement the operations are recorded in while warming up.
+   */
+  public static final String WARMUP_METRIC = "WARMUP";
+
+  private final double maxCv;
+  private final int windows;
+  private final long maxTimeMs;
+  private final Runnable endWarmup;
+  // the samples of the last windows, guarded by this
+  private final Deque<double[]> samples = new ArrayDeque<>();
+  private long startMs = -1;
+  private volatile long warmupMs = -1;
+  private volatile boolean steady;
+
+  /**
+   * @param endWarmup called once, from the thread harvesting the intervals, when the warmup ends
+   */
+  public SteadyStateDetector(Properties props, Runnable endWarmup) {
+    maxCv = Double.parseDouble(props.getProperty(CV_PROPERTY, CV_PROPERTY_DEFAULT));
+    windows = Integer.parseInt(props.getProperty(WINDOWS_PROPERTY, WINDOWS_PROPERTY_DEFAULT));
+    maxTimeMs = TimeUnit.SECONDS.toMillis(
+        Long.parseLong(props.getProperty(MAX_TIME_PROPERTY, MAX_TIME_PROPERTY_DEFAULT)));
+    this.endWarmup = endWarmup;
+  }
+
+  /**
+   * Whether the properties ask for the warmup to end on a steady state.
+   */
+  public static boolean isEnabled(Properties props) {
+    return props.getProperty(MODE_PROPERTY, MODE_PROPERTY_DEFAULT).equals("auto");
+  }
+
+  @Override
+  public synchronized void onInterval(String metric, Histogram interval) {
+    if (!metric.equals(WARMUP_METRIC) || warmupMs >= 0) {
+      return;
+    }
+    if (startMs < 0) {
+      startMs = interval.getStartTimeStamp();
+    }
+    long ms = interval.getEndTimeStamp() - interval.getStartTimeStamp();
+    double throughput = ms <= 0 ? 0 : interval.getTotalCount() * 1000.0 / ms;
+    samples.addLast(new double[]{throughput, interval.getValueAtPercentile(99)});
+    if (samples.size() > windows) {
+      samples.removeFirst();
+    }
+
+    long elapsedMs = interval.getEndTimeStamp() - startMs;
+    steady = samples.size() == windows && throughput > 0
+        && coefficientOfVariation(0) <= maxCv && coefficientOfVariation(1) <= maxCv;
+    if (steady || elapsedMs >= maxTimeMs) {
+      warmupMs = elapsedMs;
+      System.err.println(steady
+          ? "Steady after " + warmupMs + " ms of warmup. Starting measuring."
+          : "Not steady after " + warmupMs + " ms of warmup, the most allowed. Starting measuring.");
+      endWarmup.run();
+    }
+  }
+
+  /**
+   * The coefficient of variation of one of the sampled values over the window; 0 if they are all 0.
+   */
+  private double coefficientOfVariation(int index) {
+    double sum = 0;
+    for (double[] sample : samples) {
+      sum += sample[index];
+    }
+    double mean = sum / samples.size();
+    if (mean == 0) {
+      return 0;
+    }
+    double squares = 0;
+    for (double[] sample : samples) {
+      squares += (sample[index] - mean) * (sample[index] - mean);
+    }
+    return Math.sqrt(squares / samples.size()) / mean;
+  }
+
+  /**
+   * How long the warmup lasted, in ms, or -1 while it goes on.
+   */
+  public long getWarmupMs() {
+    return warmupMs;
+  }
+
+  /**
+   * Whether the warmup ended on a steady state rather than on warmup.maxtime.
+   */
+  public boolean isSteady() {
+    return steady;
+  }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.util.Map;
+
+/**
+ * Receives the records a query subscription delivers, see
+ * {@link DB#subscribeQuery(String[], String[], Object[], Object[], java.util.concurrent.CountDownLatch,
+ * SubscriptionListener)}.
+ */
+public interface SubscriptionListener {
+  /**
+   * Called for every record entering or changing within the result of the subscribed query.
+   *
+   * @param attributes the attributes of the record as delivered
+   */
+  void onRecord(Map<String, String> attributes);
+}
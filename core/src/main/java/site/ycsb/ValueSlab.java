@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A read-only, off-heap slab of random printable bytes generated once and shared by all client threads. Field values
+ * are handed out as slices of the slab at random offsets, so building a value allocates one small iterator instead of
+ * generating every byte, and bindings can send the slice without copying it through {@link ByteIterator#toByteBuffer}.
+ * <p>
+ * Values drawn from the slab are random but, unlike {@link RandomByteIterator}, two values may overlap. Workloads that
+ * depend on values being independent (or deterministic, see dataintegrity) should leave the slab disabled.
+ * </p>
+ */
+public final class ValueSlab {
+  /**
+   * Whether field values are drawn from a shared slab rather than generated per field.
+   */
+  public static final String VALUE_SLAB_PROPERTY = "valueslab";
+  public static final String VALUE_SLAB_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The size of the slab in bytes. The slab is grown to at least twice the largest field length.
+   */
+  public static final String VALUE_SLAB_SIZE_PROPERTY = "valueslab.size";
+  public static final String VALUE_SLAB_SIZE_PROPERTY_DEFAULT = "67108864";
+
+  /** The largest slab a direct ByteBuffer can address. */
+  private static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+  private final ByteBuffer slab;
+  private final int size;
+
+  public ValueSlab(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException(VALUE_SLAB_SIZE_PROPERTY + " must be positive, was " + size);
+    }
+    this.size = size;
+    ByteBuffer b = ByteBuffer.allocateDirect(size);
+    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+    while (b.hasRemaining()) {
+      long bits = rnd.nextLong();
+      // Ten printable characters per random long, drawn from the same range as RandomByteIterator.
+      for (int i = 0; i < 10 && b.hasRemaining(); i++) {
+        b.put((byte) (' ' + (bits & 63)));
+        bits >>>= 6;
+      }
+    }
+    ((Buffer) b).flip();
+    this.slab = b.asReadOnlyBuffer();
+  }
+
+  /**
+   * Create the slab described by the properties.
+   *
+   * @param p the workload properties
+   * @param maxFieldLength the largest field length that will be requested
+   * @return the slab, or null if it is disabled
+   */
+  public static ValueSlab create(Properties p, long maxFieldLength) {
+    if (!Boolean.parseBoolean(p.getProperty(VALUE_SLAB_PROPERTY, VALUE_SLAB_PROPERTY_DEFAULT))) {
+      return null;
+    }
+    long requested = Long.parseLong(p.getProperty(VALUE_SLAB_SIZE_PROPERTY, VALUE_SLAB_SIZE_PROPERTY_DEFAULT));
+    return new ValueSlab((int) Math.min(MAX_SIZE, Math.max(requested, 2 * maxFieldLength)));
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Return a value of the given length. Values no longer than the slab are zero-copy slices at a random offset;
+   * longer values fall back to a {@link RandomByteIterator}.
+   */
+  public ByteIterator slice(long length) {
+    if (length > size) {
+      return new RandomByteIterator(length);
+    }
+    int offset = ThreadLocalRandom.current().nextInt(size - (int) length + 1);
+    return new ByteBufferByteIterator(slab, offset, (int) length);
+  }
+
+}
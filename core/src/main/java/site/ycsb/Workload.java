@@ -17,6 +17,8 @@
 
 package site.ycsb;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Properties;
 
@@ -50,7 +52,8 @@ public abstract class Workload {
     INSERT,
     SCAN,
     DELETE,
-    QUERY
+    QUERY,
+    READMODIFYWRITE
   }
   
   /**
@@ -63,6 +66,30 @@ public abstract class Workload {
   public void preload(Properties p, DB db) {
   }
 
+  /**
+   * The number of parts to split the preload into, each run on a thread of its own with a DB of its own.
+   * By default the preload is not split.
+   *
+   * @param threadcount the number of client threads
+   * @return the number of parts, or 0 if there is nothing to preload
+   */
+  public int preloadParts(Properties p, int threadcount) {
+    return 1;
+  }
+
+  /**
+   * Preload one of parts disjoint shares of what {@link #preload(Properties, DB)} loads. Called from parts
+   * threads at once, each with its own DB. By default the first part loads everything.
+   *
+   * @param part the share to load, from 0 to parts - 1
+   * @param parts the number of shares
+   */
+  public void preload(Properties p, DB db, int part, int parts) {
+    if (part == 0) {
+      preload(p, db);
+    }
+  }
+
   /**
    * Initialize any state for a particular client thread. Since the scenario object
    * will be shared among all threads, this is the place to create any state that is specific
@@ -109,6 +136,40 @@ public abstract class Workload {
    */
   public abstract boolean doTransaction(DB db, Object threadstate);
 
+  /**
+   * Do one insert operation without waiting for the DB to complete it. Used instead of doInsert() when the
+   * client keeps several operations in flight per thread. The same thread safety rules as for doInsert()
+   * apply; in addition the returned stage may complete on a thread other than the client thread.
+   * The default implementation calls doInsert() and returns an already completed stage.
+   *
+   * @return A stage completed with the value doInsert() would have returned.
+   */
+  public CompletionStage<Boolean> doInsertAsync(DB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doInsert(db, threadstate));
+  }
+
+  /**
+   * Do one transaction operation without waiting for the DB to complete it. Used instead of doTransaction()
+   * when the client keeps several operations in flight per thread. The same thread safety rules as for
+   * doTransaction() apply; in addition the returned stage may complete on a thread other than the client thread.
+   * The default implementation calls doTransaction() and returns an already completed stage.
+   *
+   * @return A stage completed with the value doTransaction() would have returned.
+   */
+  public CompletionStage<Boolean> doTransactionAsync(DB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doTransaction(db, threadstate));
+  }
+
+  /**
+   * Opens the measurement of a subscription on a query of this workload, for measuring freshness.
+   *
+   * @param tracker The tracker measuring the subscription.
+   * @return The subscription, or null if the workload generates no queries.
+   */
+  public FreshnessTracker.Subscription nextSubscription(FreshnessTracker tracker) {
+    return null;
+  }
+
   /**
    * Allows scheduling a request to stop the workload.
    */
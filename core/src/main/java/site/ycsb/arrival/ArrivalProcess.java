@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.arrival;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A schedule of operation arrivals shared by all client threads. Each call to {@link #nextArrivalNs()} claims
+ * the next arrival; a client thread waits for it and uses it as the intended start time of its operation, so
+ * operations that could not start on time (because all threads were busy) are charged the time they queued.
+ * <p>
+ * Arrival times are kept as offsets from the first claimed arrival and advanced with a CAS, so threads never
+ * block on each other. Subclasses only define the gap between consecutive arrivals.
+ */
+public abstract class ArrivalProcess {
+  /**
+   * The arrival process to use: "fixed" (default, every thread ticks at target / threadcount on its own),
+   * "constant", "poisson", "onoff" or "curve".
+   */
+  public static final String ARRIVAL_PROPERTY = "arrival";
+  public static final String ARRIVAL_PROPERTY_DEFAULT = "fixed";
+
+  /**
+   * Length of the bursts of the "onoff" process, in milliseconds.
+   */
+  public static final String ON_MS_PROPERTY = "arrival.onoff.onms";
+  public static final String ON_MS_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * Length of the silences of the "onoff" process, in milliseconds.
+   */
+  public static final String OFF_MS_PROPERTY = "arrival.onoff.offms";
+  public static final String OFF_MS_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * File with the rate curve of the "curve" process. See {@link RateCurveArrivalProcess} for the format.
+   */
+  public static final String CURVE_FILE_PROPERTY = "arrival.curve.file";
+
+  /**
+   * Whether the "curve" process starts over at the end of the curve, or keeps the last rate.
+   */
+  public static final String CURVE_LOOP_PROPERTY = "arrival.curve.loop";
+  public static final String CURVE_LOOP_PROPERTY_DEFAULT = "true";
+
+  private static final long NOT_STARTED = Long.MIN_VALUE;
+
+  private final AtomicLong startNs = new AtomicLong(NOT_STARTED);
+  private final AtomicLong nextOffsetNs = new AtomicLong();
+  private volatile double rate;
+
+  /**
+   * @param rate the mean number of arrivals per second
+   */
+  protected ArrivalProcess(double rate) {
+    setRate(rate);
+  }
+
+  /**
+   * Creates the arrival process configured in the properties.
+   *
+   * @param props  the properties of the experiment
+   * @param target the target number of operations per second, 0 if none
+   * @return the arrival process, or null for the per-thread fixed ticks
+   * @throws IOException if the rate curve cannot be read
+   */
+  public static ArrivalProcess create(Properties props, double target) throws IOException {
+    String type = props.getProperty(ARRIVAL_PROPERTY, ARRIVAL_PROPERTY_DEFAULT);
+    if (type.equals("fixed")) {
+      return null;
+    }
+    if (type.equals("curve")) {
+      String file = props.getProperty(CURVE_FILE_PROPERTY);
+      if (file == null) {
+        throw new IllegalArgumentException(CURVE_FILE_PROPERTY + " must be set for the curve arrival process");
+      }
+      boolean loop = Boolean.parseBoolean(props.getProperty(CURVE_LOOP_PROPERTY, CURVE_LOOP_PROPERTY_DEFAULT));
+      RateCurveArrivalProcess curve = RateCurveArrivalProcess.load(file, loop);
+      if (target > 0) {
+        curve.setRate(target);
+      }
+      return curve;
+    }
+    if (target <= 0) {
+      throw new IllegalArgumentException("The " + type + " arrival process needs a target throughput");
+    }
+    switch (type) {
+    case "constant":
+      return new ConstantArrivalProcess(target);
+    case "poisson":
+      return new PoissonArrivalProcess(target);
+    case "onoff":
+      long onMs = Long.parseLong(props.getProperty(ON_MS_PROPERTY, ON_MS_PROPERTY_DEFAULT));
+      long offMs = Long.parseLong(props.getProperty(OFF_MS_PROPERTY, OFF_MS_PROPERTY_DEFAULT));
+      return new OnOffArrivalProcess(target, onMs * 1000000L, offMs * 1000000L);
+    default:
+      throw new IllegalArgumentException("Unknown arrival process \"" + type + "\"");
+    }
+  }
+
+  /**
+   * Claims the next arrival. The schedule starts with the first claim.
+   *
+   * @return the arrival time, comparable with {@link System#nanoTime()}
+   */
+  public final long nextArrivalNs() {
+    long start = startNs.get();
+    if (start == NOT_STARTED) {
+      startNs.compareAndSet(NOT_STARTED, System.nanoTime());
+      start = startNs.get();
+    }
+    while (true) {
+      long offset = nextOffsetNs.get();
+      long next = offset + nextGapNs(offset);
+      if (nextOffsetNs.compareAndSet(offset, next)) {
+        return start + offset;
+      }
+    }
+  }
+
+  /**
+   * Drops the arrivals that are already past and not yet claimed, so the next one is due now. Lowering the
+   * rate after an overload then does not serve the backlog of the old rate at the new one.
+   */
+  public final void dropBacklog() {
+    long start = startNs.get();
+    if (start == NOT_STARTED) {
+      return;
+    }
+    long nowOffset = System.nanoTime() - start;
+    while (true) {
+      long offset = nextOffsetNs.get();
+      if (offset >= nowOffset || nextOffsetNs.compareAndSet(offset, nowOffset)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the mean number of arrivals per second
+   */
+  public double getRate() {
+    return rate;
+  }
+
+  /**
+   * Changes the mean number of arrivals per second, from the next claimed arrival on.
+   *
+   * @param opsPerSec the mean number of arrivals per second
+   */
+  public void setRate(double opsPerSec) {
+    if (!(opsPerSec > 0)) {
+      throw new IllegalArgumentException("The arrival rate must be positive, got " + opsPerSec);
+    }
+    rate = opsPerSec;
+  }
+
+  /**
+   * The time between an arrival and the next one. May be called more than once for the same arrival when
+   * threads race, so random draws must be independent of earlier calls.
+   *
+   * @param offsetNs the time of the arrival, relative to the first one
+   * @return the time until the next arrival
+   */
+  protected abstract long nextGapNs(long offsetNs);
+
+  /**
+   * @param rate arrivals per second
+   * @return an exponentially distributed gap with mean 1 / rate, in nanoseconds
+   */
+  static double exponentialGapNs(double rate) {
+    return -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * 1e9 / rate;
+  }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.arrival;
+
+/**
+ * Arrivals evenly spaced at 1 / rate.
+ */
+public class ConstantArrivalProcess extends ArrivalProcess {
+  public ConstantArrivalProcess(double rate) {
+    super(rate);
+  }
+
+  @Override
+  protected long nextGapNs(long offsetNs) {
+    return Math.round(1e9 / getRate());
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.arrival;
+
+/**
+ * Bursty arrivals: Poisson bursts of a fixed length separated by silences of a fixed length. The rate within
+ * a burst is raised so that the mean rate over a whole period is the configured rate.
+ */
+public class OnOffArrivalProcess extends ArrivalProcess {
+  private final long onNs;
+  private final long periodNs;
+
+  /**
+   * @param rate  the mean number of arrivals per second
+   * @param onNs  the length of a burst
+   * @param offNs the length of a silence
+   */
+  public OnOffArrivalProcess(double rate, long onNs, long offNs) {
+    super(rate);
+    if (onNs <= 0 || offNs < 0) {
+      throw new IllegalArgumentException("Invalid on/off periods " + onNs + "/" + offNs + " ns");
+    }
+    this.onNs = onNs;
+    this.periodNs = onNs + offNs;
+  }
+
+  @Override
+  protected long nextGapNs(long offsetNs) {
+    double burstRate = getRate() * periodNs / onNs;
+    // Draw the gap in "burst time" and lay it out over the bursts, skipping the silences. Since arrivals in
+    // a burst are memoryless this is exactly a Poisson process that is switched off during the silences.
+    double remaining = exponentialGapNs(burstRate);
+    long at = offsetNs;
+    while (true) {
+      long pos = at % periodNs;
+      if (pos >= onNs) {
+        at += periodNs - pos;
+        continue;
+      }
+      long left = onNs - pos;
+      if (remaining < left) {
+        return at + (long) remaining - offsetNs;
+      }
+      remaining -= left;
+      at += left;
+    }
+  }
+}
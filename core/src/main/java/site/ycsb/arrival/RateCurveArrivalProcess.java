@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.arrival;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Poisson arrivals whose rate follows a curve, e.g. one recorded from production traffic. The curve file has
+ * one point per line, "seconds rate" (whitespace or comma separated, '#' starts a comment): the rate in
+ * arrivals per second from that time on, until the next point. Times start at 0 and must increase.
+ * <p>
+ * When looping, the last point only marks the end of the curve, which then starts over; otherwise its rate
+ * holds forever. Setting a rate scales the whole curve so that its mean is that rate.
+ */
+public class RateCurveArrivalProcess extends ArrivalProcess {
+  private final double[] startsSec;
+  private final double[] rates;
+  private final boolean loop;
+  private final double meanRate;
+
+  /**
+   * @param startsSec the start of every segment, in seconds
+   * @param rates     the rate of every segment, in arrivals per second
+   * @param loop      whether the curve starts over after the last point
+   */
+  public RateCurveArrivalProcess(double[] startsSec, double[] rates, boolean loop) {
+    super(meanRate(startsSec, rates, loop));
+    this.startsSec = startsSec.clone();
+    this.rates = rates.clone();
+    this.loop = loop;
+    this.meanRate = getRate();
+  }
+
+  /**
+   * Reads a curve file.
+   *
+   * @param file the curve file
+   * @param loop whether the curve starts over after the last point
+   * @return the arrival process following the curve
+   * @throws IOException if the file cannot be read
+   */
+  public static RateCurveArrivalProcess load(String file, boolean loop) throws IOException {
+    List<double[]> points = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int comment = line.indexOf('#');
+        if (comment >= 0) {
+          line = line.substring(0, comment);
+        }
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        String[] fields = line.split("[\\s,]+");
+        if (fields.length != 2) {
+          throw new IOException("Invalid rate curve point \"" + line + "\" in " + file);
+        }
+        try {
+          points.add(new double[]{Double.parseDouble(fields[0]), Double.parseDouble(fields[1])});
+        } catch (NumberFormatException e) {
+          throw new IOException("Invalid rate curve point \"" + line + "\" in " + file, e);
+        }
+      }
+    }
+    double[] starts = new double[points.size()];
+    double[] rates = new double[points.size()];
+    for (int i = 0; i < starts.length; i++) {
+      starts[i] = points.get(i)[0];
+      rates[i] = points.get(i)[1];
+    }
+    return new RateCurveArrivalProcess(starts, rates, loop);
+  }
+
+  private static double meanRate(double[] starts, double[] rates, boolean loop) {
+    if (starts.length == 0 || starts.length != rates.length || starts[0] != 0) {
+      throw new IllegalArgumentException("A rate curve needs points of equal count starting at time 0");
+    }
+    for (int i = 0; i < starts.length; i++) {
+      if (rates[i] < 0 || (i > 0 && starts[i] <= starts[i - 1])) {
+        throw new IllegalArgumentException("Rates must not be negative and times must increase");
+      }
+    }
+    if (starts.length == 1) {
+      return rates[0];
+    }
+    // the mean over the curve as given, up to its last point
+    double end = starts[starts.length - 1];
+    double arrivals = 0;
+    for (int i = 0; i + 1 < starts.length; i++) {
+      arrivals += rates[i] * (starts[i + 1] - starts[i]);
+    }
+    return arrivals / end;
+  }
+
+  @Override
+  protected long nextGapNs(long offsetNs) {
+    double scale = getRate() / meanRate;
+    // Draw the gap in units of expected arrivals and walk the curve until that many are due: this inverts
+    // the cumulative rate exactly, so bursts and silences in the curve come out as they are.
+    double remaining = -Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+    double period = startsSec[startsSec.length - 1];
+    double t = offsetNs / 1e9;
+    double base = 0;
+    if (loop && period > 0) {
+      base = Math.floor(t / period) * period;
+      t -= base;
+    }
+    int segment = segmentAt(t);
+    while (true) {
+      double segmentRate = rates[segment] * scale;
+      double segmentEnd;
+      if (segment + 1 < startsSec.length) {
+        segmentEnd = startsSec[segment + 1];
+      } else if (loop && period > 0) {
+        base += period;
+        t = 0;
+        segment = 0;
+        continue;
+      } else {
+        segmentEnd = Double.POSITIVE_INFINITY;
+      }
+      double due = segmentRate * (segmentEnd - t);
+      if (remaining < due) {
+        t += remaining / segmentRate;
+        break;
+      }
+      if (segmentEnd == Double.POSITIVE_INFINITY) {
+        throw new IllegalStateException("The rate curve ends with a rate of 0, no more arrivals");
+      }
+      remaining -= due;
+      t = segmentEnd;
+      segment++;
+    }
+    return Math.max(0, Math.round((base + t) * 1e9) - offsetNs);
+  }
+
+  private int segmentAt(double t) {
+    int segment = 0;
+    while (segment + 1 < startsSec.length && startsSec[segment + 1] <= t) {
+      segment++;
+    }
+    return segment;
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.coordinator;
+
+import org.HdrHistogram.Histogram;
+import site.ycsb.measurements.IntervalListener;
+import site.ycsb.measurements.Measurements;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A client of a multi-node run, connecting to the {@link CoordinatorServer} at coordinator.host and
+ * coordinator.port. {@link #awaitStart()} returns at the instant the master releases all clients; from
+ * {@link #start()} on, the interval histograms the status thread takes of the measurements are streamed to
+ * the master, and {@link #close()}, called once the status thread took the final interval, sends the last of them.
+ */
+public final class CoordinatorClient implements IntervalListener, Closeable {
+  /**
+   * The name the client reports to the master, by default its host and client property.
+   */
+  public static final String NAME_PROPERTY = "coordinator.name";
+
+  private static final Interval DONE = new Interval(null, null);
+
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final BlockingQueue<Interval> queue = new LinkedBlockingQueue<>();
+  private Thread sender;
+
+  public CoordinatorClient(Properties props) throws IOException {
+    String host = props.getProperty(CoordinatorProtocol.HOST_PROPERTY, CoordinatorProtocol.HOST_PROPERTY_DEFAULT);
+    socket = new Socket(host, Integer.parseInt(props.getProperty(CoordinatorProtocol.PORT_PROPERTY,
+        CoordinatorProtocol.PORT_PROPERTY_DEFAULT)));
+    socket.setTcpNoDelay(true);
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    String name = props.getProperty(NAME_PROPERTY);
+    if (name == null) {
+      name = socket.getLocalAddress().getHostName() + "/" + props.getProperty("client", "0");
+    }
+    out.writeByte(CoordinatorProtocol.HELLO);
+    out.writeUTF(name);
+    out.flush();
+  }
+
+  /**
+   * Answers the master until it releases the clients, then waits for the start instant.
+   */
+  public void awaitStart() throws IOException {
+    while (true) {
+      byte message = in.readByte();
+      if (message == CoordinatorProtocol.PING) {
+        out.writeByte(CoordinatorProtocol.PONG);
+        out.flush();
+      } else if (message == CoordinatorProtocol.START) {
+        long deadline = System.nanoTime() + in.readLong();
+        for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+          LockSupport.parkNanos(left);
+        }
+        return;
+      } else {
+        throw new IOException("Unexpected message " + message + " from the coordinator");
+      }
+    }
+  }
+
+  /**
+   * Starts streaming the interval histograms of the measurements.
+   */
+  public void start() {
+    Measurements.getMeasurements().addIntervalListener(this);
+    sender = new Thread(this::send, "coordinator-sender");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Queues the interval for the master; encoded here as the histogram is only valid during the call.
+   */
+  @Override
+  public void onInterval(String metric, Histogram interval) {
+    if (interval.getTotalCount() == 0) {
+      return;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(interval.getNeededByteBufferCapacity());
+    int length = interval.encodeIntoCompressedByteBuffer(buffer);
+    byte[] bytes = new byte[length];
+    System.arraycopy(buffer.array(), 0, bytes, 0, length);
+    queue.add(new Interval(metric, bytes));
+  }
+
+  private void send() {
+    try {
+      while (true) {
+        Interval interval = queue.take();
+        if (interval == DONE) {
+          out.writeByte(CoordinatorProtocol.DONE);
+          out.flush();
+          return;
+        }
+        out.writeByte(CoordinatorProtocol.INTERVAL);
+        out.writeUTF(interval.metric);
+        out.writeInt(interval.histogram.length);
+        out.write(interval.histogram);
+        if (queue.isEmpty()) {
+          out.flush();
+        }
+      }
+    } catch (IOException | InterruptedException e) {
+      System.err.println("Lost the coordinator: " + e);
+    }
+  }
+
+  /**
+   * Sends the last intervals and tells the master the client finished.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      Measurements.getMeasurements().removeIntervalListener(this);
+      queue.add(DONE);
+      if (sender == null) {
+        send();
+      } else {
+        sender.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * An encoded interval histogram waiting to be sent.
+   */
+  private static final class Interval {
+    private final String metric;
+    private final byte[] histogram;
+
+    private Interval(String metric, byte[] histogram) {
+      this.metric = metric;
+      this.histogram = histogram;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.coordinator;
+
+/**
+ * The messages exchanged between the {@link CoordinatorServer} and its {@link CoordinatorClient}s, each a
+ * byte followed by its fields written by a {@link java.io.DataOutputStream}.
+ * <ul>
+ * <li>HELLO (client): the UTF name of the client, sent on connecting.</li>
+ * <li>PING (master), answered by PONG (client): measures the round trip to the client.</li>
+ * <li>START (master): the long nanoseconds the client waits from receiving it before starting.</li>
+ * <li>INTERVAL (client): the UTF metric name, and the int length and bytes of a compressed interval
+ * histogram.</li>
+ * <li>DONE (client): the client finished, nothing follows.</li>
+ * </ul>
+ */
+final class CoordinatorProtocol {
+  static final byte HELLO = 1;
+  static final byte PING = 2;
+  static final byte PONG = 3;
+  static final byte START = 4;
+  static final byte INTERVAL = 5;
+  static final byte DONE = 6;
+
+  static final String HOST_PROPERTY = "coordinator.host";
+  static final String HOST_PROPERTY_DEFAULT = "localhost";
+  static final String PORT_PROPERTY = "coordinator.port";
+  static final String PORT_PROPERTY_DEFAULT = "2387";
+  static final String INTERVAL_PROPERTY = "coordinator.interval.ms";
+  static final String INTERVAL_PROPERTY_DEFAULT = "1000";
+
+  private CoordinatorProtocol() {
+    // not used
+  }
+}
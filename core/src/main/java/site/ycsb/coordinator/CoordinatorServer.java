@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.coordinator;
+
+import org.HdrHistogram.Histogram;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The master of a multi-node run. It waits for coordinator.clients clients to connect, measures the round
+ * trip to each, and tells each how long to wait so that they all start coordinator.startdelay.ms later at
+ * the same instant, up to the asymmetry of the network. While they run, it merges the interval histograms
+ * they stream and prints the cluster-wide throughput and latencies every coordinator.interval.ms; at the end
+ * it exports the merged totals.
+ */
+public final class CoordinatorServer implements Closeable {
+  /**
+   * The number of clients to wait for before starting.
+   */
+  public static final String CLIENTS_PROPERTY = "coordinator.clients";
+  public static final String CLIENTS_PROPERTY_DEFAULT = "1";
+
+  /**
+   * How long after the last client connected they all start, leaving time to tell them.
+   */
+  public static final String START_DELAY_PROPERTY = "coordinator.startdelay.ms";
+  public static final String START_DELAY_PROPERTY_DEFAULT = "1000";
+
+  private static final int PINGS = 5;
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+  private final ServerSocket serverSocket;
+  private final int clientCount;
+  private final long startDelayNs;
+  private final long intervalMs;
+  private final List<Connection> connections = new ArrayList<>();
+  // merged histograms by metric, guarded by this
+  private final Map<String, Histogram> intervals = new TreeMap<>();
+  private final Map<String, Histogram> totals = new TreeMap<>();
+  private long startNs;
+  private long endNs;
+
+  public CoordinatorServer(Properties props) throws IOException {
+    clientCount = Integer.parseInt(props.getProperty(CLIENTS_PROPERTY, CLIENTS_PROPERTY_DEFAULT));
+    startDelayNs = TimeUnit.MILLISECONDS.toNanos(
+        Long.parseLong(props.getProperty(START_DELAY_PROPERTY, START_DELAY_PROPERTY_DEFAULT)));
+    intervalMs = Long.parseLong(props.getProperty(CoordinatorProtocol.INTERVAL_PROPERTY,
+        CoordinatorProtocol.INTERVAL_PROPERTY_DEFAULT));
+    if (clientCount < 1) {
+      throw new IllegalArgumentException(CLIENTS_PROPERTY + " must be at least 1");
+    }
+    serverSocket = new ServerSocket(Integer.parseInt(props.getProperty(CoordinatorProtocol.PORT_PROPERTY,
+        CoordinatorProtocol.PORT_PROPERTY_DEFAULT)));
+  }
+
+  /**
+   * The port the master listens on, useful when coordinator.port is 0.
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Coordinates a run, returning when all clients finished or disconnected.
+   */
+  public void run() throws IOException, InterruptedException {
+    while (connections.size() < clientCount) {
+      Connection connection = new Connection(serverSocket.accept());
+      connections.add(connection);
+      System.err.println("Client " + connection.name + " connected (" + connections.size() + "/" + clientCount +
+          ")");
+    }
+    for (Connection connection : connections) {
+      connection.measureRoundTrip();
+    }
+
+    startNs = System.nanoTime() + startDelayNs;
+    for (Connection connection : connections) {
+      connection.start(startNs);
+    }
+    System.err.println("Starting " + clientCount + " clients in " +
+        TimeUnit.NANOSECONDS.toMillis(startNs - System.nanoTime()) + " ms");
+
+    CountDownLatch finished = new CountDownLatch(connections.size());
+    for (Connection connection : connections) {
+      Thread reader = new Thread(() -> {
+          connection.receive();
+          finished.countDown();
+        }, "coordinator-" + connection.name);
+      reader.setDaemon(true);
+      reader.start();
+    }
+    long lastNs = startNs;
+    while (!finished.await(intervalMs, TimeUnit.MILLISECONDS)) {
+      long now = System.nanoTime();
+      if (now > startNs) {
+        System.err.println(intervalSummary(now, now - Math.max(lastNs, startNs)));
+        lastNs = now;
+      }
+    }
+    endNs = System.nanoTime();
+    System.err.println(intervalSummary(endNs, endNs - Math.max(lastNs, startNs)));
+  }
+
+  private synchronized void add(String metric, Histogram histogram) {
+    merge(intervals, metric, histogram);
+    merge(totals, metric, histogram);
+  }
+
+  private static void merge(Map<String, Histogram> merged, String metric, Histogram histogram) {
+    Histogram m = merged.get(metric);
+    if (m == null) {
+      // auto-resizing, like the clients' recorders, as later intervals may hold larger values
+      m = new Histogram(3);
+      merged.put(metric, m);
+    }
+    m.add(histogram);
+  }
+
+  /**
+   * Summarizes the histograms received in the interval ending now, and starts the next interval.
+   */
+  private synchronized String intervalSummary(long nowNs, long intervalNs) {
+    DecimalFormat d = new DecimalFormat("#.##");
+    StringBuilder summary = new StringBuilder("[CLUSTER] ")
+        .append(TimeUnit.NANOSECONDS.toSeconds(nowNs - startNs)).append(" sec:");
+    double seconds = Math.max(intervalNs, 1) / 1e9;
+    for (Map.Entry<String, Histogram> interval : intervals.entrySet()) {
+      Histogram h = interval.getValue();
+      summary.append(" [").append(interval.getKey())
+          .append(": Count=").append(h.getTotalCount())
+          .append(", ops/sec=").append(d.format(h.getTotalCount() / seconds))
+          .append(", Avg=").append(d.format(h.getMean()))
+          .append(", 99=").append(d.format(h.getValueAtPercentile(99)))
+          .append(", 99.9=").append(d.format(h.getValueAtPercentile(99.9)))
+          .append(", Max=").append(h.getMaxValue()).append("]");
+    }
+    intervals.clear();
+    return summary.toString();
+  }
+
+  /**
+   * Exports the histograms merged over the whole run, per metric.
+   */
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    long runtimeMs = Math.max(TimeUnit.NANOSECONDS.toMillis(endNs - startNs), 1);
+    exporter.write("CLUSTER", "Clients", clientCount);
+    exporter.write("CLUSTER", "RunTime(ms)", runtimeMs);
+    for (Map.Entry<String, Histogram> total : totals.entrySet()) {
+      String metric = total.getKey();
+      Histogram h = total.getValue();
+      exporter.write(metric, "Operations", h.getTotalCount());
+      exporter.write(metric, "Throughput(ops/sec)", 1000.0 * h.getTotalCount() / runtimeMs);
+      exporter.write(metric, "AverageLatency(us)", h.getMean());
+      exporter.write(metric, "MinLatency(us)", h.getMinValue());
+      exporter.write(metric, "MaxLatency(us)", h.getMaxValue());
+      for (double percentile : PERCENTILES) {
+        // the whole percentiles all end in "th", as in the clients' own export
+        String ordinal = percentile == Math.rint(percentile) ? (long) percentile + "th" : Double.toString(percentile);
+        exporter.write(metric, ordinal + "PercentileLatency(us)", h.getValueAtPercentile(percentile));
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Connection connection : connections) {
+      connection.socket.close();
+    }
+    serverSocket.close();
+  }
+
+  /**
+   * The connection to one client.
+   */
+  private final class Connection {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final String name;
+    private long roundTripNs = Long.MAX_VALUE;
+
+    private Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      socket.setTcpNoDelay(true);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      expect(CoordinatorProtocol.HELLO);
+      name = in.readUTF();
+    }
+
+    private void expect(byte message) throws IOException {
+      byte received = in.readByte();
+      if (received != message) {
+        throw new IOException("Unexpected message " + received + " from client, expected " + message);
+      }
+    }
+
+    /**
+     * Keeps the shortest of a few round trips, the one least delayed by anything but the network.
+     */
+    private void measureRoundTrip() throws IOException {
+      for (int i = 0; i < PINGS; i++) {
+        long st = System.nanoTime();
+        out.writeByte(CoordinatorProtocol.PING);
+        out.flush();
+        expect(CoordinatorProtocol.PONG);
+        roundTripNs = Math.min(roundTripNs, System.nanoTime() - st);
+      }
+    }
+
+    /**
+     * Tells the client when to start: the START message reaches it about half a round trip after it is sent.
+     */
+    private void start(long atNs) throws IOException {
+      out.writeByte(CoordinatorProtocol.START);
+      out.writeLong(Math.max(atNs - System.nanoTime() - roundTripNs / 2, 0));
+      out.flush();
+    }
+
+    private void receive() {
+      try {
+        while (true) {
+          byte message = in.readByte();
+          if (message == CoordinatorProtocol.DONE) {
+            System.err.println("Client " + name + " finished");
+            return;
+          }
+          if (message != CoordinatorProtocol.INTERVAL) {
+            throw new IOException("Unexpected message " + message + " from client");
+          }
+          String metric = in.readUTF();
+          byte[] bytes = new byte[in.readInt()];
+          in.readFully(bytes);
+          add(metric, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0));
+        }
+      } catch (Exception e) {
+        System.err.println("Lost client " + name + ": " + e);
+      }
+    }
+  }
+}
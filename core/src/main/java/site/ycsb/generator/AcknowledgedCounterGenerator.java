@@ -16,31 +16,55 @@
  */
 package site.ycsb.generator;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A CounterGenerator that reports generated integers via lastInt()
  * only after they have been acknowledged.
+ * <p>
+ * Acknowledgements are lock-free: each one stores its value in its slot of a window, and whichever thread finds
+ * the value after the limit acknowledged advances the limit with a CAS over the contiguous run. Slots hold the
+ * value rather than a flag, so a slot left over from the previous lap of the window is never mistaken for an
+ * acknowledgement. A value more than a window ahead of the limit waits for the limit to catch up instead of
+ * failing, which only happens when some insert is slower than a whole window of others.
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator {
-  /** The size of the window of pending id ack's. 2^20 = {@value} */
+  /** The default size of the window of pending id ack's. 2^20 = {@value} */
   static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
 
-  /** The mask to use to turn an id into a slot in {@link #window}. */
-  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+  /** The most values one CAS moves the limit over, so a thread does not scan the whole window alone. */
+  private static final int MAX_RUN = 64;
+
+  private static final long EMPTY = Long.MIN_VALUE;
 
-  private final ReentrantLock lock;
-  private final boolean[] window;
-  private volatile long limit;
+  private final AtomicLongArray window;
+  private final int windowMask;
+  private final AtomicLong limit;
 
   /**
    * Create a counter that starts at countstart.
    */
   public AcknowledgedCounterGenerator(long countstart) {
+    this(countstart, WINDOW_SIZE);
+  }
+
+  /**
+   * Create a counter that starts at countstart, with up to windowSize values acknowledged ahead of the limit.
+   *
+   * @param windowSize a power of two
+   */
+  public AcknowledgedCounterGenerator(long countstart, int windowSize) {
     super(countstart);
-    lock = new ReentrantLock();
-    window = new boolean[WINDOW_SIZE];
-    limit = countstart - 1;
+    if (windowSize <= 0 || Integer.bitCount(windowSize) != 1) {
+      throw new IllegalArgumentException("The window size must be a power of two, got " + windowSize);
+    }
+    window = new AtomicLongArray(windowSize);
+    for (int i = 0; i < windowSize; i++) {
+      window.set(i, EMPTY);
+    }
+    windowMask = windowSize - 1;
+    limit = new AtomicLong(countstart - 1);
   }
 
   /**
@@ -49,40 +73,32 @@ public class AcknowledgedCounterGenerator extends CounterGenerator {
    */
   @Override
   public Long lastValue() {
-    return limit;
+    return limit.get();
   }
 
   /**
    * Make a generated counter value available via lastInt().
    */
   public void acknowledge(long value) {
-    final int currentSlot = (int)(value & WINDOW_MASK);
-    if (window[currentSlot]) {
-      throw new RuntimeException("Too many unacknowledged insertion keys.");
+    // the slot is free once the value a window behind is under the limit
+    while (value - limit.get() > window.length()) {
+      Thread.yield();
     }
+    window.set((int) (value & windowMask), value);
 
-    window[currentSlot] = true;
-
-    if (lock.tryLock()) {
-      // move a contiguous sequence from the window
-      // over to the "limit" variable
-      try {
-        // Only loop through the entire window at most once.
-        long beforeFirstSlot = (limit & WINDOW_MASK);
-        long index;
-        for (index = limit + 1; index != beforeFirstSlot; ++index) {
-          int slot = (int)(index & WINDOW_MASK);
-          if (!window[slot]) {
-            break;
-          }
-
-          window[slot] = false;
-        }
-
-        limit = index - 1;
-      } finally {
-        lock.unlock();
+    // move a contiguous sequence from the window over to the limit
+    while (true) {
+      long current = limit.get();
+      long next = current + 1;
+      while (next - current <= MAX_RUN && window.get((int) (next & windowMask)) == next) {
+        next++;
+      }
+      if (next == current + 1) {
+        // if another thread acknowledges current + 1 now, it sees the limit and advances it
+        return;
       }
+      // a failed CAS means another thread advanced the limit meanwhile; look again from there
+      limit.compareAndSet(current, next - 1);
     }
   }
 }
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses from a fixed set of weighted values in constant time, by Walker's alias method. Unlike
+ * {@link DiscreteGenerator}, the weights are frozen at construction into a table of one threshold and one alias
+ * per value: a draw picks a column uniformly and returns its value or its alias, with one random number and no
+ * allocation, however many values there are.
+ *
+ * @param <V> the type of the values, typically an enum so callers can switch on them cheaply
+ */
+public class AliasDiscreteGenerator<V> extends Generator<V> {
+  private final Object[] values;
+  private final double[] thresholds;
+  private final int[] aliases;
+  private V lastvalue;
+
+  /**
+   * @param weights the values and their weights, which need not sum to 1; values with no weight are never
+   *                chosen. With no weighted value at all, the generator returns null.
+   */
+  public AliasDiscreteGenerator(Map<V, Double> weights) {
+    List<V> chosen = new ArrayList<>();
+    List<Double> chosenWeights = new ArrayList<>();
+    double sum = 0;
+    for (Map.Entry<V, Double> entry : weights.entrySet()) {
+      if (entry.getValue() > 0) {
+        chosen.add(entry.getKey());
+        chosenWeights.add(entry.getValue());
+        sum += entry.getValue();
+      }
+    }
+    int n = chosen.size();
+    values = chosen.toArray();
+    thresholds = new double[n];
+    aliases = new int[n];
+
+    // Vose's construction: scale the weights to a mean of 1, then pair each column under 1 with one over 1,
+    // which tops it up and keeps the remainder.
+    double[] scaled = new double[n];
+    Deque<Integer> small = new ArrayDeque<>();
+    Deque<Integer> large = new ArrayDeque<>();
+    for (int i = 0; i < n; i++) {
+      scaled[i] = chosenWeights.get(i) * n / sum;
+      aliases[i] = i;
+      (scaled[i] < 1 ? small : large).push(i);
+    }
+    while (!small.isEmpty() && !large.isEmpty()) {
+      int s = small.pop();
+      int l = large.pop();
+      thresholds[s] = scaled[s];
+      aliases[s] = l;
+      scaled[l] = scaled[l] + scaled[s] - 1;
+      (scaled[l] < 1 ? small : large).push(l);
+    }
+    // what is left is 1 up to rounding
+    while (!large.isEmpty()) {
+      thresholds[large.pop()] = 1;
+    }
+    while (!small.isEmpty()) {
+      thresholds[small.pop()] = 1;
+    }
+  }
+
+  /**
+   * Chooses the next value.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public V nextValue() {
+    int n = values.length;
+    if (n == 0) {
+      return null;
+    }
+    double u = ThreadLocalRandom.current().nextDouble() * n;
+    int column = (int) u;
+    return (V) values[u - column < thresholds[column] ? column : aliases[column]];
+  }
+
+  /**
+   * Return the previous value generated by the distribution. As with {@link DiscreteGenerator}, draws do not
+   * update it, so the generator can be shared by threads without writing to shared state; this returns the
+   * first value drawn by it.
+   */
+  @Override
+  public V lastValue() {
+    if (lastvalue == null) {
+      lastvalue = nextValue();
+    }
+    return lastvalue;
+  }
+
+  /**
+   * The probability of choosing a value, from the table; for testing.
+   */
+  double probability(V value) {
+    int n = values.length;
+    double p = 0;
+    for (int i = 0; i < n; i++) {
+      if (values[i].equals(value)) {
+        p += thresholds[i] / n;
+      }
+      if (values[aliases[i]].equals(value)) {
+        p += (1 - thresholds[i]) / n;
+      }
+    }
+    return p;
+  }
+}
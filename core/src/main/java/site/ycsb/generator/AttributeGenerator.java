@@ -18,6 +18,8 @@
 package site.ycsb.generator;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
@@ -28,9 +30,12 @@ import java.util.ArrayList;
 import java.util.Map;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import site.ycsb.*;
-import site.ycsb.Utils;
 
 /**
  * A generator, whose sequence is the lines of a file.
@@ -56,8 +61,33 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
   public static final String CACHED_QUERY_PROPORTION_PROPERTY_DEFAULT = "0.2";
   public static final String CACHE_SIZE_PROPERTY = "cachesize";
   public static final String CACHE_SIZE_PROPERTY_DEFAULT = "10";
+  /**
+   * How the cached queries are weighted by recency when one is repeated: "rank" (1/rank, the default),
+   * "zipf" (1/rank^querycache.zipfconstant) or "lruk" (1/rank, ranked by the querycache.k-th most recent use).
+   */
+  public static final String CACHE_WEIGHTING_PROPERTY = "querycache.weighting";
+  public static final String CACHE_WEIGHTING_PROPERTY_DEFAULT = "rank";
+  public static final String CACHE_ZIPF_CONSTANT_PROPERTY = "querycache.zipfconstant";
+  public static final String CACHE_ZIPF_CONSTANT_PROPERTY_DEFAULT = "0.99";
+  public static final String CACHE_K_PROPERTY = "querycache.k";
+  public static final String CACHE_K_PROPERTY_DEFAULT = "2";
+  /**
+   * Whether every client thread repeats its own queries ("thread", the default) or all threads share one
+   * cache of queries ("global").
+   */
+  public static final String CACHE_SCOPE_PROPERTY = "querycache.scope";
+  public static final String CACHE_SCOPE_PROPERTY_DEFAULT = "thread";
   public static final String INSERT_START_PROPERTY = "insertstart";
   public static final String INSERT_START_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The attribute names of the dataset columns, in order.
+   */
+  static final String[] ATTRIBUTE_NAMES = {"vendorid", "tpep_pickup_datetime", "tpep_dropoff_datetime",
+      "i-passenger_count", "f-trip_distance", "ratecodeid", "store_and_fwd_flag", "pulocationid", "doLocationid",
+      "payment_type", "fare_amount", "extra", "mta_tax", "tip_amount", "tolls_amount", "improvement_surcharge",
+      "total_amount", "congestion_surcharge"};
+
   public static final String INSERT_ORDER_PROPERTY = "insertorder";
   public static final String INSERT_ORDER_PROPERTY_DEFAULT = "hashed";
   public static final String ZERO_PADDING_PROPERTY = "zeropadding";
@@ -66,6 +96,58 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
   public static final String QUERY_TYPE_PROPERTY_DEFAULT = "point";
   public static final String TABLENAME_PROPERTY = "table";
   public static final String TABLENAME_PROPERTY_DEFAULT = "usertable";
+  /**
+   * The comma separated dataset attributes that queries are generated on. The values queried are picked
+   * among the distinct values inserted so far.
+   */
+  public static final String QUERY_ATTRIBUTES_PROPERTY = "queryattributes";
+  public static final String QUERY_ATTRIBUTES_PROPERTY_DEFAULT = "f-trip_distance";
+  /**
+   * The number of predicates of a query, each on a different one of the query attributes and all of them
+   * to be satisfied.
+   */
+  public static final String QUERY_PREDICATES_PROPERTY = "querypredicates";
+  public static final String QUERY_PREDICATES_PROPERTY_DEFAULT = "1";
+  /**
+   * The share of the records a range query should match, from the distribution of the values inserted so
+   * far. With several predicates each gets the same share, so that together they match this one assuming the
+   * attributes are independent. Greater than 0 and at most 1.
+   */
+  public static final String QUERY_SELECTIVITY_PROPERTY = "queryselectivity";
+  public static final String QUERY_SELECTIVITY_PROPERTY_DEFAULT = "0.001";
+  /**
+   * The number of records a range query should match; when set it takes precedence over queryselectivity.
+   */
+  public static final String QUERY_RESULT_SIZE_PROPERTY = "queryresultsize";
+  /**
+   * The format of the attribute dataset: "csv" (default) or "columnar", which converts the CSV once into a
+   * memory-mapped columnar file next to it (see {@link ColumnarDataset}) and reads it without locking. A
+   * file already converted with {@link ColumnarDataset#main(String[])} may be given directly.
+   */
+  public static final String DATASET_FORMAT_PROPERTY = "attributedataset.format";
+  public static final String DATASET_FORMAT_PROPERTY_DEFAULT = "csv";
+  /**
+   * Where the query values come from before a transaction run: "db" (default) reads back the records loaded,
+   * "file" reads the dataset rows the load inserted, and "snapshot" maps the file saved by an earlier preload
+   * with {@link #PRELOAD_SNAPSHOT_PROPERTY} set.
+   */
+  public static final String PRELOAD_PROPERTY = "preload";
+  public static final String PRELOAD_PROPERTY_DEFAULT = "db";
+  /**
+   * The query value snapshot file: written after a "db" or "file" preload, read by a "snapshot" one.
+   */
+  public static final String PRELOAD_SNAPSHOT_PROPERTY = "preload.snapshot";
+  /**
+   * The most threads a "db" or "file" preload is split over, by default one per processor; never more than the
+   * client threads.
+   */
+  public static final String PRELOAD_THREADS_PROPERTY = "preload.threads";
+
+  /** Whether a query repeats one of the thread's previous queries or is a new one. */
+  protected enum QueryChoice {
+    CACHED,
+    NEW
+  }
 
   protected String table;
   private static AttributeGenerator instance = null;
@@ -75,19 +157,29 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
   private long insertstart;
   private long insertcount;
   protected long attributecount;
-  private List<Map<String, String>> currentDatasetEntry;
+  // per thread, as the columnar dataset hands out entries without locking
+  private final ThreadLocal<List<Map<String, String>>> currentDatasetEntry = new ThreadLocal<>();
   private BufferedReader reader;
-  private HashMap<Double, Integer> tripDistanceValues;
-  private ArrayList<Double> tripDistanceValuesArr;
+  private ColumnarDataset columnar;
+  private final String[] queryAttributes;
+  private final int[] queryAttributeColumns;
+  private final DistinctValueIndex[] queryValues;
+  private final AtomicReferenceArray<DistinctValueIndex.Distribution> queryValueDistributions;
+  private final AtomicLongArray queryValueDistributionDueNs;
+  private final int queryPredicates;
+  private final double querySelectivity;
   protected NumberGenerator lBoundChooser;
   protected NumberGenerator rangeChooser;
-  protected DiscreteGenerator latestQueryChooser;
-  private PreviousQueries prevQueries;
-  protected NumberGenerator keysequence;
+  protected AliasDiscreteGenerator<QueryChoice> latestQueryChooser;
+  private final ThreadLocal<PreviousQueries> prevQueries;
   protected int zeropadding;
   protected boolean orderedinserts;
+  private final KeyEncoder keyencoder;
   protected boolean queryTypeRange;
   private NumberGenerator pointQueryValueGenerator;
+  private boolean datasetPositioned;
+  private final AtomicLong preloadRows = new AtomicLong();
+  private final AtomicInteger preloadPartsDone = new AtomicInteger();
 
   /**
    * Create a AttributeGenerator with the given file.
@@ -97,13 +189,48 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
     this.filename = filename;
     this.insertstart = insertstart;
     this.insertcount = insertcount;
-    this.tripDistanceValues = new HashMap<Double, Integer>();
-    this.tripDistanceValuesArr = new ArrayList();
+    this.queryAttributes = p.getProperty(QUERY_ATTRIBUTES_PROPERTY, QUERY_ATTRIBUTES_PROPERTY_DEFAULT).split(",");
+    this.queryAttributeColumns = new int[queryAttributes.length];
+    this.queryValues = new DistinctValueIndex[queryAttributes.length];
+    for (int i = 0; i < queryAttributes.length; i++) {
+      queryAttributes[i] = queryAttributes[i].trim();
+      queryAttributeColumns[i] = Arrays.asList(ATTRIBUTE_NAMES).indexOf(queryAttributes[i]);
+      if (queryAttributeColumns[i] < 0 || queryAttributeType(queryAttributes[i]) == null) {
+        throw new IllegalArgumentException("Cannot query on \"" + queryAttributes[i] +
+            "\", only the numeric (f- and i-) dataset attributes can be queried");
+      }
+      queryValues[i] = new DistinctValueIndex();
+    }
+    queryValueDistributions = new AtomicReferenceArray<>(queryAttributes.length);
+    queryValueDistributionDueNs = new AtomicLongArray(queryAttributes.length);
+    queryPredicates = Integer.parseInt(p.getProperty(QUERY_PREDICATES_PROPERTY, QUERY_PREDICATES_PROPERTY_DEFAULT));
+    if (queryPredicates < 1 || queryPredicates > queryAttributes.length) {
+      throw new IllegalArgumentException(QUERY_PREDICATES_PROPERTY + " must be between 1 and the number of " +
+          QUERY_ATTRIBUTES_PROPERTY);
+    }
+    String resultsize = p.getProperty(QUERY_RESULT_SIZE_PROPERTY);
+    double selectivity = resultsize != null ?
+        Math.min(1.0, Long.parseLong(resultsize) / (double) Math.max(1, insertcount)) :
+        Double.parseDouble(p.getProperty(QUERY_SELECTIVITY_PROPERTY, QUERY_SELECTIVITY_PROPERTY_DEFAULT));
+    if (!(selectivity > 0 && selectivity <= 1)) {
+      throw new IllegalArgumentException(QUERY_SELECTIVITY_PROPERTY + " must be greater than 0 and at most 1, " +
+          "and " + QUERY_RESULT_SIZE_PROPERTY + " greater than 0");
+    }
+    querySelectivity = Math.pow(selectivity, 1.0 / queryPredicates);
     pointQueryValueGenerator = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
-    int cachesize =
+    final int cachesize =
         Integer.parseInt(p.getProperty(CACHE_SIZE_PROPERTY, CACHE_SIZE_PROPERTY_DEFAULT));
-    this.prevQueries = new PreviousQueries(cachesize);
-    keysequence = new CounterGenerator(insertstart);
+    final PreviousQueries.Weighting weighting = PreviousQueries.Weighting.valueOf(
+        p.getProperty(CACHE_WEIGHTING_PROPERTY, CACHE_WEIGHTING_PROPERTY_DEFAULT).toUpperCase());
+    final double zipfconstant =
+        Double.parseDouble(p.getProperty(CACHE_ZIPF_CONSTANT_PROPERTY, CACHE_ZIPF_CONSTANT_PROPERTY_DEFAULT));
+    final int k = Integer.parseInt(p.getProperty(CACHE_K_PROPERTY, CACHE_K_PROPERTY_DEFAULT));
+    if (p.getProperty(CACHE_SCOPE_PROPERTY, CACHE_SCOPE_PROPERTY_DEFAULT).equals("global")) {
+      final PreviousQueries shared = new PreviousQueries(cachesize, weighting, zipfconstant, k);
+      this.prevQueries = ThreadLocal.withInitial(() -> shared);
+    } else {
+      this.prevQueries = ThreadLocal.withInitial(() -> new PreviousQueries(cachesize, weighting, zipfconstant, k));
+    }
     if (p.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") == 0) {
       orderedinserts = false;
     } else {
@@ -112,6 +239,7 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
     this.table = p.getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
     zeropadding =
         Integer.parseInt(p.getProperty(ZERO_PADDING_PROPERTY, ZERO_PADDING_PROPERTY_DEFAULT));
+    keyencoder = new KeyEncoder("user", zeropadding, !orderedinserts);
     if (p.getProperty(QUERY_TYPE_PROPERTY, QUERY_TYPE_PROPERTY_DEFAULT).compareTo("range") == 0) {
       queryTypeRange = true;
     } else {
@@ -163,12 +291,22 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
     } else {
       throw new UnsupportedOperationException("Unknown request distribution \"" + queryrangeistrib + "\"");
     }
-    latestQueryChooser = new DiscreteGenerator();
     double cachedqueryfraction =
           Double.parseDouble(p.getProperty(CACHED_QUERY_PROPORTION_PROPERTY, CACHED_QUERY_PROPORTION_PROPERTY_DEFAULT));
-    latestQueryChooser.addValue(cachedqueryfraction, "cached");
-    latestQueryChooser.addValue(1.0 - cachedqueryfraction, "new");
-
+    Map<QueryChoice, Double> queryWeights = new EnumMap<>(QueryChoice.class);
+    queryWeights.put(QueryChoice.CACHED, cachedqueryfraction);
+    queryWeights.put(QueryChoice.NEW, 1.0 - cachedqueryfraction);
+    latestQueryChooser = new AliasDiscreteGenerator<>(queryWeights);
+
+    if (p.getProperty(DATASET_FORMAT_PROPERTY, DATASET_FORMAT_PROPERTY_DEFAULT).equals("columnar")) {
+      try {
+        columnar = isColumnarFile(filename) ? ColumnarDataset.open(filename) :
+            ColumnarDataset.openOrConvert(filename, ATTRIBUTE_NAMES);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      return;
+    }
     reloadFile();
     try {
       reader.readLine();
@@ -177,6 +315,12 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
     }
   }
 
+  private static boolean isColumnarFile(String filename) throws IOException {
+    try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+      return in.available() >= 8 && in.readLong() == ColumnarDataset.MAGIC;
+    }
+  }
+
   public static AttributeGenerator getInstance(String filename, long insertstart, long insertcount, Properties p) {
     if (instance == null) {
       instance = new AttributeGenerator(filename, insertstart, insertcount, p);
@@ -185,79 +329,212 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
   }
 
   public void preload(Properties p, DB db) {
+    preload(p, db, 0, 1);
+  }
+
+  /**
+   * @return how many parts {@link #preload(Properties, DB, int, int)} should be split into, 0 for none
+   */
+  public int preloadParts(Properties p, int threadcount) {
     boolean dotransactions = Boolean.valueOf(p.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
-    if (dotransactions) {
-      if (p.getProperty("preload", "db").equals("file")) {
-        for (long i=0; i<insertstart; i++) {
-          try {
-            line = reader.readLine();
-          } catch (IOException e) {
-            throw new RuntimeException(e);
-          }
-        }
-        for(long i=0; i<insertcount; i++) {
-          int keynum = keysequence.nextValue().intValue();
-          String dbkey = buildKeyName(keynum);
-          List<Map<String, String>> attributeList = nextValue();
-          tripDistanceInsert(Double.parseDouble(attributeList.get(4).get("f-trip_distance")));
-        }
-      } else if (p.getProperty("preload", "db").equals("db")) {
-        for(long i=0; i<insertcount; i++) {
-          HashSet<String> fields = null;
-          HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
-          Map<String, String> attributes = new HashMap<String, String>();
-          int keynum = keysequence.nextValue().intValue();
-          String keyname = buildKeyName(keynum);
-          db.readWithAttributes(table, keyname, fields, cells, attributes);
-          tripDistanceInsert(Double.parseDouble(attributes.get("f-trip_distance")));
+    String preload = p.getProperty(PRELOAD_PROPERTY, PRELOAD_PROPERTY_DEFAULT);
+    if (!dotransactions) {
+      return 0;
+    } else if (preload.equals("snapshot")) {
+      return 1;
+    } else if (!preload.equals("db") && !preload.equals("file")) {
+      return 0;
+    }
+    int threads = Integer.parseInt(p.getProperty(PRELOAD_THREADS_PROPERTY,
+        String.valueOf(Runtime.getRuntime().availableProcessors())));
+    return Math.max(1, Math.min(threads, threadcount));
+  }
+
+  /**
+   * Preloads one of parts disjoint shares of the query values, called from parts threads at once: with "db",
+   * a contiguous range of the keys loaded; with "file", whichever dataset rows the thread claims next. The
+   * last part to finish saves the snapshot, if one is asked for. A "snapshot" preload is done by part 0 alone.
+   *
+   * @param part the share to load, from 0 to parts - 1
+   * @param parts the number of shares
+   */
+  public void preload(Properties p, DB db, int part, int parts) {
+    boolean dotransactions = Boolean.valueOf(p.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
+    if (!dotransactions) {
+      return;
+    }
+    String preload = p.getProperty(PRELOAD_PROPERTY, PRELOAD_PROPERTY_DEFAULT);
+    String snapshot = p.getProperty(PRELOAD_SNAPSHOT_PROPERTY);
+    long rowsConsumed = 0;
+    if (preload.equals("snapshot")) {
+      if (snapshot == null) {
+        throw new IllegalArgumentException(PRELOAD_PROPERTY + "=snapshot needs " + PRELOAD_SNAPSHOT_PROPERTY);
+      }
+      if (part == 0) {
+        try {
+          positionDataset(QueryValueSnapshot.read(snapshot, queryAttributes, queryValues));
+        } catch (IOException e) {
+          throw new RuntimeException(e);
         }
       }
+      return;
+    } else if (preload.equals("file")) {
+      positionDataset(insertstart);
+      while (preloadRows.getAndIncrement() < insertcount) {
+        queryValueInsert(nextValue());
+      }
+      rowsConsumed = insertstart + insertcount;
+    } else if (preload.equals("db")) {
+      long first = insertstart + part * insertcount / parts;
+      long end = insertstart + (part + 1) * insertcount / parts;
+      HashSet<String> fields = null;
+      for (long keynum = first; keynum < end; keynum++) {
+        HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+        Map<String, String> attributes = new HashMap<String, String>();
+        db.readWithAttributes(table, buildKeyName(keynum), fields, cells, attributes);
+        queryValueInsert(attributes);
+      }
+    }
+    if (snapshot != null && preloadPartsDone.incrementAndGet() == parts) {
+      try {
+        QueryValueSnapshot.write(snapshot, rowsConsumed, queryAttributes, queryValues);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * Skips the first rows of the dataset, once, however many threads ask.
+   */
+  private synchronized void positionDataset(long rows) {
+    if (datasetPositioned) {
+      return;
+    }
+    datasetPositioned = true;
+    if (columnar != null) {
+      columnar.skip(rows);
+      return;
+    }
+    for (long i = 0; i < rows; i++) {
+      try {
+        line = reader.readLine();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }
   }
 
   public void nextQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
                               java.lang.Object []ubound) {
-    String query = latestQueryChooser.nextString();
+    QueryChoice query = latestQueryChooser.nextValue();
     if(query == null) {
       throw new AssertionError("nextQuery null");
     }
-    if (prevQueries.isEmpty()) {
-      query = "new";
+    PreviousQueries queries = prevQueries.get();
+    // uncontended unless the cache is shared by all threads
+    synchronized (queries) {
+      if (queries.isEmpty()) {
+        query = QueryChoice.NEW;
+      }
+      switch (query) {
+      case NEW:
+        newQuery(queries, attributeName, attributeType, lbound, ubound);
+        break;
+      case CACHED:
+        queries.nextQuery(attributeName, attributeType, lbound, ubound);
+        break;
+      default:
+        throw new AssertionError("nextQuery neither new nor cached");
+      }
+    }
+  }
+
+  private void newQuery(PreviousQueries queries, String []attributeName, String []attributeType,
+                        java.lang.Object []lbound, java.lang.Object []ubound) {
+    int[] attributes = chooseQueryAttributes();
+    for (int i = 0; i < queryPredicates; i++) {
+      int attribute = attributes[i];
+      attributeName[i] = queryAttributes[attribute].substring(2);
+      attributeType[i] = queryAttributeType(queryAttributes[attribute]);
+      if (queryTypeRange) {
+        DistinctValueIndex.Distribution distribution = queryValueDistribution(attribute);
+        long total = distribution.total();
+        if (total == 0) {
+          // nothing inserted to take the bounds from yet, match everything
+          lbound[i] = formatQueryValue(attribute, -Double.MAX_VALUE);
+          ubound[i] = formatQueryValue(attribute, Double.MAX_VALUE);
+          continue;
+        }
+        long matching = Math.min(total, Math.max(1, Math.round(total * querySelectivity)));
+        long first = ThreadLocalRandom.current().nextLong(total - matching + 1);
+        lbound[i] = formatQueryValue(attribute, distribution.valueOfRank(first));
+        ubound[i] = formatQueryValue(attribute, distribution.valueOfRank(first + matching - 1));
+      } else {
+        int queryValueIndex = pointQueryValueGenerator.nextValue().intValue();
+        String value = queryValueGet(attribute, queryValueIndex);
+        lbound[i] = value;
+        ubound[i] = value;
+      }
+    }
+    queries.addQuery(attributeName, attributeType, Arrays.copyOf(lbound, lbound.length, String[].class),
+        Arrays.copyOf(ubound, ubound.length, String[].class));
+  }
+
+  /**
+   * @return the number of predicates of the queries generated, the size of the arrays given to nextQuery
+   */
+  public int queryPredicateCount() {
+    return queryPredicates;
+  }
+
+  /**
+   * Picks the attributes of the predicates of a query: the first queryPredicates of a random permutation.
+   */
+  private int[] chooseQueryAttributes() {
+    int[] attributes = new int[queryAttributes.length];
+    for (int i = 0; i < attributes.length; i++) {
+      attributes[i] = i;
     }
-    switch (query) {
-    case "new":
-      newQuery(attributeName, attributeType, lbound, ubound);
-      break;
-    case "cached":
-      prevQueries.nextQuery(attributeName, attributeType, lbound, ubound);
-      break;
-    default:
-      throw new AssertionError("nextQuery neither 'new' nor 'cached'");
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < queryPredicates; i++) {
+      int j = i + random.nextInt(attributes.length - i);
+      int swap = attributes[i];
+      attributes[i] = attributes[j];
+      attributes[j] = swap;
     }
+    return attributes;
   }
 
-  private void newQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
-                    java.lang.Object []ubound) {
-    attributeName[0] = "trip_distance";
-    attributeType[0] = "S3TAGFLT";
-    if (queryTypeRange) {
-      throw new AssertionError("range Queries not implemented'");
-    } else {
-      int queryValueIndex = pointQueryValueGenerator.nextValue().intValue();
-      double value = tripDistanceGet(queryValueIndex);
-      lbound[0] = String.valueOf(value);
-      ubound[0] = String.valueOf(value);
+  /**
+   * The distribution of the values of a query attribute, rebuilt from the inserted values at most once per
+   * second by whichever thread finds it due. Empty until values of the attribute are inserted.
+   */
+  DistinctValueIndex.Distribution queryValueDistribution(int attribute) {
+    DistinctValueIndex.Distribution distribution = queryValueDistributions.get(attribute);
+    long now = System.nanoTime();
+    long due = queryValueDistributionDueNs.get(attribute);
+    if (distribution == null ||
+        (now - due >= 0 && queryValueDistributionDueNs.compareAndSet(attribute, due, now + 1000000000L))) {
+      distribution = queryValues[attribute].distribution();
+      queryValueDistributions.set(attribute, distribution);
     }
-    prevQueries.addQuery(attributeName, attributeType, new String[]{(java.lang.String) lbound[0]},
-                        new String[]{(java.lang.String) lbound[0]});
+    return distribution;
   }
+
   /**
    * Return the next string of the sequence, ie the next line of the file.
    */
   @Override
-  public synchronized List<Map<String, String>> nextValue() {
-    currentDatasetEntry = next();
-    return currentDatasetEntry;
+  public List<Map<String, String>> nextValue() {
+    if (columnar != null) {
+      List<Map<String, String>> entry = columnar.next();
+      currentDatasetEntry.set(entry);
+      return entry;
+    }
+    List<Map<String, String>> entry = next();
+    currentDatasetEntry.set(entry);
+    return entry;
   }
 
 
@@ -274,31 +551,25 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
   }
 
   /**
-   * Return the previous read line.
+   * Return the line the calling thread read last.
    */
   @Override
   public List<Map<String , String>> lastValue() {
-    return currentDatasetEntry;
+    return currentDatasetEntry.get();
   }
 
   private String buildKeyName(long keynum) {
-    if (!orderedinserts) {
-      keynum = Utils.hash(keynum);
-    }
-    String value = Long.toString(keynum);
-    int fill = zeropadding - value.length();
-    String prekey = "user";
-    for (int i = 0; i < fill; i++) {
-      prekey += '0';
-    }
-    return prekey + value;
+    return keyencoder.buildKeyName(keynum);
   }
 
 
   /**
-   * Reopen the file to reuse values.
+   * Reopen the file to reuse values. The columnar dataset starts over by itself.
    */
   public synchronized void reloadFile() {
+    if (columnar != null) {
+      return;
+    }
     try (Reader r = reader) {
       reader = new BufferedReader(new FileReader(filename));
     } catch (IOException e) {
@@ -306,84 +577,53 @@ public class AttributeGenerator extends Generator<List<Map<String, String>>> {
     }
   }
 
-  public synchronized void tripDistanceInsert(double value) {
-    if (!tripDistanceValues.containsKey(value)) {
-      tripDistanceValues.put(value, new Integer(0));
-      tripDistanceValuesArr.add(value);
+  /**
+   * Records the values of the query attributes of a record, as candidates for the values queried.
+   */
+  public void queryValueInsert(Map<String, String> attributes) {
+    for (int i = 0; i < queryAttributes.length; i++) {
+      String value = attributes.get(queryAttributes[i]);
+      if (value != null) {
+        queryValues[i].add(Double.parseDouble(value));
+      }
     }
   }
 
-  private synchronized double tripDistanceGet(int index) {
-    return tripDistanceValuesArr.get(index % tripDistanceValues.size());
-  }
-}
-
-class PreviousQueries {
-  private static class Query {
-    private String[] attributeName;
-    private String[] attributeType;
-    private String[] lbound;
-    private String[] ubound;
-    private double weight;
-
-    Query(String []attributeName, String []attributeType, String []lbound, String []ubound) {
-      this.attributeName = attributeName;
-      this.attributeType = attributeType;
-      this.lbound = lbound;
-      this.ubound = ubound;
+  /**
+   * Records the values of the query attributes of a dataset row, as candidates for the values queried.
+   */
+  public void queryValueInsert(List<Map<String, String>> attributeList) {
+    for (int i = 0; i < queryAttributes.length; i++) {
+      String value = attributeList.get(queryAttributeColumns[i]).get(queryAttributes[i]);
+      if (value != null) {
+        queryValues[i].add(Double.parseDouble(value));
+      }
     }
   }
 
-  private final List<Query> queries = new ArrayList<>();
-  private final int cacheSize;
-
-  PreviousQueries(int cacheSize) {
-    this.cacheSize = cacheSize;
+  private String queryValueGet(int attribute, int index) {
+    DistinctValueIndex values = queryValues[attribute];
+    int size = values.size();
+    if (size == 0) {
+      throw new IllegalStateException("No values of " + queryAttributes[attribute] + " inserted to query on");
+    }
+    return formatQueryValue(attribute, values.get(index % size));
   }
 
-  public boolean isEmpty() {
-    return queries.size() == 0;
-  }
-  public synchronized void addQuery(String []attributeName, String []attributeType, String []lbound, String []ubound) {
-    if (queries.size() >= cacheSize) {
-      do {
-        queries.remove(0);
-      }
-      while (queries.size() >= cacheSize);
-    }
-    queries.add(0, new Query(attributeName, attributeType, lbound, ubound));
-    double w = 1.0;
-    for(int i=0; i<queries.size(); i++) {
-      w = 1.0/(i+1);
-      Query q = queries.get(i);
-      q.weight = w;
-      queries.set(i, q);
-    }
+  private String formatQueryValue(int attribute, double value) {
+    return queryAttributes[attribute].startsWith("i-") ? String.valueOf((long) value) : String.valueOf(value);
   }
 
-  public synchronized void nextQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
-                              java.lang.Object []ubound) {
-    double sum = 0;
-    for (Query q : queries) {
-      sum += q.weight;
-    }
-    double val = ThreadLocalRandom.current().nextDouble();
-    for (Query q : queries) {
-      double pw = q.weight / sum;
-      if (val < pw) {
-        for (int i=0; i<attributeName.length; i++) {
-          attributeName[i] = new String(q.attributeName[i]);
-          attributeType[i] = new String(q.attributeType[i]);
-          lbound[i] = new String(q.lbound[i]);
-          ubound[i] = new String(q.ubound[i]);
-        }
-        queries.remove(q);
-        addQuery(q.attributeName, q.attributeType, q.lbound, q.ubound);
-        return;
-      }
-      val -= pw;
+  /**
+   * The query type of a dataset attribute, by the prefix of its name.
+   */
+  private static String queryAttributeType(String attribute) {
+    if (attribute.startsWith("f-")) {
+      return "S3TAGFLT";
+    } else if (attribute.startsWith("i-")) {
+      return "S3TAGINT";
     }
-    throw new AssertionError("oops. should not get here.");
+    return null;
   }
 }
 
@@ -399,60 +639,11 @@ class DatasetEntry {
   }
 
   public double set(String[] data) {
-    Map<String, String> attribute0 = new HashMap<String, String>();
-    attribute0.put("vendorid", data[0]);
-    entry.add(0, attribute0);
-    Map<String, String> attribute1 = new HashMap<String, String>();
-    attribute1.put("tpep_pickup_datetime", data[1]);
-    entry.add(1, attribute1);
-    Map<String, String> attribute2 = new HashMap<String, String>();
-    attribute2.put("tpep_dropoff_datetime", data[2]);
-    entry.add(2, attribute2);
-    Map<String, String> attribute3 = new HashMap<String, String>();
-    attribute3.put("i-passenger_count", data[3]);
-    entry.add(3, attribute3);
-    Map<String, String> attribute4 = new HashMap<String, String>();
-    attribute4.put("f-trip_distance", data[4]);
-    entry.add(4, attribute4);
-    Map<String, String> attribute5 = new HashMap<String, String>();
-    attribute5.put("ratecodeid", data[5]);
-    entry.add(5, attribute5);
-    Map<String, String> attribute6 = new HashMap<String, String>();
-    attribute6.put("store_and_fwd_flag", data[6]);
-    entry.add(6, attribute6);
-    Map<String, String> attribute7 = new HashMap<String, String>();
-    attribute7.put("pulocationid", data[7]);
-    entry.add(7, attribute7);
-    Map<String, String> attribute8 = new HashMap<String, String>();
-    attribute8.put("doLocationid", data[8]);
-    entry.add(8, attribute8);
-    Map<String, String> attribute9 = new HashMap<String, String>();
-    attribute9.put("payment_type", data[9]);
-    entry.add(9, attribute9);
-    Map<String, String> attribute10 = new HashMap<String, String>();
-    attribute10.put("fare_amount", data[10]);
-    entry.add(10, attribute10);
-    Map<String, String> attribute11 = new HashMap<String, String>();
-    attribute11.put("extra", data[11]);
-    entry.add(11, attribute11);
-    Map<String, String> attribute12 = new HashMap<String, String>();
-    attribute12.put("mta_tax", data[12]);
-    entry.add(12, attribute12);
-    Map<String, String> attribute13 = new HashMap<String, String>();
-    attribute13.put("tip_amount", data[13]);
-    entry.add(13, attribute13);
-    Map<String, String> attribute14 = new HashMap<String, String>();
-    attribute14.put("tolls_amount", data[14]);
-    entry.add(14, attribute14);
-    Map<String, String> attribute15 = new HashMap<String, String>();
-    attribute15.put("improvement_surcharge", data[15]);
-    entry.add(15, attribute15);
-    Map<String, String> attribute16 = new HashMap<String, String>();
-    attribute16.put("total_amount", data[16]);
-    entry.add(16, attribute16);
-    Map<String, String> attribute17 = new HashMap<String, String>();
-    attribute17.put("congestion_surcharge", data[17]);
-    entry.add(17, attribute17);
+    for (int i = 0; i < AttributeGenerator.ATTRIBUTE_NAMES.length; i++) {
+      Map<String, String> attribute = new HashMap<String, String>();
+      attribute.put(AttributeGenerator.ATTRIBUTE_NAMES[i], data[i]);
+      entry.add(i, attribute);
+    }
     return (double) Double.parseDouble(data[4]);
   }
 
@@ -0,0 +1,483 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A CSV attribute dataset converted once into a compact columnar file and memory-mapped for reading.
+ * <p>
+ * Every column is stored in the most compact encoding that reproduces each of its values exactly: 64 bit
+ * integers, fixed-point decimals, doubles, "yyyy-MM-dd HH:mm:ss" timestamps, or, when none of these fit, 32 bit
+ * codes into a dictionary of the distinct strings. Rows are handed out through a shared atomic cursor, so
+ * threads never lock, and a row's attributes are only decoded when they are read.
+ * <p>
+ * File layout (big-endian): the magic, the row count, the column count and, per column, its name, type,
+ * decimal scale and the offsets of its data and dictionary; then the column data, each column 8 byte aligned;
+ * then the dictionaries of the string columns. Columns are mapped in segments of 1 GB, as one mapping cannot
+ * exceed 2 GB.
+ */
+public final class ColumnarDataset {
+  static final long MAGIC = 0x59435342434f4c31L; // "YCSBCOL1"
+
+  private static final byte LONG = 0;
+  private static final byte DECIMAL = 1;
+  private static final byte DOUBLE = 2;
+  private static final byte TIMESTAMP = 3;
+  private static final byte STRING = 4;
+
+  // a power of two both widths divide, so no value straddles two segments
+  private static final int SEGMENT_BYTES = 1 << 30;
+
+  private final String[] names;
+  private final byte[] types;
+  private final int[] scales;
+  private final ByteBuffer[][] columns;
+  private final String[][] dictionaries;
+  private final long rows;
+  private final AtomicLong cursor = new AtomicLong();
+
+  private ColumnarDataset(String[] names, byte[] types, int[] scales, ByteBuffer[][] columns,
+                          String[][] dictionaries, long rows) {
+    this.names = names;
+    this.types = types;
+    this.scales = scales;
+    this.columns = columns;
+    this.dictionaries = dictionaries;
+    this.rows = rows;
+  }
+
+  /**
+   * Maps a columnar dataset file.
+   *
+   * @param file the file written by {@link #convert(String, String, String[])}
+   * @return the dataset
+   * @throws IOException if the file cannot be read, is not a columnar dataset or has no rows
+   */
+  public static ColumnarDataset open(String file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      if (raf.readLong() != MAGIC) {
+        throw new IOException(file + " is not a columnar dataset");
+      }
+      long rows = raf.readLong();
+      if (rows <= 0) {
+        throw new IOException(file + " has no rows");
+      }
+      int count = raf.readInt();
+      String[] names = new String[count];
+      byte[] types = new byte[count];
+      int[] scales = new int[count];
+      ByteBuffer[][] columns = new ByteBuffer[count][];
+      String[][] dictionaries = new String[count][];
+      long[] dictionaryOffsets = new long[count];
+      for (int c = 0; c < count; c++) {
+        names[c] = raf.readUTF();
+        types[c] = raf.readByte();
+        scales[c] = raf.readByte();
+        long dataOffset = raf.readLong();
+        dictionaryOffsets[c] = raf.readLong();
+        columns[c] = map(channel, FileChannel.MapMode.READ_ONLY, dataOffset, rows * width(types[c]));
+      }
+      for (int c = 0; c < count; c++) {
+        if (types[c] == STRING) {
+          raf.seek(dictionaryOffsets[c]);
+          String[] dictionary = new String[raf.readInt()];
+          for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = raf.readUTF();
+          }
+          dictionaries[c] = dictionary;
+        }
+      }
+      return new ColumnarDataset(names, types, scales, columns, dictionaries, rows);
+    }
+  }
+
+  /**
+   * Opens the columnar form of a CSV dataset, converting it first if there is no up to date conversion.
+   *
+   * @param csvFile the CSV dataset, whose first line is a header
+   * @param names   the attribute names of the CSV columns
+   * @return the dataset
+   * @throws IOException if the dataset cannot be converted or read
+   */
+  public static ColumnarDataset openOrConvert(String csvFile, String[] names) throws IOException {
+    File csv = new File(csvFile);
+    File converted = new File(csvFile + ".col");
+    synchronized (ColumnarDataset.class) {
+      if (!converted.exists() || converted.lastModified() < csv.lastModified()) {
+        File tmp = new File(converted.getPath() + ".tmp");
+        convert(csvFile, tmp.getPath(), names);
+        if (!tmp.renameTo(converted)) {
+          throw new IOException("Could not rename " + tmp + " to " + converted);
+        }
+      }
+    }
+    return open(converted.getPath());
+  }
+
+  /**
+   * Converts a CSV dataset into a columnar dataset file.
+   *
+   * @param csvFile the CSV dataset, whose first line is a header
+   * @param file    the columnar file to write
+   * @param names   the attribute names of the CSV columns; further columns are dropped, missing ones are empty
+   * @throws IOException if the dataset cannot be read or the file written
+   */
+  public static void convert(String csvFile, String file, String[] names) throws IOException {
+    int count = names.length;
+    ColumnType[] inferred = new ColumnType[count];
+    for (int c = 0; c < count; c++) {
+      inferred[c] = new ColumnType();
+    }
+    long rows = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
+      reader.readLine();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] data = line.split(",", -1);
+        for (int c = 0; c < count; c++) {
+          inferred[c].check(c < data.length ? data[c] : "");
+        }
+        rows++;
+      }
+    }
+
+    byte[] types = new byte[count];
+    int[] scales = new int[count];
+    for (int c = 0; c < count; c++) {
+      types[c] = inferred[c].type();
+      scales[c] = inferred[c].scale;
+    }
+    int headerSize = header(names, types, scales, rows, new long[count], new long[count]).length;
+    long[] dataOffsets = new long[count];
+    long offset = (headerSize + 7) & ~7L;
+    for (int c = 0; c < count; c++) {
+      dataOffsets[c] = offset;
+      offset = (offset + rows * width(types[c]) + 7) & ~7L;
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+      raf.setLength(0);
+      MappedByteBuffer[][] columns = new MappedByteBuffer[count][];
+      List<Map<String, Integer>> codes = new ArrayList<>(count);
+      for (int c = 0; c < count; c++) {
+        columns[c] = map(channel, FileChannel.MapMode.READ_WRITE, dataOffsets[c], rows * width(types[c]));
+        codes.add(types[c] == STRING ? new HashMap<String, Integer>() : null);
+      }
+      try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
+        reader.readLine();
+        for (long row = 0; row < rows; row++) {
+          String[] data = reader.readLine().split(",", -1);
+          for (int c = 0; c < count; c++) {
+            encode(columns[c], row, types[c], codes.get(c), c < data.length ? data[c] : "");
+          }
+        }
+      }
+      for (MappedByteBuffer[] column : columns) {
+        for (MappedByteBuffer segment : column) {
+          segment.force();
+        }
+      }
+
+      long[] dictionaryOffsets = new long[count];
+      raf.seek(offset);
+      for (int c = 0; c < count; c++) {
+        if (types[c] == STRING) {
+          dictionaryOffsets[c] = raf.getFilePointer();
+          String[] dictionary = new String[codes.get(c).size()];
+          for (Map.Entry<String, Integer> entry : codes.get(c).entrySet()) {
+            dictionary[entry.getValue()] = entry.getKey();
+          }
+          raf.writeInt(dictionary.length);
+          for (String value : dictionary) {
+            raf.writeUTF(value);
+          }
+        }
+      }
+      raf.seek(0);
+      raf.write(header(names, types, scales, rows, dataOffsets, dictionaryOffsets));
+    }
+  }
+
+  private static byte[] header(String[] names, byte[] types, int[] scales, long rows, long[] dataOffsets,
+                               long[] dictionaryOffsets) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeLong(MAGIC);
+    out.writeLong(rows);
+    out.writeInt(names.length);
+    for (int c = 0; c < names.length; c++) {
+      out.writeUTF(names[c]);
+      out.writeByte(types[c]);
+      out.writeByte(scales[c]);
+      out.writeLong(dataOffsets[c]);
+      out.writeLong(dictionaryOffsets[c]);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static int width(byte type) {
+    return type == STRING ? 4 : 8;
+  }
+
+  /**
+   * Maps size bytes from offset on in segments of at most SEGMENT_BYTES.
+   */
+  private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long offset, long size)
+      throws IOException {
+    MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+    for (int s = 0; s < segments.length; s++) {
+      long start = (long) s * SEGMENT_BYTES;
+      segments[s] = channel.map(mode, offset + start, Math.min(SEGMENT_BYTES, size - start));
+    }
+    return segments;
+  }
+
+  private static ByteBuffer segment(ByteBuffer[] column, long at) {
+    return column[(int) (at / SEGMENT_BYTES)];
+  }
+
+  private static int index(long at) {
+    return (int) (at % SEGMENT_BYTES);
+  }
+
+  private static void encode(ByteBuffer[] column, long row, byte type, Map<String, Integer> codes, String value) {
+    long at = row * width(type);
+    ByteBuffer data = segment(column, at);
+    switch (type) {
+    case LONG:
+      data.putLong(index(at), Long.parseLong(value));
+      break;
+    case DECIMAL:
+      data.putLong(index(at), parseDecimal(value));
+      break;
+    case DOUBLE:
+      data.putDouble(index(at), Double.parseDouble(value));
+      break;
+    case TIMESTAMP:
+      data.putLong(index(at), LocalDateTime.parse(value.replace(' ', 'T')).toEpochSecond(ZoneOffset.UTC));
+      break;
+    default:
+      Integer code = codes.get(value);
+      if (code == null) {
+        code = codes.size();
+        codes.put(value, code);
+      }
+      data.putInt(index(at), code);
+      break;
+    }
+  }
+
+  /**
+   * @return the number of rows
+   */
+  public long rows() {
+    return rows;
+  }
+
+  /**
+   * Claims the next row; after the last row the dataset starts over.
+   *
+   * @return the attributes of the row, one single-entry map per column, decoded when read
+   */
+  public List<Map<String, String>> next() {
+    return row(Math.floorMod(cursor.getAndIncrement(), rows));
+  }
+
+  /**
+   * Skips rows, as if they had been claimed.
+   *
+   * @param count the number of rows to skip
+   */
+  public void skip(long count) {
+    cursor.addAndGet(count);
+  }
+
+  /**
+   * @param row the row number
+   * @return the attributes of the row, one single-entry map per column, decoded when read
+   */
+  public List<Map<String, String>> row(final long row) {
+    return new AbstractList<Map<String, String>>() {
+      @Override
+      public Map<String, String> get(int column) {
+        return Collections.singletonMap(names[column], value(row, column));
+      }
+
+      @Override
+      public int size() {
+        return names.length;
+      }
+    };
+  }
+
+  /**
+   * @param row    the row number
+   * @param column the column number
+   * @return the value, exactly as it was in the CSV
+   */
+  public String value(long row, int column) {
+    long at = row * width(types[column]);
+    ByteBuffer data = segment(columns[column], at);
+    switch (types[column]) {
+    case LONG:
+      return Long.toString(data.getLong(index(at)));
+    case DECIMAL:
+      return formatDecimal(data.getLong(index(at)), scales[column]);
+    case DOUBLE:
+      return Double.toString(data.getDouble(index(at)));
+    case TIMESTAMP:
+      return formatTimestamp(data.getLong(index(at)));
+    default:
+      return dictionaries[column][data.getInt(index(at))];
+    }
+  }
+
+  private static long parseDecimal(String value) {
+    return Long.parseLong(value.replace(".", ""));
+  }
+
+  private static String formatDecimal(long unscaled, int scale) {
+    StringBuilder digits = new StringBuilder(Long.toString(Math.abs(unscaled)));
+    while (digits.length() <= scale) {
+      digits.insert(0, '0');
+    }
+    digits.insert(digits.length() - scale, '.');
+    return unscaled < 0 ? "-" + digits : digits.toString();
+  }
+
+  private static String formatTimestamp(long epochSecond) {
+    LocalDateTime t = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    StringBuilder s = new StringBuilder(19);
+    s.append(t.getYear()).append('-');
+    pad(s, t.getMonthValue()).append('-');
+    pad(s, t.getDayOfMonth()).append(' ');
+    pad(s, t.getHour()).append(':');
+    pad(s, t.getMinute()).append(':');
+    return pad(s, t.getSecond()).toString();
+  }
+
+  private static StringBuilder pad(StringBuilder s, int value) {
+    return s.append(value < 10 ? "0" : "").append(value);
+  }
+
+  /**
+   * The encodings that still reproduce every value of a column seen so far.
+   */
+  private static final class ColumnType {
+    private boolean asLong = true;
+    private boolean asDecimal = true;
+    private boolean asDouble = true;
+    private boolean asTimestamp = true;
+    private int scale = -1;
+
+    void check(String value) {
+      if (asLong) {
+        asLong = roundTrips(value, LONG);
+      }
+      if (asDecimal) {
+        int dot = value.indexOf('.');
+        int valueScale = dot < 0 ? -1 : value.length() - dot - 1;
+        if (scale < 0) {
+          scale = valueScale;
+        }
+        asDecimal = valueScale > 0 && valueScale == scale && scale < 19 &&
+            value.equals(formatDecimalChecked(value, scale));
+      }
+      if (asDouble) {
+        asDouble = roundTrips(value, DOUBLE);
+      }
+      if (asTimestamp) {
+        asTimestamp = roundTrips(value, TIMESTAMP);
+      }
+    }
+
+    byte type() {
+      if (asLong) {
+        return LONG;
+      }
+      if (asDecimal) {
+        return DECIMAL;
+      }
+      if (asDouble) {
+        return DOUBLE;
+      }
+      if (asTimestamp) {
+        return TIMESTAMP;
+      }
+      scale = 0;
+      return STRING;
+    }
+
+    private static String formatDecimalChecked(String value, int scale) {
+      try {
+        return formatDecimal(parseDecimal(value), scale);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    private static boolean roundTrips(String value, byte type) {
+      try {
+        switch (type) {
+        case LONG:
+          return value.equals(Long.toString(Long.parseLong(value)));
+        case DOUBLE:
+          return value.equals(Double.toString(Double.parseDouble(value)));
+        default:
+          return value.length() == 19 &&
+              value.equals(formatTimestamp(LocalDateTime.parse(value.replace(' ', 'T'))
+                  .toEpochSecond(ZoneOffset.UTC)));
+        }
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Converts a CSV dataset with the attributes of {@link AttributeGenerator} into a columnar dataset file.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: ColumnarDataset <csv dataset> <columnar file>");
+      System.exit(1);
+    }
+    convert(args[0], args[1], AttributeGenerator.ATTRIBUTE_NAMES);
+    System.out.println("Converted " + open(args[1]).rows() + " rows into " + args[1]);
+  }
+}
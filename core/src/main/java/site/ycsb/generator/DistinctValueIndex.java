@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The distinct values seen of a numeric attribute, with how often each was seen. Values are kept in insertion
+ * order in an append-only array, so a value can be picked by index, and deduplicated by an open addressing
+ * hash table over the raw bits of the doubles. Neither adding nor reading takes a lock and nothing is boxed.
+ * <p>
+ * The hash table only ever moves slots from empty to a value, which makes a CAS enough to insert. To grow it,
+ * one thread freezes every empty slot of the current table by marking it moved and copies the values over;
+ * threads that run into a moved slot wait for the new table and continue there.
+ */
+public final class DistinctValueIndex {
+  // Both are NaNs that Double.doubleToLongBits never returns, it collapses every NaN to 0x7ff8000000000000L.
+  private static final long EMPTY = 0x7ff8000000000001L;
+  private static final long MOVED = 0x7ff8000000000002L;
+
+  private static final int CHUNK_BITS = 14;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int MAX_CHUNKS = 1 << 17;
+
+  /**
+   * An open addressing table. Every key slot has a parallel slot with the value's position in the values
+   * array, set right after the key is.
+   */
+  private static final class Table {
+    private final AtomicLongArray keys;
+    private final AtomicIntegerArray positions;
+    private final int mask;
+
+    Table(int capacity) {
+      keys = new AtomicLongArray(capacity);
+      positions = new AtomicIntegerArray(capacity);
+      for (int i = 0; i < capacity; i++) {
+        keys.lazySet(i, EMPTY);
+        positions.lazySet(i, -1);
+      }
+      mask = capacity - 1;
+    }
+  }
+
+  private volatile Table table;
+  private final AtomicReference<Table> next = new AtomicReference<>();
+  private final AtomicReferenceArray<AtomicLongArray> values = new AtomicReferenceArray<>(MAX_CHUNKS);
+  private final AtomicReferenceArray<AtomicLongArray> counts = new AtomicReferenceArray<>(MAX_CHUNKS);
+  private final AtomicInteger size = new AtomicInteger();
+
+  public DistinctValueIndex() {
+    this(1024);
+  }
+
+  /**
+   * @param expected the expected number of distinct values
+   */
+  public DistinctValueIndex(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+    table = new Table(capacity);
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param value the value
+   * @return true if the value had not been seen before
+   */
+  public boolean add(double value) {
+    return add(value, 1);
+  }
+
+  /**
+   * Records a value as if it had been added a number of times.
+   *
+   * @param value the value
+   * @param times how often to count it
+   * @return true if the value had not been seen before
+   */
+  public boolean add(double value, long times) {
+    long key = Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+    Table t = table;
+    int i = hash(key) & t.mask;
+    int probes = 0;
+    while (true) {
+      long k = t.keys.get(i);
+      if (k == EMPTY) {
+        if (!t.keys.compareAndSet(i, EMPTY, key)) {
+          continue;
+        }
+        int position = append(key, times);
+        t.positions.set(i, position);
+        if (position * 2L >= t.mask) {
+          grow(t);
+        }
+        return true;
+      }
+      if (k == key) {
+        int index = awaitPosition(t, i);
+        countChunk(index).addAndGet(position(index), times);
+        return false;
+      }
+      if (k == MOVED || ++probes > t.mask) {
+        // the table is being grown, or filled up before it could be
+        grow(t);
+        t = awaitNext(t);
+        i = hash(key) & t.mask;
+        probes = 0;
+        continue;
+      }
+      i = (i + 1) & t.mask;
+    }
+  }
+
+  /**
+   * @return the number of distinct values
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * @param index the position of the value in insertion order, less than {@link #size()}
+   * @return the value
+   */
+  public double get(int index) {
+    return Double.longBitsToDouble(awaitValue(index));
+  }
+
+  /**
+   * @param index the position of the value in insertion order, less than {@link #size()}
+   * @return how often the value was added
+   */
+  public long count(int index) {
+    awaitValue(index);
+    return countChunk(index).get(position(index));
+  }
+
+  /**
+   * @return a snapshot of the values in order, with their counts
+   */
+  public Distribution distribution() {
+    int n = size();
+    double[] sorted = new double[n];
+    for (int i = 0; i < n; i++) {
+      sorted[i] = get(i);
+    }
+    Arrays.sort(sorted);
+    long[] cumulative = new long[n];
+    for (int i = 0; i < n; i++) {
+      cumulative[Arrays.binarySearch(sorted, get(i))] = count(i);
+    }
+    for (int i = 1; i < n; i++) {
+      cumulative[i] += cumulative[i - 1];
+    }
+    return new Distribution(sorted, cumulative);
+  }
+
+  /**
+   * The values of an index in order, with how many of the values added are up to each of them, to find the
+   * values bounding a given share of everything added.
+   */
+  public static final class Distribution {
+    private final double[] values;
+    private final long[] cumulative;
+
+    private Distribution(double[] values, long[] cumulative) {
+      this.values = values;
+      this.cumulative = cumulative;
+    }
+
+    /**
+     * @return the number of values added, counting repeats
+     */
+    public long total() {
+      return cumulative.length == 0 ? 0 : cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * @param rank a 0-based rank among all values added, counting repeats, less than {@link #total()}
+     * @return the value of that rank
+     */
+    public double valueOfRank(long rank) {
+      int index = Arrays.binarySearch(cumulative, rank + 1);
+      return values[index >= 0 ? index : -index - 1];
+    }
+
+    /**
+     * @return the number of values added, counting repeats, within [lower, upper]
+     */
+    public long count(double lower, double upper) {
+      return countBelow(upper, true) - countBelow(lower, false);
+    }
+
+    private long countBelow(double value, boolean inclusive) {
+      int index = Arrays.binarySearch(values, value);
+      int end = index >= 0 ? (inclusive ? index + 1 : index) : -index - 1;
+      return end == 0 ? 0 : cumulative[end - 1];
+    }
+  }
+
+  private int append(long key, long times) {
+    int index = size.getAndIncrement();
+    int chunk = index >>> CHUNK_BITS;
+    if (chunk >= MAX_CHUNKS) {
+      throw new IllegalStateException("Too many distinct values");
+    }
+    AtomicLongArray valueChunk = values.get(chunk);
+    if (valueChunk == null) {
+      AtomicLongArray fresh = new AtomicLongArray(CHUNK_SIZE);
+      for (int i = 0; i < CHUNK_SIZE; i++) {
+        fresh.lazySet(i, EMPTY);
+      }
+      counts.compareAndSet(chunk, null, new AtomicLongArray(CHUNK_SIZE));
+      values.compareAndSet(chunk, null, fresh);
+      valueChunk = values.get(chunk);
+    }
+    countChunk(index).addAndGet(position(index), times);
+    valueChunk.set(position(index), key);
+    return index;
+  }
+
+  private AtomicLongArray countChunk(int index) {
+    AtomicLongArray chunk;
+    while ((chunk = counts.get(index >>> CHUNK_BITS)) == null) {
+      Thread.yield();
+    }
+    return chunk;
+  }
+
+  private static int position(int index) {
+    return index & (CHUNK_SIZE - 1);
+  }
+
+  /**
+   * Reads a value, waiting for a concurrent {@link #add(double)} to finish writing it.
+   */
+  private long awaitValue(int index) {
+    AtomicLongArray chunk;
+    while ((chunk = values.get(index >>> CHUNK_BITS)) == null) {
+      Thread.yield();
+    }
+    long key;
+    while ((key = chunk.get(position(index))) == EMPTY) {
+      Thread.yield();
+    }
+    return key;
+  }
+
+  private static int awaitPosition(Table t, int slot) {
+    int position;
+    while ((position = t.positions.get(slot)) < 0) {
+      Thread.yield();
+    }
+    return position;
+  }
+
+  private Table awaitNext(Table t) {
+    Table current;
+    while ((current = table) == t) {
+      Thread.yield();
+    }
+    return current;
+  }
+
+  /**
+   * Moves all values into a table twice the size, unless another thread is already doing so.
+   */
+  private void grow(Table t) {
+    if (table != t || next.get() != null) {
+      return;
+    }
+    // only allocated once no other thread is growing, as every thread that finds t full gets here
+    Table bigger = new Table((t.mask + 1) * 2);
+    if (!next.compareAndSet(null, bigger)) {
+      return;
+    }
+    if (table != t) {
+      // another thread finished growing t between the check and the CAS
+      next.set(null);
+      return;
+    }
+    for (int i = 0; i <= t.mask; i++) {
+      long key = t.keys.get(i);
+      if (key == EMPTY && t.keys.compareAndSet(i, EMPTY, MOVED)) {
+        continue;
+      }
+      key = t.keys.get(i);
+      if (key == MOVED) {
+        continue;
+      }
+      int slot = hash(key) & bigger.mask;
+      while (bigger.keys.get(slot) != EMPTY) {
+        slot = (slot + 1) & bigger.mask;
+      }
+      bigger.keys.set(slot, key);
+      bigger.positions.set(slot, awaitPosition(t, i));
+    }
+    table = bigger;
+    next.set(null);
+  }
+
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
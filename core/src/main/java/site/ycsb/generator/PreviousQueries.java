@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The queries issued before, to repeat some of them. A query is picked with a weight that depends on its rank
+ * by recency, and picking it makes it the most recent again; when the cache is full, adding a query drops the
+ * least recent one.
+ * <p>
+ * The weightings are 1/rank, Zipf (1/rank^s) and LRU-K, which ranks by the K-th most recent use (queries used
+ * fewer than K times rank below all others, by their first use) and weights those ranks by 1/rank.
+ * <p>
+ * Every use gets a stamp from a counter. A query's position in recency order is one of its stamps, and a
+ * Fenwick tree over the stamps marks the positions in use, which gives the query of a rank, the addition and
+ * the promotion all in O(log n). Ranks are drawn by binary search over the precomputed cumulative weights.
+ * When the stamps run out they are renumbered densely, which happens at most once every few cache sizes of
+ * uses. Instances are not thread-safe; each client thread normally keeps its own.
+ */
+final class PreviousQueries {
+  /**
+   * How queries are weighted by their rank.
+   */
+  enum Weighting {
+    RANK, ZIPF, LRUK
+  }
+
+  private static final class Query {
+    private final String[] attributeName;
+    private final String[] attributeType;
+    private final String[] lbound;
+    private final String[] ubound;
+    // the stamps of the last K uses, the i-th use at i % K
+    private final int[] uses;
+    private int useCount;
+    private int position = -1;
+
+    Query(String[] attributeName, String[] attributeType, String[] lbound, String[] ubound, int k) {
+      this.attributeName = attributeName;
+      this.attributeType = attributeType;
+      this.lbound = lbound;
+      this.ubound = ubound;
+      this.uses = new int[k];
+    }
+  }
+
+  private final int cacheSize;
+  private final int k;
+  private final double[] cumulativeWeights;
+  // Positions [0, stamps) are queries used fewer than K times, [stamps, 2 * stamps) the others.
+  private final int stamps;
+  private final int[] tree;
+  private final Query[] queries;
+  private int nextStamp;
+  private int size;
+
+  PreviousQueries(int cacheSize) {
+    this(cacheSize, Weighting.RANK, 1.0, 1);
+  }
+
+  /**
+   * @param cacheSize    the number of queries kept
+   * @param weighting    how queries are weighted by rank
+   * @param zipfConstant the exponent of the Zipf weighting
+   * @param k            the K of LRU-K
+   */
+  PreviousQueries(int cacheSize, Weighting weighting, double zipfConstant, int k) {
+    if (cacheSize < 1 || k < 1) {
+      throw new IllegalArgumentException("The query cache size and K must be positive");
+    }
+    this.cacheSize = cacheSize;
+    this.k = weighting == Weighting.LRUK ? k : 1;
+    double exponent = weighting == Weighting.ZIPF ? zipfConstant : 1.0;
+    cumulativeWeights = new double[cacheSize];
+    double sum = 0;
+    for (int rank = 1; rank <= cacheSize; rank++) {
+      sum += 1.0 / Math.pow(rank, exponent);
+      cumulativeWeights[rank - 1] = sum;
+    }
+    stamps = Math.max(64, 4 * cacheSize * this.k);
+    tree = new int[2 * stamps + 1];
+    queries = new Query[2 * stamps];
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void addQuery(String []attributeName, String []attributeType, String []lbound, String []ubound) {
+    if (size >= cacheSize) {
+      remove(queries[select(1)]);
+      size--;
+    }
+    use(new Query(attributeName.clone(), attributeType.clone(), lbound.clone(), ubound.clone(), k));
+    size++;
+  }
+
+  /**
+   * Picks a query by the weight of its rank, copies it into the arrays and makes it the most recent.
+   */
+  public void nextQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
+                              java.lang.Object []ubound) {
+    if (size == 0) {
+      throw new IllegalStateException("No previous queries");
+    }
+    double u = ThreadLocalRandom.current().nextDouble() * cumulativeWeights[size - 1];
+    int rank = Arrays.binarySearch(cumulativeWeights, 0, size, u);
+    // the first rank whose cumulative weight exceeds u
+    rank = rank >= 0 ? rank + 2 : -rank;
+    Query q = queries[select(size - Math.min(rank, size) + 1)];
+    for (int i=0; i<attributeName.length; i++) {
+      attributeName[i] = q.attributeName[i];
+      attributeType[i] = q.attributeType[i];
+      lbound[i] = q.lbound[i];
+      ubound[i] = q.ubound[i];
+    }
+    use(q);
+  }
+
+  /**
+   * Records a use of the query and moves it to the position it gives.
+   */
+  private void use(Query q) {
+    if (nextStamp == stamps) {
+      renumber();
+    }
+    q.uses[q.useCount % k] = nextStamp++;
+    q.useCount++;
+    int position = q.useCount >= k ? stamps + q.uses[q.useCount % k] : q.uses[0];
+    if (position != q.position) {
+      remove(q);
+      q.position = position;
+      queries[position] = q;
+      update(position, 1);
+    }
+  }
+
+  private void remove(Query q) {
+    if (q.position >= 0) {
+      update(q.position, -1);
+      queries[q.position] = null;
+      q.position = -1;
+    }
+  }
+
+  /**
+   * Renumbers the stamps still referenced 0, 1, ... in order and rebuilds the tree.
+   */
+  private void renumber() {
+    Query[] live = new Query[size];
+    int n = 0;
+    for (Query q : queries) {
+      if (q != null) {
+        live[n++] = q;
+      }
+    }
+    int[] referenced = new int[size * k];
+    int count = 0;
+    for (Query q : live) {
+      for (int i = 0; i < Math.min(q.useCount, k); i++) {
+        referenced[count++] = q.uses[i];
+      }
+    }
+    Arrays.sort(referenced, 0, count);
+    Arrays.fill(tree, 0);
+    Arrays.fill(queries, null);
+    for (Query q : live) {
+      for (int i = 0; i < Math.min(q.useCount, k); i++) {
+        q.uses[i] = Arrays.binarySearch(referenced, 0, count, q.uses[i]);
+      }
+      q.position = q.useCount >= k ? stamps + q.uses[q.useCount % k] : q.uses[0];
+      queries[q.position] = q;
+      update(q.position, 1);
+    }
+    nextStamp = count;
+  }
+
+  private void update(int position, int delta) {
+    for (int i = position + 1; i < tree.length; i += i & -i) {
+      tree[i] += delta;
+    }
+  }
+
+  /**
+   * @return the position of the n-th query in use (1-based) from the least recent
+   */
+  private int select(int n) {
+    int position = 0;
+    for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+      if (position + step < tree.length && tree[position + step] < n) {
+        position += step;
+        n -= tree[position];
+      }
+    }
+    return position;
+  }
+}
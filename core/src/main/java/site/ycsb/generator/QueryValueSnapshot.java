@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The distinct query values of a preload, saved so that later runs load them from a memory-mapped file instead
+ * of reading the dataset or the database again.
+ * <p>
+ * File layout (big-endian): the magic, the number of dataset rows the preload consumed, the attribute count and,
+ * per attribute, its name, its number of distinct values and the offset of its data; then, per attribute and 8
+ * byte aligned, its values in insertion order followed by how often each was added.
+ */
+final class QueryValueSnapshot {
+  static final long MAGIC = 0x5943534251565331L; // "YCSBQVS1"
+
+  private QueryValueSnapshot() {
+    // utility
+  }
+
+  /**
+   * Writes a snapshot next to the file and renames it over the file, so that readers never see half of it.
+   *
+   * @param file         the snapshot file
+   * @param rowsConsumed the number of dataset rows consumed by the preload
+   * @param names        the attribute names
+   * @param indexes      the values of the attributes, in the same order
+   * @throws IOException if the file cannot be written
+   */
+  static void write(String file, long rowsConsumed, String[] names, DistinctValueIndex[] indexes)
+      throws IOException {
+    int count = names.length;
+    int[] sizes = new int[count];
+    for (int a = 0; a < count; a++) {
+      sizes[a] = indexes[a].size();
+    }
+    long[] dataOffsets = new long[count];
+    long offset = (header(rowsConsumed, names, sizes, dataOffsets).length + 7) & ~7L;
+    for (int a = 0; a < count; a++) {
+      dataOffsets[a] = offset;
+      offset += sizes[a] * 16L;
+    }
+
+    File target = new File(file);
+    File tmp = new File(target.getPath() + ".tmp");
+    try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw"); FileChannel channel = raf.getChannel()) {
+      raf.setLength(0);
+      raf.write(header(rowsConsumed, names, sizes, dataOffsets));
+      for (int a = 0; a < count; a++) {
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, dataOffsets[a], sizes[a] * 16L);
+        for (int i = 0; i < sizes[a]; i++) {
+          data.putDouble(i * 8, indexes[a].get(i));
+          data.putLong((sizes[a] + i) * 8, indexes[a].count(i));
+        }
+      }
+      channel.force(true);
+    }
+    try {
+      Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Loads the values of the given attributes from a snapshot.
+   *
+   * @param file    the snapshot file
+   * @param names   the attribute names to load
+   * @param indexes the indexes to add the values of the attributes to, in the same order
+   * @return the number of dataset rows consumed by the preload that wrote the snapshot
+   * @throws IOException if the file cannot be read, is not a snapshot or lacks one of the attributes
+   */
+  static long read(String file, String[] names, DistinctValueIndex[] indexes) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      if (raf.readLong() != MAGIC) {
+        throw new IOException(file + " is not a query value snapshot");
+      }
+      long rowsConsumed = raf.readLong();
+      int count = raf.readInt();
+      String[] saved = new String[count];
+      int[] sizes = new int[count];
+      long[] dataOffsets = new long[count];
+      for (int a = 0; a < count; a++) {
+        saved[a] = raf.readUTF();
+        sizes[a] = raf.readInt();
+        dataOffsets[a] = raf.readLong();
+      }
+      for (int i = 0; i < names.length; i++) {
+        int a = Arrays.asList(saved).indexOf(names[i]);
+        if (a < 0) {
+          throw new IOException(file + " has no values of " + names[i]);
+        }
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataOffsets[a], sizes[a] * 16L);
+        for (int v = 0; v < sizes[a]; v++) {
+          indexes[i].add(data.getDouble(v * 8), data.getLong((sizes[a] + v) * 8));
+        }
+      }
+      return rowsConsumed;
+    }
+  }
+
+  private static byte[] header(long rowsConsumed, String[] names, int[] sizes, long[] dataOffsets)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeLong(MAGIC);
+    out.writeLong(rowsConsumed);
+    out.writeInt(names.length);
+    for (int a = 0; a < names.length; a++) {
+      out.writeUTF(names[a]);
+      out.writeInt(sizes[a]);
+      out.writeLong(dataOffsets[a]);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+}
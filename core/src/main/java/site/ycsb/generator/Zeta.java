@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.stream.LongStream;
+
+/**
+ * Computes zeta(n, theta), the sum of 1 / i^theta for i from 1 to n, which the Zipfian generators need and which
+ * takes minutes to sum term by term for billions of items. Long sums are spread over the cores. With
+ * zipfian.zeta=approximate, they are instead approximated with the Euler-Maclaurin formula: the first terms are
+ * summed exactly and the rest is an integral plus three correction terms, which leaves an error under 1e-12,
+ * far below the rounding error of the exact sum. With zipfian.zeta.cache set to a directory, the sums over
+ * many items are kept there, by item count, theta and mode, for the next runs.
+ */
+public final class Zeta {
+  /**
+   * How zeta is computed over many items: "exact" (default), in parallel, or "approximate".
+   */
+  public static final String MODE_PROPERTY = "zipfian.zeta";
+  public static final String MODE_PROPERTY_DEFAULT = "exact";
+
+  /**
+   * A directory to keep the sums over many items in, for later runs; unset to keep none.
+   */
+  public static final String CACHE_DIR_PROPERTY = "zipfian.zeta.cache";
+
+  /**
+   * Sums over fewer terms are computed term by term, as they always were, and not cached.
+   */
+  static final long LONG_SUM = 1 << 20;
+
+  /**
+   * The number of leading terms the approximation sums exactly.
+   */
+  private static final int EXACT_TERMS = 1000;
+
+  private static volatile boolean approximate = false;
+  private static volatile Path cacheDir = null;
+
+  private Zeta() {
+    // utility class
+  }
+
+  /**
+   * Configures how zeta is computed, for all generators created afterwards.
+   */
+  public static void setProperties(Properties p) {
+    String mode = p.getProperty(MODE_PROPERTY, MODE_PROPERTY_DEFAULT);
+    if (!mode.equals("exact") && !mode.equals("approximate")) {
+      throw new IllegalArgumentException("Unknown " + MODE_PROPERTY + " \"" + mode + "\"");
+    }
+    approximate = mode.equals("approximate");
+    String dir = p.getProperty(CACHE_DIR_PROPERTY);
+    cacheDir = dir == null ? null : Paths.get(dir);
+  }
+
+  /**
+   * Computes zeta from scratch for n items.
+   *
+   * @param n The number of items to compute zeta over.
+   * @param theta The zipfian constant.
+   */
+  public static double zeta(long n, double theta) {
+    if (n < LONG_SUM) {
+      return sum(0, n, theta, 0);
+    }
+    Path dir = cacheDir;
+    boolean approx = approximate;
+    Path file = dir == null ? null
+        : dir.resolve("zeta-" + n + "-" + theta + (approx ? "-approximate" : "-exact"));
+    if (file != null && Files.isReadable(file)) {
+      try {
+        return Double.parseDouble(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+      } catch (IOException | NumberFormatException e) {
+        System.err.println("[WARN] Ignoring the cached zeta in " + file + ": " + e);
+      }
+    }
+    double zeta = approx ? approximate(n, theta) : parallelSum(0, n, theta);
+    if (file != null) {
+      store(file, zeta);
+    }
+    return zeta;
+  }
+
+  /**
+   * Computes zeta incrementally for a distribution that has n items now but used to have st items.
+   *
+   * @param st The number of items used to compute the last initialsum
+   * @param n The number of items to compute zeta over.
+   * @param theta The zipfian constant.
+   * @param initialsum The value of zeta we are computing incrementally from.
+   */
+  public static double zeta(long st, long n, double theta, double initialsum) {
+    if (n - st < LONG_SUM) {
+      return sum(st, n, theta, initialsum);
+    }
+    if (approximate) {
+      return initialsum + approximate(n, theta) - approximate(st, theta);
+    }
+    return initialsum + parallelSum(st, n, theta);
+  }
+
+  /**
+   * Sums the terms st + 1 to n one by one.
+   */
+  static double sum(long st, long n, double theta, double initialsum) {
+    double sum = initialsum;
+    for (long i = st; i < n; i++) {
+      sum += 1 / (Math.pow(i + 1, theta));
+    }
+    return sum;
+  }
+
+  /**
+   * Sums the terms st + 1 to n on all cores, with compensated summation.
+   */
+  static double parallelSum(long st, long n, double theta) {
+    return LongStream.range(st, n).parallel().mapToDouble(i -> 1 / Math.pow(i + 1, theta)).sum();
+  }
+
+  /**
+   * Approximates zeta(n, theta) by summing the first terms and applying the Euler-Maclaurin formula to the rest.
+   */
+  static double approximate(long n, double theta) {
+    if (n <= 2 * EXACT_TERMS) {
+      return sum(0, n, theta, 0);
+    }
+    double m = EXACT_TERMS;
+    double head = sum(0, EXACT_TERMS - 1, theta, 0);
+    // the terms m to n: the integral of x^-theta, half the end terms, and the corrections
+    // B2k / (2k)! (f^(2k-1)(n) - f^(2k-1)(m)) for k = 1..3
+    double integral = theta == 1 ? Math.log(n / m) : (Math.pow(n, 1 - theta) - Math.pow(m, 1 - theta)) / (1 - theta);
+    double ends = (Math.pow(n, -theta) + Math.pow(m, -theta)) / 2;
+    double d1 = -theta;
+    double d3 = d1 * (theta + 1) * (theta + 2);
+    double d5 = d3 * (theta + 3) * (theta + 4);
+    double corrections = d1 * (Math.pow(n, -theta - 1) - Math.pow(m, -theta - 1)) / 12
+        - d3 * (Math.pow(n, -theta - 3) - Math.pow(m, -theta - 3)) / 720
+        + d5 * (Math.pow(n, -theta - 5) - Math.pow(m, -theta - 5)) / 30240;
+    return head + integral + ends + corrections;
+  }
+
+  private static void store(Path file, double zeta) {
+    try {
+      Files.createDirectories(file.getParent());
+      Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      Files.write(tmp, Double.toString(zeta).getBytes(StandardCharsets.UTF_8));
+      try {
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      System.err.println("[WARN] Could not cache zeta in " + file + ": " + e);
+    }
+  }
+}
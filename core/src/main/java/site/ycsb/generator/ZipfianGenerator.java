@@ -33,6 +33,7 @@ import java.util.concurrent.ThreadLocalRandom;
  * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a
  * minute for 100 million objects). This is because certain mathematical values need to be computed to properly
  * generate a zipfian skew, and one of those values (zeta) is a sum sequence from 1 to n, where n is the itemcount.
+ * {@link Zeta} spreads that sum over the cores, and can approximate it or cache it on disk instead.
  * Note that if you increase the number of items in the set, we can compute a new zeta incrementally, so it should be
  * fast unless you have added millions of items. However, if you decrease the number of items, we recompute zeta from
  * scratch, so this can take a long time.
@@ -168,7 +169,7 @@ public class ZipfianGenerator extends NumberGenerator {
    * @param theta The zipfian constant.
    */
   static double zetastatic(long n, double theta) {
-    return zetastatic(0, n, theta, 0);
+    return Zeta.zeta(n, theta);
   }
 
   /**
@@ -196,15 +197,7 @@ public class ZipfianGenerator extends NumberGenerator {
    * @param initialsum The value of zeta we are computing incrementally from.
    */
   static double zetastatic(long st, long n, double theta, double initialsum) {
-    double sum = initialsum;
-    for (long i = st; i < n; i++) {
-
-      sum += 1 / (Math.pow(i + 1, theta));
-    }
-
-    //System.out.println("countforzeta="+countforzeta);
-
-    return sum;
+    return Zeta.zeta(st, n, theta, initialsum);
   }
 
   /****************************************************************************************/
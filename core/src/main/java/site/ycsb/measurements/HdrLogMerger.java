@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.DataFormatException;
+
+/**
+ * Merges the HdrHistogram interval logs of many clients, one file per client, aligning their intervals by
+ * absolute time. The files are read in parallel, fork/join style, and the result is the histogram of all
+ * values, the window from the first interval start to the last interval end, and a time series of buckets
+ * of a fixed length: the throughput in each bucket spreads the count of every interval over the buckets it
+ * overlaps, while the latencies of an interval go to the bucket holding its midpoint.
+ * <p>
+ * The logs are parsed here, not by org.HdrHistogram.HistogramLogReader, which needs JAXB.
+ */
+final class HdrLogMerger {
+  // timestamps below this many seconds are relative to the start time of the log, not since the epoch
+  private static final double RELATIVE_TIMESTAMP_LIMIT_SEC = 365.0 * 24 * 3600;
+
+  private final long bucketMs;
+
+  HdrLogMerger(long bucketMs) {
+    if (bucketMs <= 0) {
+      throw new IllegalArgumentException("The bucket length must be positive");
+    }
+    this.bucketMs = bucketMs;
+  }
+
+  /**
+   * Finds the logs of a metric: the files named &lt;metric&gt;_&lt;prefix&gt;*.hdr in the listed directories,
+   * and the listed files named &lt;metric&gt;.hdr or &lt;metric&gt;_*. As metric names may themselves contain
+   * underscores (READ and READ_WITH_ATTRIBUTES), a log naming the metric it logs in its header has to name
+   * this one.
+   *
+   * @param inputs comma separated files and directories
+   */
+  static List<File> findLogs(String inputs, String metric, String prefix) throws IOException {
+    List<File> logs = new ArrayList<>();
+    for (String input : inputs.split(",")) {
+      File path = new File(input.trim());
+      if (path.isDirectory()) {
+        File[] files = path.listFiles();
+        if (files == null) {
+          continue;
+        }
+        for (File file : files) {
+          if (file.isFile() && file.getName().startsWith(metric + "_" + prefix) && file.getName().endsWith(".hdr") &&
+              logs(file, metric)) {
+            logs.add(file);
+          }
+        }
+      } else if (path.isFile() && (path.getName().equals(metric + ".hdr") || path.getName().startsWith(metric + "_")) &&
+          logs(path, metric)) {
+        logs.add(path);
+      }
+    }
+    Collections.sort(logs);
+    return logs;
+  }
+
+  /**
+   * Whether the log is of the metric by its "[Logging for: &lt;metric&gt;]" header, or has no such header.
+   */
+  private static boolean logs(File log, String metric) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(log.toPath(), StandardCharsets.US_ASCII)) {
+      for (String line = reader.readLine(); line != null && line.startsWith("#"); line = reader.readLine()) {
+        if (line.startsWith("#[Logging for: ") && line.endsWith("]")) {
+          return line.substring(15, line.length() - 1).equals(metric);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Merges the logs, reading them in the common fork/join pool.
+   */
+  Merged merge(List<File> logs) throws IOException {
+    if (logs.isEmpty()) {
+      return new Merged();
+    }
+    try {
+      return ForkJoinPool.commonPool().invoke(new MergeTask(logs, 0, logs.size()));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Reads one log.
+   */
+  Merged read(File log) throws IOException {
+    Merged merged = new Merged();
+    double startTimeSec = 0;
+    try (BufferedReader reader = Files.newBufferedReader(log.toPath(), StandardCharsets.US_ASCII)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith("#[StartTime: ")) {
+          startTimeSec = Double.parseDouble(line.substring(13, line.indexOf(' ', 13)));
+        } else if (line.startsWith("#[BaseTime: ")) {
+          startTimeSec = Double.parseDouble(line.substring(12, line.indexOf(' ', 12)));
+        } else if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("\"")) {
+          String[] fields = line.split(",");
+          // later log formats may lead with a tag
+          int f = fields[0].startsWith("Tag=") ? 1 : 0;
+          double timestampSec = Double.parseDouble(fields[f]);
+          if (timestampSec < RELATIVE_TIMESTAMP_LIMIT_SEC) {
+            timestampSec += startTimeSec;
+          }
+          long startMs = Math.round(timestampSec * 1000);
+          long endMs = startMs + Math.round(Double.parseDouble(fields[f + 1]) * 1000);
+          Histogram interval = Histogram.decodeFromCompressedByteBuffer(
+              ByteBuffer.wrap(Base64.getDecoder().decode(fields[f + 3])), 0);
+          merged.addInterval(startMs, endMs, interval, bucketMs);
+        }
+      }
+    } catch (RuntimeException | DataFormatException e) {
+      throw new IOException("Could not read the histogram log " + log, e);
+    }
+    return merged;
+  }
+
+  /**
+   * Merges a range of the logs, splitting it in two until a single log is left.
+   */
+  private final class MergeTask extends RecursiveTask<Merged> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<File> logs;
+    private final int from;
+    private final int to;
+
+    private MergeTask(List<File> logs, int from, int to) {
+      this.logs = logs;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Merged compute() {
+      if (to - from == 1) {
+        try {
+          return read(logs.get(from));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      int mid = (from + to) >>> 1;
+      MergeTask right = new MergeTask(logs, mid, to);
+      right.fork();
+      Merged merged = new MergeTask(logs, from, mid).compute();
+      merged.add(right.join());
+      return merged;
+    }
+  }
+
+  /**
+   * The merged logs.
+   */
+  static final class Merged {
+    private final Histogram total = new Histogram(3);
+    // buckets by their start, in ms since the epoch
+    private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+    private long startMs = Long.MAX_VALUE;
+    private long endMs = Long.MIN_VALUE;
+
+    /**
+     * The histogram of all values.
+     */
+    Histogram getTotal() {
+      return total;
+    }
+
+    /**
+     * The start of the first interval, in ms since the epoch.
+     */
+    long getStartMs() {
+      return startMs;
+    }
+
+    /**
+     * The time from the start of the first interval to the end of the last, at least 1 ms.
+     */
+    long getRuntimeMs() {
+      return endMs > startMs ? endMs - startMs : 1;
+    }
+
+    Map<Long, Bucket> getBuckets() {
+      return buckets;
+    }
+
+    private void addInterval(long intervalStartMs, long intervalEndMs, Histogram interval, long bucketMs) {
+      startMs = Math.min(startMs, intervalStartMs);
+      endMs = Math.max(endMs, intervalEndMs);
+      total.add(interval);
+      long count = interval.getTotalCount();
+      long lengthMs = Math.max(intervalEndMs - intervalStartMs, 1);
+      for (long b = Math.floorDiv(intervalStartMs, bucketMs) * bucketMs; b < intervalStartMs + lengthMs;
+           b += bucketMs) {
+        long overlapMs = Math.min(b + bucketMs, intervalStartMs + lengthMs) - Math.max(b, intervalStartMs);
+        bucket(b, bucketMs).operations += count * (double) overlapMs / lengthMs;
+      }
+      long mid = intervalStartMs + lengthMs / 2;
+      bucket(Math.floorDiv(mid, bucketMs) * bucketMs, bucketMs).latencies.add(interval);
+    }
+
+    private Bucket bucket(long bucketStartMs, long bucketMs) {
+      Bucket bucket = buckets.get(bucketStartMs);
+      if (bucket == null) {
+        bucket = new Bucket(bucketMs);
+        buckets.put(bucketStartMs, bucket);
+      }
+      return bucket;
+    }
+
+    private void add(Merged other) {
+      startMs = Math.min(startMs, other.startMs);
+      endMs = Math.max(endMs, other.endMs);
+      total.add(other.total);
+      for (Map.Entry<Long, Bucket> entry : other.buckets.entrySet()) {
+        Bucket bucket = buckets.get(entry.getKey());
+        if (bucket == null) {
+          buckets.put(entry.getKey(), entry.getValue());
+        } else {
+          bucket.operations += entry.getValue().operations;
+          bucket.latencies.add(entry.getValue().latencies);
+        }
+      }
+    }
+  }
+
+  /**
+   * The operations and latencies of all clients in one bucket of time.
+   */
+  static final class Bucket {
+    private final long lengthMs;
+    private final Histogram latencies = new Histogram(3);
+    private double operations;
+
+    private Bucket(long lengthMs) {
+      this.lengthMs = lengthMs;
+    }
+
+    double getThroughput() {
+      return 1000.0 * operations / lengthMs;
+    }
+
+    Histogram getLatencies() {
+      return latencies;
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Receives the interval histograms of the HdrHistogram measurements, e.g. to stream them to a coordinator.
+ */
+public interface IntervalListener {
+  /**
+   * Called with the histogram of the values measured in an interval, whenever one is taken. Runs on the
+   * thread taking the interval; the histogram must not be modified.
+   *
+   * @param metric the name of the measurement, such as READ
+   * @param interval the values measured since the previous interval
+   */
+  void onInterval(String metric, Histogram interval);
+}
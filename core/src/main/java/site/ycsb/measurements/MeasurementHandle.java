@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import site.ycsb.Status;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The measurement of one operation, obtained once from {@link Measurements#getHandle(String)} and then used
+ * to record its latencies and return codes without looking the operation up, or allocating, on every call.
+ * The measurements are still created on first use, so operations never measured are not reported.
+ */
+public final class MeasurementHandle {
+  private final Measurements measurements;
+  private final String operation;
+  private final int measurementInterval;
+  private volatile OneMeasurement measurement;
+  private volatile OneMeasurement intendedMeasurement;
+  private volatile AtomicInteger okCounter;
+
+  MeasurementHandle(Measurements measurements, String operation) {
+    this.measurements = measurements;
+    this.operation = operation;
+    measurementInterval = measurements.getMeasurementInterval();
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  /**
+   * Report a single latency of the operation, see {@link Measurements#measure(String, int)}.
+   */
+  public void measure(int latency) {
+    measure(latency, null);
+  }
+
+  /**
+   * Report a single latency of the operation and the status it ended with.
+   */
+  public void measure(int latency, Status status) {
+    if (measurementInterval == 1) {
+      return;
+    }
+    OneMeasurement m = measurement;
+    if (m == null) {
+      m = measurements.getOpMeasurement(operation);
+      measurement = m;
+    }
+    try {
+      m.measure(latency, status);
+    } catch (java.lang.ArrayIndexOutOfBoundsException e) {
+      // This seems like a terribly hacky way to cover up for a bug in the measurement code
+      System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+  }
+
+  /**
+   * Report a single latency of the operation since its intended start, see
+   * {@link Measurements#measureIntended(String, int)}.
+   */
+  public void measureIntended(int latency) {
+    measureIntended(latency, null);
+  }
+
+  /**
+   * Report a single latency of the operation since its intended start and the status it ended with.
+   */
+  public void measureIntended(int latency, Status status) {
+    if (measurementInterval == 0) {
+      return;
+    }
+    try {
+      intended().measure(latency, status);
+    } catch (java.lang.ArrayIndexOutOfBoundsException e) {
+      // This seems like a terribly hacky way to cover up for a bug in the measurement code
+      System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+  }
+
+  /**
+   * Report a return code of the operation, see {@link Measurements#reportStatus(String, Status)}. The OK
+   * counter is kept, other codes are looked up.
+   */
+  public void reportStatus(Status status) {
+    if (status == Status.OK) {
+      AtomicInteger counter = okCounter;
+      if (counter == null) {
+        counter = statusMeasurement().statusCounter(Status.OK);
+        okCounter = counter;
+      }
+      counter.incrementAndGet();
+    } else {
+      statusMeasurement().reportStatus(status);
+    }
+  }
+
+  private OneMeasurement intended() {
+    OneMeasurement m = intendedMeasurement;
+    if (m == null) {
+      m = measurements.getOpIntendedMeasurement(operation);
+      intendedMeasurement = m;
+    }
+    return m;
+  }
+
+  private OneMeasurement statusMeasurement() {
+    if (measurementInterval == 1) {
+      return intended();
+    }
+    OneMeasurement m = measurement;
+    if (m == null) {
+      m = measurements.getOpMeasurement(operation);
+      measurement = m;
+    }
+    return m;
+  }
+}
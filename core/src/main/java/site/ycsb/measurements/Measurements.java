@@ -17,12 +17,18 @@
 
 package site.ycsb.measurements;
 
+import org.HdrHistogram.Histogram;
 import site.ycsb.Status;
 import site.ycsb.measurements.exporter.MeasurementsExporter;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Collects latency measurements, and reports them when requested.
@@ -36,6 +42,8 @@ public class Measurements {
     HDRHISTOGRAM,
     HDRHISTOGRAM_AND_HISTOGRAM,
     HDRHISTOGRAM_AND_RAW,
+    HDRHISTOGRAM_AND_RAWCAPTURE,
+    RAWCAPTURE,
     TIMESERIES,
     RAW
   }
@@ -71,6 +79,11 @@ public class Measurements {
   private final MeasurementType measurementType;
   private final int measurementInterval;
   private final Properties props;
+  private final List<IntervalListener> intervalListeners = new CopyOnWriteArrayList<>();
+  // what every measurement passes its intervals to, the listeners of the moment
+  private final IntervalListener intervalDispatcher = this::dispatchInterval;
+  // the file the raw capture measurement types write to, or null
+  private final RawCapture rawCapture;
 
   /**
    * Create a new object with the specified properties.
@@ -101,6 +114,12 @@ public class Measurements {
     case "raw":
       measurementType = MeasurementType.RAW;
       break;
+    case "rawcapture":
+      measurementType = MeasurementType.RAWCAPTURE;
+      break;
+    case "hdrhistogram+rawcapture":
+      measurementType = MeasurementType.HDRHISTOGRAM_AND_RAWCAPTURE;
+      break;
     default:
       throw new IllegalArgumentException("unknown " + MEASUREMENT_TYPE_PROPERTY + "=" + mTypeString);
     }
@@ -119,9 +138,30 @@ public class Measurements {
     default:
       throw new IllegalArgumentException("unknown " + MEASUREMENT_INTERVAL + "=" + mIntervalString);
     }
+
+    if (measurementType == MeasurementType.RAWCAPTURE
+        || measurementType == MeasurementType.HDRHISTOGRAM_AND_RAWCAPTURE) {
+      String captureFile = props.getProperty(OneMeasurementRawCapture.CAPTURE_FILE,
+          OneMeasurementRawCapture.CAPTURE_FILE_DEFAULT);
+      System.out.println("Raw data measurement: will capture to file: " + captureFile);
+      try {
+        rawCapture = new RawCapture(new File(captureFile), Integer.parseInt(props.getProperty(
+            OneMeasurementRawCapture.CAPTURE_BUFFER_RECORDS, OneMeasurementRawCapture.CAPTURE_BUFFER_RECORDS_DEFAULT)));
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to open raw data capture file", e);
+      }
+    } else {
+      rawCapture = null;
+    }
   }
 
   private OneMeasurement constructOneMeasurement(String name) {
+    OneMeasurement m = constructOneMeasurementOfType(name);
+    m.setIntervalListener(intervalDispatcher);
+    return m;
+  }
+
+  private OneMeasurement constructOneMeasurementOfType(String name) {
     switch (measurementType) {
     case HISTOGRAM:
       return new OneMeasurementHistogram(name, props);
@@ -139,6 +179,12 @@ public class Measurements {
       return new OneMeasurementTimeSeries(name, props);
     case RAW:
       return new OneMeasurementRaw(name, props);
+    case RAWCAPTURE:
+      return new OneMeasurementRawCapture(name, rawCapture);
+    case HDRHISTOGRAM_AND_RAWCAPTURE:
+      return new TwoInOneMeasurement(name,
+          new OneMeasurementHdrHistogram("Hdr" + name, props),
+          new OneMeasurementRawCapture(name, rawCapture));
     default:
       throw new AssertionError("Impossible to be here. Dead code reached. Bugs?");
     }
@@ -162,6 +208,13 @@ public class Measurements {
     }
   };
 
+  /**
+   * 0 to measure the operations, 1 their intended latency, 2 both.
+   */
+  int getMeasurementInterval() {
+    return measurementInterval;
+  }
+
   public void setIntendedStartTimeNs(long time) {
     if (measurementInterval == 0) {
       return;
@@ -214,7 +267,7 @@ public class Measurements {
     }
   }
 
-  private OneMeasurement getOpMeasurement(String operation) {
+  OneMeasurement getOpMeasurement(String operation) {
     OneMeasurement m = opToMesurementMap.get(operation);
     if (m == null) {
       m = constructOneMeasurement(operation);
@@ -226,7 +279,7 @@ public class Measurements {
     return m;
   }
 
-  private OneMeasurement getOpIntendedMeasurement(String operation) {
+  OneMeasurement getOpIntendedMeasurement(String operation) {
     OneMeasurement m = opToIntendedMesurementMap.get(operation);
     if (m == null) {
       final String name = measurementInterval == 1 ? operation : "Intended-" + operation;
@@ -239,6 +292,14 @@ public class Measurements {
     return m;
   }
 
+  /**
+   * Returns a handle to measure an operation with, which hot paths should keep instead of passing the
+   * operation name on every call.
+   */
+  public MeasurementHandle getHandle(String operation) {
+    return new MeasurementHandle(this, operation);
+  }
+
   /**
    * Report a return code for a single DB operation.
    */
@@ -270,6 +331,53 @@ public class Measurements {
     for (OneMeasurement measurement : opToIntendedMesurementMap.values()) {
       measurement.exportMeasurements(exporter, runtime);
     }
+    if (rawCapture != null) {
+      rawCapture.close();
+    }
+  }
+
+  /**
+   * Passes the interval histograms of all measurements, present and future, to the listener, in addition to
+   * the listeners added before.
+   */
+  public void addIntervalListener(IntervalListener listener) {
+    intervalListeners.add(listener);
+  }
+
+  public void removeIntervalListener(IntervalListener listener) {
+    intervalListeners.remove(listener);
+  }
+
+  private void dispatchInterval(String metric, Histogram interval) {
+    for (IntervalListener listener : intervalListeners) {
+      listener.onInterval(metric, interval);
+    }
+  }
+
+  /**
+   * Returns the counts of the return codes reported so far, by status name and operation, as measured.
+   */
+  public Map<String, Map<String, Integer>> getStatusCounts() {
+    Map<String, Map<String, Integer>> counts = new TreeMap<>();
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      counts.put(m.getName(), m.getStatusCounts());
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      counts.put(m.getName(), m.getStatusCounts());
+    }
+    return counts;
+  }
+
+  /**
+   * Takes the current interval of all measurements, for the interval listener, without summarizing them.
+   */
+  public void collectIntervals() {
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      m.collectInterval();
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      m.collectInterval();
+    }
   }
 
   /**
@@ -22,6 +22,7 @@ import site.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -32,6 +33,7 @@ public abstract class OneMeasurement {
 
   private final String name;
   private final ConcurrentHashMap<Status, AtomicInteger> returncodes;
+  private volatile IntervalListener intervalListener;
 
   public String getName() {
     return name;
@@ -47,12 +49,41 @@ public abstract class OneMeasurement {
 
   public abstract void measure(int latency);
 
+  /**
+   * Measure a latency together with the status of the operation, for measurements that keep it.
+   */
+  public void measure(int latency, Status status) {
+    measure(latency);
+  }
+
   public abstract String getSummary();
 
+  /**
+   * Takes the interval measured since the last summary without summarizing it, so that it reaches the
+   * interval listener. Measurements without intervals ignore this.
+   */
+  public void collectInterval() {
+  }
+
+  public void setIntervalListener(IntervalListener listener) {
+    intervalListener = listener;
+  }
+
+  protected IntervalListener getIntervalListener() {
+    return intervalListener;
+  }
+
   /**
    * No need for synchronization, using CHM to deal with that.
    */
   public void reportStatus(Status status) {
+    statusCounter(status).incrementAndGet();
+  }
+
+  /**
+   * The counter of a return code, which a {@link MeasurementHandle} keeps to count without the lookup.
+   */
+  AtomicInteger statusCounter(Status status) {
     AtomicInteger counter = returncodes.get(status);
 
     if (counter == null) {
@@ -63,7 +94,7 @@ public abstract class OneMeasurement {
       }
     }
 
-    counter.incrementAndGet();
+    return counter;
   }
 
   /**
@@ -74,6 +105,17 @@ public abstract class OneMeasurement {
    */
   public abstract void exportMeasurements(MeasurementsExporter exporter, long runtime) throws IOException;
 
+  /**
+   * The counts of the return codes reported so far, by status name.
+   */
+  public Map<String, Integer> getStatusCounts() {
+    Map<String, Integer> counts = new TreeMap<>();
+    for (Map.Entry<Status, AtomicInteger> entry : returncodes.entrySet()) {
+      counts.put(entry.getKey().getName(), entry.getValue().get());
+    }
+    return counts;
+  }
+
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
     for (Map.Entry<Status, AtomicInteger> entry : returncodes.entrySet()) {
       exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
@@ -17,12 +17,13 @@
 
 package site.ycsb.measurements;
 
+import site.ycsb.Client;
 import site.ycsb.measurements.exporter.MeasurementsExporter;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramIterationValue;
 import org.HdrHistogram.HistogramLogWriter;
 import org.HdrHistogram.Recorder;
-import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.SingleWriterRecorder;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -31,8 +32,12 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Take measurements and maintain a HdrHistogram of a given metric, such as READ LATENCY.
@@ -44,7 +49,12 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   private final PrintStream log;
   private final HistogramLogWriter histogramLogWriter;
   private String hdrOutputFilename = null;
+  // the recorder shared by all threads, or null when every thread has its own
   private final Recorder histogram;
+  private final ThreadLocal<ThreadRecorder> threadRecorder;
+  // the recorders of all threads that measured, including those that ended since
+  private final Queue<ThreadRecorder> threadRecorders = new ConcurrentLinkedQueue<>();
+  private long intervalStartMs = System.currentTimeMillis();
   private Histogram totalHistogram;
 
   /**
@@ -62,6 +72,35 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    */
   public static final String VERBOSE_PROPERTY = "measurement.histogram.verbose";
 
+  /**
+   * The comma separated histogram logs to merge in parse mode: files, or directories holding files named
+   * &lt;metric&gt;_&lt;parsePrefix&gt;*.hdr.
+   */
+  public static final String PARSE_INPUT_PROPERTY = "parse.input";
+  public static final String PARSE_INPUT_PROPERTY_DEFAULT = ".";
+
+  /**
+   * The length of the intervals of the merged time series in parse mode.
+   */
+  public static final String PARSE_INTERVAL_PROPERTY = "parse.interval.ms";
+  public static final String PARSE_INTERVAL_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * Whether to export the merged time series in parse mode.
+   */
+  public static final String PARSE_TIMESERIES_PROPERTY = "parse.timeseries";
+  public static final String PARSE_TIMESERIES_PROPERTY_DEFAULT = "true";
+
+  /**
+   * How the threads record: "perthread", each in its own single-writer recorder, which the interval harvest
+   * swaps without blocking them, or "shared", all in one recorder. A per-thread recorder holds up to three
+   * histograms of the metric for as long as its thread lives, each some hundreds of KB once latencies reach
+   * seconds, so "perthread" is the default for platform client threads only; with clientthreads.type=virtual,
+   * where there may be many thousands of client threads, the default is "shared".
+   */
+  public static final String RECORDER_PROPERTY = "hdrhistogram.recorder";
+  public static final String RECORDER_PROPERTY_DEFAULT = "perthread";
+
   /**
    * Whether or not to emit the histogram buckets.
    */
@@ -69,6 +108,9 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 
   private final boolean justParse;
   private final String prefix;
+  private final String parseInput;
+  private final long parseIntervalMs;
+  private final boolean parseTimeSeries;
 
   private final List<Double> percentiles;
 
@@ -79,6 +121,10 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
     boolean shouldLog = Boolean.parseBoolean(props.getProperty("hdrhistogram.fileoutput", "false"));
     justParse = Boolean.valueOf(props.getProperty("parse", String.valueOf(false)));
     prefix = props.getProperty("parsePrefix", "");
+    parseInput = props.getProperty(PARSE_INPUT_PROPERTY, PARSE_INPUT_PROPERTY_DEFAULT);
+    parseIntervalMs = Long.parseLong(props.getProperty(PARSE_INTERVAL_PROPERTY, PARSE_INTERVAL_PROPERTY_DEFAULT));
+    parseTimeSeries = Boolean.parseBoolean(props.getProperty(PARSE_TIMESERIES_PROPERTY,
+        PARSE_TIMESERIES_PROPERTY_DEFAULT));
     if (!shouldLog) {
       log = null;
       histogramLogWriter = null;
@@ -97,15 +143,41 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter.setBaseTime(now);
       histogramLogWriter.outputLegend();
     }
-    histogram = new Recorder(3);
+    String recorder = props.getProperty(RECORDER_PROPERTY,
+        props.getProperty(Client.CLIENT_THREADS_TYPE_PROPERTY, Client.CLIENT_THREADS_TYPE_PROPERTY_DEFAULT)
+            .equals("virtual") ? "shared" : RECORDER_PROPERTY_DEFAULT);
+    switch (recorder) {
+    case "perthread":
+      histogram = null;
+      threadRecorder = new ThreadLocal<ThreadRecorder>() {
+        @Override
+        protected ThreadRecorder initialValue() {
+          ThreadRecorder r = new ThreadRecorder();
+          threadRecorders.add(r);
+          return r;
+        }
+      };
+      break;
+    case "shared":
+      histogram = new Recorder(3);
+      threadRecorder = null;
+      break;
+    default:
+      throw new IllegalArgumentException("unknown " + RECORDER_PROPERTY + "=" + recorder);
+    }
   }
 
   /**
    * It appears latency is reported in micros.
-   * Using {@link Recorder} to support concurrent updates to histogram.
+   * Using {@link SingleWriterRecorder} per thread, or a shared {@link Recorder}, to support concurrent
+   * updates to histogram.
    */
   public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+    if (histogram == null) {
+      threadRecorder.get().recorder.recordValue(latencyInMicros);
+    } else {
+      histogram.recordValue(latencyInMicros);
+    }
   }
 
   /**
@@ -114,38 +186,34 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 
   private void parseAndExportMeasurements(MeasurementsExporter exporter)
       throws IOException {
-    Histogram merged = (new Recorder(3)).getIntervalHistogram();
-    double throughput = 0;
-    File[] files = new File(".").listFiles();
+    List<File> files = HdrLogMerger.findLogs(parseInput, getName(), prefix);
     for (File file : files) {
-      if (file.isFile() && file.getName().startsWith(String.format("%s_%s", getName(), prefix))
-          && file.getName().endsWith(".hdr")) {
-        System.out.println("File parsed: " + file.getName());
-        long timeMin = 0;
-        long timeMax = 0;
-        Histogram mergedTemp = (new Recorder(3)).getIntervalHistogram();
-        HistogramLogReader reader = new HistogramLogReader(file.getName());
-        Histogram hgram = (Histogram) reader.nextIntervalHistogram();
-        if (timeMin == 0) {
-          timeMin = hgram.getStartTimeStamp();
-        }
-        while (hgram != null) {
-          mergedTemp.add(hgram);
-          timeMax = hgram.getEndTimeStamp();
-          hgram = (Histogram) reader.nextIntervalHistogram();
-        }
-        throughput += 1000.0 * (mergedTemp.getTotalCount()) / (timeMax - timeMin);
-        merged.add(mergedTemp);
-      }
+      System.out.println("File parsed: " + file.getPath());
     }
-    exporter.write(getName(), "Operations", merged.getTotalCount());
-    exporter.write(getName(), "Throughput(ops/sec)", throughput);
-    exporter.write(getName(), "AverageLatency(us)", merged.getMean());
-    exporter.write(getName(), "MinLatency(us)", merged.getMinValue());
-    exporter.write(getName(), "MaxLatency(us)", merged.getMaxValue());
+    HdrLogMerger.Merged merged = new HdrLogMerger(parseIntervalMs).merge(files);
+    Histogram total = merged.getTotal();
+    exporter.write(getName(), "Operations", total.getTotalCount());
+    // the clients' windows may differ, so the throughput is over the window covering them all
+    exporter.write(getName(), "Throughput(ops/sec)", 1000.0 * total.getTotalCount() / merged.getRuntimeMs());
+    exporter.write(getName(), "AverageLatency(us)", total.getMean());
+    exporter.write(getName(), "MinLatency(us)", total.getMinValue());
+    exporter.write(getName(), "MaxLatency(us)", total.getMaxValue());
     for (Double percentile : percentiles) {
       exporter.write(getName(), ordinal(percentile) + "PercentileLatency(us)",
-          merged.getValueAtPercentile(percentile));
+          total.getValueAtPercentile(percentile));
+    }
+    if (parseTimeSeries && total.getTotalCount() > 0) {
+      exporter.write(getName(), "StartTime(ms)", merged.getStartMs());
+      for (Map.Entry<Long, HdrLogMerger.Bucket> entry : merged.getBuckets().entrySet()) {
+        // the time since the start of the first client, as in the time series measurement
+        String time = Long.toString(entry.getKey() - merged.getStartMs());
+        HdrLogMerger.Bucket bucket = entry.getValue();
+        exporter.write(getName(), time + " Throughput(ops/sec)", bucket.getThroughput());
+        for (Double percentile : percentiles) {
+          exporter.write(getName(), time + " " + ordinal(percentile) + "PercentileLatency(us)",
+              bucket.getLatencies().getValueAtPercentile(percentile));
+        }
+      }
     }
   }
 
@@ -156,9 +224,8 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       return;
     }
     // accumulate the last interval which was not caught by status thread
-    Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
+    getIntervalHistogramAndAccumulate();
     if (histogramLogWriter != null) {
-      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
       // we can close now
       log.close();
     }
@@ -201,10 +268,6 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   @Override
   public String getSummary() {
     Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
-    // we use the summary interval as the histogram file interval.
-    if (histogramLogWriter != null) {
-      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
-    }
 
     DecimalFormat d = new DecimalFormat("#.##");
     return "[" + getName() + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
@@ -215,14 +278,54 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
         + d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
   }
 
-  private Histogram getIntervalHistogramAndAccumulate() {
-    Histogram intervalHistogram = histogram.getIntervalHistogram();
+  @Override
+  public void collectInterval() {
+    getIntervalHistogramAndAccumulate();
+  }
+
+  /**
+   * Takes the interval from the recorder, by the status thread and by a coordinator streaming intervals alike,
+   * so it is synchronized.
+   */
+  private synchronized Histogram getIntervalHistogramAndAccumulate() {
+    Histogram intervalHistogram = histogram == null ? harvestThreadRecorders() : histogram.getIntervalHistogram();
     // add this to the total time histogram.
     if (totalHistogram == null) {
-      totalHistogram = intervalHistogram;
+      totalHistogram = intervalHistogram.copy();
     } else {
       totalHistogram.add(intervalHistogram);
     }
+    // we use the summary interval as the histogram file interval.
+    if (histogramLogWriter != null) {
+      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
+    }
+    IntervalListener listener = getIntervalListener();
+    if (listener != null) {
+      listener.onInterval(getName(), intervalHistogram);
+    }
+    return intervalHistogram;
+  }
+
+  /**
+   * Swaps the interval histogram of every thread's recorder, which the writers never wait for, and merges
+   * them into one interval. The recorder of a thread that ended is dropped once this final interval is taken.
+   */
+  private Histogram harvestThreadRecorders() {
+    Histogram intervalHistogram = new Histogram(3);
+    for (Iterator<ThreadRecorder> it = threadRecorders.iterator(); it.hasNext();) {
+      ThreadRecorder r = it.next();
+      // checked before the swap, so a thread that ended recorded all it did by then
+      boolean ended = !r.owner.isAlive();
+      r.recycled = r.recorder.getIntervalHistogram(r.recycled);
+      intervalHistogram.add(r.recycled);
+      if (ended) {
+        it.remove();
+      }
+    }
+    long now = System.currentTimeMillis();
+    intervalHistogram.setStartTimeStamp(intervalStartMs);
+    intervalHistogram.setEndTimeStamp(now);
+    intervalStartMs = now;
     return intervalHistogram;
   }
 
@@ -256,7 +359,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    * @param i number
    * @return ordinal string
    */
-  private String ordinal(Double i) {
+  static String ordinal(Double i) {
     String[] suffixes = new String[]{"th", "st", "nd", "rd", "th", "th", "th", "th", "th", "th"};
     Integer j = i.intValue();
     if (i % 1 == 0) {
@@ -272,4 +375,20 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       return i.toString();
     }
   }
+
+  /**
+   * @return the number of threads that have a recorder of their own, 0 with the shared recorder
+   */
+  int threadRecorderCount() {
+    return threadRecorders.size();
+  }
+
+  /**
+   * The recorder of one thread, and the interval histogram last taken from it, to be reused.
+   */
+  private static final class ThreadRecorder {
+    private final Thread owner = Thread.currentThread();
+    private final SingleWriterRecorder recorder = new SingleWriterRecorder(3);
+    private Histogram recycled;
+  }
 }
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import site.ycsb.Status;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Record every measurement of a metric, with its time and status, into the {@link RawCapture} file shared by
+ * all metrics, without keeping the data points on the heap. The file is summarized afterwards by
+ * {@link RawCaptureReader}.
+ */
+public class OneMeasurementRawCapture extends OneMeasurement {
+  /**
+   * The file to capture into.
+   */
+  public static final String CAPTURE_FILE = "measurement.raw.capture_file";
+  public static final String CAPTURE_FILE_DEFAULT = "raw.capture";
+
+  /**
+   * The number of records each thread buffers off-heap before copying them into the file.
+   */
+  public static final String CAPTURE_BUFFER_RECORDS = "measurement.raw.capture_buffer_records";
+  public static final String CAPTURE_BUFFER_RECORDS_DEFAULT = "8192";
+
+  private final RawCapture capture;
+  private final int op;
+  private final LongAdder operations = new LongAdder();
+  private final LongAdder windowOperations = new LongAdder();
+  private final LongAdder windowTotalLatency = new LongAdder();
+  // the status last measured, almost always the same for one metric
+  private volatile StatusId lastStatus;
+
+  public OneMeasurementRawCapture(String name, RawCapture capture) {
+    super(name);
+    this.capture = capture;
+    op = capture.opId(name);
+  }
+
+  @Override
+  public void measure(int latency) {
+    measure(latency, null);
+  }
+
+  @Override
+  public void measure(int latency, Status status) {
+    capture.record(System.currentTimeMillis(), op, latency, statusId(status));
+    operations.increment();
+    windowOperations.increment();
+    windowTotalLatency.add(latency);
+  }
+
+  private int statusId(Status status) {
+    if (status == null) {
+      return RawCapture.UNKNOWN_STATUS;
+    }
+    StatusId last = lastStatus;
+    if (last == null || last.status != status) {
+      last = new StatusId(status, capture.statusId(status.getName()));
+      lastStatus = last;
+    }
+    return last.id;
+  }
+
+  @Override
+  public void exportMeasurements(MeasurementsExporter exporter, long runtime) throws IOException {
+    exporter.write(getName(), "Total Operations", operations.sum());
+    exporter.write(getName(), "Capture file: " + capture.getFile().getPath(), -1);
+    exportStatusCounts(exporter);
+  }
+
+  @Override
+  public String getSummary() {
+    long windowOps = windowOperations.sumThenReset();
+    long windowLatency = windowTotalLatency.sumThenReset();
+    if (windowOps == 0) {
+      return "";
+    }
+    return String.format("%s count: %d, average latency(us): %.2f", getName(), windowOps,
+        (double) windowLatency / (double) windowOps);
+  }
+
+  /**
+   * A status and its id in the capture.
+   */
+  private static final class StatusId {
+    private final Status status;
+    private final int id;
+
+    private StatusId(Status status, int id) {
+      this.status = status;
+      this.id = id;
+    }
+  }
+}
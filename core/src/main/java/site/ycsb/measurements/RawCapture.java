@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures every measured operation as a fixed size binary record in a file, without keeping it on the heap:
+ * each thread fills its own off-heap buffer of records, and when it is full copies it into the file, mapped
+ * in segments, at a position claimed atomically. Records of different threads are thus not in time order.
+ * A segment is released once all its bytes are written.
+ * <p>
+ * The file holds a header of {@link #HEADER_SIZE} bytes (the magic number, the format version and the
+ * record size), then the records of {@link #RECORD_SIZE} bytes (the time in ms since the epoch, the
+ * operation id, the latency in us and the status id), then a dictionary of the operation and status names by
+ * id, and at last the offset of the dictionary and the magic number again. {@link RawCaptureReader} reads
+ * it back.
+ */
+public final class RawCapture {
+  static final long MAGIC = 0x5943534252415731L; // "YCSBRAW1"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int RECORD_SIZE = 20;
+  static final int TRAILER_SIZE = 16;
+  static final long SEGMENT_SIZE = 64L << 20;
+
+  /**
+   * The status id of measurements that were not given a status.
+   */
+  static final int UNKNOWN_STATUS = 0;
+
+  private final File file;
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private final int bufferRecords;
+  private final AtomicLong end = new AtomicLong(HEADER_SIZE);
+  // the segments being written, by index
+  private final ConcurrentHashMap<Long, Segment> segments = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Integer> opIds = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Integer> statusIds = new ConcurrentHashMap<>();
+  private final List<String> ops = new ArrayList<>();
+  private final List<String> statuses = new ArrayList<>();
+  private final ThreadLocal<ByteBuffer> threadBuffer;
+  // the buffers of all threads that captured, flushed on close
+  private final Queue<ByteBuffer> threadBuffers = new ConcurrentLinkedQueue<>();
+  private volatile boolean closed;
+
+  public RawCapture(File file, int bufferRecords) throws IOException {
+    if (bufferRecords < 1) {
+      throw new IllegalArgumentException("The capture buffers must hold at least one record");
+    }
+    this.file = file;
+    this.bufferRecords = bufferRecords;
+    raf = new RandomAccessFile(file, "rw");
+    raf.setLength(0);
+    channel = raf.getChannel();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putLong(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).flip();
+    channel.write(header, 0);
+    statuses.add("");
+    threadBuffer = new ThreadLocal<ByteBuffer>() {
+      @Override
+      protected ByteBuffer initialValue() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RawCapture.this.bufferRecords * RECORD_SIZE)
+            .order(ByteOrder.BIG_ENDIAN);
+        threadBuffers.add(buffer);
+        return buffer;
+      }
+    };
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * The id records of an operation carry, assigned on first use.
+   */
+  int opId(String op) {
+    return id(opIds, ops, op);
+  }
+
+  /**
+   * The id records of a status carry, assigned on first use; 0 is no status.
+   */
+  int statusId(String status) {
+    return id(statusIds, statuses, status);
+  }
+
+  private int id(ConcurrentHashMap<String, Integer> ids, List<String> names, String name) {
+    Integer id = ids.get(name);
+    if (id == null) {
+      synchronized (names) {
+        id = ids.get(name);
+        if (id == null) {
+          id = names.size();
+          names.add(name);
+          ids.put(name, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Captures one operation into the buffer of the calling thread.
+   */
+  void record(long timestampMs, int op, int latency, int status) {
+    ByteBuffer buffer = threadBuffer.get();
+    buffer.putLong(timestampMs).putInt(op).putInt(latency).putInt(status);
+    if (!buffer.hasRemaining()) {
+      flush(buffer);
+    }
+  }
+
+  private void flush(ByteBuffer buffer) {
+    buffer.flip();
+    if (buffer.hasRemaining() && !closed) {
+      long position = end.getAndAdd(buffer.remaining());
+      try {
+        write(position, buffer);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not write the raw capture file " + file, e);
+      }
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Copies the buffer into the mapped segments of the file from the position on.
+   */
+  private void write(long position, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      long index = position / SEGMENT_SIZE;
+      int offset = (int) (position % SEGMENT_SIZE);
+      int length = (int) Math.min(buffer.remaining(), SEGMENT_SIZE - offset);
+      Segment segment = segment(index);
+      ByteBuffer target = segment.buffer.duplicate();
+      target.position(offset);
+      ByteBuffer source = buffer.duplicate();
+      source.limit(source.position() + length);
+      target.put(source);
+      buffer.position(buffer.position() + length);
+      position += length;
+      // every byte is claimed once, so once all are written no one maps the segment again
+      if (segment.written.addAndGet(length) == SEGMENT_SIZE) {
+        segment.buffer.force();
+        segments.remove(index);
+      }
+    }
+  }
+
+  private Segment segment(long index) throws IOException {
+    Segment segment = segments.get(index);
+    if (segment == null) {
+      synchronized (segments) {
+        segment = segments.get(index);
+        if (segment == null) {
+          segment = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, index * SEGMENT_SIZE, SEGMENT_SIZE));
+          segments.put(index, segment);
+        }
+      }
+    }
+    return segment;
+  }
+
+  /**
+   * Flushes the buffers of all threads, which must have stopped capturing, appends the dictionary and cuts
+   * the file to its length.
+   */
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    for (ByteBuffer buffer : threadBuffers) {
+      flush(buffer);
+    }
+    closed = true;
+    for (Segment segment : segments.values()) {
+      segment.buffer.force();
+    }
+    segments.clear();
+    long dictionary = end.get();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    writeNames(out, ops);
+    writeNames(out, statuses);
+    out.writeLong(dictionary);
+    out.writeLong(MAGIC);
+    out.flush();
+    channel.write(ByteBuffer.wrap(bytes.toByteArray()), dictionary);
+    channel.truncate(dictionary + bytes.size());
+    channel.force(true);
+    raf.close();
+  }
+
+  private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+    synchronized (names) {
+      out.writeInt(names.size());
+      for (String name : names) {
+        out.writeUTF(name);
+      }
+    }
+  }
+
+  /**
+   * A mapped segment of the file, and how many of its bytes were written.
+   */
+  private static final class Segment {
+    private final MappedByteBuffer buffer;
+    private final AtomicLong written = new AtomicLong();
+
+    private Segment(MappedByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+}
@@ -0,0 +1,362 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+import site.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Reads a {@link RawCapture} file back and exports, per operation, the counts of its statuses, its exact
+ * latency percentiles and its throughput, average and maximum latency per interval. The file is mapped,
+ * never read onto the heap as a whole: a first pass counts and builds the series, a second collects the
+ * latencies of each operation into sorted runs of bounded size, spilled to temporary files, whose streaming
+ * merge gives the percentiles.
+ */
+public final class RawCaptureReader implements Closeable {
+  private static final long WINDOW_RECORDS = (1L << 26) / RawCapture.RECORD_SIZE;
+
+  private final FileChannel channel;
+  private final long records;
+  private final List<String> ops = new ArrayList<>();
+  private final List<String> statuses = new ArrayList<>();
+
+  public RawCaptureReader(File file) throws IOException {
+    channel = new RandomAccessFile(file, "r").getChannel();
+    ByteBuffer header = ByteBuffer.allocate(RawCapture.HEADER_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    ByteBuffer trailer = ByteBuffer.allocate(RawCapture.TRAILER_SIZE);
+    channel.read(trailer, channel.size() - RawCapture.TRAILER_SIZE);
+    trailer.flip();
+    if (header.getLong() != RawCapture.MAGIC || header.getInt() != RawCapture.VERSION
+        || header.getInt() != RawCapture.RECORD_SIZE) {
+      throw new IOException(file + " is not a raw capture file");
+    }
+    long dictionary = trailer.getLong();
+    if (trailer.getLong() != RawCapture.MAGIC) {
+      throw new IOException(file + " is not complete, the capture was not closed");
+    }
+    records = (dictionary - RawCapture.HEADER_SIZE) / RawCapture.RECORD_SIZE;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      long skipped = 0;
+      while (skipped < dictionary) {
+        skipped += in.skip(dictionary - skipped);
+      }
+      readNames(in, ops);
+      readNames(in, statuses);
+    }
+  }
+
+  private static void readNames(DataInputStream in, List<String> names) throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      names.add(in.readUTF());
+    }
+  }
+
+  public long getRecords() {
+    return records;
+  }
+
+  public List<String> getOperations() {
+    return Collections.unmodifiableList(ops);
+  }
+
+  /**
+   * Visits the records of the file in their order in the file.
+   */
+  private interface RecordVisitor {
+    void visit(long timestampMs, int op, int latency, int status) throws IOException;
+  }
+
+  private void forEachRecord(RecordVisitor visitor) throws IOException {
+    for (long first = 0; first < records; first += WINDOW_RECORDS) {
+      long count = Math.min(WINDOW_RECORDS, records - first);
+      ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+          RawCapture.HEADER_SIZE + first * RawCapture.RECORD_SIZE, count * RawCapture.RECORD_SIZE);
+      for (long r = 0; r < count; r++) {
+        visitor.visit(window.getLong(), window.getInt(), window.getInt(), window.getInt());
+      }
+    }
+  }
+
+  /**
+   * Exports the statistics of every operation.
+   *
+   * @param percentiles the latency percentiles to export, as in 99.9
+   * @param intervalMs the length of the intervals of the series
+   * @param memoryRecords how many latencies to sort in memory at most
+   */
+  public void export(MeasurementsExporter exporter, double[] percentiles, final long intervalMs,
+                     int memoryRecords) throws IOException {
+    final OpStatistics[] stats = new OpStatistics[ops.size()];
+    for (int i = 0; i < stats.length; i++) {
+      stats[i] = new OpStatistics(statuses.size());
+    }
+    forEachRecord((timestampMs, op, latency, status) -> {
+        OpStatistics s = stats[op];
+        s.count++;
+        s.statusCounts[status]++;
+        s.totalLatency += latency;
+        s.min = Math.min(s.min, latency);
+        s.max = Math.max(s.max, latency);
+        long interval = Math.floorDiv(timestampMs, intervalMs) * intervalMs;
+        long[] point = s.series.get(interval);
+        if (point == null) {
+          point = new long[3];
+          s.series.put(interval, point);
+        }
+        point[0]++;
+        point[1] += latency;
+        point[2] = Math.max(point[2], latency);
+      });
+
+    for (OpStatistics s : stats) {
+      if (s.count > 0) {
+        s.sorter = new ExternalSorter((int) Math.min(s.count, Math.max(1024, memoryRecords / stats.length)));
+      }
+    }
+    forEachRecord((timestampMs, op, latency, status) -> stats[op].sorter.add(latency));
+
+    for (int op = 0; op < stats.length; op++) {
+      OpStatistics s = stats[op];
+      String name = ops.get(op);
+      exporter.write(name, "Operations", s.count);
+      for (int status = 0; status < statuses.size(); status++) {
+        if (s.statusCounts[status] > 0 && status != RawCapture.UNKNOWN_STATUS) {
+          exporter.write(name, "Return=" + statuses.get(status), s.statusCounts[status]);
+        }
+      }
+      if (s.count == 0) {
+        continue;
+      }
+      exporter.write(name, "AverageLatency(us)", (double) s.totalLatency / s.count);
+      exporter.write(name, "MinLatency(us)", s.min);
+      exporter.write(name, "MaxLatency(us)", s.max);
+      long[] ranks = new long[percentiles.length];
+      for (int p = 0; p < percentiles.length; p++) {
+        ranks[p] = Math.min((long) (s.count * percentiles[p] / 100), s.count - 1);
+      }
+      long[] sortedRanks = ranks.clone();
+      Arrays.sort(sortedRanks);
+      int[] sortedValues = s.sorter.select(sortedRanks);
+      for (int p = 0; p < percentiles.length; p++) {
+        int value = sortedValues[Arrays.binarySearch(sortedRanks, ranks[p])];
+        exporter.write(name, OneMeasurementHdrHistogram.ordinal(percentiles[p]) + "PercentileLatency(us)", value);
+      }
+      long start = s.series.firstKey();
+      for (Map.Entry<Long, long[]> point : s.series.entrySet()) {
+        String time = Long.toString(point.getKey() - start);
+        long[] v = point.getValue();
+        exporter.write(name, time + " Throughput(ops/sec)", 1000.0 * v[0] / intervalMs);
+        exporter.write(name, time + " AverageLatency(us)", (double) v[1] / v[0]);
+        exporter.write(name, time + " MaxLatency(us)", v[2]);
+      }
+    }
+  }
+
+  /**
+   * What the passes over the file gather for one operation.
+   */
+  private static final class OpStatistics {
+    private final long[] statusCounts;
+    // count, total and maximum latency by interval start
+    private final TreeMap<Long, long[]> series = new TreeMap<>();
+    private long count;
+    private long totalLatency;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private ExternalSorter sorter;
+
+    private OpStatistics(int statusCount) {
+      statusCounts = new long[statusCount];
+    }
+  }
+
+  /**
+   * Sorts latencies in runs of at most the size of its buffer, spilling all but the last to temporary files,
+   * and selects values by rank from the merge of the runs.
+   */
+  static final class ExternalSorter {
+    private final int[] buffer;
+    private int size;
+    private final List<File> runs = new ArrayList<>();
+
+    ExternalSorter(int capacity) {
+      buffer = new int[capacity];
+    }
+
+    void add(int value) throws IOException {
+      if (size == buffer.length) {
+        spill();
+      }
+      buffer[size++] = value;
+    }
+
+    private void spill() throws IOException {
+      Arrays.sort(buffer, 0, size);
+      File run = File.createTempFile("ycsb-raw-run", ".bin");
+      run.deleteOnExit();
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+        for (int i = 0; i < size; i++) {
+          out.writeInt(buffer[i]);
+        }
+      }
+      runs.add(run);
+      size = 0;
+    }
+
+    /**
+     * Returns the values at the ascending, 0-based ranks, and deletes the runs.
+     */
+    int[] select(long[] ranks) throws IOException {
+      int[] values = new int[ranks.length];
+      Arrays.sort(buffer, 0, size);
+      if (runs.isEmpty()) {
+        for (int i = 0; i < ranks.length; i++) {
+          values[i] = buffer[(int) ranks[i]];
+        }
+        return values;
+      }
+      PriorityQueue<Run> merge = new PriorityQueue<>();
+      List<DataInputStream> inputs = new ArrayList<>();
+      try {
+        for (File run : runs) {
+          DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+          inputs.add(in);
+          merge.add(new Run(in, null, 0).advance());
+        }
+        if (size > 0) {
+          merge.add(new Run(null, buffer, size).advance());
+        }
+        long rank = 0;
+        int next = 0;
+        while (next < ranks.length && !merge.isEmpty()) {
+          Run run = merge.poll();
+          while (next < ranks.length && ranks[next] == rank) {
+            values[next++] = run.head;
+          }
+          rank++;
+          if (run.advance() != null) {
+            merge.add(run);
+          }
+        }
+      } finally {
+        for (DataInputStream in : inputs) {
+          in.close();
+        }
+        for (File run : runs) {
+          run.delete();
+        }
+        runs.clear();
+      }
+      return values;
+    }
+
+    /**
+     * A sorted run being merged, from a file or the buffer.
+     */
+    private static final class Run implements Comparable<Run> {
+      private final DataInputStream in;
+      private final int[] values;
+      private final int length;
+      private int position;
+      private int head;
+
+      private Run(DataInputStream in, int[] values, int length) {
+        this.in = in;
+        this.values = values;
+        this.length = length;
+      }
+
+      /**
+       * Moves to the next value, returning null at the end of the run.
+       */
+      private Run advance() throws IOException {
+        if (in == null) {
+          if (position == length) {
+            return null;
+          }
+          head = values[position++];
+          return this;
+        }
+        try {
+          head = in.readInt();
+          return this;
+        } catch (EOFException e) {
+          return null;
+        }
+      }
+
+      @Override
+      public int compareTo(Run other) {
+        return Integer.compare(head, other.head);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Prints the statistics of a capture file.
+   *
+   * @param args the file, and optionally the comma separated percentiles, the interval length in ms and how
+   *             many latencies to sort in memory at most
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: RawCaptureReader <capture file> [percentiles [interval ms [memory records]]]");
+      System.exit(1);
+    }
+    String[] percentileStrings = (args.length > 1 ? args[1] : "50,90,95,99,99.9,99.99").split(",");
+    double[] percentiles = new double[percentileStrings.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      percentiles[i] = Double.parseDouble(percentileStrings[i]);
+    }
+    long intervalMs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+    int memoryRecords = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 24;
+    try (RawCaptureReader reader = new RawCaptureReader(new File(args[0]));
+         MeasurementsExporter exporter = new TextMeasurementsExporter(System.out)) {
+      reader.export(exporter, percentiles, intervalMs, memoryRecords);
+    }
+  }
+}
@@ -21,6 +21,8 @@ import site.ycsb.Status;
 import site.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * delegates to 2 measurement instances.
@@ -43,6 +45,16 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing1.reportStatus(status);
   }
 
+  @Override
+  AtomicInteger statusCounter(Status status) {
+    return thing1.statusCounter(status);
+  }
+
+  @Override
+  public Map<String, Integer> getStatusCounts() {
+    return thing1.getStatusCounts();
+  }
+
   /**
    * It appears latency is reported in micros.
    * Using {@link org.HdrHistogram.Recorder} to support concurrent updates to histogram.
@@ -53,6 +65,12 @@ public class TwoInOneMeasurement extends OneMeasurement {
     thing2.measure(latencyInMicros);
   }
 
+  @Override
+  public void measure(int latencyInMicros, Status status) {
+    thing1.measure(latencyInMicros, status);
+    thing2.measure(latencyInMicros, status);
+  }
+
 
   /**
    * This is called from a main thread, on orderly termination.
@@ -74,4 +92,16 @@ public class TwoInOneMeasurement extends OneMeasurement {
     return thing1.getSummary() + "\n" + thing2.getSummary();
   }
 
+  @Override
+  public void collectInterval() {
+    thing1.collectInterval();
+    thing2.collectInterval();
+  }
+
+  @Override
+  public void setIntervalListener(IntervalListener listener) {
+    thing1.setIntervalListener(listener);
+    thing2.setIntervalListener(listener);
+  }
+
 }
@@ -0,0 +1,599 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.standin;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import site.ycsb.MemoryDB;
+import site.ycsb.Status;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local stand-in for the S3 object store and the Proteus query service, so the S3 client can be benchmarked
+ * and its freshness lag reproduced without a cluster.
+ * <p>
+ * The S3 endpoint serves the subset of the path-style REST API the client uses: PUT and DELETE of buckets and
+ * objects, GET and HEAD of objects with their user metadata (x-amz-meta-*), and GET of a bucket to list it, in
+ * either version. Requests are not authenticated, and aws-chunked uploads are decoded without checking their
+ * signatures. The query endpoint answers the queries and subscriptions of {@link QueryClient} from a
+ * {@link MemoryDB} index of the objects' user metadata; the Proteus gRPC protocol is not spoken.
+ * </p><p>
+ * Each endpoint is a {@link Stage} with standin.s3.* or standin.query.* workers, queue depth and service time.
+ * Writes reach the index, and so the queries and subscriptions, standin.index.lag.* after they are acknowledged.
+ * The index is a MemoryDB store of its own.
+ * </p>
+ */
+public final class LocalS3Server implements Closeable {
+  public static final String HOST_PROPERTY = "standin.host";
+  public static final String HOST_PROPERTY_DEFAULT = "0.0.0.0";
+
+  /**
+   * The port of the S3 endpoint; 0 picks a free port.
+   */
+  public static final String S3_PORT_PROPERTY = "standin.s3.port";
+  public static final String S3_PORT_PROPERTY_DEFAULT = "8000";
+
+  /**
+   * The port of the query endpoint; 0 picks a free port.
+   */
+  public static final String QUERY_PORT_PROPERTY = "standin.query.port";
+  public static final String QUERY_PORT_PROPERTY_DEFAULT = "8001";
+
+  /**
+   * The prefixes of the stage and delay properties.
+   */
+  public static final String S3_STAGE = "standin.s3";
+  public static final String QUERY_STAGE = "standin.query";
+  public static final String INDEX_LAG = "standin.index.lag";
+
+  private static final String META_PREFIX = "x-amz-meta-";
+  private static final String XML_CONTENT_TYPE = "application/xml";
+  private static final int DEFAULT_MAX_KEYS = 1000;
+
+  private final HttpServer s3Server;
+  private final HttpServer queryServer;
+  private final ExecutorService executor;
+  private final ScheduledExecutorService indexer;
+  private final Stage s3Stage;
+  private final Stage queryStage;
+  private final ServiceTimeModel indexLag;
+  private final MemoryDB index = new MemoryDB(false);
+  private final Map<String, ConcurrentSkipListMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+  private final Set<CountDownLatch> subscriptions = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Starts serving both endpoints.
+   */
+  public LocalS3Server(Properties props) throws IOException {
+    s3Stage = new Stage(props, S3_STAGE);
+    queryStage = new Stage(props, QUERY_STAGE);
+    indexLag = new ServiceTimeModel(props, INDEX_LAG);
+    index.setProperties(new Properties());
+    String host = props.getProperty(HOST_PROPERTY, HOST_PROPERTY_DEFAULT);
+    executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "LocalS3Server-worker");
+        t.setDaemon(true);
+        return t;
+      });
+    indexer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "LocalS3Server-indexer");
+        t.setDaemon(true);
+        return t;
+      });
+
+    s3Server = HttpServer.create(new InetSocketAddress(host,
+        Integer.parseInt(props.getProperty(S3_PORT_PROPERTY, S3_PORT_PROPERTY_DEFAULT))), 0);
+    s3Server.createContext("/", this::handleS3);
+    s3Server.setExecutor(executor);
+    queryServer = HttpServer.create(new InetSocketAddress(host,
+        Integer.parseInt(props.getProperty(QUERY_PORT_PROPERTY, QUERY_PORT_PROPERTY_DEFAULT))), 0);
+    queryServer.createContext("/query", exchange -> handleQuery(exchange, false));
+    queryServer.createContext("/subscribe", exchange -> handleQuery(exchange, true));
+    queryServer.setExecutor(executor);
+    s3Server.start();
+    queryServer.start();
+  }
+
+  public int getS3Port() {
+    return s3Server.getAddress().getPort();
+  }
+
+  public int getQueryPort() {
+    return queryServer.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    for (CountDownLatch subscription : subscriptions) {
+      subscription.countDown();
+    }
+    s3Server.stop(0);
+    queryServer.stop(0);
+    indexer.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  /**
+   * Runs the stand-in until killed.
+   *
+   * @param args name=value properties, or -P and a property file
+   */
+  public static void main(String[] args) throws IOException {
+    Properties props = new Properties();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-P") && i + 1 < args.length) {
+        try (InputStream in = new FileInputStream(args[++i])) {
+          props.load(in);
+        }
+      } else if (args[i].equals("-p") && i + 1 < args.length) {
+        putProperty(props, args[++i]);
+      } else {
+        putProperty(props, args[i]);
+      }
+    }
+    LocalS3Server server = new LocalS3Server(props);
+    System.out.println("S3 stand-in listening on port " + server.getS3Port() + ", queries on port " +
+        server.getQueryPort());
+  }
+
+  private static void putProperty(Properties props, String arg) {
+    int eq = arg.indexOf('=');
+    if (eq < 0) {
+      throw new IllegalArgumentException("Expected name=value, got " + arg);
+    }
+    props.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+  }
+
+  private void handleS3(HttpExchange exchange) throws IOException {
+    try {
+      if (!s3Stage.serve()) {
+        error(exchange, 503, "SlowDown", "Please reduce your request rate.");
+        return;
+      }
+      String path = exchange.getRequestURI().getRawPath().substring(1);
+      int slash = path.indexOf('/');
+      String bucket = QueryClient.decodeComponent(slash < 0 ? path : path.substring(0, slash));
+      String key = slash < 0 || slash == path.length() - 1 ? null : decodePath(path.substring(slash + 1));
+      String method = exchange.getRequestMethod();
+      if (bucket.isEmpty()) {
+        error(exchange, 400, "InvalidRequest", "Only path-style bucket requests are served.");
+      } else if (key == null) {
+        handleBucket(exchange, method, bucket);
+      } else {
+        handleObject(exchange, method, bucket, key);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void handleBucket(HttpExchange exchange, String method, String bucket) throws IOException {
+    switch (method) {
+    case "PUT":
+      buckets.computeIfAbsent(bucket, b -> new ConcurrentSkipListMap<>());
+      exchange.sendResponseHeaders(200, -1);
+      break;
+    case "DELETE":
+      buckets.remove(bucket);
+      exchange.sendResponseHeaders(204, -1);
+      break;
+    case "HEAD":
+      exchange.sendResponseHeaders(buckets.containsKey(bucket) ? 200 : 404, -1);
+      break;
+    case "GET":
+      ConcurrentSkipListMap<String, StoredObject> objects = buckets.get(bucket);
+      if (objects == null) {
+        error(exchange, 404, "NoSuchBucket", "The specified bucket does not exist.");
+      } else {
+        respond(exchange, 200, XML_CONTENT_TYPE,
+            list(bucket, objects, QueryClient.decode(exchange.getRequestURI().getRawQuery())));
+      }
+      break;
+    default:
+      error(exchange, 405, "MethodNotAllowed", "The specified method is not allowed against this resource.");
+    }
+  }
+
+  private void handleObject(HttpExchange exchange, String method, String bucket, String key) throws IOException {
+    ConcurrentSkipListMap<String, StoredObject> objects = buckets.get(bucket);
+    if (objects == null) {
+      error(exchange, 404, "NoSuchBucket", "The specified bucket does not exist.");
+      return;
+    }
+    StoredObject object;
+    switch (method) {
+    case "PUT":
+      object = new StoredObject(readBody(exchange), userMetadata(exchange.getRequestHeaders()));
+      objects.put(key, object);
+      index(() -> index.insertWithAttributes(bucket, key, Collections.emptyMap(), object.metadata, null));
+      exchange.getResponseHeaders().set("ETag", object.etag);
+      exchange.sendResponseHeaders(200, -1);
+      break;
+    case "DELETE":
+      if (objects.remove(key) != null) {
+        index(() -> index.delete(bucket, key));
+      }
+      exchange.sendResponseHeaders(204, -1);
+      break;
+    case "GET":
+    case "HEAD":
+      object = objects.get(key);
+      if (object == null) {
+        error(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+        return;
+      }
+      Headers headers = exchange.getResponseHeaders();
+      headers.set("ETag", object.etag);
+      headers.set("Last-Modified", httpDate(object.lastModified));
+      headers.set("Content-Type", "application/octet-stream");
+      for (Map.Entry<String, String> e : object.metadata.entrySet()) {
+        headers.set(META_PREFIX + e.getKey(), e.getValue());
+      }
+      if (method.equals("HEAD")) {
+        headers.set("Content-Length", String.valueOf(object.body.length));
+        exchange.sendResponseHeaders(200, -1);
+      } else {
+        exchange.sendResponseHeaders(200, object.body.length == 0 ? -1 : object.body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(object.body);
+        }
+      }
+      break;
+    default:
+      error(exchange, 405, "MethodNotAllowed", "The specified method is not allowed against this resource.");
+    }
+  }
+
+  /**
+   * Applies a write to the index once the index lag has passed.
+   */
+  private void index(Runnable update) {
+    if (indexLag.isZero()) {
+      update.run();
+    } else {
+      indexer.schedule(update, indexLag.nextNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void handleQuery(HttpExchange exchange, boolean subscribe) throws IOException {
+    try {
+      if (!queryStage.serve()) {
+        respond(exchange, 503, "text/plain", "Please reduce your request rate.\n");
+        return;
+      }
+      List<String[]> params = parameters(exchange.getRequestURI().getRawQuery());
+      List<String> names = values(params, "name");
+      String[] attributeName = names.toArray(new String[0]);
+      String[] attributeType = values(params, "type").toArray(new String[0]);
+      Object[] lbound = values(params, "lb").toArray();
+      Object[] ubound = values(params, "ub").toArray();
+      List<String> limits = values(params, "limit");
+      if (names.isEmpty() || attributeType.length != names.size() || lbound.length != names.size() ||
+          ubound.length != names.size() || !knownTypes(attributeType) ||
+          (!limits.isEmpty() && !limits.get(0).matches("[0-9]+"))) {
+        respond(exchange, 400, "text/plain", "Expected one name, type, lb and ub per predicate.\n");
+        return;
+      }
+      long limit = limits.isEmpty() ? 0 : Long.parseLong(limits.get(0));
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(200, 0);
+      try (OutputStream out = exchange.getResponseBody()) {
+        if (subscribe) {
+          subscribe(out, attributeName, attributeType, lbound, ubound);
+        } else {
+          index.query(attributeName, attributeType, lbound, ubound, limit, attributes -> {
+              try {
+                writeLine(out, attributes);
+              } catch (IOException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+        }
+      } catch (IllegalStateException e) {
+        // the client went away
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static boolean knownTypes(String[] attributeType) {
+    for (String type : attributeType) {
+      if (!type.equals(MemoryDB.FLOAT_TYPE) && !type.equals(MemoryDB.INT_TYPE) && !type.equals(MemoryDB.STRING_TYPE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Streams the records written within the query until the client disconnects or the server closes.
+   */
+  private void subscribe(OutputStream out, String[] attributeName, String[] attributeType, Object[] lbound,
+                         Object[] ubound) throws IOException {
+    final CountDownLatch finish = new CountDownLatch(1);
+    subscriptions.add(finish);
+    try {
+      // Headers are only sent with the first write, and the client waits for them.
+      out.flush();
+      Status status = index.subscribeQuery(attributeName, attributeType, lbound, ubound, finish, attributes -> {
+          try {
+            writeLine(out, attributes);
+            out.flush();
+          } catch (IOException e) {
+            finish.countDown();
+          }
+        });
+      if (!status.isOk()) {
+        throw new IOException("Could not subscribe: " + status);
+      }
+    } finally {
+      subscriptions.remove(finish);
+    }
+  }
+
+  private static void writeLine(OutputStream out, Map<String, String> attributes) throws IOException {
+    out.write((QueryClient.encode(attributes) + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * The ListBucketResult of a GET of a bucket, version 1 (marker) or 2 (list-type=2, continuation-token).
+   */
+  private static String list(String bucket, ConcurrentSkipListMap<String, StoredObject> objects,
+                             Map<String, String> params) {
+    boolean v2 = "2".equals(params.get("list-type"));
+    String prefix = params.getOrDefault("prefix", "");
+    String after = v2 ? params.getOrDefault("continuation-token", params.getOrDefault("start-after", "")) :
+        params.getOrDefault("marker", "");
+    int maxKeys = params.containsKey("max-keys") ? Integer.parseInt(params.get("max-keys")) : DEFAULT_MAX_KEYS;
+
+    StringBuilder contents = new StringBuilder();
+    int count = 0;
+    String last = null;
+    boolean truncated = false;
+    for (Map.Entry<String, StoredObject> e : objects.tailMap(after, false).entrySet()) {
+      if (!e.getKey().startsWith(prefix)) {
+        if (e.getKey().compareTo(prefix) > 0) {
+          break;
+        }
+        continue;
+      }
+      if (count == maxKeys) {
+        truncated = true;
+        break;
+      }
+      StoredObject object = e.getValue();
+      contents.append("<Contents><Key>").append(xml(e.getKey())).append("</Key><LastModified>")
+          .append(isoDate(object.lastModified)).append("</LastModified><ETag>").append(xml(object.etag))
+          .append("</ETag><Size>").append(object.body.length)
+          .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+      last = e.getKey();
+      count++;
+    }
+
+    StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    sb.append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Name>").append(xml(bucket))
+        .append("</Name><Prefix>").append(xml(prefix)).append("</Prefix><MaxKeys>").append(maxKeys)
+        .append("</MaxKeys><IsTruncated>").append(truncated).append("</IsTruncated>");
+    if (v2) {
+      sb.append("<KeyCount>").append(count).append("</KeyCount>");
+      if (truncated) {
+        sb.append("<NextContinuationToken>").append(xml(last)).append("</NextContinuationToken>");
+      }
+    } else {
+      sb.append("<Marker>").append(xml(after)).append("</Marker>");
+      if (truncated) {
+        sb.append("<NextMarker>").append(xml(last)).append("</NextMarker>");
+      }
+    }
+    return sb.append(contents).append("</ListBucketResult>").toString();
+  }
+
+  /**
+   * Reads the body of an upload, decoding aws-chunked bodies, which the SDK sends over plain HTTP.
+   */
+  private static byte[] readBody(HttpExchange exchange) throws IOException {
+    Headers headers = exchange.getRequestHeaders();
+    String sha = headers.getFirst("x-amz-content-sha256");
+    String encoding = headers.getFirst("Content-Encoding");
+    boolean chunked = (sha != null && sha.startsWith("STREAMING-")) ||
+        (encoding != null && encoding.contains("aws-chunked"));
+    try (InputStream in = exchange.getRequestBody()) {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      byte[] buf = new byte[65536];
+      if (!chunked) {
+        int n;
+        while ((n = in.read(buf)) > 0) {
+          body.write(buf, 0, n);
+        }
+        return body.toByteArray();
+      }
+      while (true) {
+        String header = readLine(in);
+        int semicolon = header.indexOf(';');
+        int size = Integer.parseInt((semicolon < 0 ? header : header.substring(0, semicolon)).trim(), 16);
+        if (size == 0) {
+          return body.toByteArray();
+        }
+        while (size > 0) {
+          int n = in.read(buf, 0, Math.min(size, buf.length));
+          if (n < 0) {
+            throw new EOFException("Truncated aws-chunked body");
+          }
+          body.write(buf, 0, n);
+          size -= n;
+        }
+        readLine(in);
+      }
+    }
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int c;
+    while ((c = in.read()) != '\n') {
+      if (c < 0) {
+        throw new EOFException("Truncated aws-chunked body");
+      }
+      if (c != '\r') {
+        sb.append((char) c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static Map<String, String> userMetadata(Headers headers) {
+    Map<String, String> metadata = new HashMap<>();
+    for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+      String name = e.getKey().toLowerCase(Locale.ROOT);
+      if (name.startsWith(META_PREFIX) && !e.getValue().isEmpty()) {
+        metadata.put(name.substring(META_PREFIX.length()), e.getValue().get(0));
+      }
+    }
+    return metadata;
+  }
+
+  /**
+   * Decodes an object key from the path, where '+' is a plus sign, not a space.
+   */
+  private static String decodePath(String raw) {
+    return QueryClient.decodeComponent(raw.replace("+", "%2B"));
+  }
+
+  private static List<String[]> parameters(String rawQuery) {
+    List<String[]> params = new ArrayList<>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return params;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int eq = pair.indexOf('=');
+      params.add(eq < 0 ? new String[]{QueryClient.decodeComponent(pair), ""} :
+          new String[]{QueryClient.decodeComponent(pair.substring(0, eq)),
+              QueryClient.decodeComponent(pair.substring(eq + 1))});
+    }
+    return params;
+  }
+
+  private static List<String> values(List<String[]> params, String name) {
+    List<String> values = new ArrayList<>();
+    for (String[] param : params) {
+      if (param[0].equals(name)) {
+        values.add(param[1]);
+      }
+    }
+    return values;
+  }
+
+  private static void error(HttpExchange exchange, int code, String errorCode, String message) throws IOException {
+    if (exchange.getRequestMethod().equals("HEAD")) {
+      exchange.sendResponseHeaders(code, -1);
+      return;
+    }
+    respond(exchange, code, XML_CONTENT_TYPE, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + errorCode +
+        "</Code><Message>" + xml(message) + "</Message><Resource>" + xml(exchange.getRequestURI().getRawPath()) +
+        "</Resource></Error>");
+  }
+
+  private static void respond(HttpExchange exchange, int code, String contentType, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static String xml(String s) {
+    return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+  }
+
+  private static String httpDate(long millis) {
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format.format(new Date(millis));
+  }
+
+  private static String isoDate(long millis) {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format.format(new Date(millis));
+  }
+
+  /**
+   * An object with its user metadata.
+   */
+  private static final class StoredObject {
+    private final byte[] body;
+    private final Map<String, String> metadata;
+    private final String etag;
+    private final long lastModified = System.currentTimeMillis();
+
+    private StoredObject(byte[] body, Map<String, String> metadata) {
+      this.body = body;
+      this.metadata = metadata;
+      this.etag = "\"" + md5(body) + "\"";
+    }
+
+    private static String md5(byte[] body) {
+      try {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("MD5").digest(body)) {
+          sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+      } catch (NoSuchAlgorithmException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.standin;
+
+import site.ycsb.SubscriptionListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+/**
+ * A client of the query service of the {@link LocalS3Server}.
+ * <p>
+ * The service answers GET /query and GET /subscribe, with one name, type, lb and ub parameter per predicate in
+ * order and, for queries, an optional limit. The response streams one line per record: its attributes as
+ * URL-encoded name=value pairs joined by '&amp;'. A subscription stays open, streaming the records written within
+ * the query, until the client disconnects.
+ * </p>
+ */
+public final class QueryClient {
+  private final String host;
+  private final int port;
+  private final String base;
+
+  public QueryClient(String host, int port) {
+    this.host = host;
+    this.port = port;
+    base = "http://" + host + ":" + port;
+  }
+
+  /**
+   * Runs a query, passing the attributes of each record to the consumer as they arrive.
+   *
+   * @param limit the most records to return; 0 for all of them
+   * @return the number of records returned
+   */
+  public long query(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                    java.lang.Object []ubound, long limit, Consumer<Map<String, String>> results)
+      throws IOException {
+    HttpURLConnection connection = open("/query?" + queryString(attributeName, attributeType, lbound, ubound) +
+        "&limit=" + limit);
+    long count = 0;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        results.accept(decode(line));
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Subscribes to a query, passing the records delivered to the listener on the calling thread until the latch is
+   * counted down.
+   */
+  public void subscribe(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                        java.lang.Object []ubound, CountDownLatch finishLatch, SubscriptionListener listener)
+      throws IOException {
+    // An HTTP/1.0 request gets a response streamed until the connection closes, and a read blocked on a socket
+    // returns when the socket is closed under it, which a URLConnection does not promise.
+    final Socket socket = new Socket(host, port);
+    Thread closer = new Thread(() -> {
+        try {
+          finishLatch.await();
+          socket.close();
+        } catch (InterruptedException | IOException e) {
+          return;
+        }
+      }, "QueryClient-subscription");
+    closer.setDaemon(true);
+    closer.start();
+    try {
+      OutputStream out = socket.getOutputStream();
+      out.write(("GET /subscribe?" + queryString(attributeName, attributeType, lbound, ubound) + " HTTP/1.0\r\n" +
+          "Host: " + host + ":" + port + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+          StandardCharsets.UTF_8));
+      String status = reader.readLine();
+      if (status == null || !status.matches("HTTP/1\\.[01] 200 .*")) {
+        throw new IOException("Query service answered " + status + " to a subscription");
+      }
+      String line = reader.readLine();
+      while (line != null && !line.isEmpty()) {
+        // skip the headers
+        line = reader.readLine();
+      }
+      line = line == null ? null : reader.readLine();
+      while (line != null) {
+        listener.onRecord(decode(line));
+        line = reader.readLine();
+      }
+    } catch (IOException e) {
+      if (finishLatch.getCount() > 0) {
+        throw e;
+      }
+    } finally {
+      closer.interrupt();
+      socket.close();
+    }
+  }
+
+  private HttpURLConnection open(String path) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+    int code = connection.getResponseCode();
+    if (code != HttpURLConnection.HTTP_OK) {
+      connection.disconnect();
+      throw new IOException("Query service answered " + code + " to " + path);
+    }
+    return connection;
+  }
+
+  static String queryString(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                            java.lang.Object []ubound) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < attributeName.length; i++) {
+      if (i > 0) {
+        sb.append('&');
+      }
+      sb.append("name=").append(encode(attributeName[i]))
+          .append("&type=").append(encode(attributeType[i]))
+          .append("&lb=").append(encode(lbound[i].toString()))
+          .append("&ub=").append(encode(ubound[i].toString()));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Encodes attributes as a line of the response.
+   */
+  static String encode(Map<String, String> attributes) {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, String> e : attributes.entrySet()) {
+      if (sb.length() > 0) {
+        sb.append('&');
+      }
+      sb.append(encode(e.getKey())).append('=').append(encode(e.getValue()));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Decodes a line of the response, or the query string of a request, into its name=value pairs. Of repeated
+   * names, the last one wins.
+   */
+  static Map<String, String> decode(String line) {
+    Map<String, String> attributes = new HashMap<>();
+    if (line == null || line.isEmpty()) {
+      return attributes;
+    }
+    for (String pair : line.split("&")) {
+      int eq = pair.indexOf('=');
+      if (eq < 0) {
+        attributes.put(decodeComponent(pair), "");
+      } else {
+        attributes.put(decodeComponent(pair.substring(0, eq)), decodeComponent(pair.substring(eq + 1)));
+      }
+    }
+    return attributes;
+  }
+
+  static String encode(String s) {
+    try {
+      return URLEncoder.encode(s, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  static String decodeComponent(String s) {
+    try {
+      return URLDecoder.decode(s, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
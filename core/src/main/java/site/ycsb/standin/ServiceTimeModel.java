@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.standin;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A distribution of the time a stand-in service spends on a request, or of a delay such as the lag of index
+ * updates. It is configured by two properties under its name: name.distribution, one of constant, uniform (between
+ * zero and twice the mean) and exponential, and name.ms, the mean in milliseconds.
+ */
+public final class ServiceTimeModel {
+  public static final String DISTRIBUTION_SUFFIX = ".distribution";
+  public static final String DISTRIBUTION_DEFAULT = "constant";
+  public static final String MEAN_SUFFIX = ".ms";
+  public static final String MEAN_DEFAULT = "0";
+
+  /**
+   * The shapes of service time distributions.
+   */
+  private enum Distribution {
+    CONSTANT, UNIFORM, EXPONENTIAL
+  }
+
+  private final Distribution distribution;
+  private final double meanNs;
+
+  public ServiceTimeModel(Properties p, String name) {
+    String d = p.getProperty(name + DISTRIBUTION_SUFFIX, DISTRIBUTION_DEFAULT);
+    try {
+      distribution = Distribution.valueOf(d.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown " + name + DISTRIBUTION_SUFFIX + " " + d);
+    }
+    meanNs = Double.parseDouble(p.getProperty(name + MEAN_SUFFIX, MEAN_DEFAULT)) * 1e6;
+    if (meanNs < 0) {
+      throw new IllegalArgumentException(name + MEAN_SUFFIX + " must not be negative");
+    }
+  }
+
+  /**
+   * @return whether every sample is zero
+   */
+  public boolean isZero() {
+    return meanNs == 0;
+  }
+
+  /**
+   * @return the next sample, in nanoseconds
+   */
+  public long nextNanos() {
+    switch (distribution) {
+    case UNIFORM:
+      return (long) (ThreadLocalRandom.current().nextDouble() * 2 * meanNs);
+    case EXPONENTIAL:
+      return (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanNs);
+    default:
+      return (long) meanNs;
+    }
+  }
+
+  /**
+   * Blocks for the next sample.
+   */
+  public void sleep() {
+    long delayNs = nextNanos();
+    if (delayNs <= 0) {
+      return;
+    }
+    final long deadline = System.nanoTime() + delayNs;
+    do {
+      LockSupport.parkNanos(deadline - System.nanoTime());
+    } while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted());
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.standin;
+
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A service of the stand-in with a fixed number of workers and a bounded queue in front of them. Requests
+ * arriving with the queue full are turned away, as an overloaded S3 answers 503 Slow Down.
+ */
+final class Stage {
+  static final String WORKERS_SUFFIX = ".workers";
+  static final String WORKERS_DEFAULT = "64";
+  static final String QUEUE_DEPTH_SUFFIX = ".queuedepth";
+  static final String QUEUE_DEPTH_DEFAULT = "1024";
+  static final String SERVICE_TIME_SUFFIX = ".servicetime";
+
+  private final ServiceTimeModel serviceTime;
+  private final Semaphore workers;
+  private final int capacity;
+  private final AtomicInteger admitted = new AtomicInteger();
+
+  /**
+   * A stage configured by name.workers, name.queuedepth and the service time model name.servicetime.
+   */
+  Stage(Properties p, String name) {
+    int w = Integer.parseInt(p.getProperty(name + WORKERS_SUFFIX, WORKERS_DEFAULT));
+    int depth = Integer.parseInt(p.getProperty(name + QUEUE_DEPTH_SUFFIX, QUEUE_DEPTH_DEFAULT));
+    if (w <= 0 || depth < 0) {
+      throw new IllegalArgumentException(name + WORKERS_SUFFIX + " must be positive and " + name +
+          QUEUE_DEPTH_SUFFIX + " not negative");
+    }
+    serviceTime = new ServiceTimeModel(p, name + SERVICE_TIME_SUFFIX);
+    workers = new Semaphore(w, true);
+    capacity = w + depth;
+  }
+
+  /**
+   * Queues for a worker and holds it for a service time.
+   *
+   * @return false, without waiting, if the queue is full
+   */
+  boolean serve() throws InterruptedException {
+    if (admitted.incrementAndGet() > capacity) {
+      admitted.decrementAndGet();
+      return false;
+    }
+    try {
+      workers.acquire();
+      try {
+        serviceTime.sleep();
+      } finally {
+        workers.release();
+      }
+    } finally {
+      admitted.decrementAndGet();
+    }
+    return true;
+  }
+}
@@ -21,10 +21,13 @@ import site.ycsb.*;
 import site.ycsb.generator.*;
 import site.ycsb.generator.UniformLongGenerator;
 import site.ycsb.generator.AttributeGenerator;
+import site.ycsb.measurements.MeasurementHandle;
 import site.ycsb.measurements.Measurements;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * The core benchmark scenario. Represents a set of clients doing simple CRUD operations. The
@@ -62,6 +65,8 @@ import java.util.*;
  * digits in the record number.
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed
  * order ("hashed") (default: hashed)
+ * <LI><b>bytekeys</b>: pass record keys as bytes to the synchronous reads, updates and inserts, for
+ * bindings that address records by bytes; not for databases that store attributes (default: false)
  * <LI><b>fieldnameprefix</b>: what should be a prefix for field names, the shorter may decrease the
  * required storage size (default: "field")
  * </ul>
@@ -186,6 +191,11 @@ public class CoreWorkload extends Workload {
    */
   private boolean dataintegrity;
 
+  /**
+   * Shared slab that random field values are sliced from, or null to generate every value.
+   */
+  private ValueSlab valueslab;
+
   /**
    * The name of the property for the proportion of transactions that are reads.
    */
@@ -266,6 +276,16 @@ public class CoreWorkload extends Workload {
    */
   public static final String ZERO_PADDING_PROPERTY_DEFAULT = "1";
 
+  /**
+   * The name of the property for passing record keys to the DB as bytes instead of Strings.
+   */
+  public static final String BYTE_KEYS_PROPERTY = "bytekeys";
+
+  /**
+   * The default is to pass record keys as Strings.
+   */
+  public static final String BYTE_KEYS_PROPERTY_DEFAULT = "false";
+
 
   /**
    * The name of the property for the min scan length (number of records).
@@ -334,6 +354,13 @@ public class CoreWorkload extends Workload {
   public static final String INSERTION_RETRY_LIMIT = "core_workload_insertion_retry_limit";
   public static final String INSERTION_RETRY_LIMIT_DEFAULT = "0";
 
+  /**
+   * How many transaction inserts may be acknowledged ahead of the oldest one still in flight before further
+   * inserts wait for it; a power of two.
+   */
+  public static final String INSERT_ACK_WINDOW_PROPERTY = "insertackwindow";
+  public static final String INSERT_ACK_WINDOW_PROPERTY_DEFAULT = "1048576";
+
   /**
    * On average, how long to wait between the retries, in seconds.
    */
@@ -351,7 +378,7 @@ public class CoreWorkload extends Workload {
   public static final String FIELD_NAME_PREFIX_DEFAULT = "field";
 
   protected NumberGenerator keysequence;
-  protected DiscreteGenerator operationchooser;
+  protected AliasDiscreteGenerator<Operation> operationchooser;
   protected NumberGenerator keychooser;
   protected NumberGenerator fieldchooser;
   protected AcknowledgedCounterGenerator transactioninsertkeysequence;
@@ -362,11 +389,14 @@ public class CoreWorkload extends Workload {
   protected long recordcount;
   protected long attributecount;
   protected int zeropadding;
+  protected KeyEncoder keyencoder;
+  private boolean bytekeys;
   protected int insertionRetryLimit;
   protected int insertionRetryInterval;
   protected boolean s3DB = false;
   private Measurements measurements = Measurements.getMeasurements();
-  private static String clientID;
+  private final MeasurementHandle verifyMeasurement = measurements.getHandle("VERIFY");
+  private final MeasurementHandle readModifyWriteMeasurement = measurements.getHandle("READ-MODIFY-WRITE");
 
   protected static NumberGenerator getFieldLengthGenerator(Properties p) throws WorkloadException {
     NumberGenerator fieldlengthgenerator;
@@ -405,6 +435,11 @@ public class CoreWorkload extends Workload {
   @Override
   public void init(Properties p) throws WorkloadException {
     table = p.getProperty(TABLENAME_PROPERTY, TABLENAME_PROPERTY_DEFAULT);
+    try {
+      Zeta.setProperties(p);
+    } catch (IllegalArgumentException e) {
+      throw new WorkloadException(e.getMessage());
+    }
 
     fieldcount =
         Long.parseLong(p.getProperty(FIELD_COUNT_PROPERTY, FIELD_COUNT_PROPERTY_DEFAULT));
@@ -423,8 +458,6 @@ public class CoreWorkload extends Workload {
     attributecount =
         Long.parseLong(p.getProperty(Client.ATTRIBUTE_COUNT_PROPERTY, Client.DEFAULT_ATTRIBUTE_COUNT));
 
-    clientID = p.getProperty("client", "0");
-
     String attributedataset = p.getProperty(
         Client.ATTRIBUTE_DATASET_PROPERTY, Client.DEFAULT_ATTRIBUTE_DATASET);
 
@@ -448,7 +481,8 @@ public class CoreWorkload extends Workload {
       System.exit(-1);
     }
 
-    if (p.getProperty(Client.DB_PROPERTY, "site.ycsb.BasicDB").equals("site.ycsb.db.S3Client")) {
+    String db = p.getProperty(Client.DB_PROPERTY, "site.ycsb.BasicDB");
+    if (db.equals("site.ycsb.db.S3Client") || db.equals(MemoryDB.class.getName())) {
       s3DB = true;
       attributeGenerator = AttributeGenerator.getInstance(attributedataset, insertstart, insertcount, p);
     }
@@ -471,17 +505,31 @@ public class CoreWorkload extends Workload {
       System.err.println("Must have constant field size to check data integrity.");
       System.exit(-1);
     }
+    if (!dataintegrity) {
+      try {
+        valueslab = ValueSlab.create(p,
+            Long.parseLong(p.getProperty(FIELD_LENGTH_PROPERTY, FIELD_LENGTH_PROPERTY_DEFAULT)));
+      } catch (IllegalArgumentException e) {
+        throw new WorkloadException(e.getMessage());
+      }
+    }
 
     if (p.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") == 0) {
       orderedinserts = false;
     } else {
       orderedinserts = true;
     }
+    keyencoder = new KeyEncoder("user", zeropadding, !orderedinserts);
+    bytekeys = Boolean.parseBoolean(p.getProperty(BYTE_KEYS_PROPERTY, BYTE_KEYS_PROPERTY_DEFAULT));
+    if (bytekeys && s3DB) {
+      throw new WorkloadException(BYTE_KEYS_PROPERTY + " cannot be used with databases that store attributes");
+    }
 
     keysequence = new CounterGenerator(insertstart);
     operationchooser = createOperationGenerator(p);
 
-    transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount);
+    transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount,
+        Integer.parseInt(p.getProperty(INSERT_ACK_WINDOW_PROPERTY, INSERT_ACK_WINDOW_PROPERTY_DEFAULT)));
     if (requestdistrib.compareTo("uniform") == 0) {
       keychooser = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
     } else if (requestdistrib.compareTo("exponential") == 0) {
@@ -547,17 +595,28 @@ public class CoreWorkload extends Workload {
     }
   }
 
-  protected String buildKeyName(long keynum) {
-    if (!orderedinserts) {
-      keynum = Utils.hash(keynum);
-    }
-    String value = Long.toString(keynum);
-    int fill = zeropadding - value.length();
-    String prekey = "user";
-    for (int i = 0; i < fill; i++) {
-      prekey += '0';
+  @Override
+  public int preloadParts(Properties p, int threadcount) {
+    return attributeGenerator == null ? 0 : attributeGenerator.preloadParts(p, threadcount);
+  }
+
+  @Override
+  public void preload(Properties p, DB db, int part, int parts) {
+    if (attributeGenerator != null) {
+      attributeGenerator.preload(p, db, part, parts);
     }
-    return prekey + value;
+  }
+
+  protected String buildKeyName(long keynum) {
+    return keyencoder.buildKeyName(keynum);
+  }
+
+  /**
+   * The name of a byte key to build the values of its record from; only values that can be checked depend on
+   * it, so it is not built otherwise.
+   */
+  private String valueKeyName(KeyEncoder.Key key) {
+    return dataintegrity ? key.toString() : null;
   }
 
   /**
@@ -569,10 +628,9 @@ public class CoreWorkload extends Workload {
     String fieldkey = fieldnames.get(fieldchooser.nextValue().intValue());
     ByteIterator data;
     if (dataintegrity) {
-      data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
+      data = buildDeterministicValue(key, fieldkey);
     } else {
-      // fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+      data = buildRandomValue();
     }
     value.put(fieldkey, data);
 
@@ -588,10 +646,9 @@ public class CoreWorkload extends Workload {
     for (String fieldkey : fieldnames) {
       ByteIterator data;
       if (dataintegrity) {
-        data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
+        data = buildDeterministicValue(key, fieldkey);
       } else {
-        // fill with random data
-        data = new RandomByteIterator(fieldlengthgenerator.nextValue().longValue());
+        data = buildRandomValue();
       }
       values.put(fieldkey, data);
     }
@@ -599,21 +656,22 @@ public class CoreWorkload extends Workload {
   }
 
   /**
-   * Build a deterministic value given the key information.
+   * Builds a random value, sliced from the value slab if there is one.
    */
-  private String buildDeterministicValue(String key, String fieldkey) {
-    int size = fieldlengthgenerator.nextValue().intValue();
-    StringBuilder sb = new StringBuilder(size);
-    sb.append(key);
-    sb.append(':');
-    sb.append(fieldkey);
-    while (sb.length() < size) {
-      sb.append(':');
-      sb.append(sb.toString().hashCode());
+  private ByteIterator buildRandomValue() {
+    long length = fieldlengthgenerator.nextValue().longValue();
+    if (valueslab != null) {
+      return valueslab.slice(length);
     }
-    sb.setLength(size);
+    // fill with random data
+    return new RandomByteIterator(length);
+  }
 
-    return sb.toString();
+  /**
+   * Build a deterministic value given the key information.
+   */
+  private ByteIterator buildDeterministicValue(String key, String fieldkey) {
+    return new DeterministicByteIterator(key, fieldkey, fieldlengthgenerator.nextValue().longValue());
   }
 
   /**
@@ -625,21 +683,23 @@ public class CoreWorkload extends Workload {
   @Override
   public boolean doInsert(DB db, Object threadstate) {
     int keynum = keysequence.nextValue().intValue();
-    String dbkey = buildKeyName(keynum);
+    KeyEncoder.Key key = null;
+    String dbkey;
+    if (bytekeys) {
+      key = keyencoder.encode(keynum);
+      dbkey = valueKeyName(key);
+    } else {
+      dbkey = buildKeyName(keynum);
+    }
     HashMap<String, ByteIterator> values = buildValues(dbkey);
 
-    Map<String, String> attributes = new HashMap<String, String>();
-    if (s3DB) {
-      List<Map<String, String>> attributeList = attributeGenerator.nextValue();
-      for (int i=0; i<attributeList.size() && i < attributecount; i++) {
-        attributes.putAll(attributeList.get(i));
-      }
-      attributeGenerator.tripDistanceInsert(Double.parseDouble(attributes.get("f-trip_distance")));
-    }
+    // byte keys are inserted without attributes
+    Map<String, String> attributes = key != null ? null : buildInsertAttributes();
     Status status;
     int numOfRetries = 0;
     do {
-      status = db.insertWithAttributes(table, dbkey, values, attributes, null);
+      status = key != null ? db.insert(table, key.bytes(), values) :
+          db.insertWithAttributes(table, dbkey, values, attributes, null);
       if (null != status && status.isOk()) {
         break;
       }
@@ -667,6 +727,43 @@ public class CoreWorkload extends Workload {
     return null != status && status.isOk();
   }
 
+  /**
+   * Builds the attributes stored along with a record during the load phase.
+   */
+  private Map<String, String> buildInsertAttributes() {
+    return s3DB ? buildAttributes() : new HashMap<String, String>();
+  }
+
+  /**
+   * Builds the attributes of a newly inserted record from the next dataset entry, noting its query value.
+   */
+  private Map<String, String> buildAttributes() {
+    List<Map<String, String>> attributeList = attributeGenerator.nextValue();
+    Map<String, String> attributes = new HashMap<String, String>();
+    for (int i=0; i<attributeList.size() && i < attributecount; i++) {
+      attributes.putAll(attributeList.get(i));
+    }
+    attributeGenerator.queryValueInsert(attributes);
+    return attributes;
+  }
+
+  /**
+   * Asynchronous variant of {@link #doInsert(DB, Object)}. Insertions that should be retried on failure are
+   * still executed synchronously.
+   */
+  @Override
+  public CompletionStage<Boolean> doInsertAsync(DB db, Object threadstate) {
+    if (insertionRetryLimit > 0) {
+      return super.doInsertAsync(db, threadstate);
+    }
+    int keynum = keysequence.nextValue().intValue();
+    String dbkey = buildKeyName(keynum);
+    HashMap<String, ByteIterator> values = buildValues(dbkey);
+    Map<String, String> attributes = buildInsertAttributes();
+    return db.insertWithAttributesAsync(table, dbkey, values, attributes)
+        .thenApply(status -> null != status && status.isOk());
+  }
+
   /**
    * Do one transaction operation. Because it will be called concurrently from multiple client
    * threads, this function must be thread safe. However, avoid synchronized, or the threads will block waiting
@@ -675,25 +772,25 @@ public class CoreWorkload extends Workload {
    */
   @Override
   public boolean doTransaction(DB db, Object threadstate) {
-    String operation = operationchooser.nextString();
+    Operation operation = operationchooser.nextValue();
     if(operation == null) {
       return false;
     }
 
     switch (operation) {
-    case "READ":
+    case READ:
       doTransactionRead(db);
       break;
-    case "UPDATE":
+    case UPDATE:
       doTransactionUpdate(db);
       break;
-    case "INSERT":
+    case INSERT:
       doTransactionInsert(db);
       break;
-    case "SCAN":
+    case SCAN:
       doTransactionScan(db);
       break;
-    case "QUERY":
+    case QUERY:
       doTransactionQuery(db);
       break;
     default:
@@ -703,6 +800,43 @@ public class CoreWorkload extends Workload {
     return true;
   }
 
+  /**
+   * Asynchronous variant of {@link #doTransaction(DB, Object)}. Reads, updates, inserts and queries are issued
+   * through the asynchronous DB API; scans and read-modify-writes are executed synchronously.
+   */
+  @Override
+  public CompletionStage<Boolean> doTransactionAsync(DB db, Object threadstate) {
+    Operation operation = operationchooser.nextValue();
+    if(operation == null) {
+      return CompletableFuture.completedFuture(false);
+    }
+
+    CompletionStage<Status> stage;
+    switch (operation) {
+    case READ:
+      stage = doTransactionReadAsync(db);
+      break;
+    case UPDATE:
+      stage = doTransactionUpdateAsync(db);
+      break;
+    case INSERT:
+      stage = doTransactionInsertAsync(db);
+      break;
+    case QUERY:
+      stage = doTransactionQueryAsync(db);
+      break;
+    case SCAN:
+      doTransactionScan(db);
+      return CompletableFuture.completedFuture(true);
+    default:
+      doTransactionReadModifyWrite(db);
+      return CompletableFuture.completedFuture(true);
+    }
+
+    // As with doTransaction(), failed operations are measured by the DB layer and do not stop the thread.
+    return stage.handle((status, error) -> true);
+  }
+
   /**
    * Results are reported in the first three buckets of the histogram under
    * the label "VERIFY".
@@ -714,8 +848,10 @@ public class CoreWorkload extends Workload {
     Status verifyStatus = Status.OK;
     long startTime = System.nanoTime();
     if (!cells.isEmpty()) {
+      // the field length is constant when checking data integrity
+      long length = fieldlengthgenerator.nextValue().longValue();
       for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
-        if (!entry.getValue().toString().equals(buildDeterministicValue(key, entry.getKey()))) {
+        if (!DeterministicByteIterator.verify(key, entry.getKey(), length, entry.getValue())) {
           verifyStatus = Status.UNEXPECTED_STATE;
           break;
         }
@@ -725,8 +861,8 @@ public class CoreWorkload extends Workload {
       verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
-    measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
-    measurements.reportStatus("VERIFY", verifyStatus);
+    verifyMeasurement.measure((int) (endTime - startTime) / 1000);
+    verifyMeasurement.reportStatus(verifyStatus);
   }
 
   long nextKeynum() {
@@ -747,8 +883,33 @@ public class CoreWorkload extends Workload {
     // choose a random key
     long keynum = nextKeynum();
 
+    if (bytekeys) {
+      KeyEncoder.Key key = keyencoder.encode(keynum);
+      HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+      db.read(table, key.bytes(), buildReadFields(), cells);
+      if (dataintegrity) {
+        verifyRow(key.toString(), cells);
+      }
+      return;
+    }
+
     String keyname = buildKeyName(keynum);
 
+    HashSet<String> fields = buildReadFields();
+
+    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    Map<String, String> attributes = new HashMap<String, String>();
+    db.readWithAttributes(table, keyname, fields, cells, attributes);
+
+    if (dataintegrity) {
+      verifyRow(keyname, cells);
+    }
+  }
+
+  /**
+   * Chooses the fields a read should return.
+   */
+  private HashSet<String> buildReadFields() {
     HashSet<String> fields = null;
 
     if (!readallfields) {
@@ -761,14 +922,25 @@ public class CoreWorkload extends Workload {
       // pass the full field list if dataintegrity is on for verification
       fields = new HashSet<String>(fieldnames);
     }
+    return fields;
+  }
 
-    HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
-    Map<String, String> attributes = new HashMap<String, String>();
-    db.readWithAttributes(table, keyname, fields, cells, attributes);
+  public CompletionStage<Status> doTransactionReadAsync(DB db) {
+    // choose a random key
+    long keynum = nextKeynum();
 
-    if (dataintegrity) {
-      verifyRow(keyname, cells);
-    }
+    final String keyname = buildKeyName(keynum);
+
+    HashSet<String> fields = buildReadFields();
+
+    final HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+    Map<String, String> attributes = new HashMap<String, String>();
+    return db.readWithAttributesAsync(table, keyname, fields, cells, attributes).thenApply(status -> {
+        if (dataintegrity) {
+          verifyRow(keyname, cells);
+        }
+        return status;
+      });
   }
 
   public void doTransactionReadModifyWrite(DB db) {
@@ -807,7 +979,7 @@ public class CoreWorkload extends Workload {
     db.readWithAttributes(table, keyname, fields, cells, attributes);
 
     List<Map<String, String>> attributeList = attributeGenerator.nextValue();
-    attributeGenerator.tripDistanceInsert(Double.parseDouble(attributes.get("f-trip_distance")));
+    attributeGenerator.queryValueInsert(attributes);
     db.updateWithAttributes(table, keyname, values, attributes);
 
     long en = System.nanoTime();
@@ -816,8 +988,8 @@ public class CoreWorkload extends Workload {
       verifyRow(keyname, cells);
     }
 
-    measurements.measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
-    measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
+    readModifyWriteMeasurement.measure((int) ((en - st) / 1000));
+    readModifyWriteMeasurement.measureIntended((int) ((en - ist) / 1000));
   }
 
   public void doTransactionScan(DB db) {
@@ -843,19 +1015,51 @@ public class CoreWorkload extends Workload {
   }
 
   public void doTransactionQuery(DB db) {
-    String[] attributeName = new String[1];
-    String[] attributeType = new String[1];
-    java.lang.Object[] lbound = new java.lang.Object[1];
-    java.lang.Object[] ubound = new java.lang.Object[1];
+    int predicates = attributeGenerator.queryPredicateCount();
+    String[] attributeName = new String[predicates];
+    String[] attributeType = new String[predicates];
+    java.lang.Object[] lbound = new java.lang.Object[predicates];
+    java.lang.Object[] ubound = new java.lang.Object[predicates];
     long[] en = new long[2];
     attributeGenerator.nextQuery(attributeName, attributeType, lbound, ubound);
     db.query(attributeName, attributeType, lbound, ubound, en);
   }
 
+  public CompletionStage<Status> doTransactionQueryAsync(DB db) {
+    int predicates = attributeGenerator.queryPredicateCount();
+    String[] attributeName = new String[predicates];
+    String[] attributeType = new String[predicates];
+    java.lang.Object[] lbound = new java.lang.Object[predicates];
+    java.lang.Object[] ubound = new java.lang.Object[predicates];
+    attributeGenerator.nextQuery(attributeName, attributeType, lbound, ubound);
+    return db.queryAsync(attributeName, attributeType, lbound, ubound);
+  }
+
+  @Override
+  public FreshnessTracker.Subscription nextSubscription(FreshnessTracker tracker) {
+    if (attributeGenerator == null) {
+      return null;
+    }
+    int predicates = attributeGenerator.queryPredicateCount();
+    String[] attributeName = new String[predicates];
+    String[] attributeType = new String[predicates];
+    java.lang.Object[] lbound = new java.lang.Object[predicates];
+    java.lang.Object[] ubound = new java.lang.Object[predicates];
+    attributeGenerator.nextQuery(attributeName, attributeType, lbound, ubound);
+    return tracker.subscribe(attributeName, attributeType, lbound, ubound);
+  }
+
   public void doTransactionUpdate(DB db) {
     // choose a random key
     long keynum = nextKeynum();
 
+    if (bytekeys) {
+      KeyEncoder.Key key = keyencoder.encode(keynum);
+      String keyname = valueKeyName(key);
+      db.update(table, key.bytes(), writeallfields ? buildValues(keyname) : buildSingleValue(keyname));
+      return;
+    }
+
     String keyname = buildKeyName(keynum);
 
     HashMap<String, ByteIterator> values;
@@ -867,15 +1071,41 @@ public class CoreWorkload extends Workload {
       // update a random field
       values = buildSingleValue(keyname);
     }
+    Map<String, String> attributes = buildUpdateAttributes();
+    db.updateWithAttributes(table, keyname, values, attributes);
+  }
+
+  /**
+   * Builds the attributes written by an update, tagged with the timestamp used to measure freshness.
+   */
+  private Map<String, String> buildUpdateAttributes() {
     Map<String, String> attributes = new HashMap<String, String>();
     List<Map<String, String>> attributeList = attributeGenerator.nextValue();
     for (int i=0; i<attributeList.size() && i < attributecount; i++) {
       attributes.putAll(attributeList.get(i));
     }
-    long ts = System.nanoTime();
-    attributes.put(String.format("freshnessTimestamp_%s", clientID) , String.valueOf(ts));
-    attributeGenerator.tripDistanceInsert(Double.parseDouble(attributes.get("f-trip_distance")));
-    db.updateWithAttributes(table, keyname, values, attributes);
+    attributeGenerator.queryValueInsert(attributes);
+    FreshnessTracker.getTracker().tag(attributes);
+    return attributes;
+  }
+
+  public CompletionStage<Status> doTransactionUpdateAsync(DB db) {
+    // choose a random key
+    long keynum = nextKeynum();
+
+    String keyname = buildKeyName(keynum);
+
+    HashMap<String, ByteIterator> values;
+
+    if (writeallfields) {
+      // new data for all the fields
+      values = buildValues(keyname);
+    } else {
+      // update a random field
+      values = buildSingleValue(keyname);
+    }
+    Map<String, String> attributes = buildUpdateAttributes();
+    return db.updateWithAttributesAsync(table, keyname, values, attributes);
   }
 
   public void doTransactionInsert(DB db) {
@@ -883,33 +1113,66 @@ public class CoreWorkload extends Workload {
     long keynum = transactioninsertkeysequence.nextValue();
 
     try {
+      if (bytekeys) {
+        KeyEncoder.Key key = keyencoder.encode(keynum);
+        String dbkey = valueKeyName(key);
+        db.insert(table, key.bytes(), buildValues(dbkey));
+        return;
+      }
       String dbkey = buildKeyName(keynum);
 
       HashMap<String, ByteIterator> values = buildValues(dbkey);
 
-      List<Map<String, String>> attributeList = attributeGenerator.nextValue();
-      Map<String, String> attributes = new HashMap<String, String>();
-      for (int i=0; i<attributeList.size() && i < attributecount; i++) {
-        attributes.putAll(attributeList.get(i));
-      }
-      attributeGenerator.tripDistanceInsert(Double.parseDouble(attributes.get("f-trip_distance")));
+      Map<String, String> attributes = buildAttributes();
       db.insertWithAttributes(table, dbkey, values, attributes, null);
     } finally {
       transactioninsertkeysequence.acknowledge(keynum);
     }
   }
 
+  public CompletionStage<Status> doTransactionInsertAsync(DB db) {
+    // choose the next key
+    final long keynum = transactioninsertkeysequence.nextValue();
+
+    CompletionStage<Status> stage;
+    try {
+      String dbkey = buildKeyName(keynum);
+
+      HashMap<String, ByteIterator> values = buildValues(dbkey);
+
+      Map<String, String> attributes = buildAttributes();
+      stage = db.insertWithAttributesAsync(table, dbkey, values, attributes);
+    } catch (RuntimeException e) {
+      transactioninsertkeysequence.acknowledge(keynum);
+      throw e;
+    }
+    // the key may only be acknowledged once the record is actually there
+    return stage.whenComplete((status, error) -> transactioninsertkeysequence.acknowledge(keynum));
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
    * when values are not configured.
-   * Current operations are "READ", "UPDATE", "INSERT", "SCAN" and "READMODIFYWRITE".
+   * Current operations are READ, UPDATE, INSERT, SCAN, READMODIFYWRITE and QUERY. The weights are frozen
+   * into an alias table, so choosing the operation of a transaction takes constant time.
    *
    * @param p The properties list to pull weights from.
    * @return A generator that can be used to determine the next operation to perform.
    * @throws IllegalArgumentException if the properties object was null.
    */
-  protected static DiscreteGenerator createOperationGenerator(final Properties p) {
+  protected static AliasDiscreteGenerator<Operation> createOperationGenerator(final Properties p) {
+    return new AliasDiscreteGenerator<>(getOperationWeights(p));
+  }
+
+  /**
+   * The weights of the operations in the properties, for {@link #createOperationGenerator(Properties)}.
+   *
+   * @param p The properties list to pull weights from.
+   * @return The weight of each operation.
+   * @throws IllegalArgumentException if the properties object was null.
+   */
+  protected static Map<Operation, Double> getOperationWeights(final Properties p) {
     if (p == null) {
       throw new IllegalArgumentException("Properties object cannot be null");
     }
@@ -926,29 +1189,29 @@ public class CoreWorkload extends Workload {
     final double queryproportion = Double.parseDouble(
         p.getProperty(QUERY_PROPORTION_PROPERTY, QUERY_PROPORTION_PROPERTY_DEFAULT));
 
-    final DiscreteGenerator operationchooser = new DiscreteGenerator();
+    final Map<Operation, Double> weights = new EnumMap<>(Operation.class);
     if (readproportion > 0) {
-      operationchooser.addValue(readproportion, "READ");
+      weights.put(Operation.READ, readproportion);
     }
 
     if (updateproportion > 0) {
-      operationchooser.addValue(updateproportion, "UPDATE");
+      weights.put(Operation.UPDATE, updateproportion);
     }
 
     if (insertproportion > 0) {
-      operationchooser.addValue(insertproportion, "INSERT");
+      weights.put(Operation.INSERT, insertproportion);
     }
 
     if (scanproportion > 0) {
-      operationchooser.addValue(scanproportion, "SCAN");
+      weights.put(Operation.SCAN, scanproportion);
     }
 
     if (readmodifywriteproportion > 0) {
-      operationchooser.addValue(readmodifywriteproportion, "READMODIFYWRITE");
+      weights.put(Operation.READMODIFYWRITE, readmodifywriteproportion);
     }
     if (queryproportion > 0) {
-      operationchooser.addValue(queryproportion, "QUERY");
+      weights.put(Operation.QUERY, queryproportion);
     }
-    return operationchooser;
+    return weights;
   }
 }
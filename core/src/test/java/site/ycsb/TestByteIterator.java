@@ -17,6 +17,8 @@
 
 package site.ycsb;
 
+import java.nio.ByteBuffer;
+
 import org.testng.annotations.Test;
 import static org.testng.AssertJUnit.*;
 
@@ -36,4 +38,66 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  @Test
+  public void testByteBufferByteIterator() {
+    ByteBuffer buf = ByteBuffer.wrap("0123456789".getBytes()).asReadOnlyBuffer();
+    ByteIterator itor = new ByteBufferByteIterator(buf, 2, 5);
+    assertEquals(5, itor.bytesLeft());
+    assertEquals('2', itor.nextByte());
+    byte[] out = new byte[3];
+    assertEquals(3, itor.nextBuf(out, 0));
+    assertEquals("345", new String(out));
+    assertEquals("6", itor.toString());
+    assertFalse(itor.hasNext());
+
+    itor.reset();
+    ByteBuffer view = itor.toByteBuffer();
+    assertTrue(view.isReadOnly());
+    assertEquals(5, view.remaining());
+    assertEquals('2', view.get(0));
+    assertEquals(0, itor.bytesLeft());
+    // The shared buffer is never moved.
+    assertEquals(0, buf.position());
+    assertEquals(10, buf.limit());
+  }
+
+  @Test
+  public void testDeterministicByteIterator() {
+    int size = 100003;
+    byte[] value = new DeterministicByteIterator("user1", "field0", size).toArray();
+    assertEquals(size, value.length);
+    for (byte b : value) {
+      assertTrue(b >= ' ' && b <= '~');
+    }
+
+    // byte by byte, in odd-sized chunks and after a reset, the bytes are the same
+    ByteIterator itor = new DeterministicByteIterator("user1", "field0", size);
+    assertEquals(value[0], itor.nextByte());
+    byte[] chunk = new byte[13];
+    assertEquals(13, itor.nextBuf(chunk, 0));
+    for (int i = 0; i < chunk.length; i++) {
+      assertEquals(value[1 + i], chunk[i]);
+    }
+    itor.reset();
+    assertEquals(new String(value), itor.toString());
+    assertFalse(itor.hasNext());
+
+    assertFalse(new String(value).equals(new DeterministicByteIterator("user1", "field1", size).toString()));
+    assertFalse(new String(value).equals(new DeterministicByteIterator("user10", "field0", size).toString()));
+  }
+
+  @Test
+  public void testDeterministicByteIteratorVerify() {
+    int size = 100003;
+    byte[] value = new DeterministicByteIterator("user1", "field0", size).toArray();
+    assertTrue(DeterministicByteIterator.verify("user1", "field0", size, new ByteArrayByteIterator(value)));
+    assertTrue(DeterministicByteIterator.verify("user1", "field0", size,
+        new StringByteIterator(new String(value))));
+    assertFalse(DeterministicByteIterator.verify("user1", "field1", size, new ByteArrayByteIterator(value)));
+    assertFalse(DeterministicByteIterator.verify("user1", "field0", size + 1, new ByteArrayByteIterator(value)));
+    assertFalse(DeterministicByteIterator.verify("user1", "field0", size - 1, new ByteArrayByteIterator(value)));
+    value[size - 1]++;
+    assertFalse(DeterministicByteIterator.verify("user1", "field0", size, new ByteArrayByteIterator(value)));
+  }
 }
@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb;
+
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import site.ycsb.measurements.Measurements;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the client threads {@link Client} runs the clients on. Virtual threads are stood in for by
+ * {@link StandInThreads}, so the tests do not depend on the runtime running them.
+ */
+public class TestClient {
+  private static final int CLIENTS = 4;
+  private static final int OPS = 20;
+
+  @BeforeClass
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testVirtualClientThreadsRunToCompletion() throws Exception {
+    Properties props = properties("virtual");
+    ThreadFactory factory = Client.clientThreadFactory(props, StandInThreads.class);
+    assertSame(factory.newThread(() -> { }).getClass(), StandInThread.class);
+    runToCompletion(props, factory);
+  }
+
+  @Test
+  public void testPlatformThreadsWithoutVirtualThreads() throws Exception {
+    Properties props = properties("virtual");
+    ThreadFactory factory = Client.clientThreadFactory(props, Object.class);
+    assertSame(factory.newThread(() -> { }).getClass(), Thread.class);
+    runToCompletion(props, factory);
+  }
+
+  @Test
+  public void testPlatformClientThreads() throws Exception {
+    Properties props = properties("platform");
+    ThreadFactory factory = Client.clientThreadFactory(props, StandInThreads.class);
+    assertSame(factory.newThread(() -> { }).getClass(), Thread.class);
+    runToCompletion(props, factory);
+  }
+
+  @Test
+  public void testVirtualClientThreadsDoNotSpin() throws Exception {
+    Properties props = properties("virtual");
+    props.setProperty("spin.sleep", "true");
+    final ClientThread client = new ClientThread(new BasicDB(), true, new CountingWorkload(), props, OPS, 0.1,
+        new CountDownLatch(1));
+    final AtomicLong cpuNanos = new AtomicLong();
+    Thread thread = new Thread(() -> {
+        client.run();
+        cpuNanos.set(ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime());
+      });
+    long start = System.nanoTime();
+    thread.start();
+    thread.join();
+    long wallNanos = System.nanoTime() - start;
+
+    assertEquals(client.getOpsDone(), OPS);
+    assertTrue(cpuNanos.get() < wallNanos / 2, "spent " + cpuNanos.get() + "ns on cpu of " + wallNanos + "ns");
+  }
+
+  @Test
+  public void testPreloadedDBsStayOpenUntilTheRunEnds() throws Exception {
+    Properties props = properties("platform");
+    Tracer tracer = new Tracer.Builder("YCSB").build();
+    SharedStateDB.RELEASES.set(0);
+    Workload workload = new PreloadingWorkload();
+    List<DB> preloaded = Client.preload(SharedStateDB.class.getName(), props, tracer, workload, CLIENTS);
+    assertEquals(preloaded.size(), 2);
+    assertEquals(SharedStateDB.INSERTED.get(), 2);
+
+    List<ClientThread> clients = new ArrayList<>(CLIENTS);
+    CountDownLatch completeLatch = new CountDownLatch(CLIENTS);
+    for (int i = 0; i < CLIENTS; i++) {
+      DB db = DBFactory.newDB(SharedStateDB.class.getName(), props, tracer);
+      clients.add(new ClientThread(db, true, workload, props, OPS, 0, completeLatch));
+    }
+    for (ClientThread client : clients) {
+      new Thread(client).start();
+    }
+    assertTrue(completeLatch.await(30, TimeUnit.SECONDS));
+    for (ClientThread client : clients) {
+      assertEquals(client.getOpsDone(), OPS);
+      client.cleanupDB();
+    }
+    assertEquals(SharedStateDB.RELEASES.get(), 0);
+
+    Client.cleanupPreloadDBs(preloaded);
+    assertEquals(SharedStateDB.RELEASES.get(), 1);
+  }
+
+  private static Properties properties(String type) {
+    Properties props = new Properties();
+    props.setProperty(Client.CLIENT_THREADS_TYPE_PROPERTY, type);
+    props.setProperty(BasicDB.VERBOSE, "false");
+    return props;
+  }
+
+  private static void runToCompletion(Properties props, ThreadFactory factory) throws Exception {
+    CountDownLatch completeLatch = new CountDownLatch(CLIENTS);
+    List<ClientThread> clients = new ArrayList<>(CLIENTS);
+    List<Thread> threads = new ArrayList<>(CLIENTS);
+    for (int i = 0; i < CLIENTS; i++) {
+      BasicDB db = new BasicDB();
+      db.setProperties(props);
+      ClientThread client = new ClientThread(db, true, new CountingWorkload(), props, OPS, 0, completeLatch);
+      client.setThreadId(i);
+      client.setThreadCount(CLIENTS);
+      clients.add(client);
+      threads.add(factory.newThread(client));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    assertTrue(completeLatch.await(30, TimeUnit.SECONDS));
+    for (ClientThread client : clients) {
+      assertEquals(client.getOpsDone(), OPS);
+    }
+  }
+
+  /**
+   * A workload whose every transaction succeeds without touching the DB.
+   */
+  private static final class CountingWorkload extends Workload {
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      return true;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      return true;
+    }
+  }
+
+  /**
+   * Preloads a record in each of two parts, then reads.
+   */
+  private static final class PreloadingWorkload extends Workload {
+    @Override
+    public int preloadParts(Properties p, int threadcount) {
+      return 2;
+    }
+
+    @Override
+    public void preload(Properties p, DB db, int part, int parts) {
+      if (db.insert("usertable", "user" + part, new HashMap<String, ByteIterator>()).isOk()) {
+        SharedStateDB.INSERTED.incrementAndGet();
+      }
+    }
+
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      return true;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      return db.read("usertable", "user0", null, new HashMap<String, ByteIterator>()).isOk();
+    }
+  }
+
+  /**
+   * A binding whose instances share a connection, opened by the first instance initialized and closed when the
+   * last one is cleaned up, as S3Client's do.
+   */
+  public static final class SharedStateDB extends BasicDB {
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+    private static final AtomicInteger INSERTED = new AtomicInteger();
+    private static final AtomicInteger RELEASES = new AtomicInteger();
+    private static volatile Object connection;
+
+    @Override
+    public void init() {
+      synchronized (SharedStateDB.class) {
+        if (INSTANCES.getAndIncrement() == 0) {
+          connection = new Object();
+        }
+      }
+    }
+
+    @Override
+    public void cleanup() {
+      synchronized (SharedStateDB.class) {
+        if (INSTANCES.decrementAndGet() == 0) {
+          connection = null;
+          RELEASES.incrementAndGet();
+        }
+      }
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return connection != null ? Status.OK : Status.ERROR;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return connection != null ? Status.OK : Status.ERROR;
+    }
+  }
+
+  /**
+   * Has the shape of the virtual thread builder of {@link Thread}.
+   */
+  static final class StandInThreads {
+    private StandInThreads() {
+    }
+
+    public static Builder ofVirtual() {
+      return new Builder();
+    }
+
+    /**
+     * Builds unstarted {@link StandInThread}s.
+     */
+    static final class Builder {
+      public Thread unstarted(Runnable runnable) {
+        return new StandInThread(runnable);
+      }
+    }
+  }
+
+  /**
+   * A thread made by {@link StandInThreads}.
+   */
+  static final class StandInThread extends Thread {
+    StandInThread(Runnable runnable) {
+      super(runnable);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import site.ycsb.measurements.Measurements;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the in-flight mode of {@link ClientThread}.
+ */
+public class TestClientThread {
+  private static final int INFLIGHT = 4;
+
+  private ScheduledExecutorService completer;
+
+  @BeforeClass
+  public void setUp() {
+    Measurements.setProperties(new Properties());
+    completer = Executors.newScheduledThreadPool(2);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    completer.shutdownNow();
+  }
+
+  @Test
+  public void testAtMostInflightOperationsAreOutstanding() throws Exception {
+    LateWorkload workload = new LateWorkload(-1, -1);
+    ClientThread client = run(workload, 200);
+
+    assertEquals(client.getOpsDone(), 200);
+    assertEquals(workload.issued.get(), 200);
+    assertTrue(workload.maxOutstanding.get() <= INFLIGHT, "outstanding " + workload.maxOutstanding.get());
+    assertTrue(workload.maxOutstanding.get() > 1, "the operations were not overlapped");
+    assertEquals(workload.outstanding.get(), 0);
+  }
+
+  @Test
+  public void testRejectedOperationsAreNotCounted() throws Exception {
+    LateWorkload workload = new LateWorkload(10, 11);
+    ClientThread client = run(workload, 200);
+
+    assertTrue(workload.issued.get() < 200, "the client did not stop on a rejected operation");
+    assertTrue(workload.issued.get() > workload.succeeded.get());
+    assertEquals(client.getOpsDone(), workload.succeeded.get());
+    assertEquals(workload.outstanding.get(), 0);
+  }
+
+  private ClientThread run(Workload workload, int opcount) throws Exception {
+    Properties props = new Properties();
+    props.setProperty(ClientThread.IN_FLIGHT_PROPERTY, Integer.toString(INFLIGHT));
+    props.setProperty(BasicDB.VERBOSE, "false");
+    BasicDB db = new BasicDB();
+    db.setProperties(props);
+    CountDownLatch completeLatch = new CountDownLatch(1);
+    ClientThread client = new ClientThread(db, true, workload, props, opcount, 0, completeLatch);
+    Thread thread = new Thread(client);
+    thread.start();
+    assertTrue(completeLatch.await(30, TimeUnit.SECONDS));
+    thread.join();
+    return client;
+  }
+
+  /**
+   * Issues operations that the DB completes a millisecond later from another thread, the operation numbered
+   * {@code rejected} with false and the one numbered {@code failed} with an error.
+   */
+  private final class LateWorkload extends Workload {
+    private final int rejected;
+    private final int failed;
+    private final AtomicInteger issued = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger maxOutstanding = new AtomicInteger();
+
+    private LateWorkload(int rejected, int failed) {
+      this.rejected = rejected;
+      this.failed = failed;
+    }
+
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletionStage<Boolean> doTransactionAsync(DB db, Object threadstate) {
+      final int op = issued.getAndIncrement();
+      int now = outstanding.incrementAndGet();
+      maxOutstanding.accumulateAndGet(now, Math::max);
+      final CompletableFuture<Boolean> stage = new CompletableFuture<>();
+      completer.schedule(() -> {
+          outstanding.decrementAndGet();
+          if (op == failed) {
+            stage.completeExceptionally(new IllegalStateException("operation " + op + " failed"));
+          } else if (op == rejected) {
+            stage.complete(false);
+          } else {
+            succeeded.incrementAndGet();
+            stage.complete(true);
+          }
+        }, 1, TimeUnit.MILLISECONDS);
+      return stage;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb;
+
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the asynchronous operations of {@link DBWrapper}.
+ */
+public class TestDBWrapper {
+  private static final long DELAY_MS = 20;
+  private static final long QUEUED_MS = 50;
+
+  private ScheduledExecutorService completer;
+
+  @BeforeClass
+  public void setUp() {
+    completer = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    completer.shutdownNow();
+  }
+
+  @Test
+  public void testAsyncLatencyIsMeasuredUntilCompletion() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "histogram");
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    Measurements measurements = new Measurements(props);
+    DBWrapper db = new DBWrapper(new LateDB(), new Tracer.Builder("YCSB").build(), measurements);
+
+    long issued = System.nanoTime();
+    measurements.setIntendedStartTimeNs(issued - TimeUnit.MILLISECONDS.toNanos(QUEUED_MS));
+    CompletionStage<Status> stage = db.readWithAttributesAsync("usertable", "user1", null,
+        new HashMap<String, ByteIterator>(), new HashMap<String, String>());
+    assertTrue(System.nanoTime() - issued < TimeUnit.MILLISECONDS.toNanos(DELAY_MS),
+        "the operation blocked the issuing thread");
+    assertEquals(stage.toCompletableFuture().get(10, TimeUnit.SECONDS), Status.OK);
+
+    Map<String, Double> exported = export(measurements);
+    assertEquals(exported.get("READ_WITH_ATTRIBUTES Operations"), 1.0);
+    double latency = exported.get("READ_WITH_ATTRIBUTES MaxLatency(us)");
+    double intended = exported.get("Intended-READ_WITH_ATTRIBUTES MaxLatency(us)");
+    assertTrue(latency >= DELAY_MS * 1000, "latency " + latency);
+    assertTrue(intended >= (DELAY_MS + QUEUED_MS) * 1000, "intended latency " + intended);
+    assertTrue(intended - latency >= QUEUED_MS * 1000, "intended latency " + intended + ", latency " + latency);
+  }
+
+  private static Map<String, Double> export(Measurements measurements) throws Exception {
+    final Map<String, Double> exported = new HashMap<>();
+    measurements.exportMeasurements(new MeasurementsExporter() {
+      @Override
+      public void write(String metric, String measurement, int i) {
+        exported.put(metric + " " + measurement, (double) i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, long i) {
+        exported.put(metric + " " + measurement, (double) i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, double d) {
+        exported.put(metric + " " + measurement, d);
+      }
+
+      @Override
+      public void close() {
+      }
+    }, 0);
+    return exported;
+  }
+
+  /**
+   * A DB completing its reads {@link #DELAY_MS} after they are issued, from another thread.
+   */
+  private final class LateDB extends BasicDB {
+    @Override
+    public CompletionStage<Status> readWithAttributesAsync(String table, String key, Set<String> fields,
+                                                           Map<String, ByteIterator> result,
+                                                           Map<String, String> attributes) {
+      final CompletableFuture<Status> stage = new CompletableFuture<>();
+      completer.schedule(() -> stage.complete(Status.OK), DELAY_MS, TimeUnit.MILLISECONDS);
+      return stage;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package site.ycsb;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link FreshnessTracker}.
+ */
+public class TestFreshnessTracker {
+
+  @BeforeClass
+  public static void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test
+  public void testDeliveriesAreMatchedToExpectedUpdates() throws Exception {
+    FreshnessTracker tracker = FreshnessTracker.getTracker();
+    FreshnessTracker.Subscription subscription = tracker.subscribe(new String[]{"trip_distance"},
+        new String[]{"S3TAGFLT"}, new Object[]{1.0}, new Object[]{2.0});
+    String metric = "FRESHNESS-" + subscription.toString().split(" ")[1];
+
+    Map<String, String> inRange = update("f-trip_distance", "1.5");
+    Map<String, String> outOfRange = update("f-trip_distance", "3.0");
+    tracker.tag(inRange);
+    tracker.tag(outOfRange);
+
+    subscription.onRecord(upperCaseKeys(inRange));
+    subscription.onRecord(outOfRange);
+    subscription.onRecord(update("f-trip_distance", "1.5"));
+
+    Map<String, Double> exported = export(tracker);
+    assertEquals(exported.get(metric + " Expected"), 1.0);
+    assertEquals(exported.get(metric + " Delivered"), 1.0);
+    assertEquals(exported.get(metric + " Unexpected"), 1.0);
+    assertEquals(exported.get(metric + " UndeliveredFraction"), 0.0);
+    assertTrue(exported.get("FRESHNESS Subscriptions") >= 1.0);
+  }
+
+  private static Map<String, String> update(String name, String value) {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put(name, value);
+    return attributes;
+  }
+
+  private static Map<String, String> upperCaseKeys(Map<String, String> attributes) {
+    Map<String, String> upper = new HashMap<>();
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      upper.put(attribute.getKey().toUpperCase(), attribute.getValue());
+    }
+    return upper;
+  }
+
+  private static Map<String, Double> export(FreshnessTracker tracker) throws Exception {
+    final Map<String, Double> exported = new HashMap<>();
+    tracker.exportMeasurements(new MeasurementsExporter() {
+      @Override
+      public void write(String metric, String measurement, int i) {
+        exported.put(metric + " " + measurement, (double) i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, long i) {
+        exported.put(metric + " " + measurement, (double) i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, double d) {
+        exported.put(metric + " " + measurement, d);
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+    return exported;
+  }
+}
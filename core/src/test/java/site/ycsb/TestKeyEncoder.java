@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class TestKeyEncoder {
+  /**
+   * The keys as they used to be built, by concatenation.
+   */
+  private static String concatenated(long keynum, int zeropadding, boolean hashed) {
+    if (hashed) {
+      keynum = Utils.hash(keynum);
+    }
+    String value = Long.toString(keynum);
+    int fill = zeropadding - value.length();
+    String prekey = "user";
+    for (int i = 0; i < fill; i++) {
+      prekey += '0';
+    }
+    return prekey + value;
+  }
+
+  @Test
+  public void testMatchesConcatenation() {
+    long[] special = {0, 1, 9, 10, 99, 100, -1, -10, Long.MAX_VALUE, Long.MIN_VALUE};
+    for (int zeropadding : new int[] {1, 8, 25}) {
+      for (boolean hashed : new boolean[] {false, true}) {
+        KeyEncoder encoder = new KeyEncoder("user", zeropadding, hashed);
+        for (long keynum : special) {
+          assertEquals(encoder.buildKeyName(keynum), concatenated(keynum, zeropadding, hashed));
+        }
+        for (int i = 0; i < 1000; i++) {
+          long keynum = ThreadLocalRandom.current().nextLong(1L << (i % 63));
+          KeyEncoder.Key key = encoder.encode(keynum);
+          String expected = concatenated(keynum, zeropadding, hashed);
+          assertEquals(new String(key.bytes(), StandardCharsets.UTF_8), expected);
+          assertEquals(key.toString(), expected);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReusesTheThreadsKey() {
+    KeyEncoder encoder = new KeyEncoder("user", 8, false);
+    KeyEncoder.Key key = encoder.encode(5);
+    byte[] bytes = key.bytes();
+    String string = key.toString();
+    assertEquals(string, "user00000005");
+    assertSame(key.toString(), string);
+
+    assertSame(encoder.encode(6), key);
+    assertSame(key.bytes(), bytes);
+    assertEquals(key.toString(), "user00000006");
+    assertEquals(encoder.encode(123456789).bytes().length, "user123456789".length());
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestMemoryDB {
+  private static final String[] DISTANCE = {"trip_distance"};
+  private static final String[] FLOAT = {MemoryDB.FLOAT_TYPE};
+
+  private MemoryDB db;
+
+  @BeforeMethod
+  public void setUp() throws DBException {
+    MemoryDB.clear();
+    db = new MemoryDB();
+    db.setProperties(new Properties());
+    db.init();
+  }
+
+  private static Map<String, String> attributes(String distance, String passengers) {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put("f-trip_distance", distance);
+    attributes.put("i-passenger_count", passengers);
+    attributes.put("vendorid", "1");
+    return attributes;
+  }
+
+  private void insert(String key, String distance, String passengers) {
+    Map<String, ByteIterator> values = new HashMap<>();
+    values.put("field0", new StringByteIterator("value-" + key));
+    assertEquals(db.insertWithAttributes("usertable", key, values, attributes(distance, passengers), null),
+        Status.OK);
+  }
+
+  private long count(String[] name, String[] type, Object[] lbound, Object[] ubound) {
+    return db.query(name, type, lbound, ubound, attributes -> { });
+  }
+
+  @Test
+  public void testReadScanUpdateDelete() {
+    insert("user1", "1.5", "1");
+    insert("user2", "2.5", "2");
+    Map<String, ByteIterator> result = new HashMap<>();
+    Map<String, String> attributes = new HashMap<>();
+    assertEquals(db.readWithAttributes("usertable", "user1", null, result, attributes), Status.OK);
+    assertEquals(result.get("field0").toString(), "value-user1");
+    assertEquals(attributes.get("f-trip_distance"), "1.5");
+
+    Vector<HashMap<String, ByteIterator>> scanned = new Vector<>();
+    assertEquals(db.scan("usertable", "user0", 10, null, scanned), Status.OK);
+    assertEquals(scanned.size(), 2);
+    scanned.clear();
+    assertEquals(db.scan("usertable", "user2", 10, null, scanned), Status.OK);
+    assertEquals(scanned.size(), 1);
+
+    Map<String, ByteIterator> values = new HashMap<>();
+    values.put("field1", new StringByteIterator("new"));
+    assertEquals(db.update("usertable", "user1", values), Status.OK);
+    // Updates insert missing records.
+    assertEquals(db.update("usertable", "user3", values), Status.OK);
+    assertEquals(db.read("usertable", "user3", null, new HashMap<>()), Status.OK);
+    result.clear();
+    db.read("usertable", "user1", null, result);
+    assertEquals(result.size(), 2);
+
+    assertEquals(db.delete("usertable", "user1"), Status.OK);
+    assertEquals(db.read("usertable", "user1", null, result), Status.NOT_FOUND);
+    assertEquals(count(DISTANCE, FLOAT, new Object[]{"0"}, new Object[]{"10"}), 1);
+  }
+
+  @Test
+  public void testRangeAndPointQueries() {
+    for (int i = 0; i < 100; i++) {
+      insert("user" + i, String.valueOf(i / 10.0), String.valueOf(i % 4));
+    }
+    assertEquals(count(DISTANCE, FLOAT, new Object[]{"1.0"}, new Object[]{"1.9"}), 10);
+    assertEquals(count(DISTANCE, FLOAT, new Object[]{2.0}, new Object[]{2.0}), 1);
+    assertEquals(count(new String[]{"passenger_count"}, new String[]{MemoryDB.INT_TYPE},
+        new Object[]{"3"}, new Object[]{"3"}), 25);
+    assertEquals(count(new String[]{"vendorid"}, new String[]{MemoryDB.STRING_TYPE},
+        new Object[]{"1"}, new Object[]{"1"}), 100);
+    // Both predicates have to hold.
+    assertEquals(count(new String[]{"trip_distance", "passenger_count"},
+        new String[]{MemoryDB.FLOAT_TYPE, MemoryDB.INT_TYPE},
+        new Object[]{"0", "0"}, new Object[]{"1.9", "1"}), 10);
+    assertEquals(count(DISTANCE, FLOAT, new Object[]{"5"}, new Object[]{"1"}), 0);
+    assertEquals(count(DISTANCE, new String[]{"S3TAGXXX"}, new Object[]{"1"}, new Object[]{"1"}), -1);
+  }
+
+  @Test
+  public void testUpdateMovesIndexEntries() {
+    insert("user1", "1.0", "1");
+    db.updateWithAttributes("usertable", "user1", new HashMap<>(), attributes("5.0", "1"));
+    assertEquals(count(DISTANCE, FLOAT, new Object[]{"0"}, new Object[]{"2"}), 0);
+    assertEquals(count(DISTANCE, FLOAT, new Object[]{"4"}, new Object[]{"6"}), 1);
+  }
+
+  @Test
+  public void testQueryResultCount() throws DBException {
+    for (int i = 0; i < 10; i++) {
+      insert("user" + i, "1.0", "1");
+    }
+    Properties p = new Properties();
+    p.setProperty(MemoryDB.QUERY_RESULT_COUNT_PROPERTY, "3");
+    MemoryDB limited = new MemoryDB();
+    limited.setProperties(p);
+    limited.init();
+    assertEquals(limited.query(DISTANCE, FLOAT, new Object[]{"0"}, new Object[]{"2"}, attributes -> { }), 3);
+  }
+
+  @Test
+  public void testSubscriptionDeliversMatchingWrites() throws InterruptedException {
+    final CountDownLatch finish = new CountDownLatch(1);
+    final CountDownLatch delivered = new CountDownLatch(2);
+    final List<Map<String, String>> records = new ArrayList<>();
+    Thread subscriber = new Thread(() -> {
+        db.subscribeQuery(DISTANCE, FLOAT, new Object[]{"1"}, new Object[]{"2"}, finish, attributes -> {
+            records.add(attributes);
+            delivered.countDown();
+          });
+      });
+    subscriber.start();
+    // Writes before the subscription is open are not delivered, so keep writing until two have been.
+    for (int i = 0; delivered.getCount() > 0 && i < 1000; i++) {
+      insert("out" + i, "5.0", "1");
+      insert("in" + i, "1.5", "1");
+      Thread.sleep(5);
+    }
+    finish.countDown();
+    subscriber.join();
+    assertTrue(records.size() >= 2);
+    for (Map<String, String> record : records) {
+      assertEquals(record.get("f-trip_distance"), "1.5");
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.testng.annotations.Test;
+import site.ycsb.measurements.Measurements;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the {@link MetricsServer}, over localhost.
+ */
+public class TestMetricsServer {
+
+  @Test
+  public void testServesHarvestedIntervals() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(MetricsServer.PORT_PROPERTY, "0");
+    props.setProperty(MetricsServer.HOST_PROPERTY, "127.0.0.1");
+    props.setProperty("hdrhistogram.percentiles", "50,99");
+    Measurements measurements = new Measurements(props);
+
+    try (MetricsServer server = new MetricsServer(props, measurements)) {
+      for (int i = 1; i <= 100; i++) {
+        measurements.measure("READ", i);
+        measurements.reportStatus("READ", Status.OK);
+      }
+      measurements.reportStatus("READ", Status.NOT_FOUND);
+      measurements.collectIntervals();
+
+      String text = get(server, "/metrics");
+      assertTrue(text.contains("# TYPE ycsb_operations_total counter"), text);
+      assertTrue(text.contains("ycsb_operations_total{operation=\"READ\"} 100\n"), text);
+      assertTrue(text.contains("ycsb_interval_operations{operation=\"READ\"} 100\n"), text);
+      assertTrue(text.contains("ycsb_latency_us{operation=\"READ\",quantile=\"0.5\"} 50\n"), text);
+      assertTrue(text.contains("ycsb_latency_us{operation=\"READ\",quantile=\"0.99\"} 99\n"), text);
+      assertTrue(text.contains("ycsb_latency_us_sum{operation=\"READ\"} 5050.0\n"), text);
+      assertTrue(text.contains("ycsb_latency_us_count{operation=\"READ\"} 100\n"), text);
+      assertTrue(!text.contains("ycsb_latency_us_max"), text);
+      assertTrue(text.contains("# TYPE ycsb_latency_max_us gauge\n"), text);
+      assertTrue(text.contains("ycsb_latency_max_us{operation=\"READ\"} 100\n"), text);
+      assertTrue(text.contains("ycsb_status_total{operation=\"READ\",status=\"OK\"} 100\n"), text);
+      assertTrue(text.contains("ycsb_status_total{operation=\"READ\",status=\"NOT_FOUND\"} 1\n"), text);
+      assertTrue(text.contains("ycsb_jvm_threads "), text);
+
+      // a second interval replaces the interval figures and adds to the totals
+      measurements.measure("READ", 1000);
+      measurements.collectIntervals();
+      text = get(server, "/metrics");
+      assertTrue(text.contains("ycsb_operations_total{operation=\"READ\"} 101\n"), text);
+      assertTrue(text.contains("ycsb_interval_operations{operation=\"READ\"} 1\n"), text);
+
+      String json = get(server, "/metrics.json");
+      assertTrue(json.startsWith("{\"operations\":{\"READ\":{\"interval\":{\"count\":1,"), json);
+      assertTrue(json.contains("\"total\":{\"count\":101,"), json);
+      assertTrue(json.contains("\"statuses\":{\"READ\":{\"NOT_FOUND\":1,\"OK\":100}}"), json);
+      assertTrue(json.endsWith("}}}"), json);
+    }
+  }
+
+  @Test
+  public void testDisabledUnlessPortIsSet() {
+    Properties props = new Properties();
+    assertFalse(MetricsServer.isEnabled(props));
+    props.setProperty(MetricsServer.PORT_PROPERTY, "0");
+    assertTrue(MetricsServer.isEnabled(props));
+  }
+
+  private static String get(MetricsServer server, String path) throws IOException {
+    URL url = new URL("http://127.0.0.1:" + server.getPort() + path);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      assertEquals(connection.getResponseCode(), 200);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (InputStream in = connection.getInputStream()) {
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+          out.write(buffer, 0, n);
+        }
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
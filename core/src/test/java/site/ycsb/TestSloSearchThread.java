@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the rate search of the {@link SloSearchThread}, against a system that meets the SLO up to a
+ * given rate.
+ */
+public class TestSloSearchThread {
+
+  private static List<Double> search(Properties props, double capacity) {
+    SloSearchThread.Search search = new SloSearchThread.Search(props);
+    List<Double> rates = new ArrayList<>();
+    for (double rate = search.first(); rate > 0; rate = search.next(rate, rate <= capacity)) {
+      rates.add(rate);
+      assertTrue(rates.size() < 100, "the search does not end");
+    }
+    return rates;
+  }
+
+  private static Properties props(String mode) {
+    Properties props = new Properties();
+    props.setProperty(SloSearchThread.SEARCH_PROPERTY, mode);
+    props.setProperty(SloSearchThread.MIN_RATE_PROPERTY, "1000");
+    props.setProperty(SloSearchThread.MAX_RATE_PROPERTY, "10000");
+    props.setProperty(SloSearchThread.STEP_SIZE_PROPERTY, "1000");
+    props.setProperty(SloSearchThread.PRECISION_PROPERTY, "0.01");
+    return props;
+  }
+
+  @Test
+  public void testBinarySearchConverges() {
+    List<Double> rates = search(props("binary"), 6543);
+    assertEquals(rates.get(0), 1000.0);
+    assertEquals(rates.get(1), 10000.0);
+    assertEquals(rates.get(2), 5500.0);
+    double best = 0;
+    double lowestMissed = Double.MAX_VALUE;
+    for (double rate : rates) {
+      if (rate <= 6543) {
+        best = Math.max(best, rate);
+      } else {
+        lowestMissed = Math.min(lowestMissed, rate);
+      }
+    }
+    assertTrue(best <= 6543 && lowestMissed > 6543);
+    assertTrue(lowestMissed - best <= 0.01 * lowestMissed, best + " " + lowestMissed);
+  }
+
+  @Test
+  public void testBinarySearchStopsAtTheEnds() {
+    assertEquals(search(props("binary"), 500).size(), 1);
+    assertEquals(search(props("binary"), 20000).size(), 2);
+  }
+
+  @Test
+  public void testStepSearchStopsAtTheFirstMiss() {
+    List<Double> rates = search(props("step"), 4500);
+    assertEquals(rates.size(), 5);
+    assertEquals(rates.get(4), 5000.0);
+    assertEquals(search(props("step"), 20000).size(), 10);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownSearch() {
+    new SloSearchThread.Search(props("linear"));
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the {@link SteadyStateDetector}, fed with synthetic one-second intervals.
+ */
+public class TestSteadyStateDetector {
+
+  private static Properties props(String windows, String maxTime) {
+    Properties props = new Properties();
+    props.setProperty(SteadyStateDetector.MODE_PROPERTY, "auto");
+    props.setProperty(SteadyStateDetector.CV_PROPERTY, "0.05");
+    props.setProperty(SteadyStateDetector.WINDOWS_PROPERTY, windows);
+    props.setProperty(SteadyStateDetector.MAX_TIME_PROPERTY, maxTime);
+    return props;
+  }
+
+  /**
+   * An interval of count operations of the given latency, second-th second of the run.
+   */
+  private static Histogram interval(int second, int count, long latency) {
+    Histogram h = new Histogram(3);
+    h.recordValueWithCount(latency, count);
+    h.setStartTimeStamp(second * 1000L);
+    h.setEndTimeStamp((second + 1) * 1000L);
+    return h;
+  }
+
+  @Test
+  public void testEndsOnceSteadyForTheWindows() {
+    AtomicInteger ended = new AtomicInteger();
+    SteadyStateDetector detector = new SteadyStateDetector(props("3", "600"), ended::incrementAndGet);
+    int[] counts = {100, 400, 900, 1000, 1010, 990, 1000, 1000};
+    for (int i = 0; i < counts.length; i++) {
+      detector.onInterval(SteadyStateDetector.WARMUP_METRIC, interval(i, counts[i], 500));
+      // up to 900, 1000, 1010 the windows vary by more than 5%; 1000, 1010, 990 do not
+      if (i < 5) {
+        assertEquals(ended.get(), 0, "at " + i);
+        assertEquals(detector.getWarmupMs(), -1);
+      }
+    }
+    assertEquals(ended.get(), 1);
+    assertTrue(detector.isSteady());
+    assertEquals(detector.getWarmupMs(), 6000);
+  }
+
+  @Test
+  public void testLatencyMustBeSteadyToo() {
+    AtomicInteger ended = new AtomicInteger();
+    SteadyStateDetector detector = new SteadyStateDetector(props("2", "600"), ended::incrementAndGet);
+    detector.onInterval(SteadyStateDetector.WARMUP_METRIC, interval(0, 1000, 5000));
+    detector.onInterval(SteadyStateDetector.WARMUP_METRIC, interval(1, 1000, 1000));
+    assertEquals(ended.get(), 0);
+    detector.onInterval(SteadyStateDetector.WARMUP_METRIC, interval(2, 1000, 1000));
+    assertEquals(ended.get(), 1);
+  }
+
+  @Test
+  public void testEndsAtTheMaximumTimeAndIgnoresOtherMetrics() {
+    AtomicInteger ended = new AtomicInteger();
+    SteadyStateDetector detector = new SteadyStateDetector(props("3", "4"), ended::incrementAndGet);
+    for (int i = 0; i < 6; i++) {
+      detector.onInterval("READ", interval(i, 1000, 100));
+      detector.onInterval(SteadyStateDetector.WARMUP_METRIC, interval(i, i % 2 == 0 ? 100 : 1000, 100));
+    }
+    assertEquals(ended.get(), 1);
+    assertFalse(detector.isSteady());
+    assertEquals(detector.getWarmupMs(), 4000);
+  }
+
+  @Test
+  public void testEnabledOnlyInAutoMode() {
+    Properties props = new Properties();
+    assertFalse(SteadyStateDetector.isEnabled(props));
+    props.setProperty(SteadyStateDetector.MODE_PROPERTY, "auto");
+    assertTrue(SteadyStateDetector.isEnabled(props));
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestValueSlab {
+  @Test
+  public void testDisabledByDefault() {
+    assertNull(ValueSlab.create(new Properties(), 100));
+  }
+
+  @Test
+  public void testGrowsToFitFields() {
+    Properties p = new Properties();
+    p.setProperty(ValueSlab.VALUE_SLAB_PROPERTY, "true");
+    p.setProperty(ValueSlab.VALUE_SLAB_SIZE_PROPERTY, "16");
+    assertEquals(ValueSlab.create(p, 1000).getSize(), 2000);
+  }
+
+  @Test
+  public void testSlicesArePrintableViews() {
+    ValueSlab slab = new ValueSlab(4096);
+    for (int i = 0; i < 100; i++) {
+      ByteIterator value = slab.slice(100);
+      assertTrue(value instanceof ByteBufferByteIterator);
+      assertEquals(value.bytesLeft(), 100);
+      ByteBuffer view = value.toByteBuffer();
+      assertTrue(view.isReadOnly());
+      assertTrue(view.isDirect());
+      assertEquals(view.remaining(), 100);
+      while (view.hasRemaining()) {
+        byte b = view.get();
+        assertTrue(b >= ' ' && b < ' ' + 64);
+      }
+    }
+  }
+
+  @Test
+  public void testLongerThanSlabFallsBack() {
+    ValueSlab slab = new ValueSlab(16);
+    ByteIterator value = slab.slice(100);
+    assertTrue(value instanceof RandomByteIterator);
+    assertEquals(value.toArray().length, 100);
+  }
+}
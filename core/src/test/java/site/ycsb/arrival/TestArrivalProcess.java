@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.arrival;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestArrivalProcess {
+  private static long[] offsets(ArrivalProcess process, int count) {
+    long[] offsets = new long[count];
+    long first = process.nextArrivalNs();
+    for (int i = 1; i < count; i++) {
+      offsets[i] = process.nextArrivalNs() - first;
+    }
+    return offsets;
+  }
+
+  @Test
+  public void testConstant() {
+    long[] offsets = offsets(new ConstantArrivalProcess(1000), 100);
+    for (int i = 0; i < offsets.length; i++) {
+      assertEquals(offsets[i], i * 1000000L);
+    }
+  }
+
+  @Test
+  public void testDropBacklogSkipsPastArrivals() throws InterruptedException {
+    ConstantArrivalProcess process = new ConstantArrivalProcess(1000000);
+    long first = process.nextArrivalNs();
+    Thread.sleep(20);
+    process.dropBacklog();
+    // the arrivals of the last 20 ms at 1M/s are dropped, the next one is due now
+    long next = process.nextArrivalNs();
+    assertTrue(next - first >= 20000000L, "next " + (next - first));
+    assertTrue(next <= System.nanoTime());
+  }
+
+  @Test
+  public void testPoissonMeanRate() {
+    int count = 100000;
+    long[] offsets = offsets(new PoissonArrivalProcess(10000), count);
+    double rate = (count - 1) / (offsets[count - 1] / 1e9);
+    assertTrue(Math.abs(rate - 10000) < 200, "rate " + rate);
+  }
+
+  @Test
+  public void testOnOffSkipsSilences() {
+    long on = 10000000L;
+    long off = 30000000L;
+    int count = 100000;
+    long[] offsets = offsets(new OnOffArrivalProcess(10000, on, off), count);
+    for (long offset : offsets) {
+      assertTrue(offset % (on + off) < on);
+    }
+    double rate = (count - 1) / (offsets[count - 1] / 1e9);
+    assertTrue(Math.abs(rate - 10000) < 500, "rate " + rate);
+  }
+
+  @Test
+  public void testCurve() throws IOException {
+    File file = File.createTempFile("curve", ".txt");
+    file.deleteOnExit();
+    try (FileWriter writer = new FileWriter(file)) {
+      writer.write("# seconds rate\n0 1000\n1, 0\n2 3000\n4 0\n");
+    }
+    Properties props = new Properties();
+    props.setProperty(ArrivalProcess.ARRIVAL_PROPERTY, "curve");
+    props.setProperty(ArrivalProcess.CURVE_FILE_PROPERTY, file.getPath());
+    ArrivalProcess process = ArrivalProcess.create(props, 0);
+    // (1000 * 1 + 3000 * 2) / 4 seconds
+    assertEquals(process.getRate(), 1750.0, 1e-9);
+
+    long[] offsets = offsets(process, 20000);
+    int[] perSecond = new int[4];
+    for (long offset : offsets) {
+      perSecond[(int) (offset / 1000000000L % 4)]++;
+    }
+    assertEquals(perSecond[1], 0);
+    assertTrue(perSecond[2] + perSecond[3] > 5 * perSecond[0], perSecond[0] + " vs " + perSecond[2]);
+
+    process.setRate(3500);
+    long from = process.nextArrivalNs();
+    assertTrue(process.nextArrivalNs() >= from);
+  }
+
+  @Test
+  public void testFixedIsDefault() throws IOException {
+    assertNull(ArrivalProcess.create(new Properties(), 100));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testPoissonNeedsTarget() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(ArrivalProcess.ARRIVAL_PROPERTY, "poisson");
+    ArrivalProcess.create(props, 0);
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.coordinator;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the {@link CoordinatorServer} and {@link CoordinatorClient}, over localhost.
+ */
+public class TestCoordinator {
+
+  @BeforeClass
+  public static void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  @Test(timeOut = 30000)
+  public void testClientsStartTogetherAndIntervalsAreMerged() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(CoordinatorProtocol.PORT_PROPERTY, "0");
+    props.setProperty(CoordinatorServer.CLIENTS_PROPERTY, "3");
+    props.setProperty(CoordinatorServer.START_DELAY_PROPERTY, "300");
+    props.setProperty(CoordinatorProtocol.INTERVAL_PROPERTY, "100");
+
+    final ConcurrentLinkedQueue<Long> starts = new ConcurrentLinkedQueue<>();
+    final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    try (CoordinatorServer server = new CoordinatorServer(props)) {
+      final Properties clientProps = new Properties();
+      clientProps.setProperty(CoordinatorProtocol.PORT_PROPERTY, Integer.toString(server.getPort()));
+      List<Thread> clients = new ArrayList<>();
+      for (int c = 0; c < 3; c++) {
+        final int client = c;
+        Thread thread = new Thread(() -> {
+            try (CoordinatorClient coordinator = new CoordinatorClient(clientProps)) {
+              coordinator.awaitStart();
+              starts.add(System.nanoTime());
+              Histogram interval = new Histogram(3);
+              for (int i = 1; i <= 100; i++) {
+                interval.recordValue(i * (client + 1));
+              }
+              coordinator.onInterval("READ", interval);
+              coordinator.onInterval("READ", interval);
+            } catch (Throwable t) {
+              failures.add(t);
+            }
+          });
+        thread.start();
+        clients.add(thread);
+      }
+      server.run();
+      for (Thread thread : clients) {
+        thread.join();
+      }
+      assertTrue(failures.isEmpty(), failures.toString());
+
+      long first = Long.MAX_VALUE;
+      long last = Long.MIN_VALUE;
+      for (long start : starts) {
+        first = Math.min(first, start);
+        last = Math.max(last, start);
+      }
+      assertEquals(starts.size(), 3);
+      assertTrue(last - first < TimeUnit.MILLISECONDS.toNanos(100), "start skew " + (last - first) + " ns");
+
+      final Map<String, Number> exported = new HashMap<>();
+      server.exportMeasurements(new MeasurementsExporter() {
+        @Override
+        public void write(String metric, String measurement, int i) {
+          exported.put(metric + " " + measurement, i);
+        }
+
+        @Override
+        public void write(String metric, String measurement, long i) {
+          exported.put(metric + " " + measurement, i);
+        }
+
+        @Override
+        public void write(String metric, String measurement, double d) {
+          exported.put(metric + " " + measurement, d);
+        }
+
+        @Override
+        public void close() {
+        }
+      });
+      assertEquals(exported.get("CLUSTER Clients"), 3);
+      assertEquals(exported.get("READ Operations"), 600L);
+      assertEquals(exported.get("READ MaxLatency(us)"), 300L);
+      assertEquals(exported.get("READ MinLatency(us)"), 1L);
+    }
+  }
+}
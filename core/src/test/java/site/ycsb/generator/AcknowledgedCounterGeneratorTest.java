@@ -16,12 +16,17 @@
  */
 package site.ycsb.generator;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertEquals;
+
 /**
  * Tests for the AcknowledgedCounterGenerator class.
  */
@@ -58,4 +63,58 @@ public class AcknowledgedCounterGeneratorTest {
     }
 
   }
+
+  /**
+   * Test that the limit only covers contiguous acknowledgements.
+   */
+  @Test
+  public void testLimitStopsAtTheFirstGap() {
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(10, 16);
+    for (int i = 0; i < 5; i++) {
+      generator.nextValue();
+    }
+    generator.acknowledge(11);
+    generator.acknowledge(12);
+    assertEquals(generator.lastValue().longValue(), 9L);
+    generator.acknowledge(10);
+    assertEquals(generator.lastValue().longValue(), 12L);
+    generator.acknowledge(14);
+    assertEquals(generator.lastValue().longValue(), 12L);
+    generator.acknowledge(13);
+    assertEquals(generator.lastValue().longValue(), 14L);
+  }
+
+  /**
+   * Test that many threads acknowledging out of order, with more values in flight than the window holds, all
+   * get through and the limit ends at the last value.
+   */
+  @Test(timeOut = 60000)
+  public void testConcurrentAcknowledgementsBeyondTheWindow() throws InterruptedException {
+    final int perThread = 20000;
+    final AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0, 64);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(() -> {
+          for (int i = 0; i < perThread; i++) {
+            long value = generator.nextValue();
+            if (ThreadLocalRandom.current().nextInt(100) == 0) {
+              Thread.yield();
+            }
+            generator.acknowledge(value);
+          }
+        }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(generator.lastValue().longValue(), 8L * perThread - 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWindowMustBeAPowerOfTwo() {
+    new AcknowledgedCounterGenerator(0, 100);
+  }
 }
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link AliasDiscreteGenerator}.
+ */
+public class TestAliasDiscreteGenerator {
+
+  private static Map<String, Double> weights(Object... pairs) {
+    Map<String, Double> weights = new LinkedHashMap<>();
+    for (int i = 0; i < pairs.length; i += 2) {
+      weights.put((String) pairs[i], ((Number) pairs[i + 1]).doubleValue());
+    }
+    return weights;
+  }
+
+  @Test
+  public void testTableMatchesTheWeights() {
+    AliasDiscreteGenerator<String> generator =
+        new AliasDiscreteGenerator<>(weights("a", 0.5, "b", 0.05, "c", 3, "d", 0.45, "e", 0));
+    double sum = 4;
+    assertEquals(generator.probability("a"), 0.5 / sum, 1e-12);
+    assertEquals(generator.probability("b"), 0.05 / sum, 1e-12);
+    assertEquals(generator.probability("c"), 3 / sum, 1e-12);
+    assertEquals(generator.probability("d"), 0.45 / sum, 1e-12);
+    assertEquals(generator.probability("e"), 0.0);
+  }
+
+  @Test
+  public void testDrawsFollowTheWeights() {
+    AliasDiscreteGenerator<String> generator = new AliasDiscreteGenerator<>(weights("a", 1, "b", 2, "c", 7));
+    int draws = 100000;
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    for (int i = 0; i < draws; i++) {
+      counts.merge(generator.nextValue(), 1, Integer::sum);
+    }
+    assertEquals(counts.size(), 3);
+    assertTrue(Math.abs(counts.get("a") / (double) draws - 0.1) < 0.01, counts.toString());
+    assertTrue(Math.abs(counts.get("b") / (double) draws - 0.2) < 0.01, counts.toString());
+    assertTrue(Math.abs(counts.get("c") / (double) draws - 0.7) < 0.01, counts.toString());
+  }
+
+  @Test
+  public void testSingleAndNoValue() {
+    AliasDiscreteGenerator<String> single = new AliasDiscreteGenerator<>(weights("only", 0.2));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(single.nextValue(), "only");
+    }
+    assertEquals(single.lastValue(), "only");
+    assertNull(new AliasDiscreteGenerator<>(weights("none", 0)).nextValue());
+  }
+}
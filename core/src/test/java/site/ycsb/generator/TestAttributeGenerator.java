@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestAttributeGenerator {
+  private static AttributeGenerator generator(Properties props) throws IOException {
+    File csv = File.createTempFile("dataset", ".csv");
+    csv.deleteOnExit();
+    try (FileWriter writer = new FileWriter(csv)) {
+      writer.write("header\n");
+    }
+    props.setProperty(AttributeGenerator.CACHED_QUERY_PROPORTION_PROPERTY, "0");
+    return new AttributeGenerator(csv.getPath(), 0, 10000, props);
+  }
+
+  @Test
+  public void testRangeQueriesMatchTheSelectivity() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(AttributeGenerator.QUERY_TYPE_PROPERTY, "range");
+    props.setProperty(AttributeGenerator.QUERY_SELECTIVITY_PROPERTY, "0.05");
+    AttributeGenerator generator = generator(props);
+    double[] distances = new double[10000];
+    for (int i = 0; i < distances.length; i++) {
+      // skewed towards short trips, with repeats
+      distances[i] = Math.floor(Math.pow(i / 100.0, 2)) / 10;
+      Map<String, String> attributes = new HashMap<>();
+      attributes.put("f-trip_distance", String.valueOf(distances[i]));
+      generator.queryValueInsert(attributes);
+    }
+
+    assertEquals(generator.queryPredicateCount(), 1);
+    String[] name = new String[1];
+    String[] type = new String[1];
+    Object[] lbound = new Object[1];
+    Object[] ubound = new Object[1];
+    for (int q = 0; q < 100; q++) {
+      generator.nextQuery(name, type, lbound, ubound);
+      assertEquals(name[0], "trip_distance");
+      assertEquals(type[0], "S3TAGFLT");
+      double lower = Double.parseDouble((String) lbound[0]);
+      double upper = Double.parseDouble((String) ubound[0]);
+      int matching = 0;
+      for (double distance : distances) {
+        if (distance >= lower && distance <= upper) {
+          matching++;
+        }
+      }
+      // at least the target, and no more than the target plus the repeats of the two bounding values
+      assertTrue(matching >= 500 && matching <= 500 + 2 * 200, "matched " + matching);
+    }
+  }
+
+  @Test
+  public void testRangeQueriesBeforeAnyInsertMatchEverything() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(AttributeGenerator.QUERY_TYPE_PROPERTY, "range");
+    props.setProperty(AttributeGenerator.QUERY_SELECTIVITY_PROPERTY, "1");
+    AttributeGenerator generator = generator(props);
+    String[] name = new String[1];
+    String[] type = new String[1];
+    Object[] lbound = new Object[1];
+    Object[] ubound = new Object[1];
+    generator.nextQuery(name, type, lbound, ubound);
+    assertEquals(Double.parseDouble((String) lbound[0]), -Double.MAX_VALUE);
+    assertEquals(Double.parseDouble((String) ubound[0]), Double.MAX_VALUE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSelectivityAboveOneIsRejected() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(AttributeGenerator.QUERY_SELECTIVITY_PROPERTY, "1.5");
+    generator(props);
+  }
+
+  @Test
+  public void testConjunctivePointQueries() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(AttributeGenerator.QUERY_ATTRIBUTES_PROPERTY, "f-trip_distance,i-passenger_count");
+    props.setProperty(AttributeGenerator.QUERY_PREDICATES_PROPERTY, "2");
+    AttributeGenerator generator = generator(props);
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put("f-trip_distance", "1.5");
+    attributes.put("i-passenger_count", "3");
+    generator.queryValueInsert(attributes);
+
+    String[] name = new String[2];
+    String[] type = new String[2];
+    Object[] lbound = new Object[2];
+    Object[] ubound = new Object[2];
+    generator.nextQuery(name, type, lbound, ubound);
+    for (int i = 0; i < 2; i++) {
+      if (name[i].equals("passenger_count")) {
+        assertEquals(type[i], "S3TAGINT");
+        assertEquals(lbound[i], "3");
+      } else {
+        assertEquals(name[i], "trip_distance");
+        assertEquals(type[i], "S3TAGFLT");
+        assertEquals(lbound[i], "1.5");
+      }
+      assertEquals(ubound[i], lbound[i]);
+    }
+    assertTrue(!name[0].equals(name[1]));
+  }
+
+  @Test
+  public void testPartitionedFilePreloadSavesASnapshot() throws Exception {
+    File csv = File.createTempFile("dataset", ".csv");
+    csv.deleteOnExit();
+    try (FileWriter writer = new FileWriter(csv)) {
+      writer.write("header\n");
+      for (int i = 0; i < 1100; i++) {
+        writer.write("1,2020-01-01 00:00:00,2020-01-01 00:10:00," + (i % 3) + "," + (i % 7) / 2.0 +
+            ",1,N,1,1,1,1,0,0,0,0,0,1,0\n");
+      }
+    }
+    File snapshot = File.createTempFile("queryvalues", ".snapshot");
+    snapshot.deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(AttributeGenerator.QUERY_ATTRIBUTES_PROPERTY, "f-trip_distance,i-passenger_count");
+    props.setProperty(AttributeGenerator.PRELOAD_PROPERTY, "file");
+    props.setProperty(AttributeGenerator.PRELOAD_SNAPSHOT_PROPERTY, snapshot.getPath());
+    final AttributeGenerator preloaded = new AttributeGenerator(csv.getPath(), 50, 1000, props);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int part = t;
+      threads.add(new Thread(() -> preloaded.preload(props, null, part, 4)));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    DistinctValueIndex.Distribution preloadedDistances = preloaded.queryValueDistribution(0);
+    assertEquals(preloadedDistances.total(), 1000);
+    assertEquals(preloaded.nextValue().get(4).get("f-trip_distance"), String.valueOf((1050 % 7) / 2.0));
+
+    props.setProperty(AttributeGenerator.PRELOAD_PROPERTY, "snapshot");
+    AttributeGenerator loaded = new AttributeGenerator(csv.getPath(), 50, 1000, props);
+    loaded.preload(props, null);
+    DistinctValueIndex.Distribution loadedDistances = loaded.queryValueDistribution(0);
+    assertEquals(loadedDistances.total(), 1000);
+    for (double distance = 0; distance <= 3; distance += 0.5) {
+      assertEquals(loadedDistances.count(distance, distance), preloadedDistances.count(distance, distance));
+    }
+    assertEquals(loaded.queryValueDistribution(1).count(0, 0), preloaded.queryValueDistribution(1).count(0, 0));
+    assertEquals(loaded.nextValue().get(4).get("f-trip_distance"), String.valueOf((1050 % 7) / 2.0));
+  }
+
+  @Test
+  public void testColumnarLastValueIsPerThread() throws Exception {
+    File csv = File.createTempFile("dataset", ".csv");
+    csv.deleteOnExit();
+    try (FileWriter writer = new FileWriter(csv)) {
+      writer.write("header\n");
+      for (int i = 0; i < 4; i++) {
+        writer.write("1,2020-01-01 00:00:00,2020-01-01 00:10:00,1," + i + ",1,N,1,1,1,1,0,0,0,0,0,1,0\n");
+      }
+    }
+    new File(csv.getPath() + ".col").deleteOnExit();
+    Properties props = new Properties();
+    props.setProperty(AttributeGenerator.DATASET_FORMAT_PROPERTY, "columnar");
+    final AttributeGenerator generator = new AttributeGenerator(csv.getPath(), 0, 4, props);
+
+    List<Map<String, String>> mine = generator.nextValue();
+    final List<List<Map<String, String>>> theirs = new ArrayList<>();
+    Thread other = new Thread(() -> {
+        List<Map<String, String>> next = generator.nextValue();
+        theirs.add(next);
+        theirs.add(generator.lastValue());
+      });
+    other.start();
+    other.join();
+
+    assertEquals(generator.lastValue(), mine);
+    assertEquals(theirs.get(1), theirs.get(0));
+    assertTrue(!theirs.get(0).equals(mine));
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestColumnarDataset {
+  private static final String[] ROWS = {
+      "1,2019-01-01 00:46:40,2019-01-01 00:53:20,1,1.50,1,N,151,239,1,7,0.5,0.5,1.65,0,0.3,9.95,",
+      "2,2019-01-01 00:59:47,2019-01-01 01:18:59,1,2.60,1,N,239,246,1,14,0.5,0.5,1,0,0.3,16.3,2.5",
+      "2,2018-12-21 13:48:30,2018-12-21 13:52:40,3,.00,1,Y,236,236,1,4.5,0.5,0.5,0,0,0.3,5.8,-0.5",
+      "1,2019-01-01 00:21:28,2019-01-01 00:28:37,1,-1.30,1,N,163,229,2,6.5,0.5,0.5,1.25,5.76,0.3,7.8,0",
+  };
+
+  @Test
+  public void testValuesRoundTrip() throws IOException {
+    File csv = File.createTempFile("dataset", ".csv");
+    csv.deleteOnExit();
+    try (FileWriter writer = new FileWriter(csv)) {
+      writer.write("VendorID,pickup,dropoff,passengers,distance,rate,flag,pu,do,payment,fare,extra,mta,tip,tolls," +
+          "surcharge,total,congestion\n");
+      for (String row : ROWS) {
+        writer.write(row + "\n");
+      }
+    }
+    File converted = new File(csv.getPath() + ".col");
+    converted.deleteOnExit();
+    ColumnarDataset dataset = ColumnarDataset.openOrConvert(csv.getPath(), AttributeGenerator.ATTRIBUTE_NAMES);
+
+    assertEquals(dataset.rows(), ROWS.length);
+    for (int pass = 0; pass < 2; pass++) {
+      for (String row : ROWS) {
+        String[] expected = row.split(",", -1);
+        List<Map<String, String>> actual = dataset.next();
+        assertEquals(actual.size(), AttributeGenerator.ATTRIBUTE_NAMES.length);
+        for (int i = 0; i < actual.size(); i++) {
+          assertEquals(actual.get(i), Collections.singletonMap(AttributeGenerator.ATTRIBUTE_NAMES[i], expected[i]));
+        }
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testEmptyDatasetIsRejected() throws IOException {
+    File csv = File.createTempFile("dataset", ".csv");
+    csv.deleteOnExit();
+    try (FileWriter writer = new FileWriter(csv)) {
+      writer.write("VendorID,pickup,dropoff\n");
+    }
+    File converted = new File(csv.getPath() + ".col");
+    converted.deleteOnExit();
+    ColumnarDataset.openOrConvert(csv.getPath(), AttributeGenerator.ATTRIBUTE_NAMES);
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestDistinctValueIndex {
+  @Test
+  public void testAddAndGet() {
+    DistinctValueIndex index = new DistinctValueIndex(4);
+    assertTrue(index.add(1.5));
+    assertTrue(index.add(0.0));
+    assertFalse(index.add(1.5));
+    assertFalse(index.add(-0.0));
+    assertTrue(index.add(Double.NaN));
+    assertFalse(index.add(Double.NaN));
+    assertEquals(index.size(), 3);
+    assertEquals(index.get(0), 1.5);
+    assertEquals(index.get(1), 0.0);
+    assertTrue(Double.isNaN(index.get(2)));
+    assertEquals(index.count(0), 2);
+    assertEquals(index.count(1), 2);
+  }
+
+  @Test
+  public void testConcurrentAddsGrowTheTable() throws InterruptedException {
+    final DistinctValueIndex index = new DistinctValueIndex(16);
+    final int distinct = 50000;
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+          for (int i = 0; i < distinct; i++) {
+            index.add(i / 100.0);
+          }
+        });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(index.size(), distinct);
+    Set<Double> values = new HashSet<>();
+    long total = 0;
+    for (int i = 0; i < index.size(); i++) {
+      values.add(index.get(i));
+      total += index.count(i);
+    }
+    assertEquals(values.size(), distinct);
+    assertEquals(total, (long) distinct * threads.length);
+  }
+
+  @Test
+  public void testConcurrentGrowsOfDisjointValues() throws InterruptedException {
+    for (int round = 0; round < 20; round++) {
+      // every thread adds its own values, so they all run into full tables and grow at the same time
+      final DistinctValueIndex index = new DistinctValueIndex(16);
+      final int perThread = 20000;
+      Thread[] threads = new Thread[8];
+      for (int t = 0; t < threads.length; t++) {
+        final int offset = t * perThread;
+        threads[t] = new Thread(() -> {
+            for (int i = 0; i < perThread; i++) {
+              index.add(offset + i);
+            }
+          });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        thread.join(60000);
+        assertFalse(thread.isAlive(), "an add never finished");
+      }
+      assertEquals(index.size(), perThread * threads.length);
+      Set<Double> values = new HashSet<>();
+      for (int i = 0; i < index.size(); i++) {
+        values.add(index.get(i));
+        assertEquals(index.count(i), 1);
+      }
+      assertEquals(values.size(), perThread * threads.length);
+      // every value is still found, as a repeat, in the table left after the grows
+      for (int i = 0; i < perThread * threads.length; i += 97) {
+        assertFalse(index.add(i));
+      }
+    }
+  }
+
+  @Test
+  public void testDistribution() {
+    DistinctValueIndex index = new DistinctValueIndex();
+    for (int i = 0; i < 10; i++) {
+      // value v is added v times, in no particular order
+      int value = (i * 7) % 10 + 1;
+      for (int j = 0; j < value; j++) {
+        index.add(value);
+      }
+    }
+    DistinctValueIndex.Distribution distribution = index.distribution();
+    assertEquals(distribution.total(), 55);
+    assertEquals(distribution.valueOfRank(0), 1.0);
+    assertEquals(distribution.valueOfRank(1), 2.0);
+    assertEquals(distribution.valueOfRank(2), 2.0);
+    assertEquals(distribution.valueOfRank(3), 3.0);
+    assertEquals(distribution.valueOfRank(54), 10.0);
+    assertEquals(distribution.count(2, 3), 5);
+    assertEquals(distribution.count(2.5, 3.5), 3);
+    assertEquals(distribution.count(0, 100), 55);
+  }
+
+  @Test
+  public void testAddTimes() {
+    DistinctValueIndex index = new DistinctValueIndex();
+    assertTrue(index.add(1.5, 3));
+    assertFalse(index.add(1.5, 2));
+    index.add(2.5);
+    assertEquals(index.size(), 2);
+    assertEquals(index.count(0), 5);
+    assertEquals(index.distribution().total(), 6);
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPreviousQueries {
+  private static void add(PreviousQueries queries, String value) {
+    queries.addQuery(new String[]{"trip_distance"}, new String[]{"S3TAGFLT"}, new String[]{value},
+        new String[]{value});
+  }
+
+  private static String next(PreviousQueries queries) {
+    String[] name = new String[1];
+    String[] type = new String[1];
+    Object[] lbound = new Object[1];
+    Object[] ubound = new Object[1];
+    queries.nextQuery(name, type, lbound, ubound);
+    assertEquals(name[0], "trip_distance");
+    assertEquals(lbound[0], ubound[0]);
+    return (String) lbound[0];
+  }
+
+  @Test
+  public void testEvictsLeastRecent() {
+    PreviousQueries queries = new PreviousQueries(3);
+    for (int i = 0; i < 5; i++) {
+      add(queries, String.valueOf(i));
+    }
+    assertEquals(queries.size(), 3);
+    for (int i = 0; i < 1000; i++) {
+      int value = Integer.parseInt(next(queries));
+      assertTrue(value >= 2, "evicted query " + value + " returned");
+    }
+  }
+
+  @Test
+  public void testRankWeighting() {
+    // Repeating the single query of a cache of one is trivial, so use two queries and count how often the
+    // most recent one comes back: with 1/rank weights that is 2/3 of the time.
+    PreviousQueries queries = new PreviousQueries(2);
+    add(queries, "a");
+    add(queries, "b");
+    int same = 0;
+    int samples = 60000;
+    String last = "b";
+    for (int i = 0; i < samples; i++) {
+      String value = next(queries);
+      if (value.equals(last)) {
+        same++;
+      }
+      last = value;
+    }
+    assertEquals(same / (double) samples, 2.0 / 3, 0.02);
+  }
+
+  @Test
+  public void testLargeCacheRenumbers() {
+    PreviousQueries queries = new PreviousQueries(1000, PreviousQueries.Weighting.ZIPF, 0.99, 1);
+    Map<String, Integer> seen = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      if (i % 3 == 0) {
+        add(queries, String.valueOf(i));
+      } else {
+        seen.merge(next(queries), 1, Integer::sum);
+      }
+    }
+    assertEquals(queries.size(), 1000);
+    assertTrue(seen.size() > 1000);
+  }
+
+  @Test
+  public void testLruKEvictsQueriesUsedFewerThanKTimes() {
+    PreviousQueries queries = new PreviousQueries(2, PreviousQueries.Weighting.LRUK, 1.0, 2);
+    add(queries, "twice");
+    assertEquals(next(queries), "twice");
+    add(queries, "once");
+    // "once" is more recent, but only "twice" was used K times, so "once" is the one dropped
+    add(queries, "third");
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(!next(queries).equals("once"));
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link Zeta}.
+ */
+public class TestZeta {
+
+  @AfterMethod
+  public void reset() {
+    Zeta.setProperties(new Properties());
+  }
+
+  @Test
+  public void testParallelSumMatchesSerialSum() {
+    long n = 3 * Zeta.LONG_SUM;
+    double serial = Zeta.sum(0, n, 0.99, 0);
+    assertEquals(Zeta.parallelSum(0, n, 0.99), serial, serial * 1e-12);
+    assertEquals(Zeta.zeta(n, 0.99), serial, serial * 1e-12);
+    // incrementally, from a shorter sum
+    double head = Zeta.sum(0, 1000, 0.99, 0);
+    assertEquals(Zeta.zeta(1000, n, 0.99, head), serial, serial * 1e-12);
+  }
+
+  @Test
+  public void testApproximationIsWithinBound() {
+    for (double theta : new double[]{0.5, 0.99, 1.0, 1.2}) {
+      for (long n : new long[]{10, 2001, 5000, 1000000}) {
+        double exact = Zeta.sum(0, n, theta, 0);
+        assertEquals(Zeta.approximate(n, theta), exact, 1e-12 * Math.max(1, exact), "theta " + theta + " n " + n);
+      }
+    }
+  }
+
+  @Test
+  public void testApproximateMode() {
+    Properties props = new Properties();
+    props.setProperty(Zeta.MODE_PROPERTY, "approximate");
+    Zeta.setProperties(props);
+    long n = 10000000000L;
+    double zeta = Zeta.zeta(n, ZipfianGenerator.ZIPFIAN_CONSTANT);
+    // the value ScrambledZipfianGenerator has precomputed term by term
+    assertEquals(zeta, ScrambledZipfianGenerator.ZETAN, 1e-9);
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    Path dir = Files.createTempDirectory("zeta");
+    Properties props = new Properties();
+    props.setProperty(Zeta.MODE_PROPERTY, "approximate");
+    props.setProperty(Zeta.CACHE_DIR_PROPERTY, dir.toString());
+    Zeta.setProperties(props);
+    long n = 2 * Zeta.LONG_SUM;
+    double zeta = Zeta.zeta(n, 0.99);
+    File[] files = dir.toFile().listFiles();
+    assertEquals(files.length, 1);
+    assertEquals(Double.parseDouble(new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.UTF_8)),
+        zeta);
+
+    // later lookups read the file
+    Files.write(files[0].toPath(), "42.5".getBytes(StandardCharsets.UTF_8));
+    assertEquals(Zeta.zeta(n, 0.99), 42.5);
+    // but not for another theta, or short sums
+    assertTrue(Zeta.zeta(n, 0.98) != 42.5);
+    assertEquals(Zeta.zeta(100, 0.99), Zeta.sum(0, 100, 0.99, 0));
+    assertEquals(dir.toFile().listFiles().length, 2);
+
+    for (File f : dir.toFile().listFiles()) {
+      f.delete();
+    }
+    dir.toFile().delete();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownMode() {
+    Properties props = new Properties();
+    props.setProperty(Zeta.MODE_PROPERTY, "guess");
+    Zeta.setProperties(props);
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for {@link HdrLogMerger} and the parse mode of {@link OneMeasurementHdrHistogram}.
+ */
+public class TestHdrLogMerger {
+  private File dir;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("hdrlogs").toFile();
+    // client a runs from 1000 s to 1003 s, client b from 1001.5 s to 1003.5 s
+    writeLog(new File(dir, "READ_run-a.hdr"), "READ", 1000.0, 3, 1);
+    writeLog(new File(dir, "READ_run-b.hdr"), "READ", 1001.5, 2, 2);
+    writeLog(new File(dir, "UPDATE_run-a.hdr"), "UPDATE", 1000.0, 1, 1);
+    writeLog(new File(dir, "READ_WITH_ATTRIBUTES_run-a.hdr"), "READ_WITH_ATTRIBUTES", 1000.0, 1, 1);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  /**
+   * Writes a log as HistogramLogWriter does, with intervals of a second of 100 values each.
+   */
+  private static void writeLog(File file, String metric, double startTimeSec, int intervals, int latency)
+      throws IOException {
+    try (PrintStream log = new PrintStream(file, "US-ASCII")) {
+      log.println("#[Logging for: " + metric + "]");
+      log.println("#[Histogram log format version 1.1]");
+      log.printf("#[StartTime: %.3f (seconds since epoch), Thu Jan 01 00:16:40 UTC 1970]%n", startTimeSec);
+      log.println("\"StartTimestamp\",\"Interval_Length\",\"Interval_Max\",\"Interval_Compressed_Histogram\"");
+      for (int i = 0; i < intervals; i++) {
+        Histogram interval = new Histogram(3);
+        interval.recordValueWithCount(latency, 100);
+        ByteBuffer buffer = ByteBuffer.allocate(interval.getNeededByteBufferCapacity());
+        int length = interval.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.rewind();
+        buffer.get(bytes);
+        log.printf("%.3f,%.3f,%.3f,%s%n", (double) i, 1.0, latency / 1e6, Base64.getEncoder().encodeToString(bytes));
+      }
+    }
+  }
+
+  @Test
+  public void testFindLogs() throws IOException {
+    assertEquals(HdrLogMerger.findLogs(dir.getPath(), "READ", "run").size(), 2);
+    assertEquals(HdrLogMerger.findLogs(dir.getPath(), "READ", "").size(), 2);
+    assertEquals(HdrLogMerger.findLogs(dir.getPath(), "READ_WITH_ATTRIBUTES", "").size(), 1);
+    assertEquals(HdrLogMerger.findLogs(dir.getPath(), "READ", "run-b").size(), 1);
+    assertEquals(HdrLogMerger.findLogs(new File(dir, "UPDATE_run-a.hdr").getPath(), "UPDATE", "").size(), 1);
+    assertEquals(HdrLogMerger.findLogs(new File(dir, "UPDATE_run-a.hdr").getPath(), "READ", "").size(), 0);
+    assertEquals(HdrLogMerger.findLogs(new File(dir, "READ_WITH_ATTRIBUTES_run-a.hdr").getPath(), "READ", "").size(),
+        0);
+  }
+
+  @Test
+  public void testMergeAlignsByAbsoluteTime() throws IOException {
+    HdrLogMerger.Merged merged = new HdrLogMerger(1000).merge(HdrLogMerger.findLogs(dir.getPath(), "READ", ""));
+    assertEquals(merged.getTotal().getTotalCount(), 500);
+    assertEquals(merged.getStartMs(), 1000000);
+    assertEquals(merged.getRuntimeMs(), 3500);
+
+    List<Double> throughput = new ArrayList<>();
+    List<Long> maxLatency = new ArrayList<>();
+    for (HdrLogMerger.Bucket bucket : merged.getBuckets().values()) {
+      throughput.add(bucket.getThroughput());
+      maxLatency.add(bucket.getLatencies().getMaxValue());
+    }
+    assertEquals(new ArrayList<>(merged.getBuckets().keySet()).toString(), "[1000000, 1001000, 1002000, 1003000]");
+    assertEquals(throughput.toString(), "[100.0, 150.0, 200.0, 50.0]");
+    // b's intervals have their midpoints at 1002 s and 1003 s
+    assertEquals(maxLatency.toString(), "[1, 1, 2, 2]");
+  }
+
+  @Test
+  public void testParseModeExportsMergedThroughputAndTimeSeries() throws IOException {
+    Properties props = new Properties();
+    props.setProperty("parse", "true");
+    props.setProperty(OneMeasurementHdrHistogram.PARSE_INPUT_PROPERTY, dir.getPath());
+    props.setProperty(OneMeasurementHdrHistogram.PERCENTILES_PROPERTY, "50");
+    final Map<String, Number> exported = new HashMap<>();
+    new OneMeasurementHdrHistogram("READ", props).exportMeasurements(new MeasurementsExporter() {
+      @Override
+      public void write(String metric, String measurement, int i) {
+        exported.put(measurement, i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, long i) {
+        exported.put(measurement, i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, double d) {
+        exported.put(measurement, d);
+      }
+
+      @Override
+      public void close() {
+      }
+    }, 0);
+    assertEquals(exported.get("Operations"), 500L);
+    assertEquals(exported.get("Throughput(ops/sec)").doubleValue(), 500 / 3.5, 1e-9);
+    assertEquals(exported.get("1000 Throughput(ops/sec)"), 150.0);
+    assertEquals(exported.get("3000 50thPercentileLatency(us)"), 2L);
+  }
+}
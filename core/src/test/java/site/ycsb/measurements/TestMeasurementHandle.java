@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import org.testng.annotations.Test;
+import site.ycsb.Status;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Test class for {@link MeasurementHandle}.
+ */
+public class TestMeasurementHandle {
+
+  private static Map<String, Number> export(Measurements measurements) throws IOException {
+    final Map<String, Number> exported = new HashMap<>();
+    measurements.exportMeasurements(new MeasurementsExporter() {
+      @Override
+      public void write(String metric, String measurement, int i) {
+        exported.put(metric + " " + measurement, i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, long i) {
+        exported.put(metric + " " + measurement, i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, double d) {
+        exported.put(metric + " " + measurement, d);
+      }
+
+      @Override
+      public void close() {
+      }
+    }, 1000);
+    return exported;
+  }
+
+  @Test
+  public void testHandleRecordsLikeTheNamedMethods() throws IOException {
+    Measurements measurements = new Measurements(new Properties());
+    MeasurementHandle read = measurements.getHandle("READ");
+    measurements.getHandle("SCAN");
+    read.measure(10);
+    read.measure(30);
+    measurements.measure("READ", 20);
+    read.reportStatus(Status.OK);
+    read.reportStatus(Status.OK);
+    read.reportStatus(Status.NOT_FOUND);
+    measurements.reportStatus("READ", Status.OK);
+
+    Map<String, Number> exported = export(measurements);
+    assertEquals(exported.get("READ Operations"), 3L);
+    assertEquals(exported.get("READ MaxLatency(us)"), 30L);
+    assertEquals(exported.get("READ Return=OK"), 3);
+    assertEquals(exported.get("READ Return=NOT_FOUND"), 1);
+    // handles that were never used do not report anything
+    assertFalse(exported.containsKey("SCAN Operations"));
+  }
+
+  @Test
+  public void testHandleFollowsTheMeasurementInterval() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "intended");
+    Measurements measurements = new Measurements(props);
+    MeasurementHandle update = measurements.getHandle("UPDATE");
+    update.measure(10);
+    update.measureIntended(40);
+    update.reportStatus(Status.OK);
+
+    Map<String, Number> exported = export(measurements);
+    assertEquals(exported.get("UPDATE Operations"), 1L);
+    assertEquals(exported.get("UPDATE MaxLatency(us)"), 40L);
+    assertEquals(exported.get("UPDATE Return=OK"), 1);
+    assertNull(exported.get("Intended-UPDATE Operations"));
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import org.testng.annotations.Test;
+import site.ycsb.Client;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link OneMeasurementHdrHistogram}.
+ */
+public class TestOneMeasurementHdrHistogram {
+
+  private static Map<String, Number> export(OneMeasurement measurement) throws IOException {
+    final Map<String, Number> exported = new HashMap<>();
+    measurement.exportMeasurements(new MeasurementsExporter() {
+      @Override
+      public void write(String metric, String measurement, int i) {
+        exported.put(measurement, i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, long i) {
+        exported.put(measurement, i);
+      }
+
+      @Override
+      public void write(String metric, String measurement, double d) {
+        exported.put(measurement, d);
+      }
+
+      @Override
+      public void close() {
+      }
+    }, 1000);
+    return exported;
+  }
+
+  private static void measureConcurrently(String recorder) throws Exception {
+    Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.RECORDER_PROPERTY, recorder);
+    final OneMeasurementHdrHistogram measurement = new OneMeasurementHdrHistogram("READ", props);
+    final int threads = 8;
+    final int values = 20000;
+    Thread[] writers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int latency = t + 1;
+      writers[t] = new Thread(() -> {
+          for (int i = 0; i < values; i++) {
+            measurement.measure(latency);
+          }
+        });
+      writers[t].start();
+    }
+    // harvest intervals while the writers record
+    long harvested = 0;
+    for (int i = 0; i < 20; i++) {
+      harvested += Long.parseLong(measurement.getSummary().replaceAll(".*Count=(\\d+),.*", "$1"));
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    Map<String, Number> exported = export(measurement);
+    assertEquals(exported.get("Operations"), (long) threads * values);
+    assertEquals(exported.get("MinLatency(us)"), 1L);
+    assertEquals(exported.get("MaxLatency(us)"), (long) threads);
+    assertEquals(exported.get("AverageLatency(us)").doubleValue(), (threads + 1) / 2.0, 1e-9);
+    assertTrue(harvested <= (long) threads * values);
+  }
+
+  @Test
+  public void testPerThreadRecordersLoseNothingWhileHarvested() throws Exception {
+    measureConcurrently("perthread");
+  }
+
+  @Test
+  public void testSharedRecorder() throws Exception {
+    measureConcurrently("shared");
+  }
+
+  @Test
+  public void testIntervalsOfEndedThreadsAreKept() throws Exception {
+    final OneMeasurementHdrHistogram measurement = new OneMeasurementHdrHistogram("READ", new Properties());
+    Thread writer = new Thread(() -> measurement.measure(5));
+    writer.start();
+    writer.join();
+    measurement.measure(7);
+    Map<String, Number> exported = export(measurement);
+    assertEquals(exported.get("Operations"), 2L);
+    assertEquals(exported.get("MaxLatency(us)"), 7L);
+  }
+
+  @Test
+  public void testRecordersOfEndedThreadsAreDroppedAfterTheirLastInterval() throws Exception {
+    final OneMeasurementHdrHistogram measurement = new OneMeasurementHdrHistogram("READ", new Properties());
+    Thread writer = new Thread(() -> measurement.measure(5));
+    writer.start();
+    writer.join();
+    assertTrue(measurement.getSummary().contains("Count=1,"));
+    assertTrue(measurement.getSummary().contains("Count=0,"));
+    measurement.measure(7);
+    assertTrue(measurement.getSummary().contains("Count=1,"));
+    Map<String, Number> exported = export(measurement);
+    assertEquals(exported.get("Operations"), 2L);
+  }
+
+  @Test
+  public void testVirtualClientThreadsShareARecorderByDefault() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Client.CLIENT_THREADS_TYPE_PROPERTY, "virtual");
+    OneMeasurementHdrHistogram virtual = new OneMeasurementHdrHistogram("READ", props);
+    OneMeasurementHdrHistogram platform = new OneMeasurementHdrHistogram("READ", new Properties());
+    for (final OneMeasurementHdrHistogram measurement : new OneMeasurementHdrHistogram[]{virtual, platform}) {
+      Thread writer = new Thread(() -> measurement.measure(5));
+      writer.start();
+      writer.join();
+      measurement.measure(7);
+      assertEquals(export(measurement).get("Operations"), 2L);
+    }
+    assertEquals(virtual.threadRecorderCount(), 0);
+    // the ended writer's recorder is dropped once harvested, this thread's is left
+    assertEquals(platform.threadRecorderCount(), 1);
+  }
+}
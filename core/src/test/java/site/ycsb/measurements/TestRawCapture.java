@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.measurements;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import site.ycsb.Status;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for {@link RawCapture}, {@link OneMeasurementRawCapture} and {@link RawCaptureReader}.
+ */
+public class TestRawCapture {
+  private File file;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    file = File.createTempFile("capture", ".raw");
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    file.delete();
+  }
+
+  private static Map<String, Number> read(File file, double[] percentiles, int memoryRecords) throws IOException {
+    final Map<String, Number> exported = new HashMap<>();
+    try (RawCaptureReader reader = new RawCaptureReader(file)) {
+      reader.export(new MeasurementsExporter() {
+        @Override
+        public void write(String metric, String measurement, int i) {
+          exported.put(metric + " " + measurement, i);
+        }
+
+        @Override
+        public void write(String metric, String measurement, long i) {
+          exported.put(metric + " " + measurement, i);
+        }
+
+        @Override
+        public void write(String metric, String measurement, double d) {
+          exported.put(metric + " " + measurement, d);
+        }
+
+        @Override
+        public void close() {
+        }
+      }, percentiles, 1000, memoryRecords);
+    }
+    return exported;
+  }
+
+  @Test
+  public void testCapturedRecordsGiveExactPercentiles() throws Exception {
+    final RawCapture capture = new RawCapture(file, 7);
+    final OneMeasurementRawCapture read = new OneMeasurementRawCapture("READ", capture);
+    final OneMeasurementRawCapture update = new OneMeasurementRawCapture("UPDATE", capture);
+    final int threads = 4;
+    final int values = 5000;
+    final int[][] latencies = new int[threads][values];
+    Thread[] writers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int[] mine = latencies[t];
+      final Random random = new Random(t);
+      writers[t] = new Thread(() -> {
+          for (int i = 0; i < values; i++) {
+            mine[i] = random.nextInt(100000);
+            read.measure(mine[i], Status.OK);
+            update.measure(i, i % 10 == 0 ? Status.ERROR : Status.OK);
+          }
+        });
+      writers[t].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    capture.close();
+
+    int[] all = new int[threads * values];
+    for (int t = 0; t < threads; t++) {
+      System.arraycopy(latencies[t], 0, all, t * values, values);
+    }
+    Arrays.sort(all);
+    // few records in memory, so that the latencies are sorted in runs on disk
+    Map<String, Number> exported = read(file, new double[]{99.9, 50, 0}, 1000);
+    assertEquals(exported.get("READ Operations"), (long) all.length);
+    assertEquals(exported.get("READ Return=OK"), (long) all.length);
+    assertEquals(exported.get("READ 50thPercentileLatency(us)"), all[all.length / 2]);
+    assertEquals(exported.get("READ 99.9PercentileLatency(us)"), all[(int) (all.length * 0.999)]);
+    assertEquals(exported.get("READ 0thPercentileLatency(us)"), all[0]);
+    assertEquals(exported.get("READ MaxLatency(us)"), all[all.length - 1]);
+    assertEquals(exported.get("UPDATE Operations"), (long) threads * values);
+    assertEquals(exported.get("UPDATE Return=ERROR"), (long) threads * values / 10);
+    assertEquals(exported.get("UPDATE 50thPercentileLatency(us)"), values / 2);
+
+    double throughput = 0;
+    for (Map.Entry<String, Number> entry : exported.entrySet()) {
+      if (entry.getKey().startsWith("READ ") && entry.getKey().endsWith(" Throughput(ops/sec)")) {
+        throughput += entry.getValue().doubleValue();
+      }
+    }
+    assertEquals(throughput, (double) all.length, 1e-6);
+  }
+
+  @Test
+  public void testMeasurementsWithoutStatus() throws Exception {
+    RawCapture capture = new RawCapture(file, 1024);
+    OneMeasurementRawCapture measurement = new OneMeasurementRawCapture("SCAN", capture);
+    measurement.measure(3);
+    measurement.measure(1);
+    measurement.measure(2);
+    capture.close();
+    Map<String, Number> exported = read(file, new double[]{50}, 1 << 20);
+    assertEquals(exported.get("SCAN Operations"), 3L);
+    assertEquals(exported.get("SCAN 50thPercentileLatency(us)"), 2);
+    assertEquals(exported.get("SCAN AverageLatency(us)"), 2.0);
+  }
+}
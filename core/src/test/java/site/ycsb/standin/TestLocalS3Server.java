@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2023 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestLocalS3Server {
+  private static final String[] DISTANCE = {"trip_distance"};
+  private static final String[] FLOAT = {"S3TAGFLT"};
+
+  private LocalS3Server server;
+
+  private LocalS3Server start(String... properties) throws IOException {
+    Properties p = new Properties();
+    p.setProperty(LocalS3Server.HOST_PROPERTY, "127.0.0.1");
+    p.setProperty(LocalS3Server.S3_PORT_PROPERTY, "0");
+    p.setProperty(LocalS3Server.QUERY_PORT_PROPERTY, "0");
+    for (int i = 0; i < properties.length; i += 2) {
+      p.setProperty(properties[i], properties[i + 1]);
+    }
+    server = new LocalS3Server(p);
+    return server;
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    if (server != null) {
+      server.close();
+      server = null;
+    }
+  }
+
+  private HttpURLConnection request(String method, String path, String body, String... headers)
+      throws IOException {
+    HttpURLConnection c = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getS3Port() + path)
+        .openConnection();
+    c.setRequestMethod(method);
+    for (int i = 0; i < headers.length; i += 2) {
+      c.setRequestProperty(headers[i], headers[i + 1]);
+    }
+    if (body != null) {
+      c.setDoOutput(true);
+      try (OutputStream out = c.getOutputStream()) {
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return c;
+  }
+
+  private static String read(HttpURLConnection c) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (InputStream in = c.getResponseCode() < 400 ? c.getInputStream() : c.getErrorStream()) {
+      byte[] buf = new byte[4096];
+      int n;
+      while (in != null && (n = in.read(buf)) > 0) {
+        body.write(buf, 0, n);
+      }
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private void put(String key, String body, String distance) throws IOException {
+    HttpURLConnection c = request("PUT", "/bucket/" + key, body, "x-amz-meta-f-trip_distance", distance);
+    assertEquals(c.getResponseCode(), 200);
+  }
+
+  @Test
+  public void testObjects() throws IOException {
+    start();
+    assertEquals(request("PUT", "/bucket", null).getResponseCode(), 200);
+    put("user1", "hello", "1.5");
+    HttpURLConnection get = request("GET", "/bucket/user1", null);
+    assertEquals(get.getResponseCode(), 200);
+    assertEquals(get.getHeaderField("x-amz-meta-f-trip_distance"), "1.5");
+    // The ETag is the MD5 of the content, which the SDK checks.
+    assertEquals(get.getHeaderField("ETag"), "\"5d41402abc4b2a76b9719d911017c592\"");
+    assertEquals(read(get), "hello");
+
+    assertEquals(request("GET", "/bucket/nobody", null).getResponseCode(), 404);
+    assertTrue(read(request("GET", "/bucket/nobody", null)).contains("<Code>NoSuchKey</Code>"));
+
+    put("user2", "x", "2.5");
+    put("user3", "y", "3.5");
+    String list = read(request("GET", "/bucket?max-keys=2", null));
+    assertTrue(list.contains("<Key>user1</Key>") && list.contains("<Key>user2</Key>"), list);
+    assertTrue(list.contains("<IsTruncated>true</IsTruncated><Marker></Marker><NextMarker>user2</NextMarker>"),
+        list);
+    list = read(request("GET", "/bucket?list-type=2&continuation-token=user2", null));
+    assertTrue(list.contains("<KeyCount>1</KeyCount>") && list.contains("<Key>user3</Key>"), list);
+
+    assertEquals(request("DELETE", "/bucket/user3", null).getResponseCode(), 204);
+    assertEquals(request("GET", "/bucket/user3", null).getResponseCode(), 404);
+  }
+
+  @Test
+  public void testAwsChunkedUpload() throws IOException {
+    start();
+    request("PUT", "/bucket", null).getResponseCode();
+    String body = "5;chunk-signature=abc\r\nhello\r\n6;chunk-signature=def\r\n world\r\n0;chunk-signature=0\r\n\r\n";
+    HttpURLConnection c = request("PUT", "/bucket/chunked", body,
+        "x-amz-content-sha256", "STREAMING-AWS4-HMAC-SHA256-PAYLOAD", "x-amz-decoded-content-length", "11");
+    assertEquals(c.getResponseCode(), 200);
+    assertEquals(read(request("GET", "/bucket/chunked", null)), "hello world");
+  }
+
+  @Test
+  public void testQueries() throws IOException {
+    start();
+    request("PUT", "/bucket", null).getResponseCode();
+    for (int i = 0; i < 20; i++) {
+      put("user" + i, "v", String.valueOf(i));
+    }
+    QueryClient client = new QueryClient("127.0.0.1", server.getQueryPort());
+    List<Map<String, String>> results = new ArrayList<>();
+    assertEquals(client.query(DISTANCE, FLOAT, new Object[]{"5"}, new Object[]{"9"}, 0, results::add), 5);
+    assertEquals(results.get(0).get("f-trip_distance"), "5");
+    assertEquals(client.query(DISTANCE, FLOAT, new Object[]{"0"}, new Object[]{"100"}, 3, r -> { }), 3);
+  }
+
+  @Test
+  public void testSubscriptionSeesWritesAfterIndexLag() throws Exception {
+    start(LocalS3Server.INDEX_LAG + ServiceTimeModel.MEAN_SUFFIX, "200");
+    request("PUT", "/bucket", null).getResponseCode();
+    QueryClient client = new QueryClient("127.0.0.1", server.getQueryPort());
+    final CountDownLatch finish = new CountDownLatch(1);
+    final CountDownLatch delivered = new CountDownLatch(1);
+    final List<Long> deliveredAt = Collections.synchronizedList(new ArrayList<>());
+    Thread subscriber = new Thread(() -> {
+        try {
+          client.subscribe(DISTANCE, FLOAT, new Object[]{"1"}, new Object[]{"2"}, finish, attributes -> {
+              deliveredAt.add(System.nanoTime());
+              delivered.countDown();
+            });
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    subscriber.start();
+    // Let the subscription open before writing.
+    Thread.sleep(300);
+    long written = System.nanoTime();
+    put("user1", "v", "1.5");
+    // Not yet indexed, so not yet queryable.
+    assertEquals(client.query(DISTANCE, FLOAT, new Object[]{"1"}, new Object[]{"2"}, 0, r -> { }), 0);
+    assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    assertTrue(deliveredAt.get(0) - written >= TimeUnit.MILLISECONDS.toNanos(190));
+    finish.countDown();
+    subscriber.join(5000);
+    assertTrue(!subscriber.isAlive());
+  }
+
+  @Test
+  public void testFullQueueIsTurnedAway() throws Exception {
+    start(LocalS3Server.S3_STAGE + Stage.WORKERS_SUFFIX, "1",
+        LocalS3Server.S3_STAGE + Stage.QUEUE_DEPTH_SUFFIX, "0",
+        LocalS3Server.S3_STAGE + Stage.SERVICE_TIME_SUFFIX + ServiceTimeModel.MEAN_SUFFIX, "500");
+    Thread slow = new Thread(() -> {
+        try {
+          request("PUT", "/bucket", null).getResponseCode();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    slow.start();
+    Thread.sleep(200);
+    HttpURLConnection c = request("GET", "/bucket/x", null);
+    assertEquals(c.getResponseCode(), 503);
+    assertTrue(read(c).contains("<Code>SlowDown</Code>"));
+    slow.join();
+  }
+
+  @Test
+  public void testServiceTimeModel() {
+    Properties p = new Properties();
+    p.setProperty("t" + ServiceTimeModel.DISTRIBUTION_SUFFIX, "exponential");
+    p.setProperty("t" + ServiceTimeModel.MEAN_SUFFIX, "2");
+    ServiceTimeModel model = new ServiceTimeModel(p, "t");
+    long sum = 0;
+    int n = 100000;
+    for (int i = 0; i < n; i++) {
+      sum += model.nextNanos();
+    }
+    assertEquals(sum / (double) n, 2e6, 2e6 * 0.05);
+    assertTrue(new ServiceTimeModel(new Properties(), "t").isZero());
+  }
+}
@@ -22,7 +22,8 @@ import java.util.Properties;
 
 import org.testng.annotations.Test;
 
-import site.ycsb.generator.DiscreteGenerator;
+import site.ycsb.Workload.Operation;
+import site.ycsb.generator.AliasDiscreteGenerator;
 
 public class TestCoreWorkload {
 
@@ -34,21 +35,21 @@ public class TestCoreWorkload {
     p.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, "0.20");
     p.setProperty(CoreWorkload.SCAN_PROPORTION_PROPERTY, "0.20");
     p.setProperty(CoreWorkload.READMODIFYWRITE_PROPORTION_PROPERTY, "0.20");
-    final DiscreteGenerator generator = CoreWorkload.createOperationGenerator(p);
+    final AliasDiscreteGenerator<Operation> generator = CoreWorkload.createOperationGenerator(p);
     final int[] counts = new int[5];
     
     for (int i = 0; i < 100; ++i) {
-      switch (generator.nextString()) {
-      case "READ":
+      switch (generator.nextValue()) {
+      case READ:
         ++counts[0];
         break;
-      case "UPDATE":
+      case UPDATE:
         ++counts[1];
         break;
-      case "INSERT": 
+      case INSERT: 
         ++counts[2];
         break;
-      case "SCAN":
+      case SCAN:
         ++counts[3];
         break;
       default:
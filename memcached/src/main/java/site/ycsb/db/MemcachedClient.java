@@ -27,7 +27,6 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.InetSocketAddress;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -264,7 +263,7 @@ public class MemcachedClient extends DB {
   }
 
   protected static String createQualifiedKey(String table, String key) {
-    return MessageFormat.format("{0}-{1}", table, key);
+    return table + '-' + key;
   }
 
   protected static void fromJson(
@@ -18,6 +18,7 @@ package site.ycsb.db;
 
 import static com.allanbank.mongodb.builder.QueryBuilder.where;
 
+import com.allanbank.mongodb.Callback;
 import com.allanbank.mongodb.Durability;
 import com.allanbank.mongodb.LockType;
 import com.allanbank.mongodb.MongoClient;
@@ -49,6 +50,8 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -469,6 +472,141 @@ public class AsyncMongoDbClient extends DB {
     }
   }
 
+  /**
+   * Reads a record through the asynchronous find of the driver, completing the
+   * stage from its callback. The workloads read with attributes, which are not
+   * stored apart from the fields.
+   */
+  @Override
+  public CompletionStage<Status> readWithAttributesAsync(final String table,
+      final String key, final Set<String> fields,
+      final Map<String, ByteIterator> result,
+      final Map<String, String> attributes) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      final MongoCollection collection = database.getCollection(table);
+      // built apart from the thread's builder, which the next operation resets
+      final Find.Builder find =
+          Find.builder().query(BuilderFactory.start().add("_id", key))
+              .limit(1).batchSize(1).readPreference(readPreference);
+      if (fields != null) {
+        final DocumentBuilder fieldsToReturn = BuilderFactory.start();
+        for (final String field : fields) {
+          fieldsToReturn.add(field, INCLUDE);
+        }
+        find.projection(fieldsToReturn);
+      }
+      collection.findOneAsync(new Callback<Document>() {
+        @Override
+        public void callback(final Document queryResult) {
+          if (queryResult == null) {
+            future.complete(Status.NOT_FOUND);
+            return;
+          }
+          fillMap(result, queryResult);
+          future.complete(Status.OK);
+        }
+
+        @Override
+        public void exception(final Throwable thrown) {
+          System.err.println(thrown.toString());
+          future.complete(Status.ERROR);
+        }
+      }, find.build());
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  /**
+   * Updates a record through the asynchronous update of the driver, completing
+   * the stage from its callback.
+   */
+  @Override
+  public CompletionStage<Status> updateWithAttributesAsync(final String table,
+      final String key, final Map<String, ByteIterator> values,
+      final Map<String, String> attributes) {
+    final DocumentBuilder update = BuilderFactory.start();
+    final DocumentBuilder fieldsToSet = update.push("$set");
+    for (final Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      fieldsToSet.add(entry.getKey(), entry.getValue().toArray());
+    }
+    return write(table, BuilderFactory.start().add("_id", key).build(),
+        update.build(), false);
+  }
+
+  /**
+   * Inserts a record through the asynchronous insert or upsert of the driver,
+   * completing the stage from its callback. Batched inserts keep the batch of
+   * this instance, so they stay on the blocking insert.
+   */
+  @Override
+  public CompletionStage<Status> insertWithAttributesAsync(final String table,
+      final String key, final Map<String, ByteIterator> values,
+      final Map<String, String> attributes) {
+    if (batchSize > 1) {
+      return CompletableFuture.completedFuture(insert(table, key, values));
+    }
+    final DocumentBuilder toInsert = BuilderFactory.start().add("_id", key);
+    final Document query = toInsert.build();
+    for (final Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      toInsert.add(entry.getKey(), entry.getValue().toArray());
+    }
+    if (useUpsert) {
+      return write(table, query, toInsert.build(), true);
+    }
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      database.getCollection(table).insertAsync(new Callback<Integer>() {
+        @Override
+        public void callback(final Integer result) {
+          // Return is not stable pre-SERVER-4381. No exception is success.
+          future.complete(Status.OK);
+        }
+
+        @Override
+        public void exception(final Throwable thrown) {
+          System.err.println(thrown.toString());
+          future.complete(Status.ERROR);
+        }
+      }, writeConcern, toInsert.build());
+    } catch (final Exception e) {
+      e.printStackTrace();
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
+  /**
+   * Issues an asynchronous update of one document, completing the stage with
+   * the outcome the blocking update and insert report.
+   */
+  private CompletionStage<Status> write(final String table,
+      final Document query, final Document update, final boolean upsert) {
+    final CompletableFuture<Status> future = new CompletableFuture<Status>();
+    try {
+      database.getCollection(table).updateAsync(new Callback<Long>() {
+        @Override
+        public void callback(final Long res) {
+          future.complete(writeConcern == Durability.NONE || res == 1
+              ? Status.OK : Status.NOT_FOUND);
+        }
+
+        @Override
+        public void exception(final Throwable thrown) {
+          System.err.println(thrown.toString());
+          future.complete(Status.ERROR);
+        }
+      }, query, update, false, upsert, writeConcern);
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      future.complete(Status.ERROR);
+    }
+    return future;
+  }
+
   /**
    * Fills the map with the ByteIterators from the document.
    * 
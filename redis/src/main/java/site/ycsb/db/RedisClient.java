@@ -24,12 +24,14 @@
 
 package site.ycsb.db;
 
+import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
 import redis.clients.jedis.BasicCommands;
+import redis.clients.jedis.BinaryJedisCommands;
 import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisCluster;
@@ -47,6 +49,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * YCSB binding for <a href="http://redis.io/">Redis</a>.
  *
@@ -55,6 +59,8 @@ import java.util.Vector;
 public class RedisClient extends DB {
 
   private JedisCommands jedis;
+  // the binary commands of a single node, null with a cluster
+  private BinaryJedisCommands binaryJedis;
 
   public static final String HOST_PROPERTY = "redis.host";
   public static final String PORT_PROPERTY = "redis.port";
@@ -83,6 +89,7 @@ public class RedisClient extends DB {
     } else {
       jedis = new Jedis(host, port);
       ((Jedis) jedis).connect();
+      binaryJedis = (Jedis) jedis;
     }
 
     String password = props.getProperty(PASSWORD_PROPERTY);
@@ -133,6 +140,33 @@ public class RedisClient extends DB {
     return result.isEmpty() ? Status.ERROR : Status.OK;
   }
 
+  @Override
+  public Status read(String table, byte[] key, Set<String> fields,
+      Map<String, ByteIterator> result) {
+    if (binaryJedis == null) {
+      return super.read(table, key, fields, result);
+    }
+    if (fields == null) {
+      for (Map.Entry<byte[], byte[]> entry : binaryJedis.hgetAll(key).entrySet()) {
+        result.put(new String(entry.getKey(), UTF_8),
+            new ByteArrayByteIterator(entry.getValue()));
+      }
+    } else {
+      String[] fieldArray = fields.toArray(new String[fields.size()]);
+      byte[][] binaryFields = new byte[fieldArray.length][];
+      for (int i = 0; i < fieldArray.length; i++) {
+        binaryFields[i] = fieldArray[i].getBytes(UTF_8);
+      }
+      List<byte[]> values = binaryJedis.hmget(key, binaryFields);
+      for (int i = 0; i < fieldArray.length && i < values.size(); i++) {
+        if (values.get(i) != null) {
+          result.put(fieldArray[i], new ByteArrayByteIterator(values.get(i)));
+        }
+      }
+    }
+    return result.isEmpty() ? Status.ERROR : Status.OK;
+  }
+
   @Override
   public Status insert(String table, String key,
       Map<String, ByteIterator> values) {
@@ -157,6 +191,19 @@ public class RedisClient extends DB {
         .equals("OK") ? Status.OK : Status.ERROR;
   }
 
+  @Override
+  public Status update(String table, byte[] key,
+      Map<String, ByteIterator> values) {
+    if (binaryJedis == null) {
+      return super.update(table, key, values);
+    }
+    Map<byte[], byte[]> hash = new HashMap<byte[], byte[]>();
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      hash.put(entry.getKey().getBytes(UTF_8), entry.getValue().toArray());
+    }
+    return binaryJedis.hmset(key, hash).equals("OK") ? Status.OK : Status.ERROR;
+  }
+
   @Override
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
@@ -212,13 +212,19 @@ public class RocksDBClient extends DB {
   @Override
   public Status read(final String table, final String key, final Set<String> fields,
       final Map<String, ByteIterator> result) {
+    return read(table, key.getBytes(UTF_8), fields, result);
+  }
+
+  @Override
+  public Status read(final String table, final byte[] key, final Set<String> fields,
+      final Map<String, ByteIterator> result) {
     try {
       if (!COLUMN_FAMILIES.containsKey(table)) {
         createColumnFamily(table);
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      final byte[] values = rocksDb.get(cf, key.getBytes(UTF_8));
+      final byte[] values = rocksDb.get(cf, key);
       if(values == null) {
         return Status.NOT_FOUND;
       }
@@ -259,6 +265,11 @@ public class RocksDBClient extends DB {
 
   @Override
   public Status update(final String table, final String key, final Map<String, ByteIterator> values) {
+    return update(table, key.getBytes(UTF_8), values);
+  }
+
+  @Override
+  public Status update(final String table, final byte[] key, final Map<String, ByteIterator> values) {
     //TODO(AR) consider if this would be faster with merge operator
 
     try {
@@ -268,7 +279,7 @@ public class RocksDBClient extends DB {
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
       final Map<String, ByteIterator> result = new HashMap<>();
-      final byte[] currentValues = rocksDb.get(cf, key.getBytes(UTF_8));
+      final byte[] currentValues = rocksDb.get(cf, key);
       if(currentValues == null) {
         return Status.NOT_FOUND;
       }
@@ -278,7 +289,7 @@ public class RocksDBClient extends DB {
       result.putAll(values);
 
       //store
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(result));
+      rocksDb.put(cf, key, serializeValues(result));
 
       return Status.OK;
 
@@ -290,13 +301,18 @@ public class RocksDBClient extends DB {
 
   @Override
   public Status insert(final String table, final String key, final Map<String, ByteIterator> values) {
+    return insert(table, key.getBytes(UTF_8), values);
+  }
+
+  @Override
+  public Status insert(final String table, final byte[] key, final Map<String, ByteIterator> values) {
     try {
       if (!COLUMN_FAMILIES.containsKey(table)) {
         createColumnFamily(table);
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.put(cf, key.getBytes(UTF_8), serializeValues(values));
+      rocksDb.put(cf, key, serializeValues(values));
 
       return Status.OK;
     } catch(final RocksDBException | IOException e) {
@@ -307,13 +323,18 @@ public class RocksDBClient extends DB {
 
   @Override
   public Status delete(final String table, final String key) {
+    return delete(table, key.getBytes(UTF_8));
+  }
+
+  @Override
+  public Status delete(final String table, final byte[] key) {
     try {
       if (!COLUMN_FAMILIES.containsKey(table)) {
         createColumnFamily(table);
       }
 
       final ColumnFamilyHandle cf = COLUMN_FAMILIES.get(table).getHandle();
-      rocksDb.delete(cf, key.getBytes(UTF_8));
+      rocksDb.delete(cf, key);
 
       return Status.OK;
     } catch(final RocksDBException e) {
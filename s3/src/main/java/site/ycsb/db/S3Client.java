@@ -22,8 +22,14 @@ import java.util.HashMap;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
-import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -34,9 +40,12 @@ import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
 import site.ycsb.DB;
 import site.ycsb.DBException;
+import site.ycsb.FreshnessTracker;
 import site.ycsb.Status;
+import site.ycsb.SubscriptionListener;
 
 import site.ycsb.generator.Counter;
+import site.ycsb.standin.QueryClient;
 
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.*;
@@ -80,6 +89,10 @@ import site.ycsb.measurements.Measurements;
  * The name of the file is determined by the parameter key.
  *This key is automatically generated by YCSB.
  *
+ * s3.asyncThreads=size of the pool running the object operations issued
+ * through the asynchronous API (default 64). Queries are asynchronous
+ * end-to-end through the Proteus streaming API.
+ *
  */
 public class S3Client extends DB {
 
@@ -91,9 +104,10 @@ public class S3Client extends DB {
   private static SSECustomerKey ssecKey;
   private static final AtomicInteger INIT_COUNT = new AtomicInteger(0);
   private static ProteusClient proteusClient;
+  private static QueryClient queryClient;
+  private static ExecutorService asyncExecutor;
   private static String queryResultCount;
   private boolean dotransactions;
-  private static String clientID;
   private Measurements measurements = Measurements.getMeasurements();
   /**
   * Cleanup any state for this storage.
@@ -101,24 +115,34 @@ public class S3Client extends DB {
   */
   @Override
   public void cleanup() throws DBException {
-    try {
-      if (dotransactions) {
-        proteusClient.shutdown();
+    // the clients are shared by all instances, so only the last one cleaned up shuts them down
+    if (INIT_COUNT.decrementAndGet() != 0) {
+      return;
+    }
+    synchronized (S3Client.class) {
+      try {
+        if (proteusClient != null) {
+          proteusClient.shutdown();
+        }
+      } catch (InterruptedException e) {
+        System.out.println(e.getMessage());
+      } finally {
+        proteusClient = null;
+        queryClient = null;
       }
-    } catch (InterruptedException e) {
-      System.out.println(e.getMessage());
-    } finally {
-      if (INIT_COUNT.decrementAndGet() == 0) {
-        try {
-          s3Client.shutdown();
-          System.out.println("The client is shutdown successfully");
-        } catch (Exception e){
-          System.err.println("Could not shutdown the S3Client: "+e.toString());
-          e.printStackTrace();
-        } finally {
-          if (s3Client != null){
-            s3Client = null;
-          }
+      try {
+        s3Client.shutdown();
+        System.out.println("The client is shutdown successfully");
+      } catch (Exception e){
+        System.err.println("Could not shutdown the S3Client: "+e.toString());
+        e.printStackTrace();
+      } finally {
+        if (s3Client != null){
+          s3Client = null;
+        }
+        if (asyncExecutor != null) {
+          asyncExecutor.shutdown();
+          asyncExecutor = null;
         }
       }
     }
@@ -153,7 +177,6 @@ public class S3Client extends DB {
     final int count = INIT_COUNT.incrementAndGet();
     synchronized (S3Client.class){
       Properties propsCL = getProperties();
-      clientID = propsCL.getProperty("client", "0");
       dotransactions = Boolean.valueOf(propsCL.getProperty("dotransactions", String.valueOf(true)));
       String proteusHost;
       int proteusPort;
@@ -186,7 +209,7 @@ public class S3Client extends DB {
           System.out.println("Reusing the same client");
           return;
         }
-        if (proteusClient != null) {
+        if (proteusClient != null || queryClient != null) {
           System.out.println("Reusing the same Proteus client");
           return;
         }
@@ -223,6 +246,8 @@ public class S3Client extends DB {
           options.setPathStyleAccess(true);
           s3Client.setS3ClientOptions(options);
           s3Client.createBucket(table);
+          asyncExecutor = Executors.newFixedThreadPool(
+              Integer.parseInt(propsCL.getProperty("s3.asyncThreads", "64")));
           System.out.println("Connection successfully initialized");
         } catch (Exception e){
           System.err.println("Could not connect to S3 storage: "+ e.toString());
@@ -236,7 +261,12 @@ public class S3Client extends DB {
             proteusPort = Integer.parseInt(
                 propsCL.getProperty("proteus.port"));
             proteusHost = propsCL.getProperty("proteus.host");
-            proteusClient = new ProteusClient(proteusHost, proteusPort);
+            if (propsCL.getProperty("proteus.protocol", "grpc").equals("http")) {
+              // the HTTP query service of the local stand-in, see site.ycsb.standin.LocalS3Server
+              queryClient = new QueryClient(proteusHost, proteusPort);
+            } else {
+              proteusClient = new ProteusClient(proteusHost, proteusPort);
+            }
             queryResultCount = propsCL.getProperty("queryresultcount");
             System.out.println("Connection successfully initialized");
           } catch (Exception e){
@@ -360,6 +390,36 @@ public class S3Client extends DB {
         Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
     return scanFromStorage(bucket, startkey, recordcount, result, ssecKey);
   }
+  @Override
+  public CompletionStage<Status> readAsync(String bucket, String key, Set<String> fields,
+                                           Map<String, ByteIterator> result) {
+    return CompletableFuture.supplyAsync(() -> read(bucket, key, fields, result), asyncExecutor);
+  }
+
+  @Override
+  public CompletionStage<Status> readWithAttributesAsync(String bucket, String key, Set<String> fields,
+                                                         Map<String, ByteIterator> result,
+                                                         Map<String, String> attributes) {
+    return CompletableFuture.supplyAsync(
+        () -> readFromStorage(bucket, key, result, attributes, ssecKey), asyncExecutor);
+  }
+
+  @Override
+  public CompletionStage<Status> updateWithAttributesAsync(String bucket, String key,
+                                                           Map<String, ByteIterator> values,
+                                                           Map<String, String> attributes) {
+    return CompletableFuture.supplyAsync(
+        () -> writeToStorage(bucket, key, values, attributes, false, sse, ssecKey), asyncExecutor);
+  }
+
+  @Override
+  public CompletionStage<Status> insertWithAttributesAsync(String bucket, String key,
+                                                           Map<String, ByteIterator> values,
+                                                           Map<String, String> attributes) {
+    return CompletableFuture.supplyAsync(
+        () -> writeToStorage(bucket, key, values, attributes, true, sse, ssecKey), asyncExecutor);
+  }
+
   /**
   * Upload a new object to S3 or update an object on S3.
   *
@@ -386,9 +446,9 @@ public class S3Client extends DB {
     // System.out.println();
     // getting the first field in the values
     Object keyToSearch = values.keySet().toArray()[0];
-    // getting the content of just one field
-    byte[] sourceArray = values.get(keyToSearch).toArray();
-    int sizeArray = sourceArray.length; //size of each array
+    // getting the content of just one field, as a view when the value is backed by a buffer
+    ByteBuffer source = values.get(keyToSearch).toByteBuffer();
+    int sizeArray = source.remaining(); //size of each field
     if (updateMarker){
       totalSize = sizeArray*fieldCount;
     } else {
@@ -404,13 +464,7 @@ public class S3Client extends DB {
         return Status.ERROR;
       }
     }
-    byte[] destinationArray = new byte[totalSize];
-    int offset = 0;
-    for (int i = 0; i < fieldCount; i++) {
-      System.arraycopy(sourceArray, 0, destinationArray, offset, sizeArray);
-      offset += sizeArray;
-    }
-    try (InputStream input = new ByteArrayInputStream(destinationArray)) {
+    try (InputStream input = new RepeatedBufferInputStream(source, fieldCount, totalSize)) {
       ObjectMetadata metadata = new ObjectMetadata();
       metadata.setContentLength(totalSize);
       metadata.setUserMetadata(attributes);
@@ -571,8 +625,48 @@ public class S3Client extends DB {
     return Status.OK;
   }
 
+  /**
+   * Translates the query parameters into Proteus predicates.
+   *
+   * @return The predicates, or null if an attribute type is unknown.
+   */
+  private static QueryPredicate[] toQueryPredicates(String []attributeName, String []attributeType,
+                                                    java.lang.Object []lbound, java.lang.Object []ubound) {
+    QueryPredicate[] queryPredicates = new QueryPredicate[attributeName.length];
+    for (int i=0; i<attributeName.length; i++) {
+      AttributeValue lb;
+      AttributeValue ub;
+      Attribute.AttributeType attrType;
+      switch (attributeType[i]) {
+      case "S3TAGSTR":
+        attrType = Attribute.AttributeType.S3TAGSTR;
+        lb = new AttributeValue((java.lang.String) lbound[i]);
+        ub = new AttributeValue((java.lang.String) ubound[i]);
+        break;
+      case "S3TAGINT":
+        attrType = Attribute.AttributeType.S3TAGINT;
+        lb = new AttributeValue(Long.parseLong((java.lang.String) lbound[i]));
+        ub = new AttributeValue(Long.parseLong((java.lang.String) ubound[i]));
+        break;
+      case "S3TAGFLT":
+        attrType = Attribute.AttributeType.S3TAGFLT;
+        lb = new AttributeValue(Double.parseDouble((java.lang.String) lbound[i]));
+        ub = new AttributeValue(Double.parseDouble((java.lang.String) ubound[i]));
+        break;
+      default:
+        System.err.println("Error in query parameters");
+        return null;
+      }
+      queryPredicates[i] = new QueryPredicate(attributeName[i], attrType, lb, ub);
+    }
+    return queryPredicates;
+  }
+
   public Status query(String []attributeName, String []attributeType,  java.lang.Object []lbound,
                               java.lang.Object []ubound, long []en) {
+    if (queryClient != null) {
+      return queryOverHttp(attributeName, attributeType, lbound, ubound, en);
+    }
     final Counter resultCount = new Counter();
     try {
       final CountDownLatch finishLatch = new CountDownLatch(1);
@@ -593,34 +687,11 @@ public class S3Client extends DB {
           finishLatch.countDown();
         }
       };
-      QueryPredicate[] queryPredicates = new QueryPredicate[attributeName.length];
       if (attributeName.length == attributeType.length && attributeName.length == lbound.length &&
           attributeName.length == ubound.length) {
-        for (int i=0; i<attributeName.length; i++) {
-          AttributeValue lb;
-          AttributeValue ub;
-          Attribute.AttributeType attrType;
-          switch (attributeType[i]) {
-          case "S3TAGSTR":
-            attrType = Attribute.AttributeType.S3TAGSTR;
-            lb = new AttributeValue((java.lang.String) lbound[i]);
-            ub = new AttributeValue((java.lang.String) ubound[i]);
-            break;
-          case "S3TAGINT":
-            attrType = Attribute.AttributeType.S3TAGINT;
-            lb = new AttributeValue(Long.parseLong((java.lang.String) lbound[i]));
-            ub = new AttributeValue(Long.parseLong((java.lang.String) ubound[i]));
-            break;
-          case "S3TAGFLT":
-            attrType = Attribute.AttributeType.S3TAGFLT;
-            lb = new AttributeValue(Double.parseDouble((java.lang.String) lbound[i]));
-            ub = new AttributeValue(Double.parseDouble((java.lang.String) ubound[i]));
-            break;
-          default:
-            System.err.println("Error in query parameters");
-            return Status.ERROR;
-          }
-          queryPredicates[0] = new QueryPredicate(attributeName[i], attrType, lb, ub);
+        QueryPredicate[] queryPredicates = toQueryPredicates(attributeName, attributeType, lbound, ubound);
+        if (queryPredicates == null) {
+          return Status.ERROR;
         }
         Map<String, String> queryMetadata = new HashMap<String, String>();
         queryMetadata.put("maxResponseCount", queryResultCount);
@@ -638,24 +709,95 @@ public class S3Client extends DB {
     return Status.OK;
   }
 
+  /**
+   * Runs a query against the HTTP query service of the local stand-in.
+   */
+  private Status queryOverHttp(String []attributeName, String []attributeType, java.lang.Object []lbound,
+                               java.lang.Object []ubound, long []en) {
+    try {
+      queryClient.query(attributeName, attributeType, lbound, ubound,
+          queryResultCount == null ? 0 : Long.parseLong(queryResultCount), record -> { });
+      en[0] = System.nanoTime();
+    } catch (IOException e) {
+      System.err.println("Query failed "+ e.getMessage());
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
+  @Override
+  public CompletionStage<Status> queryAsync(String []attributeName, String []attributeType,
+                                            java.lang.Object []lbound, java.lang.Object []ubound) {
+    if (queryClient != null) {
+      return CompletableFuture.supplyAsync(
+          () -> queryOverHttp(attributeName, attributeType, lbound, ubound, new long[2]), asyncExecutor);
+    }
+    if (attributeName.length != attributeType.length || attributeName.length != lbound.length ||
+        attributeName.length != ubound.length) {
+      System.err.println("Query parameters are not of equal length");
+      return CompletableFuture.completedFuture(Status.ERROR);
+    }
+    QueryPredicate[] queryPredicates = toQueryPredicates(attributeName, attributeType, lbound, ubound);
+    if (queryPredicates == null) {
+      return CompletableFuture.completedFuture(Status.ERROR);
+    }
+    final CompletableFuture<Status> result = new CompletableFuture<>();
+    final StreamObserver<ResponseStreamRecord> requestObserver = new StreamObserver<ResponseStreamRecord>() {
+      @Override
+      public void onNext(ResponseStreamRecord record) {
+      }
+      @Override
+      public void onError(Throwable t) {
+        System.err.println("plain Query failed " + t.getMessage());
+        t.printStackTrace();
+        result.complete(Status.ERROR);
+      }
+      @Override
+      public void onCompleted() {
+        result.complete(Status.OK);
+      }
+    };
+    Map<String, String> queryMetadata = new HashMap<String, String>();
+    queryMetadata.put("maxResponseCount", queryResultCount);
+    try {
+      // nobody waits on the latch: completion is signalled through the observer
+      proteusClient.query(queryPredicates, queryMetadata, new CountDownLatch(1), requestObserver, false);
+    } catch (Exception e) {
+      System.err.println("Query failed "+ e.getMessage());
+      e.printStackTrace();
+      return CompletableFuture.completedFuture(Status.ERROR);
+    }
+    return result;
+  }
+
   public Status subscribeQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
                               java.lang.Object []ubound, CountDownLatch finishLatch) {
+    return subscribeQuery(attributeName, attributeType, lbound, ubound, finishLatch,
+        FreshnessTracker.getTracker().subscribe(attributeName, attributeType, lbound, ubound));
+  }
+
+  @Override
+  public Status subscribeQuery(String []attributeName, String []attributeType,  java.lang.Object []lbound,
+                               java.lang.Object []ubound, CountDownLatch finishLatch,
+                               SubscriptionListener listener) {
+    if (queryClient != null) {
+      try {
+        queryClient.subscribe(attributeName, attributeType, lbound, ubound, finishLatch, listener);
+      } catch (IOException e) {
+        System.err.println("Query failed "+ e.getMessage());
+        return Status.ERROR;
+      }
+      return Status.OK;
+    }
     try {
-      final Counter resultCount = new Counter();
       final StreamObserver<ResponseStreamRecord> requestObserver = new StreamObserver<ResponseStreamRecord>() {
         @Override
         public void onNext(ResponseStreamRecord record) {
-          long en = System.nanoTime();
+          Map<String, String> attributes = new HashMap<String, String>();
           for (Attribute attr : record.getLogOp().getPayload().getDelta().getNew().getAttrsList()) {
-            if (attr.getAttrKey().startsWith("freshnesstimestamp")) {
-              if (attr.getAttrKey().split("_")[1].equals(clientID)) {
-                long st = Long.parseLong(attr.getValue().getStr());
-                measurements.measure("FRESHNESS_LATENCY", (int) ((en - st) / 1000));
-                measurements.reportStatus("FRESHNESS_LATENCY", Status.OK);
-              }
-              break;
-            }
+            attributes.put(attr.getAttrKey(), attr.getValue().getStr());
           }
+          listener.onRecord(attributes);
         }
         @Override
         public void onError(Throwable t) {
@@ -665,34 +807,11 @@ public class S3Client extends DB {
           finishLatch.countDown();
         }
       };
-      QueryPredicate[] queryPredicates = new QueryPredicate[attributeName.length];
       if (attributeName.length == attributeType.length && attributeName.length == lbound.length &&
           attributeName.length == ubound.length) {
-        for (int i=0; i<attributeName.length; i++) {
-          AttributeValue lb;
-          AttributeValue ub;
-          Attribute.AttributeType attrType;
-          switch (attributeType[i]) {
-          case "S3TAGSTR":
-            attrType = Attribute.AttributeType.S3TAGSTR;
-            lb = new AttributeValue((java.lang.String) lbound[i]);
-            ub = new AttributeValue((java.lang.String) ubound[i]);
-            break;
-          case "S3TAGINT":
-            attrType = Attribute.AttributeType.S3TAGINT;
-            lb = new AttributeValue(Long.parseLong((java.lang.String) lbound[i]));
-            ub = new AttributeValue(Long.parseLong((java.lang.String) ubound[i]));
-            break;
-          case "S3TAGFLT":
-            attrType = Attribute.AttributeType.S3TAGFLT;
-            lb = new AttributeValue(Double.parseDouble((java.lang.String) lbound[i]));
-            ub = new AttributeValue(Double.parseDouble((java.lang.String) ubound[i]));
-            break;
-          default:
-            System.err.println("Error in query parameters");
-            return Status.ERROR;
-          }
-          queryPredicates[0] = new QueryPredicate(attributeName[i], attrType, lb, ub);
+        QueryPredicate[] queryPredicates = toQueryPredicates(attributeName, attributeType, lbound, ubound);
+        if (queryPredicates == null) {
+          return Status.ERROR;
         }
         proteusClient.query(queryPredicates, null, finishLatch, requestObserver, true);
       } else {
@@ -710,4 +829,78 @@ public class S3Client extends DB {
   @Override
   public void endWarmup() {
   }
+
+  /**
+   * Streams the bytes of one field a given number of times, reading straight from the field's buffer instead of
+   * copying every repetition into one array, then zeros up to the length of the object. Supports mark and reset
+   * so the SDK can retry the upload.
+   */
+  private static final class RepeatedBufferInputStream extends InputStream {
+    private final ByteBuffer source;
+    private final int size;
+    private final long repeated;
+    private final long total;
+    private long pos;
+    private long mark;
+
+    RepeatedBufferInputStream(ByteBuffer source, int times, long length) {
+      this.source = source.slice();
+      this.size = this.source.remaining();
+      this.repeated = Math.min((long) size * times, length);
+      this.total = length;
+    }
+
+    @Override
+    public int read() {
+      if (pos >= total) {
+        return -1;
+      }
+      int b = pos < repeated ? source.get((int) (pos % size)) & 0xff : 0;
+      pos++;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (pos >= total) {
+        return -1;
+      }
+      int n;
+      if (pos < repeated) {
+        int from = (int) (pos % size);
+        n = (int) Math.min(len, Math.min(size - from, repeated - pos));
+        ByteBuffer view = source.duplicate();
+        ((Buffer) view).position(from);
+        view.get(b, off, n);
+      } else {
+        n = (int) Math.min(len, total - pos);
+        Arrays.fill(b, off, off + n, (byte) 0);
+      }
+      pos += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, total - pos);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+      mark = pos;
+    }
+
+    @Override
+    public synchronized void reset() {
+      pos = mark;
+    }
+  }
 }
\ No newline at end of file